@@ -0,0 +1,432 @@
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// Utilization and demand reports over the whole appointment history, archive included:
+//
+//   lecturers  bookings, confirmation and cancellation rates, booked hours against working hours
+//   weeks      the same totals for everyone, week by week
+//   demand     bookings by weekday and hour, busiest first
+//
+// Figures are kept per week (Monday to Sunday) and lecturer, in cells that add up to any
+// range. The first report builds every cell by splitting the history across the common
+// ForkJoinPool and merging the partial results. After that, appointment events mark the
+// cells they touch as stale, and a report only rebuilds those from the lecturer's index,
+// so a report after a few bookings costs a few small queries. Reports cover whole weeks.
+//
+// Cancelled appointments are deleted, not kept with a status, so cancellations are counted
+// as the events arrive, plus imported history with the status "Cancelled". Cancellations
+// from before this process started are otherwise unknown.
+public class AnalyticsEngine implements AutoCloseable {
+    public static final String[] LECTURER_COLUMNS = {"lecturer", "bookings", "confirmed", "cancelled",
+            "bookedHours", "capacityHours", "utilization", "confirmationRate", "cancellationRate"};
+    public static final String[] WEEK_COLUMNS = {"week", "bookings", "confirmed", "cancelled", "bookedHours",
+            "confirmationRate", "cancellationRate"};
+    public static final String[] DEMAND_COLUMNS = {"day", "hour", "bookings"};
+
+    private static final String CANCELLED_STATUS = "Cancelled";
+    // Below this many appointments a task aggregates them itself rather than splitting
+    private static final int SPLIT_THRESHOLD = 8_192;
+    // Past this many stale cells one pass over the history is cheaper than a query per cell
+    private static final int MAX_STALE_CELLS = 10_000;
+    private static final int DEMAND_SLOTS = 7 * 24;
+    private static final Metrics.Timer REFRESH_TIMER = Metrics.timer("analytics.refresh");
+    private static final LongAdder CELLS_REFRESHED = Metrics.counter("analytics.cellsRefreshed");
+
+    private final AppointmentManager appointmentManager;
+    private final AvailabilityEngine availabilityEngine;
+    // Monday's epoch day -> lecturer -> figures; guarded by this
+    private final NavigableMap<Long, Map<String, Cell>> weeks = new TreeMap<>();
+    private final Set<Map.Entry<Long, String>> staleCells = ConcurrentHashMap.newKeySet();
+    private volatile boolean allStale = true;
+    // Monday's epoch day -> lecturer -> cancellations seen
+    private final Map<Long, Map<String, LongAdder>> cancellations = new ConcurrentHashMap<>();
+    private EventBus.Subscription subscription;
+
+    public AnalyticsEngine(AppointmentManager appointmentManager, AvailabilityEngine availabilityEngine) {
+        this.appointmentManager = appointmentManager;
+        this.availabilityEngine = availabilityEngine;
+    }
+
+    // Follow changes; the first report aggregates the full history
+    public synchronized void start() {
+        subscription = appointmentManager.getEventBus().subscribe(this::onEvent);
+        allStale = true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    public static String[] columns(String report) {
+        switch (report) {
+            case "lecturers":
+                return LECTURER_COLUMNS;
+            case "weeks":
+                return WEEK_COLUMNS;
+            case "demand":
+                return DEMAND_COLUMNS;
+            default:
+                throw new IllegalArgumentException("Unknown report: " + report + " (lecturers, weeks or demand)");
+        }
+    }
+
+    // Rows of the named report, in the order of its columns, for the weeks overlapping
+    // from <= date < to (either may be null)
+    public synchronized List<Object[]> report(String report, LocalDate from, LocalDate to) {
+        columns(report);
+        refresh();
+        long first = from == null ? Long.MIN_VALUE : weekOf(from);
+        long last = to == null ? Long.MAX_VALUE : weekOf(to.minusDays(1));
+        if (first > last) {
+            return new ArrayList<>();
+        }
+        Map<Long, Map<String, Cell>> selected = weeks.subMap(first, true, last, true);
+        switch (report) {
+            case "lecturers":
+                return lecturerRows(selected, first, last);
+            case "weeks":
+                return weekRows(selected, first, last);
+            default:
+                return demandRows(selected);
+        }
+    }
+
+    // Write a report as CSV or JSON Lines (by file extension); returns the number of rows
+    public int export(String report, LocalDate from, LocalDate to, String fileName) throws IOException {
+        List<Object[]> rows = report(report, from, to);
+        try (BulkExporter.RowWriter out = BulkExporter.open(fileName, columns(report))) {
+            for (Object[] row : rows) {
+                out.write(row);
+            }
+        }
+        return rows.size();
+    }
+
+    // Rebuild the stale cells, or everything after a reload or on first use
+    public synchronized void refresh() {
+        long start = Metrics.Timer.start();
+        try {
+            // Take the stale cells before reading, so changes made meanwhile stay stale
+            List<Map.Entry<Long, String>> stale = new ArrayList<>(staleCells);
+            staleCells.removeAll(stale);
+            if (allStale || stale.size() > MAX_STALE_CELLS) {
+                allStale = false;
+                List<Appointment> history = appointmentManager.getAppointmentHistoryUnordered();
+                Map<Long, Map<String, Cell>> built =
+                        ForkJoinPool.commonPool().invoke(new Aggregation(history, 0, history.size()));
+                weeks.clear();
+                for (Map.Entry<Long, Map<String, Cell>> week : built.entrySet()) {
+                    for (Cell cell : week.getValue().values()) {
+                        cell.finish();
+                    }
+                    weeks.put(week.getKey(), week.getValue());
+                }
+                CELLS_REFRESHED.add(history.size());
+                return;
+            }
+            for (Map.Entry<Long, String> key : stale) {
+                LocalDateTime weekStart = LocalDate.ofEpochDay(key.getKey()).atStartOfDay();
+                Cell cell = new Cell();
+                for (Appointment appointment : appointmentManager.getAppointmentsForLecturerBetween(
+                        key.getValue(), weekStart, weekStart.plusDays(7))) {
+                    cell.add(appointment);
+                }
+                cell.finish();
+                Map<String, Cell> week = weeks.computeIfAbsent(key.getKey(), k -> new HashMap<>());
+                if (cell.isEmpty()) {
+                    week.remove(key.getValue());
+                    if (week.isEmpty()) {
+                        weeks.remove(key.getKey());
+                    }
+                } else {
+                    week.put(key.getValue(), cell);
+                }
+            }
+            CELLS_REFRESHED.add(stale.size());
+        } finally {
+            REFRESH_TIMER.stop(start);
+        }
+    }
+
+    private void onEvent(AppointmentEvent event) {
+        Appointment appointment = event.getAppointment();
+        switch (event.getType()) {
+            case CREATED:
+            case CONFIRMED:
+                markStale(appointment.getLecturerName(), appointment.getAppointmentTime());
+                break;
+            case CANCELLED:
+                cancellations.computeIfAbsent(weekOf(appointment.getAppointmentTime().toLocalDate()),
+                                key -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(appointment.getLecturerName(), key -> new LongAdder()).increment();
+                markStale(appointment.getLecturerName(), appointment.getAppointmentTime());
+                break;
+            case RESCHEDULED:
+                markStale(appointment.getLecturerName(), event.getPreviousTime());
+                markStale(appointment.getLecturerName(), appointment.getAppointmentTime());
+                break;
+            case RELOADED:
+                allStale = true;
+                break;
+            default:
+                // Archived appointments are still part of the history
+                break;
+        }
+    }
+
+    private void markStale(String lecturer, LocalDateTime time) {
+        staleCells.add(new AbstractMap.SimpleImmutableEntry<>(weekOf(time.toLocalDate()), lecturer));
+    }
+
+    private List<Object[]> lecturerRows(Map<Long, Map<String, Cell>> selected, long first, long last) {
+        Map<String, Cell> totals = new TreeMap<>();
+        for (Map<String, Cell> week : selected.values()) {
+            for (Map.Entry<String, Cell> entry : week.entrySet()) {
+                totals.computeIfAbsent(entry.getKey(), key -> new Cell()).addCounts(entry.getValue());
+            }
+        }
+        for (Map.Entry<Long, Map<String, LongAdder>> week : cancellations.entrySet()) {
+            if (week.getKey() >= first && week.getKey() <= last) {
+                for (Map.Entry<String, LongAdder> count : week.getValue().entrySet()) {
+                    totals.computeIfAbsent(count.getKey(), key -> new Cell()).cancelled += count.getValue().sum();
+                }
+            }
+        }
+        // Capacity is counted over the requested weeks, or the weeks with data if open-ended
+        long weekCount = 0;
+        if (!totals.isEmpty()) {
+            long from = first != Long.MIN_VALUE ? first : extent(true);
+            long to = last != Long.MAX_VALUE ? last : extent(false);
+            weekCount = (to - from) / 7 + 1;
+        }
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        for (Map.Entry<String, Cell> entry : totals.entrySet()) {
+            Cell total = entry.getValue();
+            long weeklyMinutes = 0;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                weeklyMinutes += availabilityEngine.workingMinutes(entry.getKey(), day);
+            }
+            long capacity = weeklyMinutes * weekCount;
+            rows.add(new Object[] {entry.getKey(), total.bookings, total.confirmed, total.cancelled,
+                    hours(total.minutes), hours(capacity), ratio(total.minutes, capacity),
+                    ratio(total.confirmed, total.bookings),
+                    ratio(total.cancelled, total.bookings + total.cancelled)});
+        }
+        return rows;
+    }
+
+    private List<Object[]> weekRows(Map<Long, Map<String, Cell>> selected, long first, long last) {
+        Map<Long, Cell> totals = new TreeMap<>();
+        for (Map.Entry<Long, Map<String, Cell>> week : selected.entrySet()) {
+            Cell total = totals.computeIfAbsent(week.getKey(), key -> new Cell());
+            for (Cell cell : week.getValue().values()) {
+                total.addCounts(cell);
+            }
+        }
+        for (Map.Entry<Long, Map<String, LongAdder>> week : cancellations.entrySet()) {
+            if (week.getKey() >= first && week.getKey() <= last) {
+                Cell total = totals.computeIfAbsent(week.getKey(), key -> new Cell());
+                for (LongAdder count : week.getValue().values()) {
+                    total.cancelled += count.sum();
+                }
+            }
+        }
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        for (Map.Entry<Long, Cell> entry : totals.entrySet()) {
+            Cell total = entry.getValue();
+            rows.add(new Object[] {LocalDate.ofEpochDay(entry.getKey()).toString(), total.bookings,
+                    total.confirmed, total.cancelled, hours(total.minutes),
+                    ratio(total.confirmed, total.bookings),
+                    ratio(total.cancelled, total.bookings + total.cancelled)});
+        }
+        return rows;
+    }
+
+    private static List<Object[]> demandRows(Map<Long, Map<String, Cell>> selected) {
+        long[] demand = new long[DEMAND_SLOTS];
+        for (Map<String, Cell> week : selected.values()) {
+            for (Cell cell : week.values()) {
+                for (long entry : cell.demand) {
+                    demand[(int) (entry >>> 40)] += entry & ((1L << 40) - 1);
+                }
+            }
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int slot = 0; slot < DEMAND_SLOTS; slot++) {
+            if (demand[slot] > 0) {
+                rows.add(new Object[] {DayOfWeek.values()[slot / 24].name(), slot % 24, demand[slot]});
+            }
+        }
+        rows.sort((a, b) -> Long.compare((long) b[2], (long) a[2]));
+        return rows;
+    }
+
+    // First or last week with bookings or cancellations
+    private long extent(boolean first) {
+        long result = first ? Long.MAX_VALUE : Long.MIN_VALUE;
+        if (!weeks.isEmpty()) {
+            result = first ? weeks.firstKey() : weeks.lastKey();
+        }
+        for (long week : cancellations.keySet()) {
+            result = first ? Math.min(result, week) : Math.max(result, week);
+        }
+        return result;
+    }
+
+    // Monday of the date's week, as an epoch day (1970-01-01 was a Thursday)
+    static long weekOf(LocalDate date) {
+        long day = date.toEpochDay();
+        return day - Math.floorMod(day + 3, 7);
+    }
+
+    private static double hours(long minutes) {
+        return Math.round(minutes / 60.0 * 100) / 100.0;
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0 : Math.round((double) part / whole * 10_000) / 10_000.0;
+    }
+
+    // Splits a slice of the history until it is small, aggregates the pieces and merges upwards
+    private static final class Aggregation extends RecursiveTask<Map<Long, Map<String, Cell>>> {
+        private final List<Appointment> appointments;
+        private final int from;
+        private final int to;
+
+        Aggregation(List<Appointment> appointments, int from, int to) {
+            this.appointments = appointments;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Long, Map<String, Cell>> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Map<Long, Map<String, Cell>> partial = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    Appointment appointment = appointments.get(i);
+                    partial.computeIfAbsent(weekOf(appointment.getAppointmentTime().toLocalDate()),
+                                    key -> new HashMap<>())
+                            .computeIfAbsent(appointment.getLecturerName(), key -> new Cell())
+                            .add(appointment);
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            Aggregation left = new Aggregation(appointments, from, middle);
+            left.fork();
+            Map<Long, Map<String, Cell>> right = new Aggregation(appointments, middle, to).compute();
+            return merge(left.join(), right);
+        }
+
+        // Fold the smaller partial into the larger
+        private static Map<Long, Map<String, Cell>> merge(Map<Long, Map<String, Cell>> a,
+                                                          Map<Long, Map<String, Cell>> b) {
+            if (a.size() < b.size()) {
+                Map<Long, Map<String, Cell>> swap = a;
+                a = b;
+                b = swap;
+            }
+            for (Map.Entry<Long, Map<String, Cell>> week : b.entrySet()) {
+                Map<String, Cell> into = a.putIfAbsent(week.getKey(), week.getValue());
+                if (into == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Cell> cell : week.getValue().entrySet()) {
+                    Cell existing = into.putIfAbsent(cell.getKey(), cell.getValue());
+                    if (existing != null) {
+                        existing.merge(cell.getValue());
+                    }
+                }
+            }
+            return a;
+        }
+    }
+
+    // One lecturer's figures for one week, or a total of several. Demand is collected as
+    // one weekday-and-hour slot per booking, then finish() packs it into sorted
+    // (slot << 40 | count) entries, so a cell holds only the hours actually booked.
+    private static final class Cell {
+        long bookings;
+        long confirmed;
+        long cancelled;
+        long minutes;
+        long[] demand = new long[0];
+        private int[] slots = new int[4];
+        private int slotCount;
+
+        void add(Appointment appointment) {
+            if (CANCELLED_STATUS.equalsIgnoreCase(appointment.getStatus())) {
+                cancelled++;
+                return;
+            }
+            bookings++;
+            if (appointment.isConfirmed()) {
+                confirmed++;
+            }
+            minutes += appointment.getDurationMinutes();
+            LocalDateTime time = appointment.getAppointmentTime();
+            if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, slotCount * 2);
+            }
+            slots[slotCount++] = time.getDayOfWeek().ordinal() * 24 + time.getHour();
+        }
+
+        // Combine with a cell that has not been finished yet
+        void merge(Cell other) {
+            addCounts(other);
+            if (slotCount + other.slotCount > slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(slots.length * 2, slotCount + other.slotCount));
+            }
+            System.arraycopy(other.slots, 0, slots, slotCount, other.slotCount);
+            slotCount += other.slotCount;
+        }
+
+        void addCounts(Cell other) {
+            bookings += other.bookings;
+            confirmed += other.confirmed;
+            cancelled += other.cancelled;
+            minutes += other.minutes;
+        }
+
+        void finish() {
+            Arrays.sort(slots, 0, slotCount);
+            long[] packed = new long[slotCount];
+            int n = 0;
+            for (int i = 0; i < slotCount; ) {
+                int slot = slots[i];
+                int run = i;
+                while (i < slotCount && slots[i] == slot) {
+                    i++;
+                }
+                packed[n++] = ((long) slot << 40) | (i - run);
+            }
+            demand = Arrays.copyOf(packed, n);
+            slots = null;
+            slotCount = 0;
+        }
+
+        boolean isEmpty() {
+            return bookings == 0 && cancelled == 0;
+        }
+    }
+}
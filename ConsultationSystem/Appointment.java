@@ -2,19 +2,46 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 
 public class Appointment implements Serializable {
-    private String appointmentId;
+    // Pinned to the value of the original class so legacy .dat files still deserialize
+    private static final long serialVersionUID = -8735390079238143719L;
+    public static final int DEFAULT_DURATION_MINUTES = 60;
+
+    private long id; // Assigned by AppointmentManager; 0 until stored
     private final String studentName;
     private final String lecturerName;
-    private final LocalDateTime appointmentTime;
+    private LocalDateTime appointmentTime;
     private final String description;
     private String status;
+    private int durationMinutes;
+    // Set while this is a view of a ColumnarAppointmentStore row: reads and writes then
+    // go to the store's columns and the fields above are unused
+    private transient ColumnarAppointmentStore.Rows store;
+    private transient int row;
 
     public Appointment(String studentName, String lecturerName, LocalDateTime appointmentTime, String description) {
+        this(studentName, lecturerName, appointmentTime, description, DEFAULT_DURATION_MINUTES);
+    }
+
+    public Appointment(String studentName, String lecturerName, LocalDateTime appointmentTime, String description,
+                       int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
         this.studentName = studentName;
         this.lecturerName = lecturerName;
         this.appointmentTime = appointmentTime;
         this.description = description;
         this.status = "Pending";
+        this.durationMinutes = durationMinutes;
+    }
+
+    // Flyweight view of a stored row
+    Appointment(ColumnarAppointmentStore.Rows store, int row) {
+        this.studentName = null;
+        this.lecturerName = null;
+        this.description = null;
+        this.store = store;
+        this.row = row;
     }
 
     private boolean confirmed = false;
@@ -22,45 +49,117 @@ public class Appointment implements Serializable {
     // 其他属性和方法...
 
     public void setConfirmed(boolean confirmed) {
-        this.confirmed = confirmed;
+        if (store != null) {
+            store.setConfirmed(row, confirmed);
+        } else {
+            this.confirmed = confirmed;
+        }
     }
 
     public boolean isConfirmed() {
-        return confirmed;
+        return store != null ? store.confirmed(row) : confirmed;
+    }
+
+    public long getId() {
+        return store != null ? store.id(row) : id;
     }
 
-    // Getter for appointmentId
+    // Only AppointmentManager (or a loader restoring a persisted ID) assigns IDs
+    void setId(long id) {
+        if (store != null) {
+            throw new IllegalStateException("Appointment " + getId() + " is already stored");
+        }
+        this.id = id;
+    }
+
+    // Turn this appointment into a view of a row that now holds its values
+    void bind(ColumnarAppointmentStore.Rows store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    ColumnarAppointmentStore.Rows boundStore() {
+        return store;
+    }
+
+    int boundRow() {
+        return row;
+    }
+
+    // ID as printed in request summaries
     public String getAppointmentId() {
-        return appointmentId;
+        return String.valueOf(getId());
     }
 
     public String getStudentName() {
-        return studentName;
+        return store != null ? store.studentName(row) : studentName;
     }
 
     public String getLecturerName() {
-        return lecturerName;
+        return store != null ? store.lecturerName(row) : lecturerName;
     }
 
     public LocalDateTime getAppointmentTime() {
-        return appointmentTime;
+        return store != null ? store.time(row) : appointmentTime;
+    }
+
+    // Appointments deserialized from before durations existed get the default
+    public int getDurationMinutes() {
+        if (store != null) {
+            return store.duration(row);
+        }
+        return durationMinutes > 0 ? durationMinutes : DEFAULT_DURATION_MINUTES;
+    }
+
+    public LocalDateTime getEndTime() {
+        return getAppointmentTime().plusMinutes(getDurationMinutes());
+    }
+
+    // Only AppointmentManager may move an appointment, so its indexes stay ordered
+    void setAppointmentTime(LocalDateTime appointmentTime) {
+        if (store != null) {
+            store.setTime(row, appointmentTime);
+        } else {
+            this.appointmentTime = appointmentTime;
+        }
     }
 
     public String getDescription() {
-        return description;
+        return store != null ? store.description(row) : description;
     }
 
     public String getStatus() {
-        return status;
+        return store != null ? store.status(row) : status;
     }
 
     public void setStatus(String status) {
-        this.status = status;
+        if (store != null) {
+            store.setStatus(row, status);
+        } else {
+            this.status = status;
+        }
+    }
+
+    // Views of the same stored row (wherever the store has since moved it) are equal;
+    // other appointments compare by identity
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return store != null && o instanceof Appointment other && other.store != null
+                && store.sameRow(row, other.store, other.row);
+    }
+
+    // A view's ID never changes, unlike its row
+    @Override
+    public int hashCode() {
+        return store != null ? Long.hashCode(getId()) : System.identityHashCode(this);
     }
 
     @Override
     public String toString() {
         return String.format("Student: %s, Lecturer: %s, Time: %s, Status: %s, Description: %s",
-                studentName, lecturerName, appointmentTime, status, description);
+                getStudentName(), getLecturerName(), getAppointmentTime(), getStatus(), getDescription());
     }
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Cold tier for appointment history. Months before the hot window are sealed into one
+// read-only segment file each (archive/appointments-2026-03.dat, snapshot format) and
+// dropped from memory. A small text manifest lists every segment's month, size, ID
+// range and longest duration, so nothing but the manifest is read at startup.
+//
+// A segment is loaded, into its own AppointmentStore, only when a historical range
+// query, a conflict check or an ID lookup touches it; the least recently used loaded
+// segments are dropped beyond pcs.archive.cachedSegments.
+//
+//   -Dpcs.archive.hotMonths       past months kept in memory besides the current one
+//                                 (default 3, about a term); -1 disables tiering
+//   -Dpcs.archive.cachedSegments  segments kept loaded at once (default 12)
+public class AppointmentArchive {
+    public static final int HOT_MONTHS = Integer.getInteger("pcs.archive.hotMonths", 3);
+    public static final int CACHED_SEGMENTS = Integer.getInteger("pcs.archive.cachedSegments", 12);
+    public static final boolean ENABLED = HOT_MONTHS >= 0;
+
+    private static final String MANIFEST = "manifest.txt";
+    private static final Metrics.Timer SEGMENT_LOAD_TIMER = Metrics.timer("archive.segment.load");
+
+    private final File directory;
+    private final TreeMap<YearMonth, Segment> segments = new TreeMap<>();
+    // Loaded segments in access order, for LRU eviction
+    private final LinkedHashMap<YearMonth, AppointmentStore> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private YearMonth sealedBefore; // every month before this may have a segment; null if none
+
+    public AppointmentArchive(File directory) throws IOException {
+        this.directory = directory;
+        readManifest();
+    }
+
+    // First month kept hot when today is the given date
+    public static YearMonth hotWindowStart(LocalDate today) {
+        return YearMonth.from(today).minusMonths(HOT_MONTHS);
+    }
+
+    // Appointments starting before this are archived; LocalDateTime.MIN if nothing is
+    public synchronized LocalDateTime getBoundary() {
+        return sealedBefore == null ? LocalDateTime.MIN : sealedBefore.atDay(1).atStartOfDay();
+    }
+
+    // Longest archived appointment, so conflict checks know how far back to look
+    public synchronized int getMaxDurationMinutes() {
+        int max = 0;
+        for (Segment segment : segments.values()) {
+            max = Math.max(max, segment.maxDurationMinutes);
+        }
+        return max;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getArchivedCount() {
+        long count = 0;
+        for (Segment segment : segments.values()) {
+            count += segment.count;
+        }
+        return count;
+    }
+
+    public synchronized int getLoadedSegmentCount() {
+        return loaded.size();
+    }
+
+    // Write appointments into the segments of their months, merging with what those
+    // segments already hold, and move the boundary up to before. Callers remove the
+    // appointments from the hot tier and then write a snapshot.
+    public synchronized void seal(List<Appointment> appointments, YearMonth before) throws IOException {
+        Map<YearMonth, List<Appointment>> byMonth = new TreeMap<>();
+        for (Appointment appointment : appointments) {
+            byMonth.computeIfAbsent(YearMonth.from(appointment.getAppointmentTime()), m -> new ArrayList<>())
+                    .add(appointment);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create archive directory " + directory);
+        }
+        for (Map.Entry<YearMonth, List<Appointment>> entry : byMonth.entrySet()) {
+            YearMonth month = entry.getKey();
+            Map<Long, Appointment> merged = new LinkedHashMap<>();
+            if (segments.containsKey(month)) {
+                for (Appointment appointment : FileManager.loadSegment(segmentFile(month))) {
+                    merged.put(appointment.getId(), appointment);
+                }
+            }
+            for (Appointment appointment : entry.getValue()) {
+                merged.put(appointment.getId(), appointment);
+            }
+            List<Appointment> contents = new ArrayList<>(merged.values());
+            contents.sort(Comparator.comparing(Appointment::getAppointmentTime));
+            FileManager.saveSegment(segmentFile(month), contents);
+            segments.put(month, Segment.of(month, contents));
+            loaded.remove(month);
+        }
+        if (sealedBefore == null || before.isAfter(sealedBefore)) {
+            sealedBefore = before;
+        }
+        writeManifest();
+    }
+
+    // Archived appointment with this ID, loading the segments whose ID range covers it
+    public synchronized Appointment findById(long id) throws IOException {
+        for (Segment segment : segments.descendingMap().values()) {
+            if (id >= segment.minId && id <= segment.maxId) {
+                Appointment appointment = load(segment.month).get(id);
+                if (appointment != null) {
+                    return appointment;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Archived appointments of a user with from <= time < to, ordered by time
+    public synchronized List<Appointment> range(AppointmentStore.Participant participant, String name,
+                                                LocalDateTime from, LocalDateTime to) throws IOException {
+        List<Appointment> result = new ArrayList<>();
+        for (YearMonth month : monthsBetween(from, to)) {
+            result.addAll(load(month).range(participant, name, from, to));
+        }
+        return result;
+    }
+
+    // Every archived appointment with from <= time < to, ordered by time
+    public synchronized List<Appointment> between(LocalDateTime from, LocalDateTime to) throws IOException {
+        List<Appointment> result = new ArrayList<>();
+        for (YearMonth month : monthsBetween(from, to)) {
+            result.addAll(load(month).select(appointment -> !appointment.getAppointmentTime().isBefore(from)
+                    && appointment.getAppointmentTime().isBefore(to)));
+        }
+        return result;
+    }
+
+    // First archived appointment of a user overlapping [start, end), or null
+    public synchronized Appointment findOverlap(AppointmentStore.Participant participant, String name,
+                                                LocalDateTime start, LocalDateTime end) throws IOException {
+        for (YearMonth month : monthsBetween(start.minusMinutes(getMaxDurationMinutes()), end)) {
+            Appointment clash = load(month).findOverlap(participant, name, start, end, null);
+            if (clash != null) {
+                return clash;
+            }
+        }
+        return null;
+    }
+
+    // Every archived appointment, oldest month first (loads each segment in turn)
+    public synchronized List<Appointment> all() throws IOException {
+        List<Appointment> result = new ArrayList<>();
+        for (YearMonth month : segments.keySet()) {
+            result.addAll(load(month).allByTime());
+        }
+        return result;
+    }
+
+    // Archived months with a segment overlapping [from, to)
+    private List<YearMonth> monthsBetween(LocalDateTime from, LocalDateTime to) {
+        List<YearMonth> months = new ArrayList<>();
+        if (segments.isEmpty() || !from.isBefore(to)) {
+            return months;
+        }
+        YearMonth first = from.isBefore(segments.firstKey().atDay(1).atStartOfDay())
+                ? segments.firstKey() : YearMonth.from(from);
+        YearMonth last = to.isAfter(segments.lastKey().atEndOfMonth().atStartOfDay())
+                ? segments.lastKey() : YearMonth.from(to);
+        months.addAll(segments.subMap(first, true, last, true).keySet());
+        return months;
+    }
+
+    private AppointmentStore load(YearMonth month) throws IOException {
+        AppointmentStore store = loaded.get(month);
+        if (store != null) {
+            return store;
+        }
+        long start = Metrics.Timer.start();
+        store = AppointmentStore.create();
+        for (Appointment appointment : FileManager.loadSegment(segmentFile(month))) {
+            store.putIfAbsent(appointment);
+        }
+        loaded.put(month, store);
+        while (loaded.size() > Math.max(1, CACHED_SEGMENTS)) {
+            loaded.remove(loaded.keySet().iterator().next());
+        }
+        SEGMENT_LOAD_TIMER.stop(start);
+        return store;
+    }
+
+    private File segmentFile(YearMonth month) {
+        return new File(directory, "appointments-" + month + ".dat");
+    }
+
+    // Manifest lines: "sealedBefore 2026-07", then "segment <month> <count> <minId> <maxId> <maxDuration>"
+    private void readManifest() throws IOException {
+        File file = new File(directory, MANIFEST);
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts[0].equals("sealedBefore") && parts.length == 2) {
+                    sealedBefore = YearMonth.parse(parts[1]);
+                } else if (parts[0].equals("segment") && parts.length == 6) {
+                    YearMonth month = YearMonth.parse(parts[1]);
+                    segments.put(month, new Segment(month, Integer.parseInt(parts[2]), Long.parseLong(parts[3]),
+                            Long.parseLong(parts[4]), Integer.parseInt(parts[5])));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing archived yet
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        File temp = new File(directory, MANIFEST + ".tmp");
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            if (sealedBefore != null) {
+                out.println("sealedBefore " + sealedBefore);
+            }
+            for (Segment segment : segments.values()) {
+                out.println("segment " + segment.month + " " + segment.count + " " + segment.minId + " "
+                        + segment.maxId + " " + segment.maxDurationMinutes);
+            }
+        }
+        FileManager.replace(temp, new File(directory, MANIFEST).getPath());
+    }
+
+    private static final class Segment {
+        final YearMonth month;
+        final int count;
+        final long minId;
+        final long maxId;
+        final int maxDurationMinutes;
+
+        Segment(YearMonth month, int count, long minId, long maxId, int maxDurationMinutes) {
+            this.month = month;
+            this.count = count;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.maxDurationMinutes = maxDurationMinutes;
+        }
+
+        static Segment of(YearMonth month, List<Appointment> contents) {
+            long minId = Long.MAX_VALUE;
+            long maxId = Long.MIN_VALUE;
+            int maxDuration = 0;
+            for (Appointment appointment : contents) {
+                minId = Math.min(minId, appointment.getId());
+                maxId = Math.max(maxId, appointment.getId());
+                maxDuration = Math.max(maxDuration, appointment.getDurationMinutes());
+            }
+            return new Segment(month, contents.size(), minId, maxId, maxDuration);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.time.LocalDateTime;
+
+// A change to the set of appointments, published on AppointmentManager.getEventBus()
+public final class AppointmentEvent {
+    public enum Type {
+        CREATED,
+        CONFIRMED,
+        CANCELLED,
+        RESCHEDULED, // getPreviousTime() holds the time it moved from
+        ARCHIVED,    // moved to the cold tier; gone from in-memory views
+        RELOADED     // everything was replaced (bulk load); getAppointment() is null
+    }
+
+    private final Type type;
+    private final Appointment appointment;
+    private final LocalDateTime previousTime;
+
+    public AppointmentEvent(Type type, Appointment appointment) {
+        this(type, appointment, null);
+    }
+
+    public AppointmentEvent(Type type, Appointment appointment, LocalDateTime previousTime) {
+        this.type = type;
+        this.appointment = appointment;
+        this.previousTime = previousTime;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public LocalDateTime getPreviousTime() {
+        return previousTime;
+    }
+
+    // Whether the appointment is no longer among the in-memory appointments
+    public boolean isRemoval() {
+        return type == Type.CANCELLED || type == Type.ARCHIVED;
+    }
+
+    @Override
+    public String toString() {
+        return type + (appointment == null ? "" : " " + appointment.getId());
+    }
+}
@@ -1,27 +1,550 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AppointmentManager {
-    private final List<Appointment> appointments; // List to store all appointments
+    // Appointments by ID, plus per-student and per-lecturer indexes ordered by time
+    private final AppointmentStore store;
+    private final IdGenerator ids = new IdGenerator();
+    // Serializes changes to one appointment, keyed by ID: stores may hand out a new view
+    // object per lookup, so the Appointment itself is no use as a monitor
+    private static final int LOCK_STRIPES = 1024; // power of two
+    private final Object[] appointmentLocks = new Object[LOCK_STRIPES];
+    // Optional write-ahead journal. Records are written while holding the appointment's
+    // lock (but not the participant locks), so they are logged in the order the changes
+    // were applied; the journal lock is always the last one taken.
+    private volatile Journal journal;
+    private volatile AppointmentArchive archive; // Optional cold tier for past months
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>(); // Notified after mutations
+    private final EventBus<AppointmentEvent> events = new EventBus<>("appointments"); // What changed, in order
+    // Latency of bookings and of the per-user dashboard queries
+    private static final Metrics.Timer BOOKING_TIMER = Metrics.timer("booking");
+    private static final LongAdder BOOKING_CONFLICTS = Metrics.counter("booking.conflicts");
+    private static final Metrics.Timer STUDENT_QUERY_TIMER = Metrics.timer("query.student");
+    private static final Metrics.Timer LECTURER_QUERY_TIMER = Metrics.timer("query.lecturer");
+    private static final Metrics.Timer GLOBAL_QUERY_TIMER = Metrics.timer("query.global");
 
-    // Constructor
+    // Constructor; the store kind comes from -Dpcs.appointmentStore
     public AppointmentManager() {
-        this.appointments = new ArrayList<>();
+        this(AppointmentStore.create());
     }
 
-    // Add a new appointment
+    public AppointmentManager(AppointmentStore store) {
+        this.store = store;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            appointmentLocks[i] = new Object();
+        }
+    }
+
+    // Attach a journal; subsequent mutations are appended to it
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Attach the cold tier; history queries, ID lookups and conflict checks consult it
+    public void setArchive(AppointmentArchive archive) {
+        this.archive = archive;
+    }
+
+    public AppointmentArchive getArchive() {
+        return archive;
+    }
+
+    // Register a callback run after every mutation (once per bulk operation), e.g. autosave
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Typed created/confirmed/cancelled/rescheduled events, for views and caches that
+    // apply deltas instead of re-running their queries
+    public EventBus<AppointmentEvent> getEventBus() {
+        return events;
+    }
+
+    // Add a new appointment; throws SchedulingConflictException if the lecturer
+    // or the student is already booked during that time
     public void addAppointment(Appointment appointment) {
-        appointments.add(appointment);
+        long start = Metrics.Timer.start();
+        try {
+            // Numbered before it is visible, so whoever finds it by ID takes the same lock
+            assignId(appointment);
+            synchronized (lockFor(appointment)) {
+                lockParticipants(appointment);
+                try {
+                    checkConflicts(appointment, appointment.getAppointmentTime());
+                    insert(appointment);
+                } finally {
+                    unlockParticipants(appointment);
+                }
+                Journal current = journal;
+                if (current != null) {
+                    current.logAppointmentAdded(appointment);
+                }
+                events.publish(new AppointmentEvent(AppointmentEvent.Type.CREATED, appointment));
+            }
+            changed();
+        } catch (SchedulingConflictException e) {
+            BOOKING_CONFLICTS.increment();
+            throw e;
+        } finally {
+            BOOKING_TIMER.stop(start);
+        }
+    }
+
+    // Remove an appointment from the store and its indexes
+    public boolean removeAppointment(Appointment appointment) {
+        synchronized (lockFor(appointment)) {
+            if (!store.remove(appointment)) {
+                return false;
+            }
+            Journal current = journal;
+            if (current != null) {
+                current.logCancelled(appointment);
+            }
+            events.publish(new AppointmentEvent(AppointmentEvent.Type.CANCELLED, appointment));
+        }
+        changed();
+        return true;
+    }
+
+    // Mark an appointment as confirmed
+    public void confirmAppointment(Appointment appointment) {
+        requireHot(appointment);
+        synchronized (lockFor(appointment)) {
+            appointment.setConfirmed(true);
+            appointment.setStatus("Confirmed");
+            Journal current = journal;
+            if (current != null) {
+                current.logConfirmed(appointment);
+            }
+            events.publish(new AppointmentEvent(AppointmentEvent.Type.CONFIRMED, appointment));
+        }
+        changed();
+    }
+
+    // Bulk insert for imports: each appointment is conflict-checked like addAppointment,
+    // but nothing is journaled and listeners fire once per batch, so callers persist the
+    // result with a snapshot. An explicit ID that is already taken is a conflict too, not
+    // renumbered as on restore. Returns the conflicts of the appointments that were skipped.
+    public List<SchedulingConflict> addAppointments(List<Appointment> batch) {
+        List<SchedulingConflict> conflicts = new ArrayList<>();
+        List<AppointmentEvent> created = new ArrayList<>();
+        for (Appointment appointment : batch) {
+            boolean explicitId = appointment.getId() != 0;
+            assignId(appointment);
+            synchronized (lockFor(appointment)) {
+                Appointment taken = explicitId ? findById(appointment.getId()) : null;
+                if (taken != null) {
+                    conflicts.add(SchedulingConflict.duplicateId(taken, appointment));
+                    continue;
+                }
+                lockParticipants(appointment);
+                try {
+                    checkConflicts(appointment, appointment.getAppointmentTime());
+                    insert(appointment);
+                    created.add(new AppointmentEvent(AppointmentEvent.Type.CREATED, appointment));
+                } catch (SchedulingConflictException e) {
+                    conflicts.add(e.getConflict());
+                } finally {
+                    unlockParticipants(appointment);
+                }
+            }
+        }
+        events.publishAll(created);
+        if (conflicts.size() < batch.size()) {
+            changed();
+        }
+        return conflicts;
+    }
+
+    // Add a persisted appointment without conflict checks or journaling
+    public void restoreAppointment(Appointment appointment) {
+        insert(appointment);
     }
 
-    // Replace the list of appointments
+    // Look up an appointment by ID in constant time; null if there is none. IDs of
+    // archived appointments load the segment holding them.
+    public Appointment findById(long id) {
+        Appointment appointment = store.get(id);
+        AppointmentArchive current = archive;
+        if (appointment != null || current == null) {
+            return appointment;
+        }
+        try {
+            return current.findById(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // In-memory lookup only, for replaying changes: archived appointments are read-only
+    Appointment findHotById(long id) {
+        return store.get(id);
+    }
+
+    // Cancel by ID; false if there is no such appointment
+    public boolean cancelById(long id) {
+        Appointment appointment = store.get(id);
+        return appointment != null && removeAppointment(appointment);
+    }
+
+    // Confirm by ID; false if there is no such appointment
+    public boolean confirmById(long id) {
+        Appointment appointment = store.get(id);
+        if (appointment == null) {
+            return false;
+        }
+        confirmAppointment(appointment);
+        return true;
+    }
+
+    // ID the next new appointment will get; persisted so IDs are never reused
+    public long getNextId() {
+        return ids.peek();
+    }
+
+    // Restore the persisted high-water mark; never moves it backwards
+    public void advanceNextId(long nextId) {
+        ids.advanceTo(nextId);
+    }
+
+    // Move an appointment to a new time, keeping the indexes ordered;
+    // throws SchedulingConflictException if the new time is taken
+    public void rescheduleAppointment(Appointment appointment, LocalDateTime newTime) {
+        move(appointment, newTime, false);
+    }
+
+    // Apply an approved rescheduling request; invalid requests, and requests whose
+    // appointment has been cancelled or archived, are rejected
+    public boolean approveReschedulingRequest(ReschedulingRequest request) {
+        if (!request.isValidReschedulingRequest()
+                || !move(request.getOriginalAppointment(), request.getProposedTime(), true)) {
+            request.reject();
+            return false;
+        }
+        request.approve();
+        return true;
+    }
+
+    // With onlyIfStored, an appointment that is no longer in the store is left alone and
+    // false returned; otherwise it just gets the new time
+    private boolean move(Appointment appointment, LocalDateTime newTime, boolean onlyIfStored) {
+        if (onlyIfStored && isArchived(appointment)) {
+            return false;
+        }
+        requireHot(appointment);
+        LocalDateTime oldTime;
+        synchronized (lockFor(appointment)) {
+            if (onlyIfStored && !store.contains(appointment)) {
+                return false;
+            }
+            lockParticipants(appointment);
+            try {
+                oldTime = appointment.getAppointmentTime();
+                if (store.contains(appointment)) {
+                    checkConflicts(appointment, newTime);
+                    store.move(appointment, newTime);
+                } else {
+                    appointment.setAppointmentTime(newTime);
+                }
+            } finally {
+                unlockParticipants(appointment);
+            }
+            Journal current = journal;
+            if (current != null) {
+                current.logRescheduled(appointment, oldTime);
+            }
+            events.publish(new AppointmentEvent(AppointmentEvent.Type.RESCHEDULED, appointment, oldTime));
+        }
+        changed();
+        return true;
+    }
+
+    // Audit every lecturer and student timeline for overlapping bookings in one sweep each
+    public List<SchedulingConflict> findConflicts() {
+        List<SchedulingConflict> conflicts = store.findAllOverlaps(AppointmentStore.Participant.LECTURER);
+        conflicts.addAll(store.findAllOverlaps(AppointmentStore.Participant.STUDENT));
+        return conflicts;
+    }
+
+    // Replace the list of appointments (bulk load; not journaled)
     public void setAppointments(List<Appointment> newAppointments) {
-        appointments.clear();
-        appointments.addAll(newAppointments);
+        store.clear();
+        for (Appointment appointment : newAppointments) {
+            insert(appointment);
+        }
+        events.publish(new AppointmentEvent(AppointmentEvent.Type.RELOADED, null));
+    }
+
+    // Move every appointment before the hot window into the archive and drop it from
+    // memory. Not journaled: callers write a snapshot straight afterwards, and sealing
+    // again after a crash in between merges by ID. Returns how many were archived.
+    public int archivePast(LocalDate today) throws IOException {
+        AppointmentArchive current = archive;
+        if (current == null) {
+            return 0;
+        }
+        YearMonth before = AppointmentArchive.hotWindowStart(today);
+        LocalDateTime boundary = before.atDay(1).atStartOfDay();
+        List<Appointment> removed = new ArrayList<>();
+        for (Appointment appointment : store.allByTime()) {
+            if (!appointment.getAppointmentTime().isBefore(boundary)) {
+                break;
+            }
+            synchronized (lockFor(appointment)) {
+                lockParticipants(appointment);
+                try {
+                    // A reschedule may have moved it since the snapshot was taken
+                    if (appointment.getAppointmentTime().isBefore(boundary) && store.remove(appointment)) {
+                        removed.add(appointment);
+                    }
+                } finally {
+                    unlockParticipants(appointment);
+                }
+            }
+        }
+        if (removed.isEmpty() && !boundary.isAfter(current.getBoundary())) {
+            return 0;
+        }
+        try {
+            current.seal(removed, before);
+        } catch (IOException e) {
+            for (Appointment appointment : removed) {
+                insert(appointment);
+            }
+            throw e;
+        }
+        List<AppointmentEvent> archived = new ArrayList<>(removed.size());
+        for (Appointment appointment : removed) {
+            archived.add(new AppointmentEvent(AppointmentEvent.Type.ARCHIVED, appointment));
+        }
+        events.publishAll(archived);
+        return removed.size();
+    }
+
+    // Whether archivePast would move anything
+    public boolean hasArchivableAppointments(LocalDate today) {
+        if (archive == null) {
+            return false;
+        }
+        LocalDateTime boundary = AppointmentArchive.hotWindowStart(today).atDay(1).atStartOfDay();
+        List<Appointment> all = store.allByTime();
+        return !all.isEmpty() && all.get(0).getAppointmentTime().isBefore(boundary);
     }
 
-    // Get all appointments
+    // Find an appointment by student, lecturer and time
+    public Appointment findAppointment(String studentName, String lecturerName, LocalDateTime time) {
+        for (Appointment appointment : store.at(AppointmentStore.Participant.STUDENT, studentName, time)) {
+            if (appointment.getLecturerName().equals(lecturerName)) {
+                return appointment;
+            }
+        }
+        return null;
+    }
+
+    // Get a snapshot of all in-memory (hot) appointments ordered by time; safe to
+    // iterate while others write
     public List<Appointment> getAllAppointments() {
-        return appointments;
+        return store.allByTime();
+    }
+
+    // Archived appointments followed by the hot ones, ordered by time (for exports)
+    public List<Appointment> getAppointmentHistory() {
+        List<Appointment> result = new ArrayList<>();
+        AppointmentArchive current = archive;
+        if (current != null) {
+            try {
+                result.addAll(current.all());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        result.addAll(store.allByTime());
+        return result;
+    }
+
+    // The same appointments in no particular order, without the cost of sorting them
+    public List<Appointment> getAppointmentHistoryUnordered() {
+        List<Appointment> result = new ArrayList<>();
+        AppointmentArchive current = archive;
+        if (current != null) {
+            try {
+                result.addAll(current.all());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        result.addAll(store.unordered());
+        return result;
+    }
+
+    // Get a student's in-memory appointments ordered by time
+    public List<Appointment> getAppointmentsForStudent(String studentName) {
+        long start = Metrics.Timer.start();
+        List<Appointment> result = store.all(AppointmentStore.Participant.STUDENT, studentName);
+        STUDENT_QUERY_TIMER.stop(start);
+        return result;
+    }
+
+    // Get a lecturer's in-memory appointments ordered by time
+    public List<Appointment> getAppointmentsForLecturer(String lecturerName) {
+        long start = Metrics.Timer.start();
+        List<Appointment> result = store.all(AppointmentStore.Participant.LECTURER, lecturerName);
+        LECTURER_QUERY_TIMER.stop(start);
+        return result;
+    }
+
+    // Get a student's appointments with from <= time < to, ordered by time; ranges
+    // reaching before the hot window include archived months
+    public List<Appointment> getAppointmentsForStudentBetween(String studentName, LocalDateTime from, LocalDateTime to) {
+        long start = Metrics.Timer.start();
+        List<Appointment> result = range(AppointmentStore.Participant.STUDENT, studentName, from, to);
+        STUDENT_QUERY_TIMER.stop(start);
+        return result;
+    }
+
+    // Get a lecturer's appointments with from <= time < to, ordered by time; ranges
+    // reaching before the hot window include archived months
+    public List<Appointment> getAppointmentsForLecturerBetween(String lecturerName, LocalDateTime from, LocalDateTime to) {
+        long start = Metrics.Timer.start();
+        List<Appointment> result = range(AppointmentStore.Participant.LECTURER, lecturerName, from, to);
+        LECTURER_QUERY_TIMER.stop(start);
+        return result;
+    }
+
+    // Get everyone's appointments with from <= time < to (e.g. this week's bookings),
+    // ordered by time; ranges reaching before the hot window include archived months
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        long start = Metrics.Timer.start();
+        try {
+            List<Appointment> hot = store.select(appointment -> !appointment.getAppointmentTime().isBefore(from)
+                    && appointment.getAppointmentTime().isBefore(to));
+            AppointmentArchive current = archive;
+            if (current == null || !from.isBefore(current.getBoundary())) {
+                return hot;
+            }
+            List<Appointment> result = current.between(from, to);
+            result.addAll(hot);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            GLOBAL_QUERY_TIMER.stop(start);
+        }
+    }
+
+    // Get the in-memory appointments with a status ("Pending", "Confirmed"), ordered by time
+    public List<Appointment> getAppointmentsWithStatus(String status) {
+        long start = Metrics.Timer.start();
+        List<Appointment> result = store.select(appointment -> appointment.getStatus().equals(status));
+        GLOBAL_QUERY_TIMER.stop(start);
+        return result;
+    }
+
+    private List<Appointment> range(AppointmentStore.Participant participant, String name,
+                                    LocalDateTime from, LocalDateTime to) {
+        List<Appointment> hot = store.range(participant, name, from, to);
+        AppointmentArchive current = archive;
+        if (current == null || !from.isBefore(current.getBoundary())) {
+            return hot;
+        }
+        try {
+            List<Appointment> result = current.range(participant, name, from, to);
+            result.addAll(hot);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkConflicts(Appointment appointment, LocalDateTime start) {
+        LocalDateTime end = start.plusMinutes(appointment.getDurationMinutes());
+        Appointment clash = findOverlap(AppointmentStore.Participant.LECTURER, appointment, start, end);
+        if (clash != null) {
+            throw new SchedulingConflictException(
+                    new SchedulingConflict("lecturer", appointment.getLecturerName(), clash, appointment));
+        }
+        clash = findOverlap(AppointmentStore.Participant.STUDENT, appointment, start, end);
+        if (clash != null) {
+            throw new SchedulingConflictException(
+                    new SchedulingConflict("student", appointment.getStudentName(), clash, appointment));
+        }
+    }
+
+    // Hot tier first; archived months only for bookings reaching back before the window
+    private Appointment findOverlap(AppointmentStore.Participant participant, Appointment appointment,
+                                    LocalDateTime start, LocalDateTime end) {
+        String name = participant.nameOf(appointment);
+        Appointment clash = store.findOverlap(participant, name, start, end, appointment);
+        AppointmentArchive current = archive;
+        if (clash != null || current == null
+                || !start.minusMinutes(current.getMaxDurationMinutes()).isBefore(current.getBoundary())) {
+            return clash;
+        }
+        try {
+            return current.findOverlap(participant, name, start, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Archived appointments are read-only history
+    private boolean isArchived(Appointment appointment) {
+        AppointmentArchive current = archive;
+        return current != null && !store.contains(appointment)
+                && appointment.getAppointmentTime().isBefore(current.getBoundary());
+    }
+
+    private void requireHot(Appointment appointment) {
+        if (isArchived(appointment)) {
+            throw new IllegalStateException("Appointment " + appointment.getId() + " is archived and read-only");
+        }
+    }
+
+    private void lockParticipants(Appointment appointment) {
+        store.lock(appointment);
+    }
+
+    private void unlockParticipants(Appointment appointment) {
+        store.unlock(appointment);
+    }
+
+    // New appointments get the next ID; persisted ones keep theirs unless it is taken
+    private void insert(Appointment appointment) {
+        assignId(appointment);
+        Appointment existing = store.putIfAbsent(appointment);
+        if (existing != null && !existing.equals(appointment)) {
+            appointment.setId(ids.nextId());
+            store.putIfAbsent(appointment);
+        }
+    }
+
+    private void assignId(Appointment appointment) {
+        if (appointment.getId() == 0) {
+            appointment.setId(ids.nextId());
+        } else {
+            ids.observe(appointment.getId());
+        }
+    }
+
+    // The same object for every view of an appointment
+    private Object lockFor(Appointment appointment) {
+        return appointmentLocks[(int) appointment.getId() & (LOCK_STRIPES - 1)];
+    }
+
+    private void changed() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
     }
 }
@@ -0,0 +1,111 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Storage behind AppointmentManager: the primary ID map plus a time-ordered index per
+// student and per lecturer. The manager owns ID assignment, conflict rules, journaling
+// and listeners; a store only keeps appointments and answers index queries.
+//
+// Implementations, chosen with -Dpcs.appointmentStore:
+//   heap         one Appointment object per appointment, indexed by TimelineIndex (default)
+//   columnar     struct-of-arrays rows; queries return flyweight Appointment views
+//   partitioned  shards by lecturer over -Dpcs.partitions stores of -Dpcs.partitionStore kind
+public interface AppointmentStore {
+    enum Participant {
+        STUDENT("student"), LECTURER("lecturer");
+
+        private final String role;
+
+        Participant(String role) {
+            this.role = role;
+        }
+
+        // Role name as used by User and SchedulingConflict
+        public String role() {
+            return role;
+        }
+
+        public String nameOf(Appointment appointment) {
+            return this == STUDENT ? appointment.getStudentName() : appointment.getLecturerName();
+        }
+    }
+
+    static AppointmentStore create() {
+        return create(System.getProperty("pcs.appointmentStore", "heap"));
+    }
+
+    static AppointmentStore create(String kind) {
+        switch (kind) {
+            case "heap":
+                return new HeapAppointmentStore();
+            case "columnar":
+                return new ColumnarAppointmentStore();
+            case "partitioned":
+                return new PartitionedAppointmentStore(PartitionedAppointmentStore.PARTITIONS,
+                        System.getProperty("pcs.partitionStore", "heap"));
+            default:
+                throw new IllegalArgumentException("Unknown appointment store: " + kind);
+        }
+    }
+
+    // The appointment stored under an ID, or null
+    Appointment get(long id);
+
+    // Store and index an appointment under its ID, unless that ID is taken; returns
+    // the appointment already stored there, or null once this one has been stored
+    Appointment putIfAbsent(Appointment appointment);
+
+    // Remove an appointment if it is the one stored under its ID
+    boolean remove(Appointment appointment);
+
+    // Whether this appointment (not just its ID) is currently stored
+    boolean contains(Appointment appointment);
+
+    // Change a stored appointment's time, keeping both indexes ordered
+    void move(Appointment appointment, LocalDateTime newTime);
+
+    int size();
+
+    void clear();
+
+    // Every stored appointment ordered by time
+    List<Appointment> allByTime();
+
+    // Every stored appointment in no particular order, for aggregates that skip the sort
+    default List<Appointment> unordered() {
+        return allByTime();
+    }
+
+    // Stored appointments matching the filter, ordered by time
+    default List<Appointment> select(Predicate<Appointment> filter) {
+        List<Appointment> result = new ArrayList<>();
+        for (Appointment appointment : allByTime()) {
+            if (filter.test(appointment)) {
+                result.add(appointment);
+            }
+        }
+        return result;
+    }
+
+    // Hold both participants' write locks across a check-then-modify sequence
+    void lock(Appointment appointment);
+
+    void unlock(Appointment appointment);
+
+    // First appointment other than exclude that overlaps [start, end), or null
+    Appointment findOverlap(Participant participant, String name, LocalDateTime start, LocalDateTime end,
+                            Appointment exclude);
+
+    // A user's appointments ordered by time
+    List<Appointment> all(Participant participant, String name);
+
+    // A user's appointments with from <= time < to, ordered by time
+    List<Appointment> range(Participant participant, String name, LocalDateTime from, LocalDateTime to);
+
+    // A user's appointments at exactly the given time
+    List<Appointment> at(Participant participant, String name, LocalDateTime time);
+
+    // Overlapping pairs on every user's timeline
+    List<SchedulingConflict> findAllOverlaps(Participant participant);
+}
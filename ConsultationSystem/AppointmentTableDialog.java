@@ -0,0 +1,158 @@
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Window;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+// Modal table of appointments with a filter box, clickable column headers for sorting
+// and page navigation. Used both to browse appointments and to pick one for an action.
+// While open it subscribes to the AppointmentManager's events and applies them to the
+// model in place, in batches on the EDT.
+public class AppointmentTableDialog extends JDialog {
+    private final AppointmentTableModel model;
+    private final JTable table;
+    private final JLabel pageLabel = new JLabel();
+    private final EventBus.Subscription subscription;
+    private Appointment chosen;
+
+    private AppointmentTableDialog(Window owner, String title, AppointmentTableModel model,
+                                   AppointmentManager appointmentManager, String actionLabel) {
+        super(owner, title, ModalityType.APPLICATION_MODAL);
+        this.model = model;
+        setLayout(new BorderLayout(5, 5));
+
+        // Filter box
+        JTextField filterField = new JTextField(20);
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                model.setFilter(filterField.getText());
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                model.setFilter(filterField.getText());
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                model.setFilter(filterField.getText());
+            }
+        });
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Filter:"));
+        filterPanel.add(filterField);
+        add(filterPanel, BorderLayout.NORTH);
+
+        // Table; the model sorts the whole result, not just the visible page
+        table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getTableHeader().setToolTipText("Click a column to sort, click again to reverse");
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (column >= 0) {
+                    model.sortBy(column);
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(650, 320));
+        add(scrollPane, BorderLayout.CENTER);
+
+        // Paging and actions
+        JButton previousBtn = new JButton("< Prev");
+        JButton nextBtn = new JButton("Next >");
+        previousBtn.addActionListener(e -> model.setPage(model.getPage() - 1));
+        nextBtn.addActionListener(e -> model.setPage(model.getPage() + 1));
+        model.addTableModelListener(e -> updatePageLabel());
+        updatePageLabel();
+
+        JPanel pagingPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pagingPanel.add(previousBtn);
+        pagingPanel.add(pageLabel);
+        pagingPanel.add(nextBtn);
+
+        JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        if (actionLabel != null) {
+            JButton actionBtn = new JButton(actionLabel);
+            actionBtn.setEnabled(false);
+            table.getSelectionModel().addListSelectionListener(e -> actionBtn.setEnabled(table.getSelectedRow() >= 0));
+            actionBtn.addActionListener(e -> choose());
+            table.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    if (e.getClickCount() == 2 && table.getSelectedRow() >= 0) {
+                        choose();
+                    }
+                }
+            });
+            actionPanel.add(actionBtn);
+        }
+        JButton closeBtn = new JButton(actionLabel != null ? "Cancel" : "Close");
+        closeBtn.addActionListener(e -> dispose());
+        actionPanel.add(closeBtn);
+
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.setBorder(BorderFactory.createEmptyBorder(0, 5, 5, 5));
+        southPanel.add(pagingPanel, BorderLayout.WEST);
+        southPanel.add(actionPanel, BorderLayout.EAST);
+        add(southPanel, BorderLayout.SOUTH);
+
+        pack();
+        setLocationRelativeTo(owner);
+        // Mutations may come from any thread; batches are delivered on the EDT
+        subscription = appointmentManager.getEventBus().subscribeAsync(SwingUtilities::invokeLater, model::apply);
+    }
+
+    // Browse appointments
+    public static void showAppointments(Component parent, String title, AppointmentTableModel model,
+                                        AppointmentManager appointmentManager) {
+        new AppointmentTableDialog(owner(parent), title, model, appointmentManager, null).setVisible(true);
+    }
+
+    // Pick an appointment; returns null if the dialog was closed without choosing
+    public static Appointment chooseAppointment(Component parent, String title, AppointmentTableModel model,
+                                                AppointmentManager appointmentManager, String actionLabel) {
+        AppointmentTableDialog dialog = new AppointmentTableDialog(owner(parent), title, model,
+                appointmentManager, actionLabel);
+        dialog.setVisible(true);
+        return dialog.chosen;
+    }
+
+    @Override
+    public void dispose() {
+        subscription.close();
+        super.dispose();
+    }
+
+    private static Window owner(Component parent) {
+        return parent instanceof Window ? (Window) parent : SwingUtilities.getWindowAncestor(parent);
+    }
+
+    private void choose() {
+        chosen = model.getAppointmentAt(table.getSelectedRow());
+        dispose();
+    }
+
+    private void updatePageLabel() {
+        String matches = model.getMatchCount() == model.getTotalCount()
+                ? model.getTotalCount() + " appointments"
+                : model.getMatchCount() + " of " + model.getTotalCount() + " appointments";
+        pageLabel.setText("Page " + (model.getPage() + 1) + " of " + model.getPageCount() + " (" + matches + ")");
+    }
+}
@@ -0,0 +1,289 @@
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.swing.table.AbstractTableModel;
+
+// Paged, sortable, filterable view over an indexed appointment query. The query only
+// returns references, and cells are formatted in getValueAt, which JTable calls for
+// visible rows only - so opening a dashboard with thousands of appointments no longer
+// builds a string per appointment up front. Later changes arrive as AppointmentEvents
+// and are applied to the loaded rows, so the query only runs again after a bulk reload.
+public class AppointmentTableModel extends AbstractTableModel {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    public static final int TIME_COLUMN = 0;
+    public static final int DURATION_COLUMN = 1;
+    public static final int PARTICIPANT_COLUMN = 2;
+    public static final int STATUS_COLUMN = 3;
+    public static final int DESCRIPTION_COLUMN = 4;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final Supplier<List<Appointment>> query;
+    // Which appointments belong in the table, e.g. this lecturer's unconfirmed ones; must
+    // accept everything the query returns, since events are matched against it
+    private final Predicate<Appointment> scope;
+    private final boolean showStudent; // lecturers see the student, students see the lecturer
+    private final int pageSize;
+
+    private List<Appointment> all = new ArrayList<>();      // scoped query result, ordered by time
+    private List<Appointment> visible = new ArrayList<>();  // after filter and sort
+    private String filter = "";
+    private int sortColumn = TIME_COLUMN;
+    private boolean ascending = true;
+    private int page;
+
+    public AppointmentTableModel(Supplier<List<Appointment>> query, Predicate<Appointment> scope,
+                                 boolean showStudent) {
+        this(query, scope, showStudent, DEFAULT_PAGE_SIZE);
+    }
+
+    public AppointmentTableModel(Supplier<List<Appointment>> query, Predicate<Appointment> scope,
+                                 boolean showStudent, int pageSize) {
+        this.query = query;
+        this.scope = scope;
+        this.showStudent = showStudent;
+        this.pageSize = pageSize;
+        reload();
+    }
+
+    // Re-run the query, keeping filter, sort order and (where possible) the page.
+    // Rows are updated in place when the page keeps its size, so the selection survives.
+    public void refresh() {
+        int oldRows = getRowCount();
+        reload();
+        if (getRowCount() == oldRows && oldRows > 0) {
+            fireTableRowsUpdated(0, oldRows - 1);
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    // Apply a batch of changes to the loaded rows without re-running the query; only
+    // the rows of this table are re-filtered and re-sorted
+    public void apply(List<AppointmentEvent> events) {
+        boolean changed = false;
+        for (AppointmentEvent event : events) {
+            if (event.getType() == AppointmentEvent.Type.RELOADED) {
+                refresh();
+                return;
+            }
+            Appointment appointment = event.getAppointment();
+            boolean present = all.remove(appointment);
+            boolean belongs = !event.isRemoval() && scope.test(appointment);
+            if (belongs) {
+                insertByTime(appointment);
+            }
+            changed |= present || belongs;
+        }
+        if (!changed) {
+            return;
+        }
+        int oldRows = getRowCount();
+        visible = applyFilter(all);
+        sort(visible);
+        page = Math.min(page, getPageCount() - 1);
+        if (getRowCount() == oldRows && oldRows > 0) {
+            fireTableRowsUpdated(0, oldRows - 1);
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    // Case-insensitive match on participant, description and status. Typing more
+    // characters narrows the current result instead of rescanning the full list.
+    public void setFilter(String text) {
+        String next = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        if (next.equals(filter)) {
+            return;
+        }
+        boolean narrowing = next.contains(filter);
+        filter = next;
+        visible = applyFilter(narrowing ? visible : all);
+        if (!narrowing) {
+            sort(visible); // all is in time order; filtering the sorted visible list keeps it sorted
+        }
+        page = 0;
+        fireTableDataChanged();
+    }
+
+    // Sort by a column; choosing the current sort column again flips the direction
+    public void sortBy(int column) {
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        sort(visible);
+        page = 0;
+        fireTableDataChanged();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (visible.size() + pageSize - 1) / pageSize);
+    }
+
+    public void setPage(int page) {
+        int clamped = Math.max(0, Math.min(page, getPageCount() - 1));
+        if (clamped != this.page) {
+            this.page = clamped;
+            fireTableDataChanged();
+        }
+    }
+
+    // Number of appointments matching the filter, across all pages
+    public int getMatchCount() {
+        return visible.size();
+    }
+
+    public int getTotalCount() {
+        return all.size();
+    }
+
+    public Appointment getAppointmentAt(int row) {
+        return visible.get(page * pageSize + row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return Math.max(0, Math.min(pageSize, visible.size() - page * pageSize));
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 5;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        switch (column) {
+            case TIME_COLUMN:
+                return "Time";
+            case DURATION_COLUMN:
+                return "Minutes";
+            case PARTICIPANT_COLUMN:
+                return showStudent ? "Student" : "Lecturer";
+            case STATUS_COLUMN:
+                return "Status";
+            default:
+                return "Description";
+        }
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == DURATION_COLUMN ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Appointment appointment = getAppointmentAt(row);
+        switch (column) {
+            case TIME_COLUMN:
+                return TIME_FORMAT.format(appointment.getAppointmentTime());
+            case DURATION_COLUMN:
+                return appointment.getDurationMinutes();
+            case PARTICIPANT_COLUMN:
+                return participant(appointment);
+            case STATUS_COLUMN:
+                return appointment.getStatus();
+            default:
+                return appointment.getDescription();
+        }
+    }
+
+    private void reload() {
+        List<Appointment> result = new ArrayList<>();
+        for (Appointment appointment : query.get()) {
+            if (scope.test(appointment)) {
+                result.add(appointment);
+            }
+        }
+        all = result;
+        visible = applyFilter(all);
+        sort(visible);
+        page = Math.min(page, getPageCount() - 1);
+    }
+
+    private void insertByTime(Appointment appointment) {
+        int low = 0;
+        int high = all.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (all.get(mid).getAppointmentTime().isAfter(appointment.getAppointmentTime())) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        all.add(low, appointment);
+    }
+
+    private List<Appointment> applyFilter(List<Appointment> source) {
+        if (filter.isEmpty()) {
+            return new ArrayList<>(source);
+        }
+        List<Appointment> result = new ArrayList<>();
+        for (Appointment appointment : source) {
+            if (matches(appointment)) {
+                result.add(appointment);
+            }
+        }
+        return result;
+    }
+
+    private boolean matches(Appointment appointment) {
+        return contains(participant(appointment)) || contains(appointment.getDescription())
+                || contains(appointment.getStatus());
+    }
+
+    private boolean contains(String value) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(filter);
+    }
+
+    private void sort(List<Appointment> list) {
+        if (sortColumn == TIME_COLUMN && ascending) {
+            // Index queries return time order already, so this is a single linear pass
+            list.sort(Comparator.comparing(Appointment::getAppointmentTime));
+            return;
+        }
+        Comparator<Appointment> comparator;
+        switch (sortColumn) {
+            case DURATION_COLUMN:
+                comparator = Comparator.comparingInt(Appointment::getDurationMinutes);
+                break;
+            case PARTICIPANT_COLUMN:
+                comparator = Comparator.comparing(this::participant, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                break;
+            case STATUS_COLUMN:
+                comparator = Comparator.comparing(Appointment::getStatus, Comparator.nullsFirst(String::compareTo));
+                break;
+            case DESCRIPTION_COLUMN:
+                comparator = Comparator.comparing(Appointment::getDescription,
+                        Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                break;
+            default:
+                comparator = Comparator.comparing(Appointment::getAppointmentTime);
+        }
+        // Ties stay in time order
+        comparator = comparator.thenComparing(Appointment::getAppointmentTime);
+        list.sort(ascending ? comparator : comparator.reversed());
+    }
+
+    private String participant(Appointment appointment) {
+        return showStudent ? appointment.getStudentName() : appointment.getLecturerName();
+    }
+}
@@ -0,0 +1,184 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Finds free consultation slots using per-day slot bitmaps.
+//
+// A day is 96 fifteen-minute slots held in two longs (bit i = slot i). Each lecturer
+// has a working-hours mask per weekday; the booked mask for a day is built from the
+// lecturer's time index in O(log n + k). Free = working & ~booked, runs long enough
+// for a booking are found by AND-ing shifted copies, and common availability across
+// lecturers is a plain AND of their free masks, so each day costs a few word operations.
+public class AvailabilityEngine {
+    public static final int SLOT_MINUTES = 15;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final int WORDS = 2;
+    private static final int DEFAULT_HORIZON_DAYS = 180;
+    private static final LocalTime DEFAULT_START = LocalTime.of(9, 0);
+    private static final LocalTime DEFAULT_END = LocalTime.of(17, 0);
+
+    private final AppointmentManager appointmentManager;
+    // lecturer -> working mask per DayOfWeek (index 0 = Monday)
+    private final Map<String, long[][]> workingHours = new ConcurrentHashMap<>();
+    private final long[][] defaultWorkingHours = new long[7][];
+
+    public AvailabilityEngine(AppointmentManager appointmentManager) {
+        this.appointmentManager = appointmentManager;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            boolean weekday = day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+            defaultWorkingHours[day.ordinal()] = weekday ? mask(DEFAULT_START, DEFAULT_END) : new long[WORDS];
+        }
+    }
+
+    // Set a lecturer's working hours for one weekday; start == end means not working
+    public void setWorkingHours(String lecturerName, DayOfWeek day, LocalTime start, LocalTime end) {
+        long[][] week = workingHours.computeIfAbsent(lecturerName, k -> {
+            long[][] copy = new long[7][];
+            for (int i = 0; i < 7; i++) {
+                copy[i] = defaultWorkingHours[i].clone();
+            }
+            return copy;
+        });
+        week[day.ordinal()] = mask(start, end);
+    }
+
+    // The next count slot start times after the given time where the lecturer is free
+    // for durationMinutes
+    public List<LocalDateTime> nextFreeSlots(String lecturerName, LocalDateTime after, int count, int durationMinutes) {
+        List<LocalDateTime> result = new ArrayList<>(count);
+        int runLength = slotsFor(durationMinutes);
+        LocalDate day = after.toLocalDate();
+        for (int d = 0; d < DEFAULT_HORIZON_DAYS && result.size() < count; d++, day = day.plusDays(1)) {
+            long[] starts = runStarts(freeMask(lecturerName, day), runLength);
+            clearBefore(starts, day, after);
+            collect(starts, day, count, result);
+        }
+        return result;
+    }
+
+    // The first slot start after the given time where every lecturer is free for
+    // durationMinutes, or null if there is none within the search horizon
+    public LocalDateTime firstCommonFreeSlot(Collection<String> lecturerNames, LocalDateTime after, int durationMinutes) {
+        int runLength = slotsFor(durationMinutes);
+        LocalDate day = after.toLocalDate();
+        for (int d = 0; d < DEFAULT_HORIZON_DAYS; d++, day = day.plusDays(1)) {
+            long[] free = {-1L, -1L};
+            for (String lecturerName : lecturerNames) {
+                long[] lecturerFree = freeMask(lecturerName, day);
+                free[0] &= lecturerFree[0];
+                free[1] &= lecturerFree[1];
+            }
+            long[] starts = runStarts(free, runLength);
+            clearBefore(starts, day, after);
+            List<LocalDateTime> first = new ArrayList<>(1);
+            collect(starts, day, 1, first);
+            if (!first.isEmpty()) {
+                return first.get(0);
+            }
+        }
+        return null;
+    }
+
+    // Minutes the lecturer works on that weekday; the capacity utilization is measured against
+    public int workingMinutes(String lecturerName, DayOfWeek day) {
+        long[] working = workingHours.getOrDefault(lecturerName, defaultWorkingHours)[day.ordinal()];
+        return (Long.bitCount(working[0]) + Long.bitCount(working[1])) * SLOT_MINUTES;
+    }
+
+    // Working slots of the day that no appointment occupies
+    long[] freeMask(String lecturerName, LocalDate day) {
+        long[][] week = workingHours.getOrDefault(lecturerName, defaultWorkingHours);
+        long[] working = week[day.getDayOfWeek().ordinal()];
+        if (working[0] == 0 && working[1] == 0) {
+            return new long[WORDS];
+        }
+        long[] booked = bookedMask(lecturerName, day);
+        return new long[] {working[0] & ~booked[0], working[1] & ~booked[1]};
+    }
+
+    // Slots of the day covered by the lecturer's appointments, including ones that
+    // started the previous day and run past midnight
+    long[] bookedMask(String lecturerName, LocalDate day) {
+        long[] booked = new long[WORDS];
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        for (Appointment appointment : appointmentManager.getAppointmentsForLecturerBetween(
+                lecturerName, dayStart.minusDays(1), dayEnd)) {
+            LocalDateTime start = appointment.getAppointmentTime();
+            LocalDateTime end = appointment.getEndTime();
+            if (!end.isAfter(dayStart)) {
+                continue;
+            }
+            int from = start.isBefore(dayStart) ? 0 : minuteOfDay(start) / SLOT_MINUTES;
+            int to = end.isBefore(dayEnd) ? (minuteOfDay(end) + SLOT_MINUTES - 1) / SLOT_MINUTES : SLOTS_PER_DAY;
+            setRange(booked, from, to);
+        }
+        return booked;
+    }
+
+    // Bit i is set when slots i .. i + runLength - 1 are all free
+    static long[] runStarts(long[] free, int runLength) {
+        long[] run = free.clone();
+        for (int k = 1; k < runLength; k++) {
+            long lo = k < 64 ? (free[0] >>> k) | (free[1] << (64 - k)) : free[1] >>> (k - 64);
+            long hi = k < 64 ? free[1] >>> k : 0;
+            run[0] &= lo;
+            run[1] &= hi;
+        }
+        return run;
+    }
+
+    private static void clearBefore(long[] starts, LocalDate day, LocalDateTime after) {
+        if (!day.equals(after.toLocalDate())) {
+            return;
+        }
+        int firstSlot = (minuteOfDay(after) + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        long[] keep = new long[WORDS];
+        setRange(keep, firstSlot, SLOTS_PER_DAY);
+        starts[0] &= keep[0];
+        starts[1] &= keep[1];
+    }
+
+    private static void collect(long[] starts, LocalDate day, int count, List<LocalDateTime> result) {
+        for (int w = 0; w < WORDS && result.size() < count; w++) {
+            long bits = starts[w];
+            while (bits != 0 && result.size() < count) {
+                int slot = w * 64 + Long.numberOfTrailingZeros(bits);
+                result.add(day.atStartOfDay().plusMinutes((long) slot * SLOT_MINUTES));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private static long[] mask(LocalTime start, LocalTime end) {
+        long[] mask = new long[WORDS];
+        setRange(mask, start.toSecondOfDay() / 60 / SLOT_MINUTES, end.toSecondOfDay() / 60 / SLOT_MINUTES);
+        return mask;
+    }
+
+    // Set bits [from, to)
+    private static void setRange(long[] mask, int from, int to) {
+        for (int w = 0; w < WORDS; w++) {
+            int lo = Math.max(from, w * 64) - w * 64;
+            int hi = Math.min(to, (w + 1) * 64) - w * 64;
+            if (lo < hi) {
+                long upper = hi == 64 ? -1L : (1L << hi) - 1;
+                mask[w] |= upper & (-1L << lo);
+            }
+        }
+    }
+
+    private static int slotsFor(int durationMinutes) {
+        return Math.max(1, (durationMinutes + SLOT_MINUTES - 1) / SLOT_MINUTES);
+    }
+
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Writes users, appointments and rescheduling requests as CSV or JSON Lines (chosen by
+// file extension) in the column layout BulkImporter reads back. Rows are written one at
+// a time through a buffered writer, so no full copy of the file is built in memory.
+public class BulkExporter {
+    private static final String[] USER_COLUMNS = {"username", "password", "role"};
+    private static final String[] APPOINTMENT_COLUMNS =
+            {"id", "student", "lecturer", "time", "durationMinutes", "description", "status", "confirmed"};
+    private static final String[] REQUEST_COLUMNS =
+            {"requestId", "appointmentId", "proposedTime", "requester", "reason", "status", "requestDate"};
+
+    private BulkExporter() {
+    }
+
+    public static int exportUsers(List<User> users, String fileName) throws IOException {
+        try (RowWriter out = open(fileName, USER_COLUMNS)) {
+            for (User user : users) {
+                out.write(user.getUsername(), user.getPassword(), user.getRole());
+            }
+        }
+        return users.size();
+    }
+
+    public static int exportAppointments(List<Appointment> appointments, String fileName) throws IOException {
+        try (RowWriter out = open(fileName, APPOINTMENT_COLUMNS)) {
+            for (Appointment appointment : appointments) {
+                out.write(appointment.getId(), appointment.getStudentName(), appointment.getLecturerName(),
+                        format(appointment.getAppointmentTime()), appointment.getDurationMinutes(),
+                        appointment.getDescription(), appointment.getStatus(), appointment.isConfirmed());
+            }
+        }
+        return appointments.size();
+    }
+
+    public static int exportReschedules(List<ReschedulingRequest> requests, String fileName) throws IOException {
+        try (RowWriter out = open(fileName, REQUEST_COLUMNS)) {
+            for (ReschedulingRequest request : requests) {
+                out.write(request.getRequestId(), request.getOriginalAppointment().getId(),
+                        format(request.getProposedTime()), request.getRequesterName(), request.getRequestReason(),
+                        request.getStatus().name(), format(request.getRequestDate()));
+            }
+        }
+        return requests.size();
+    }
+
+    private static String format(LocalDateTime time) {
+        return time == null ? null : BulkImporter.TIME_FORMAT.format(time);
+    }
+
+    // A CSV or JSON Lines writer for the given columns, chosen by file extension
+    static RowWriter open(String fileName, String[] columns) throws IOException {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        boolean jsonLines = lower.endsWith(".jsonl") || lower.endsWith(".ndjson");
+        if (!jsonLines && !lower.endsWith(".csv")) {
+            throw new IOException("Unsupported file type (expected .csv, .jsonl or .ndjson): " + fileName);
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8),
+                64 * 1024);
+        RowWriter writer = new RowWriter(out, columns, jsonLines);
+        if (!jsonLines) {
+            writer.write((Object[]) columns);
+        }
+        return writer;
+    }
+
+    static final class RowWriter implements AutoCloseable {
+        private final Writer out;
+        private final String[] columns;
+        private final boolean jsonLines;
+        private final StringBuilder line = new StringBuilder();
+
+        RowWriter(Writer out, String[] columns, boolean jsonLines) {
+            this.out = out;
+            this.columns = columns;
+            this.jsonLines = jsonLines;
+        }
+
+        void write(Object... values) throws IOException {
+            line.setLength(0);
+            if (jsonLines) {
+                Map<String, Object> object = new LinkedHashMap<>();
+                for (int i = 0; i < columns.length; i++) {
+                    object.put(columns[i], values[i]);
+                }
+                Json.write(object, line);
+            } else {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    appendCsv(values[i]);
+                }
+            }
+            line.append('\n');
+            out.write(line.toString());
+        }
+
+        // Quote fields containing separators, quotes or line breaks; double embedded quotes
+        private void appendCsv(Object value) {
+            if (value == null) {
+                return;
+            }
+            String s = value.toString();
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+                line.append(s);
+                return;
+            }
+            line.append('"').append(s.replace("\"", "\"\"")).append('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,542 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+// Streaming import of users, appointments and rescheduling requests from CSV (with a
+// header row) or JSON Lines, chosen by file extension. Rows are parsed one at a time and
+// handed to the managers in batches, so memory stays bounded by the batch size rather
+// than the file size. A bad row is reported with its line number and skipped; it never
+// aborts the rest of the import.
+//
+// Imports bypass the journal: callers write a snapshot afterwards (see compactAllData).
+//
+//   users:        username, password, role (student|lecturer)
+//   appointments: student, lecturer, time, [id, durationMinutes, description, status, confirmed]
+//   reschedules:  appointmentId or student+lecturer+time, proposedTime,
+//                 [requestId, requester, reason, status, requestDate]
+//
+// Times are "yyyy-MM-dd HH:mm"; column names are case-insensitive.
+public class BulkImporter {
+    public static final int BATCH_SIZE = 10_000;
+    public static final int MAX_REPORTED_ERRORS = 100;
+    static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final Comparator<Appointment> BY_LECTURER = Comparator.comparing(Appointment::getLecturerName);
+
+    private final UserManager userManager;
+    private final AppointmentManager appointmentManager;
+    private final RescheduleManager rescheduleManager;
+
+    public BulkImporter(UserManager userManager, AppointmentManager appointmentManager,
+                        RescheduleManager rescheduleManager) {
+        this.userManager = userManager;
+        this.appointmentManager = appointmentManager;
+        this.rescheduleManager = rescheduleManager;
+    }
+
+    public Report importUsers(String fileName) throws IOException {
+        return run("users", fileName, this::parseUser, batch -> {
+            Map<User, String> failures = new IdentityHashMap<>();
+            for (User skipped : userManager.addUsers(batch)) {
+                failures.put(skipped, "user '" + skipped.getUsername() + "' already exists");
+            }
+            return failures;
+        });
+    }
+
+    public Report importAppointments(String fileName) throws IOException {
+        return run("appointments", fileName, this::parseAppointment, batch -> {
+            // Grouping by lecturer keeps each timeline in cache while its rows are checked.
+            // The sort is stable, so a lecturer's rows that conflict with each other resolve
+            // in file order: the first one wins
+            List<Appointment> ordered = new ArrayList<>(batch);
+            ordered.sort(BY_LECTURER);
+            Map<Appointment, String> failures = new IdentityHashMap<>();
+            for (SchedulingConflict conflict : appointmentManager.addAppointments(ordered)) {
+                failures.put(conflict.getConflicting(), conflict.toString());
+            }
+            return failures;
+        });
+    }
+
+    public Report importReschedules(String fileName) throws IOException {
+        return run("reschedules", fileName, this::parseRequest, batch -> {
+            Map<ReschedulingRequest, String> failures = new IdentityHashMap<>();
+            for (ReschedulingRequest skipped : rescheduleManager.addRequests(batch)) {
+                failures.put(skipped, "request '" + skipped.getRequestId() + "' already exists");
+            }
+            return failures;
+        });
+    }
+
+    // One parsed row, looked up by lower-case column name
+    interface Row {
+        String get(String column);
+    }
+
+    interface RowParser<T> {
+        T parse(Row row);
+    }
+
+    // Inserts a batch and returns the items it rejected, with the reason
+    interface BatchSink<T> {
+        Map<T, String> insert(List<T> batch);
+    }
+
+    private <T> Report run(String kind, String fileName, RowParser<T> parser, BatchSink<T> sink) throws IOException {
+        long start = Metrics.Timer.start();
+        Report report = new Report(kind, fileName);
+        List<T> batch = new ArrayList<>(BATCH_SIZE);
+        long[] lines = new long[BATCH_SIZE];
+        try (RowReader reader = open(fileName)) {
+            while (true) {
+                Row row;
+                try {
+                    row = reader.next();
+                } catch (IllegalArgumentException e) {
+                    report.fail(reader.getLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                try {
+                    lines[batch.size()] = reader.getLineNumber();
+                    batch.add(parser.parse(row));
+                } catch (IllegalArgumentException e) {
+                    report.fail(reader.getLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    flush(batch, lines, sink, report);
+                }
+            }
+        }
+        flush(batch, lines, sink, report);
+        report.elapsedNanos = Metrics.timer("import." + kind).stop(start);
+        return report;
+    }
+
+    private static <T> void flush(List<T> batch, long[] lines, BatchSink<T> sink, Report report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<T, String> failures = sink.insert(batch);
+        for (int i = 0; i < batch.size() && !failures.isEmpty(); i++) {
+            String reason = failures.get(batch.get(i));
+            if (reason != null) {
+                report.fail(lines[i], reason);
+            }
+        }
+        report.imported += batch.size() - failures.size();
+        batch.clear();
+    }
+
+    private User parseUser(Row row) {
+        String username = required(row, "username");
+        String password = required(row, "password");
+        String role = required(row, "role").toLowerCase(Locale.ROOT);
+        if (!role.equals("student") && !role.equals("lecturer")) {
+            throw new IllegalArgumentException("role must be 'student' or 'lecturer', got '" + role + "'");
+        }
+        return new User(username, password, role);
+    }
+
+    private Appointment parseAppointment(Row row) {
+        String student = required(row, "student");
+        String lecturer = required(row, "lecturer");
+        requireRole(student, "student");
+        requireRole(lecturer, "lecturer");
+        LocalDateTime time = parseTime(row, "time");
+        String duration = optional(row, "durationMinutes");
+        int minutes = duration == null ? Appointment.DEFAULT_DURATION_MINUTES : parseInt("durationMinutes", duration);
+        if (minutes <= 0) {
+            throw new IllegalArgumentException("durationMinutes must be positive");
+        }
+        Appointment appointment = new Appointment(student, lecturer, time, optional(row, "description"), minutes);
+        String id = optional(row, "id");
+        if (id != null) {
+            long value = parseLong("id", id);
+            if (value <= 0) {
+                throw new IllegalArgumentException("id must be positive");
+            }
+            appointment.setId(value);
+        }
+        String status = optional(row, "status");
+        if (status != null) {
+            appointment.setStatus(status);
+        }
+        String confirmed = optional(row, "confirmed");
+        appointment.setConfirmed(confirmed != null ? parseBoolean("confirmed", confirmed)
+                : "Confirmed".equalsIgnoreCase(appointment.getStatus()));
+        return appointment;
+    }
+
+    private ReschedulingRequest parseRequest(Row row) {
+        Appointment appointment;
+        String appointmentId = optional(row, "appointmentId");
+        if (appointmentId != null) {
+            appointment = appointmentManager.findById(parseLong("appointmentId", appointmentId));
+            if (appointment == null) {
+                throw new IllegalArgumentException("unknown appointment " + appointmentId);
+            }
+        } else {
+            String student = required(row, "student");
+            String lecturer = required(row, "lecturer");
+            LocalDateTime time = parseTime(row, "time");
+            appointment = appointmentManager.findAppointment(student, lecturer, time);
+            if (appointment == null) {
+                throw new IllegalArgumentException("no appointment for " + student + " with " + lecturer
+                        + " at " + TIME_FORMAT.format(time));
+            }
+        }
+        LocalDateTime proposedTime = parseTime(row, "proposedTime");
+
+        String requestId = optional(row, "requestId");
+        String requester = optional(row, "requester");
+        if (requester != null && !requester.equals(appointment.getStudentName())
+                && !requester.equals(appointment.getLecturerName())) {
+            throw new IllegalArgumentException("requester '" + requester + "' is not part of the appointment");
+        }
+        String status = optional(row, "status");
+        ReschedulingRequest.RequestStatus requestStatus;
+        try {
+            requestStatus = status == null ? ReschedulingRequest.RequestStatus.PENDING
+                    : ReschedulingRequest.RequestStatus.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("status must be PENDING, APPROVED or REJECTED, got '" + status + "'");
+        }
+        String requestDate = optional(row, "requestDate");
+        return new ReschedulingRequest(
+                requestId != null ? requestId : UUID.randomUUID().toString(),
+                appointment,
+                proposedTime,
+                requestStatus,
+                requester != null ? requester : appointment.getStudentName(),
+                optional(row, "reason"),
+                requestDate != null ? parseTime("requestDate", requestDate) : LocalDateTime.now());
+    }
+
+    private void requireRole(String username, String role) {
+        User user = userManager.getUserByUsername(username);
+        if (user == null) {
+            throw new IllegalArgumentException("unknown " + role + " '" + username + "'");
+        }
+        if (!role.equals(user.getRole())) {
+            throw new IllegalArgumentException("'" + username + "' is not a " + role);
+        }
+    }
+
+    private static String optional(Row row, String column) {
+        String value = row.get(column.toLowerCase(Locale.ROOT));
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String required(Row row, String column) {
+        String value = optional(row, column);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + column);
+        }
+        return value;
+    }
+
+    private static LocalDateTime parseTime(Row row, String column) {
+        return parseTime(column, required(row, column));
+    }
+
+    // Fixed-width fast path; the formatter is several times slower per row
+    private static LocalDateTime parseTime(String column, String value) {
+        try {
+            if (value.length() == 16 && value.charAt(4) == '-' && value.charAt(7) == '-'
+                    && value.charAt(10) == ' ' && value.charAt(13) == ':') {
+                int year = digits(value, 0, 4);
+                int month = digits(value, 5, 7);
+                int day = digits(value, 8, 10);
+                int hour = digits(value, 11, 13);
+                int minute = digits(value, 14, 16);
+                if ((year | month | day | hour | minute) >= 0) {
+                    return LocalDateTime.of(year, month, day, hour, minute);
+                }
+            }
+            return LocalDateTime.parse(value, TIME_FORMAT);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException(column + " must be yyyy-MM-dd HH:mm, got '" + value + "'");
+        }
+    }
+
+    // Decimal value of value[from, to), or -1 if it contains a non-digit
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static long parseLong(String column, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " must be a number, got '" + value + "'");
+        }
+    }
+
+    private static int parseInt(String column, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " must be a number, got '" + value + "'");
+        }
+    }
+
+    private static boolean parseBoolean(String column, String value) {
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(column + " must be true or false, got '" + value + "'");
+    }
+
+    private static RowReader open(String fileName) throws IOException {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        boolean jsonLines = lower.endsWith(".jsonl") || lower.endsWith(".ndjson");
+        if (!jsonLines && !lower.endsWith(".csv")) {
+            throw new IOException("Unsupported file type (expected .csv, .jsonl or .ndjson): " + fileName);
+        }
+        Reader in = new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8);
+        return jsonLines ? new JsonLinesReader(in) : new CsvReader(in);
+    }
+
+    // Streams rows from a file. next() throws IllegalArgumentException for a malformed
+    // row, after which reading continues with the following row.
+    abstract static class RowReader implements Closeable {
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int length;
+        private int pos;
+        private long line = 1;     // line of the next character
+        private long rowLine;      // first line of the last row returned
+
+        RowReader(Reader in) {
+            this.in = in;
+        }
+
+        abstract Row next() throws IOException;
+
+        long getLineNumber() {
+            return rowLine;
+        }
+
+        int read() throws IOException {
+            if (pos == length) {
+                length = in.read(buffer, 0, BUFFER_SIZE);
+                pos = 0;
+                if (length <= 0) {
+                    length = 0;
+                    return -1;
+                }
+            }
+            char c = buffer[pos++];
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        // Skips blank lines; returns the first character of the next row, or -1 at end
+        int startRow() throws IOException {
+            int c = read();
+            while (c == '\r' || c == '\n') {
+                c = read();
+            }
+            rowLine = line;
+            return c;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // RFC 4180 CSV: quoted fields may contain commas, doubled quotes and line breaks
+    static final class CsvReader extends RowReader {
+        private Map<String, Integer> columns;
+        private final StringBuilder field = new StringBuilder();
+
+        CsvReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (columns == null) {
+                List<String> header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim().toLowerCase(Locale.ROOT).replace("\uFEFF", ""), i);
+                }
+            }
+            List<String> values = readRecord();
+            if (values == null) {
+                return null;
+            }
+            if (values.size() != columns.size()) {
+                throw new IllegalArgumentException("expected " + columns.size() + " fields, found " + values.size());
+            }
+            return column -> {
+                Integer index = columns.get(column);
+                return index == null ? null : values.get(index);
+            };
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = startRow();
+            if (c == -1) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    values.add(field.toString());
+                    return values;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+    }
+
+    // One JSON object per line; non-string values are read as their JSON text
+    static final class JsonLinesReader extends RowReader {
+        private final StringBuilder text = new StringBuilder();
+
+        JsonLinesReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        Row next() throws IOException {
+            int c = startRow();
+            if (c == -1) {
+                return null;
+            }
+            text.setLength(0);
+            while (c != '\n' && c != -1) {
+                text.append((char) c);
+                c = read();
+            }
+            Map<String, Object> object = Json.parseObject(text.toString().trim());
+            Map<String, String> values = new HashMap<>();
+            object.forEach((key, value) -> {
+                if (value != null) {
+                    String s = value instanceof Double d && d == Math.rint(d) ? String.valueOf(d.longValue())
+                            : String.valueOf(value);
+                    values.put(key.toLowerCase(Locale.ROOT), s);
+                }
+            });
+            return values::get;
+        }
+    }
+
+    // Outcome of one import: counts plus the first MAX_REPORTED_ERRORS row errors
+    public static final class Report {
+        private final String kind;
+        private final String fileName;
+        private long imported;
+        private long failed;
+        private long elapsedNanos;
+        private final List<String> errors = new ArrayList<>();
+
+        Report(String kind, String fileName) {
+            this.kind = kind;
+            this.fileName = fileName;
+        }
+
+        void fail(long line, String reason) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + line + ": " + reason);
+            }
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000L;
+        }
+
+        // "line N: reason" for the first failed rows
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Imported %d %s from %s in %d ms, %d rows failed",
+                    imported, kind, fileName, getElapsedMillis(), failed));
+            for (String error : errors) {
+                sb.append(System.lineSeparator()).append("  ").append(error);
+            }
+            if (failed > errors.size()) {
+                sb.append(System.lineSeparator()).append("  ... ").append(failed - errors.size()).append(" more");
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,807 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Struct-of-arrays appointment store. Each appointment is one row across primitive
+// columns: student and lecturer as interned int codes, start as epoch minutes, the
+// duration, status code and confirmed flag packed into one byte, and the description
+// as a code into a string pool. Per-user indexes are int arrays of rows ordered by
+// start, so overlap checks and range queries walk primitive arrays instead of tree
+// nodes and LocalDateTime objects.
+//
+// Queries return flyweight Appointment views that read and write their row directly,
+// and an appointment passed to putIfAbsent becomes such a view. Removed rows are
+// tombstoned rather than reused, so views still held elsewhere (pending requests,
+// open dialogs, queued events) keep their values. Once tombstones outnumber live rows,
+// and on clear(), the store starts a fresh set of columns (a generation): live rows
+// are copied over and the old generation forwards each of them to its new row, so
+// existing views follow. An old generation is garbage once no view refers to it.
+// Times are kept to the minute, the resolution every entry point parses.
+//
+// Writers hold a single store-wide write lock; readers share the read lock. View
+// getters read columns without locking: columns are chunked, so rows never move
+// within a generation.
+public class ColumnarAppointmentStore implements AppointmentStore {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Flags byte: bit 7 confirmed, bit 6 removed, bits 0-5 status code
+    private static final int CONFIRMED = 0x80;
+    private static final int REMOVED = 0x40;
+    private static final int STATUS_MASK = 0x3f;
+    private static final int NO_DESCRIPTION = -1;
+
+    // Tombstones are left alone until there are at least this many rows
+    private static final int RECLAIM_MIN_ROWS = CHUNK_SIZE;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Rows rows = new Rows(this); // current generation; replaced under the write lock
+
+    @Override
+    public Appointment get(long id) {
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            int row = current.rowById.get(id);
+            return row < 0 ? null : new Appointment(current, row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Appointment putIfAbsent(Appointment appointment) {
+        lock.writeLock().lock();
+        try {
+            Rows current = rows;
+            long id = appointment.getId();
+            int existing = current.rowById.get(id);
+            if (existing >= 0) {
+                return new Appointment(current, existing);
+            }
+            int row = current.append(id, appointment.getStudentName(), appointment.getLecturerName(),
+                    minutes(appointment.getAppointmentTime()), appointment.getDurationMinutes(),
+                    appointment.getStatus(), appointment.isConfirmed(), appointment.getDescription());
+            current.index(row);
+            appointment.bind(current, row);
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Appointment appointment) {
+        lock.writeLock().lock();
+        try {
+            Rows current = rows;
+            int row = storedRow(appointment);
+            if (row < 0) {
+                return false;
+            }
+            current.rowById.remove(current.rawId(row));
+            current.byStudent[current.student(row)].remove(row);
+            current.byLecturer[current.lecturer(row)].remove(row);
+            current.flags[row >>> CHUNK_BITS][row & CHUNK_MASK] |= REMOVED;
+            current.liveCount--;
+            if (current.rowCount >= RECLAIM_MIN_ROWS && current.liveCount * 2 < current.rowCount) {
+                reclaim();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Appointment appointment) {
+        lock.readLock().lock();
+        try {
+            return storedRow(appointment) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void move(Appointment appointment, LocalDateTime newTime) {
+        Rows bound = appointment.boundStore();
+        if (bound == null || bound.owner != this) {
+            throw new IllegalArgumentException("Appointment " + appointment.getId() + " is not in this store");
+        }
+        bound.setTime(appointment.boundRow(), newTime);
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows.liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Starts an empty generation; existing views keep their values but are no longer stored
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rows = new Rows(this);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Live rows in row order
+    @Override
+    public List<Appointment> unordered() {
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            List<Appointment> result = new ArrayList<>(current.liveCount);
+            for (int row = 0; row < current.rowCount; row++) {
+                if (!current.removed(row)) {
+                    result.add(new Appointment(current, row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sorts packed (start, row) keys, so ordering a million rows allocates one long[]
+    // and compares primitives rather than LocalDateTime objects
+    @Override
+    public List<Appointment> allByTime() {
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            long[] keys = new long[current.liveCount];
+            int n = 0;
+            for (int row = 0; row < current.rowCount; row++) {
+                if (!current.removed(row)) {
+                    keys[n++] = (current.start(row) << 32) | row;
+                }
+            }
+            Arrays.sort(keys, 0, n);
+            List<Appointment> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                result.add(new Appointment(current, (int) keys[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // One writer at a time: bookings are rare next to reads, and per-user lock
+    // stripes would need per-user row lists that can grow independently
+    @Override
+    public void lock(Appointment appointment) {
+        lock.writeLock().lock();
+    }
+
+    @Override
+    public void unlock(Appointment appointment) {
+        lock.writeLock().unlock();
+    }
+
+    @Override
+    public Appointment findOverlap(Participant participant, String name, LocalDateTime start, LocalDateTime end,
+                                   Appointment exclude) {
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            RowList list = current.rowsOf(participant, name);
+            if (list == null) {
+                return null;
+            }
+            long startSeconds = seconds(start);
+            long endSeconds = seconds(end);
+            int excluded = exclude != null ? currentRow(exclude) : -1;
+            // Only rows starting within the longest duration before start can reach it
+            for (int i = list.search(startSeconds - current.maxDurationMinutes * 60L, true); i < list.size; i++) {
+                int row = list.rows[i];
+                long rowStart = current.start(row) * 60;
+                if (rowStart >= endSeconds) {
+                    break;
+                }
+                if (row != excluded && rowStart + current.rawDuration(row) * 60L > startSeconds) {
+                    return new Appointment(current, row);
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> all(Participant participant, String name) {
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            RowList list = current.rowsOf(participant, name);
+            return list == null ? new ArrayList<>() : current.views(list, 0, list.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> range(Participant participant, String name, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            RowList list = current.rowsOf(participant, name);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            return current.views(list, list.search(seconds(from), false), list.search(seconds(to), false));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> at(Participant participant, String name, LocalDateTime time) {
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            RowList list = current.rowsOf(participant, name);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            long seconds = seconds(time);
+            return current.views(list, list.search(seconds, false), list.search(seconds, true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sweep each user's rows once in start order, reporting each row that starts
+    // before the latest end seen so far
+    @Override
+    public List<SchedulingConflict> findAllOverlaps(Participant participant) {
+        lock.readLock().lock();
+        try {
+            Rows current = rows;
+            List<SchedulingConflict> conflicts = new ArrayList<>();
+            RowList[] index = participant == Participant.STUDENT ? current.byStudent : current.byLecturer;
+            for (int user = 0; user < index.length; user++) {
+                RowList list = index[user];
+                if (list == null) {
+                    continue;
+                }
+                int latest = -1;
+                long latestEnd = 0;
+                for (int i = 0; i < list.size; i++) {
+                    int row = list.rows[i];
+                    long rowStart = current.start(row);
+                    if (latest >= 0 && rowStart < latestEnd) {
+                        conflicts.add(new SchedulingConflict(participant.role(), current.users.get(user),
+                                new Appointment(current, latest), new Appointment(current, row)));
+                    }
+                    long rowEnd = rowStart + current.rawDuration(row);
+                    if (latest < 0 || rowEnd > latestEnd) {
+                        latest = row;
+                        latestEnd = rowEnd;
+                    }
+                }
+            }
+            return conflicts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rows in the current generation (not counting tombstones), for tests and tuning
+    int allocatedRows() {
+        lock.readLock().lock();
+        try {
+            return rows.rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Copy the live rows into a new generation, lecturer by lecturer in start order so
+    // every index is rebuilt by appending; caller holds the write lock
+    private void reclaim() {
+        Rows old = rows;
+        Rows fresh = new Rows(this);
+        int[] forward = new int[old.rowCount];
+        Arrays.fill(forward, -1);
+        for (RowList list : old.byLecturer) {
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int row = list.rows[i];
+                int copy = fresh.append(old.rawId(row), old.users.get(old.student(row)),
+                        old.users.get(old.lecturer(row)), old.start(row), old.rawDuration(row),
+                        old.rawStatus(row), old.rawConfirmed(row), old.rawDescription(row));
+                fresh.index(copy);
+                forward[row] = copy;
+            }
+        }
+        old.forward = forward;
+        old.successor = fresh; // publishes forward to lock-free view getters
+        rows = fresh;
+    }
+
+    // The appointment's row in the current generation if it is stored there under its own ID, else -1
+    private int storedRow(Appointment appointment) {
+        int row = currentRow(appointment);
+        Rows current = rows;
+        return row >= 0 && !current.removed(row) && current.rowById.get(current.rawId(row)) == row ? row : -1;
+    }
+
+    // Where a view's row is in the current generation, following forwards; -1 if it is not there
+    private int currentRow(Appointment appointment) {
+        Rows bound = appointment.boundStore();
+        if (bound == null || bound.owner != this) {
+            return -1;
+        }
+        int row = appointment.boundRow();
+        Rows current = rows;
+        while (bound != current) {
+            Rows next = bound.successor;
+            if (next == null || bound.forward[row] < 0) {
+                return -1;
+            }
+            row = bound.forward[row];
+            bound = next;
+        }
+        return row;
+    }
+
+    private static long minutes(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static long seconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // One generation of columns with its string pools and indexes. The row accessors
+    // are what Appointment views call; once a newer generation has taken over, they
+    // pass rows that were live at the time on to their new place.
+    static final class Rows {
+        private final ColumnarAppointmentStore owner;
+
+        // Columns
+        private long[][] ids = new long[0][];
+        private int[][] students = new int[0][];
+        private int[][] lecturers = new int[0][];
+        private long[][] starts = new long[0][];
+        private int[][] durations = new int[0][];
+        private byte[][] flags = new byte[0][];
+        private int[][] descriptions = new int[0][];
+        private int rowCount; // rows ever allocated, including tombstones
+        private int liveCount;
+
+        private final IdTable rowById = new IdTable(this);
+        private final Dictionary users = new Dictionary(Integer.MAX_VALUE);
+        private final Dictionary statuses = new Dictionary(STATUS_MASK + 1);
+        private final Dictionary descriptionPool = new Dictionary(Integer.MAX_VALUE);
+
+        // User code -> that user's live rows ordered by start
+        private RowList[] byStudent = new RowList[0];
+        private RowList[] byLecturer = new RowList[0];
+        private int maxDurationMinutes = Appointment.DEFAULT_DURATION_MINUTES;
+
+        // Set once, when the store moves on to a newer generation: old row -> new row, or -1
+        private volatile Rows successor;
+        private int[] forward;
+
+        Rows(ColumnarAppointmentStore owner) {
+            this.owner = owner;
+        }
+
+        // Row accessors used by Appointment views
+
+        long id(int row) {
+            Rows next = successor;
+            return next != null && forward[row] >= 0 ? next.id(forward[row]) : rawId(row);
+        }
+
+        String studentName(int row) {
+            Rows next = successor;
+            return next != null && forward[row] >= 0 ? next.studentName(forward[row]) : users.get(student(row));
+        }
+
+        String lecturerName(int row) {
+            Rows next = successor;
+            return next != null && forward[row] >= 0 ? next.lecturerName(forward[row]) : users.get(lecturer(row));
+        }
+
+        LocalDateTime time(int row) {
+            Rows next = successor;
+            if (next != null && forward[row] >= 0) {
+                return next.time(forward[row]);
+            }
+            return LocalDateTime.ofEpochSecond(start(row) * 60, 0, ZoneOffset.UTC);
+        }
+
+        int duration(int row) {
+            Rows next = successor;
+            return next != null && forward[row] >= 0 ? next.duration(forward[row]) : rawDuration(row);
+        }
+
+        String description(int row) {
+            Rows next = successor;
+            return next != null && forward[row] >= 0 ? next.description(forward[row]) : rawDescription(row);
+        }
+
+        String status(int row) {
+            Rows next = successor;
+            return next != null && forward[row] >= 0 ? next.status(forward[row]) : rawStatus(row);
+        }
+
+        boolean confirmed(int row) {
+            Rows next = successor;
+            return next != null && forward[row] >= 0 ? next.confirmed(forward[row]) : rawConfirmed(row);
+        }
+
+        void setStatus(int row, String status) {
+            owner.lock.writeLock().lock();
+            try {
+                if (successor != null && forward[row] >= 0) {
+                    successor.setStatus(forward[row], status);
+                    return;
+                }
+                byte[] chunk = flags[row >>> CHUNK_BITS];
+                int slot = row & CHUNK_MASK;
+                chunk[slot] = (byte) ((chunk[slot] & ~STATUS_MASK) | statuses.code(status));
+            } finally {
+                owner.lock.writeLock().unlock();
+            }
+        }
+
+        void setConfirmed(int row, boolean confirmed) {
+            owner.lock.writeLock().lock();
+            try {
+                if (successor != null && forward[row] >= 0) {
+                    successor.setConfirmed(forward[row], confirmed);
+                    return;
+                }
+                byte[] chunk = flags[row >>> CHUNK_BITS];
+                int slot = row & CHUNK_MASK;
+                chunk[slot] = (byte) (confirmed ? chunk[slot] | CONFIRMED : chunk[slot] & ~CONFIRMED);
+            } finally {
+                owner.lock.writeLock().unlock();
+            }
+        }
+
+        // Live rows of the current generation are re-indexed under their new start
+        void setTime(int row, LocalDateTime time) {
+            owner.lock.writeLock().lock();
+            try {
+                if (successor != null && forward[row] >= 0) {
+                    successor.setTime(forward[row], time);
+                    return;
+                }
+                boolean live = owner.rows == this && !removed(row);
+                if (live) {
+                    byStudent[student(row)].remove(row);
+                    byLecturer[lecturer(row)].remove(row);
+                }
+                starts[row >>> CHUNK_BITS][row & CHUNK_MASK] = minutes(time);
+                if (live) {
+                    byStudent[student(row)].add(row);
+                    byLecturer[lecturer(row)].add(row);
+                }
+            } finally {
+                owner.lock.writeLock().unlock();
+            }
+        }
+
+        // Whether two views address the same appointment, following forwards on both sides
+        boolean sameRow(int row, Rows other, int otherRow) {
+            Rows self = this;
+            while (self.successor != null && self.forward[row] >= 0) {
+                row = self.forward[row];
+                self = self.successor;
+            }
+            while (other.successor != null && other.forward[otherRow] >= 0) {
+                otherRow = other.forward[otherRow];
+                other = other.successor;
+            }
+            return self == other && row == otherRow;
+        }
+
+        // Write a new live row, not yet indexed; caller holds the write lock
+        private int append(long id, String studentName, String lecturerName, long startMinutes, int duration,
+                           String status, boolean confirmed, String description) {
+            // Intern first: the status pool is bounded, and a failure must not leave a partial row
+            int statusCode = statuses.code(status);
+            int student = users.code(studentName);
+            int lecturer = users.code(lecturerName);
+            int descriptionCode = description == null ? NO_DESCRIPTION : descriptionPool.code(description);
+
+            int row = rowCount;
+            int chunk = row >>> CHUNK_BITS;
+            int slot = row & CHUNK_MASK;
+            if (slot == 0) {
+                addChunk();
+            }
+            ids[chunk][slot] = id;
+            students[chunk][slot] = student;
+            lecturers[chunk][slot] = lecturer;
+            starts[chunk][slot] = startMinutes;
+            durations[chunk][slot] = duration;
+            flags[chunk][slot] = (byte) (statusCode | (confirmed ? CONFIRMED : 0));
+            descriptions[chunk][slot] = descriptionCode;
+            rowCount++;
+            liveCount++;
+            maxDurationMinutes = Math.max(maxDurationMinutes, duration);
+            return row;
+        }
+
+        private void index(int row) {
+            rowById.put(row);
+            rowsFor(Participant.STUDENT, student(row)).add(row);
+            rowsFor(Participant.LECTURER, lecturer(row)).add(row);
+        }
+
+        private long rawId(int row) {
+            return ids[row >>> CHUNK_BITS][row & CHUNK_MASK];
+        }
+
+        private int rawDuration(int row) {
+            return durations[row >>> CHUNK_BITS][row & CHUNK_MASK];
+        }
+
+        private String rawDescription(int row) {
+            int code = descriptions[row >>> CHUNK_BITS][row & CHUNK_MASK];
+            return code == NO_DESCRIPTION ? null : descriptionPool.get(code);
+        }
+
+        private String rawStatus(int row) {
+            return statuses.get(flags[row >>> CHUNK_BITS][row & CHUNK_MASK] & STATUS_MASK);
+        }
+
+        private boolean rawConfirmed(int row) {
+            return (flags[row >>> CHUNK_BITS][row & CHUNK_MASK] & CONFIRMED) != 0;
+        }
+
+        private int student(int row) {
+            return students[row >>> CHUNK_BITS][row & CHUNK_MASK];
+        }
+
+        private int lecturer(int row) {
+            return lecturers[row >>> CHUNK_BITS][row & CHUNK_MASK];
+        }
+
+        private long start(int row) {
+            return starts[row >>> CHUNK_BITS][row & CHUNK_MASK];
+        }
+
+        private boolean removed(int row) {
+            return (flags[row >>> CHUNK_BITS][row & CHUNK_MASK] & REMOVED) != 0;
+        }
+
+        private void addChunk() {
+            int chunks = ids.length + 1;
+            ids = Arrays.copyOf(ids, chunks);
+            students = Arrays.copyOf(students, chunks);
+            lecturers = Arrays.copyOf(lecturers, chunks);
+            starts = Arrays.copyOf(starts, chunks);
+            durations = Arrays.copyOf(durations, chunks);
+            flags = Arrays.copyOf(flags, chunks);
+            descriptions = Arrays.copyOf(descriptions, chunks);
+            ids[chunks - 1] = new long[CHUNK_SIZE];
+            students[chunks - 1] = new int[CHUNK_SIZE];
+            lecturers[chunks - 1] = new int[CHUNK_SIZE];
+            starts[chunks - 1] = new long[CHUNK_SIZE];
+            durations[chunks - 1] = new int[CHUNK_SIZE];
+            flags[chunks - 1] = new byte[CHUNK_SIZE];
+            descriptions[chunks - 1] = new int[CHUNK_SIZE];
+        }
+
+        private RowList rowsOf(Participant participant, String name) {
+            int code = users.find(name);
+            RowList[] index = participant == Participant.STUDENT ? byStudent : byLecturer;
+            return code < 0 || code >= index.length ? null : index[code];
+        }
+
+        private RowList rowsFor(Participant participant, int code) {
+            RowList[] index = participant == Participant.STUDENT ? byStudent : byLecturer;
+            if (code >= index.length) {
+                index = Arrays.copyOf(index, Math.max(code + 1, index.length * 2));
+                if (participant == Participant.STUDENT) {
+                    byStudent = index;
+                } else {
+                    byLecturer = index;
+                }
+            }
+            if (index[code] == null) {
+                index[code] = new RowList(this);
+            }
+            return index[code];
+        }
+
+        private List<Appointment> views(RowList list, int from, int to) {
+            List<Appointment> result = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                result.add(new Appointment(this, list.rows[i]));
+            }
+            return result;
+        }
+    }
+
+    // A user's rows ordered by start, then by insertion
+    private static final class RowList {
+        private final Rows columns;
+        int[] rows = new int[4];
+        int size;
+
+        RowList(Rows columns) {
+            this.columns = columns;
+        }
+
+        // Index of the first row starting after (or, if !after, at or after) the given second
+        int search(long seconds, boolean after) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                long rowStart = columns.start(rows[mid]) * 60;
+                if (rowStart < seconds || (after && rowStart == seconds)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void add(int row) {
+            int i = search(columns.start(row) * 60, true);
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            System.arraycopy(rows, i, rows, i + 1, size - i);
+            rows[i] = row;
+            size++;
+        }
+
+        void remove(int row) {
+            for (int i = search(columns.start(row) * 60, false); i < size; i++) {
+                if (rows[i] == row) {
+                    System.arraycopy(rows, i + 1, rows, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Append-only string pool; a code is an index into values. Lookups by code need no
+    // lock because values only grow and published codes never change.
+    private static final class Dictionary {
+        private final int limit;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+        private int size;
+
+        Dictionary(int limit) {
+            this.limit = limit;
+        }
+
+        // Code for a value, adding it if new; caller holds the write lock
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == limit) {
+                throw new IllegalArgumentException("More than " + limit + " distinct values");
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+
+        // Code for a value, or -1; caller holds a lock
+        int find(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        String get(int code) {
+            return values[code];
+        }
+    }
+
+    // Open-addressing ID -> row table with linear probing. Slots hold row + 1 (0 is empty)
+    // and keys are read back from the id column, so the whole ID index costs one int
+    // per slot instead of a boxed map entry per row.
+    private static final class IdTable {
+        private final Rows columns;
+        private int[] slots = new int[16];
+        private int size;
+
+        IdTable(Rows columns) {
+            this.columns = columns;
+        }
+
+        // Row stored under an ID, or -1
+        int get(long id) {
+            int mask = slots.length - 1;
+            for (int i = slot(id, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if (columns.rawId(slots[i] - 1) == id) {
+                    return slots[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        // Caller has checked that the ID is not present
+        void put(int row) {
+            if ((size + 1) * 4 > slots.length * 3) {
+                resize(slots.length * 2);
+            }
+            int mask = slots.length - 1;
+            int i = slot(columns.rawId(row), mask);
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = row + 1;
+            size++;
+        }
+
+        // Backward-shift deletion keeps probe sequences intact without tombstones
+        void remove(long id) {
+            int mask = slots.length - 1;
+            int i = slot(id, mask);
+            while (slots[i] == 0 || columns.rawId(slots[i] - 1) != id) {
+                if (slots[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = slot(columns.rawId(slots[j] - 1), mask);
+                boolean movable = i <= j ? home <= i || home > j : home <= i && home > j;
+                if (movable) {
+                    slots[i] = slots[j];
+                    i = j;
+                }
+            }
+            slots[i] = 0;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            int[] old = slots;
+            slots = new int[capacity];
+            size = 0;
+            for (int entry : old) {
+                if (entry != 0) {
+                    put(entry - 1);
+                }
+            }
+        }
+
+        private int slot(long id, int mask) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,572 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Headless JSON API over the JDK HTTP server, sharing one set of managers between
+// all clients. Each request runs on its own virtual thread when the runtime has them.
+//
+//   POST /api/login                       {username, password} -> {token, username, role}
+//   POST /api/logout                      ends the caller's session
+//   GET  /api/appointments[?from=&to=]    the caller's appointments
+//   POST /api/appointments                {lecturer, time, description[, durationMinutes]}
+//   POST /api/appointments/confirm        {id}
+//   POST /api/appointments/cancel         {id}
+//   POST /api/appointments/reschedule     {id, proposedTime, reason}
+//   GET  /api/reschedules                 the lecturer's pending requests
+//   GET  /api/search?q=[&lecturer=&from=&to=&limit=]  keyword search over appointments and feedback (lecturers)
+//   GET  /api/reports/lecturers|weeks|demand[?from=&to=]  utilization and demand figures (lecturers; dates yyyy-MM-dd)
+//   POST /api/reschedules/approve|reject  {requestIds: [...]}
+//   GET  /api/metrics                     counters and latency percentiles (no login needed)
+//   GET  /api/replication                 role, log position and lag (no login needed)
+//   POST /api/replication/promote         turn a standby into a primary (loopback only)
+//
+// A warm standby serves the GET endpoints and login; other writes get 503 until promoted.
+// Appointments may also be addressed by {student, lecturer, time} instead of id.
+// Authenticated calls send the login token in the X-Session header. A session expires
+// after pcs.server.sessionIdleMinutes (default 30) without a request.
+// Times use the same yyyy-MM-dd HH:mm format as the dashboards.
+public class ConsultationServer {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String SESSION_HEADER = "X-Session";
+    public static final long SESSION_IDLE_MS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("pcs.server.sessionIdleMinutes", 30));
+    private static final long SESSION_SWEEP_MS = 60_000;
+
+    private final UserManager userManager;
+    private final AppointmentManager appointmentManager;
+    private final RescheduleManager rescheduleManager;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionSweep = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile String readOnlyReason; // non-null while this is a standby
+    private volatile Supplier<Map<String, Object>> replicationStatus;
+    private volatile Runnable promotion;
+    private volatile SearchService search; // null when search is off
+    private volatile AnalyticsEngine analytics; // null on a standby
+
+    // Thrown by handlers to answer with an HTTP error status
+    private static class ApiException extends RuntimeException {
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // A logged-in client, keyed by its token
+    private static class Session {
+        private final User user;
+        private volatile long lastUsedMillis;
+
+        Session(User user, long now) {
+            this.user = user;
+            this.lastUsedMillis = now;
+        }
+
+        boolean isExpired(long now) {
+            return now - lastUsedMillis > SESSION_IDLE_MS;
+        }
+    }
+
+    public ConsultationServer(UserManager userManager, AppointmentManager appointmentManager,
+                              RescheduleManager rescheduleManager) {
+        this.userManager = userManager;
+        this.appointmentManager = appointmentManager;
+        this.rescheduleManager = rescheduleManager;
+    }
+
+    public void start(String host, int port) throws IOException {
+        // The JDK server writes headers and body separately; without TCP_NODELAY every
+        // response waits out the client's delayed ACK (about 40 ms). Read once, on first use.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    // Port actually bound; useful when started on port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // Refuse writes with 503 and the given reason, or accept them again with null
+    public void setReadOnly(String reason) {
+        this.readOnlyReason = reason;
+    }
+
+    // What GET /api/replication reports, and what POST /api/replication/promote runs (null if not a standby)
+    public void setReplication(Supplier<Map<String, Object>> status, Runnable promotion) {
+        this.replicationStatus = status;
+        this.promotion = promotion;
+    }
+
+    public void setSearch(SearchService search) {
+        this.search = search;
+    }
+
+    public void setAnalytics(AnalyticsEngine analytics) {
+        this.analytics = analytics;
+    }
+
+    // Virtual thread per request on Java 21+, otherwise a cached platform thread pool
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object body;
+        try {
+            body = route(exchange);
+            String endpoint = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            if (endpoint.equals("POST /api/appointments") || endpoint.equals("POST /api/appointments/reschedule")) {
+                status = 201;
+            }
+        } catch (ApiException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (SchedulingConflictException | IllegalStateException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("Internal error: " + e.getMessage());
+        }
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Object route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        if (method.equals("POST") && path.equals("/api/login")) {
+            return login(readBody(exchange));
+        }
+        if (method.equals("POST") && path.equals("/api/logout")) {
+            return logout(exchange);
+        }
+        if (method.equals("GET") && path.equals("/api/metrics")) {
+            return Metrics.snapshot();
+        }
+        if (path.equals("/api/replication") || path.equals("/api/replication/promote")) {
+            return replication(exchange, method, path);
+        }
+        String reason = readOnlyReason;
+        if (reason != null && method.equals("POST")) {
+            throw new ApiException(503, reason);
+        }
+        User user = authenticate(exchange);
+        switch (method + " " + path) {
+            case "GET /api/appointments":
+                return listAppointments(user, queryParams(exchange));
+            case "POST /api/appointments":
+                return createAppointment(user, readBody(exchange));
+            case "POST /api/appointments/confirm":
+                return confirmAppointment(user, readBody(exchange));
+            case "POST /api/appointments/cancel":
+                return cancelAppointment(user, readBody(exchange));
+            case "POST /api/appointments/reschedule":
+                return requestReschedule(user, readBody(exchange));
+            case "GET /api/reschedules":
+                return listReschedules(user);
+            case "GET /api/search":
+                return search(user, queryParams(exchange));
+            case "POST /api/reschedules/approve":
+                return decideReschedules(user, readBody(exchange), true);
+            case "POST /api/reschedules/reject":
+                return decideReschedules(user, readBody(exchange), false);
+            default:
+                if (method.equals("GET") && path.startsWith("/api/reports/")) {
+                    return report(user, path.substring("/api/reports/".length()), queryParams(exchange));
+                }
+                throw new ApiException(404, "No such endpoint: " + method + " " + path);
+        }
+    }
+
+    private Object replication(HttpExchange exchange, String method, String path) {
+        if (method.equals("GET") && path.equals("/api/replication")) {
+            Supplier<Map<String, Object>> status = replicationStatus;
+            if (status != null) {
+                return status.get();
+            }
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("role", "standalone");
+            return json;
+        }
+        if (method.equals("POST") && path.equals("/api/replication/promote")) {
+            // No user may promote; whoever runs the standby host decides when the primary is gone
+            if (!exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+                throw new ApiException(403, "Promotion is only accepted from the local host");
+            }
+            Runnable current = promotion;
+            if (current == null) {
+                throw new ApiException(409, "This server is not a standby");
+            }
+            current.run();
+            return replication(exchange, "GET", "/api/replication");
+        }
+        throw new ApiException(404, "No such endpoint: " + method + " " + path);
+    }
+
+    private Object login(Map<String, Object> request) {
+        User user = userManager.findUser(string(request, "username"), string(request, "password"));
+        if (user == null) {
+            throw new ApiException(401, "Invalid username or password");
+        }
+        byte[] tokenBytes = new byte[24];
+        random.nextBytes(tokenBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+        long now = System.currentTimeMillis();
+        removeExpiredSessions(now);
+        sessions.put(token, new Session(user, now));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("token", token);
+        response.put("username", user.getUsername());
+        response.put("role", user.getRole());
+        return response;
+    }
+
+    private Object logout(HttpExchange exchange) {
+        User user = authenticate(exchange);
+        sessions.remove(exchange.getRequestHeaders().getFirst(SESSION_HEADER));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("username", user.getUsername());
+        return response;
+    }
+
+    // Only logins add sessions, so sweeping there (at most once a minute) bounds the map
+    private void removeExpiredSessions(long now) {
+        long next = nextSessionSweep.get();
+        if (now < next || !nextSessionSweep.compareAndSet(next, now + SESSION_SWEEP_MS)) {
+            return;
+        }
+        sessions.values().removeIf(session -> session.isExpired(now));
+    }
+
+    private Object listAppointments(User user, Map<String, String> query) {
+        boolean student = isStudent(user);
+        List<Appointment> appointments;
+        if (query.containsKey("from") || query.containsKey("to")) {
+            LocalDateTime from = query.containsKey("from") ? parseTime(query.get("from")) : LocalDateTime.MIN;
+            LocalDateTime to = query.containsKey("to") ? parseTime(query.get("to")) : LocalDateTime.MAX;
+            appointments = student
+                    ? appointmentManager.getAppointmentsForStudentBetween(user.getUsername(), from, to)
+                    : appointmentManager.getAppointmentsForLecturerBetween(user.getUsername(), from, to);
+        } else {
+            appointments = student
+                    ? appointmentManager.getAppointmentsForStudent(user.getUsername())
+                    : appointmentManager.getAppointmentsForLecturer(user.getUsername());
+        }
+        List<Object> result = new ArrayList<>(appointments.size());
+        for (Appointment appointment : appointments) {
+            result.add(toJson(appointment));
+        }
+        return result;
+    }
+
+    private Object createAppointment(User user, Map<String, Object> request) {
+        requireRole(user, "student");
+        String lecturerName = string(request, "lecturer");
+        User lecturer = userManager.getUserByUsername(lecturerName);
+        if (lecturer == null || !lecturer.getRole().equals("lecturer")) {
+            throw new ApiException(404, "No such lecturer: " + lecturerName);
+        }
+        Object duration = request.get("durationMinutes");
+        if (duration != null && !(duration instanceof Long)) {
+            throw new IllegalArgumentException("durationMinutes must be an integer");
+        }
+        if (duration != null && ((Long) duration < 1 || (Long) duration > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("durationMinutes must be positive");
+        }
+        Appointment appointment = new Appointment(user.getUsername(), lecturerName,
+                parseTime(string(request, "time")), string(request, "description"),
+                duration == null ? Appointment.DEFAULT_DURATION_MINUTES : ((Long) duration).intValue());
+        appointmentManager.addAppointment(appointment);
+        return toJson(appointment);
+    }
+
+    private Object confirmAppointment(User user, Map<String, Object> request) {
+        requireRole(user, "lecturer");
+        Appointment appointment = findOwnedAppointment(user, request);
+        if (!appointmentManager.confirmById(appointment.getId())) {
+            throw new ApiException(404, "Appointment was cancelled");
+        }
+        return toJson(appointment);
+    }
+
+    private Object cancelAppointment(User user, Map<String, Object> request) {
+        Appointment appointment = findOwnedAppointment(user, request);
+        if (!appointmentManager.cancelById(appointment.getId())) {
+            throw new ApiException(404, "Appointment already cancelled");
+        }
+        Map<String, Object> response = toJson(appointment);
+        response.put("status", "Cancelled");
+        return response;
+    }
+
+    private Object requestReschedule(User user, Map<String, Object> request) {
+        Appointment appointment = findOwnedAppointment(user, request);
+        ReschedulingRequest rescheduling = new ReschedulingRequest(appointment,
+                parseTime(string(request, "proposedTime")), user.getUsername(), string(request, "reason"));
+        if (!rescheduling.isValidReschedulingRequest()) {
+            throw new IllegalArgumentException("Proposed time must be in the future and differ from the current time");
+        }
+        rescheduleManager.submitRequest(rescheduling);
+        return toJson(rescheduling);
+    }
+
+    private Object listReschedules(User user) {
+        requireRole(user, "lecturer");
+        List<Object> result = new ArrayList<>();
+        for (ReschedulingRequest request : rescheduleManager.getPendingForLecturer(user.getUsername())) {
+            result.add(toJson(request));
+        }
+        return result;
+    }
+
+    // Case notes are for counselling staff only, so students cannot search them
+    private Object search(User user, Map<String, String> query) {
+        requireRole(user, "lecturer");
+        SearchService current = search;
+        if (current == null) {
+            throw new ApiException(503, "Search is not enabled on this server");
+        }
+        String text = query.get("q");
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Missing query parameter: q");
+        }
+        String lecturer = query.get("lecturer");
+        LocalDateTime from = query.containsKey("from") ? parseTime(query.get("from")) : null;
+        LocalDateTime to = query.containsKey("to") ? parseTime(query.get("to")) : null;
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : 100;
+        List<Object> appointments = new ArrayList<>();
+        for (Appointment appointment : current.searchAppointments(text, lecturer, from, to, limit)) {
+            appointments.add(toJson(appointment));
+        }
+        List<Object> feedback = new ArrayList<>();
+        for (Feedback item : current.searchFeedback(text, lecturer, from, to, limit)) {
+            feedback.add(toJson(item));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("appointments", appointments);
+        response.put("feedback", feedback);
+        return response;
+    }
+
+    private Object report(User user, String name, Map<String, String> query) {
+        requireRole(user, "lecturer");
+        AnalyticsEngine current = analytics;
+        if (current == null) {
+            throw new ApiException(503, "Reports are not available on this server");
+        }
+        String[] columns;
+        try {
+            columns = AnalyticsEngine.columns(name);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(404, e.getMessage());
+        }
+        LocalDate from = query.containsKey("from") ? LocalDate.parse(query.get("from")) : null;
+        LocalDate to = query.containsKey("to") ? LocalDate.parse(query.get("to")) : null;
+        List<Object> result = new ArrayList<>();
+        for (Object[] row : current.report(name, from, to)) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            for (int i = 0; i < columns.length; i++) {
+                json.put(columns[i], row[i]);
+            }
+            result.add(json);
+        }
+        return result;
+    }
+
+    private Object decideReschedules(User user, Map<String, Object> request, boolean approve) {
+        requireRole(user, "lecturer");
+        Object ids = request.get("requestIds");
+        if (!(ids instanceof List<?> list)) {
+            throw new IllegalArgumentException("requestIds must be an array");
+        }
+        List<String> requestIds = new ArrayList<>();
+        for (Object id : list) {
+            ReschedulingRequest rescheduling = rescheduleManager.findById(String.valueOf(id));
+            // Lecturers may only decide requests for their own appointments
+            if (rescheduling != null
+                    && rescheduling.getOriginalAppointment().getLecturerName().equals(user.getUsername())) {
+                requestIds.add(rescheduling.getRequestId());
+            }
+        }
+        RescheduleManager.BatchResult result = approve
+                ? rescheduleManager.approve(requestIds)
+                : rescheduleManager.reject(requestIds);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("approved", result.getApproved().stream().map(ReschedulingRequest::getRequestId).toList());
+        response.put("rejected", result.getRejected().stream().map(ReschedulingRequest::getRequestId).toList());
+        return response;
+    }
+
+    // Appointments are addressed by id (or by student, lecturer and time); callers must take part in them
+    private Appointment findOwnedAppointment(User user, Map<String, Object> request) {
+        Object id = request.get("id");
+        Appointment appointment;
+        if (id != null) {
+            if (!(id instanceof Long)) {
+                throw new IllegalArgumentException("id must be an integer");
+            }
+            appointment = appointmentManager.findById((Long) id);
+        } else {
+            appointment = appointmentManager.findAppointment(string(request, "student"), string(request, "lecturer"),
+                    parseTime(string(request, "time")));
+        }
+        if (appointment == null) {
+            throw new ApiException(404, "No such appointment");
+        }
+        String owner = isStudent(user) ? appointment.getStudentName() : appointment.getLecturerName();
+        if (!owner.equals(user.getUsername())) {
+            throw new ApiException(403, "Not your appointment");
+        }
+        return appointment;
+    }
+
+    private User authenticate(HttpExchange exchange) {
+        String token = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            throw new ApiException(401, "Login required");
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            sessions.remove(token, session);
+            throw new ApiException(401, "Session expired");
+        }
+        session.lastUsedMillis = now;
+        return session.user;
+    }
+
+    private static void requireRole(User user, String role) {
+        if (!user.getRole().equals(role)) {
+            throw new ApiException(403, "Only a " + role + " may do this");
+        }
+    }
+
+    private static boolean isStudent(User user) {
+        return user.getRole().equals("student");
+    }
+
+    static Map<String, Object> toJson(Appointment appointment) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", appointment.getId());
+        json.put("student", appointment.getStudentName());
+        json.put("lecturer", appointment.getLecturerName());
+        json.put("time", TIME_FORMAT.format(appointment.getAppointmentTime()));
+        json.put("durationMinutes", appointment.getDurationMinutes());
+        json.put("description", appointment.getDescription());
+        json.put("status", appointment.getStatus());
+        json.put("confirmed", appointment.isConfirmed());
+        return json;
+    }
+
+    static Map<String, Object> toJson(ReschedulingRequest request) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("requestId", request.getRequestId());
+        json.put("appointment", toJson(request.getOriginalAppointment()));
+        json.put("proposedTime", TIME_FORMAT.format(request.getProposedTime()));
+        json.put("requester", request.getRequesterName());
+        json.put("reason", request.getRequestReason());
+        json.put("status", request.getStatus().name());
+        return json;
+    }
+
+    static Map<String, Object> toJson(Feedback feedback) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("feedbackId", feedback.getFeedbackId());
+        json.put("student", feedback.getStudentName());
+        json.put("lecturer", feedback.getLecturerName());
+        json.put("submittedAt", TIME_FORMAT.format(feedback.getSubmittedAt()));
+        json.put("rating", feedback.getRating());
+        json.put("content", feedback.getContent());
+        return json;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return body.isBlank() ? new HashMap<>() : Json.parseObject(body);
+        }
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static String string(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value.toString();
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        return LocalDateTime.parse(value, TIME_FORMAT);
+    }
+}
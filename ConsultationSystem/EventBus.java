@@ -0,0 +1,167 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// In-process publish/subscribe for typed change events (AppointmentEvent, UserEvent).
+// Managers publish while the mutation is still serialized, so events come out in the
+// order the changes were made.
+//
+// Synchronous subscribers run on the publishing thread before the mutating call returns;
+// keep them short and don't touch other appointments from them (autosave flags, counters).
+// Asynchronous subscribers get events queued in publication order and delivered in
+// batches on their executor, one batch at a time, so a burst of changes (or a bulk
+// import) becomes a handful of calls, e.g. one table update per EDT turn.
+public class EventBus<E> {
+    public static final int MAX_BATCH = Integer.getInteger("pcs.events.maxBatch", 1024);
+
+    private final String name;
+    private final List<Consumer<? super E>> syncSubscribers = new CopyOnWriteArrayList<>();
+    private final List<AsyncSubscription> asyncSubscribers = new CopyOnWriteArrayList<>();
+    private final LongAdder published;
+    private final LongAdder failures;
+
+    public EventBus(String name) {
+        this.name = name;
+        this.published = Metrics.counter("events." + name + ".published");
+        this.failures = Metrics.counter("events." + name + ".failed");
+    }
+
+    // Handle to cancel a subscription
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public Subscription subscribe(Consumer<? super E> subscriber) {
+        syncSubscribers.add(subscriber);
+        return () -> syncSubscribers.remove(subscriber);
+    }
+
+    // Deliver events in batches of up to MAX_BATCH on the executor (e.g. SwingUtilities::invokeLater)
+    public Subscription subscribeAsync(Executor executor, Consumer<? super List<E>> subscriber) {
+        AsyncSubscription subscription = new AsyncSubscription(executor, subscriber);
+        asyncSubscribers.add(subscription);
+        return subscription;
+    }
+
+    public boolean hasSubscribers() {
+        return !syncSubscribers.isEmpty() || !asyncSubscribers.isEmpty();
+    }
+
+    public void publish(E event) {
+        if (!hasSubscribers()) {
+            return;
+        }
+        published.increment();
+        // Queue for every async subscriber under one lock, so they all see the same order
+        synchronized (this) {
+            for (AsyncSubscription subscription : asyncSubscribers) {
+                subscription.enqueue(event);
+            }
+        }
+        for (Consumer<? super E> subscriber : syncSubscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                failed(e);
+            }
+        }
+    }
+
+    // Publish a bulk change; async subscribers receive it as few batches as possible
+    public void publishAll(List<E> events) {
+        if (events.isEmpty() || !hasSubscribers()) {
+            return;
+        }
+        published.add(events.size());
+        synchronized (this) {
+            for (AsyncSubscription subscription : asyncSubscribers) {
+                subscription.enqueueAll(events);
+            }
+        }
+        for (E event : events) {
+            for (Consumer<? super E> subscriber : syncSubscribers) {
+                try {
+                    subscriber.accept(event);
+                } catch (RuntimeException e) {
+                    failed(e);
+                }
+            }
+        }
+    }
+
+    // A failing subscriber must not undo or block the mutation that published the event
+    private void failed(RuntimeException e) {
+        failures.increment();
+        System.err.println("Error in " + name + " event subscriber: " + e);
+    }
+
+    private final class AsyncSubscription implements Subscription {
+        private final Executor executor;
+        private final Consumer<? super List<E>> subscriber;
+        private final ArrayDeque<E> queue = new ArrayDeque<>(); // guarded by this
+        private boolean scheduled; // guarded by this; a drain is queued or running
+        private volatile boolean closed;
+
+        AsyncSubscription(Executor executor, Consumer<? super List<E>> subscriber) {
+            this.executor = executor;
+            this.subscriber = subscriber;
+        }
+
+        synchronized void enqueue(E event) {
+            queue.add(event);
+            schedule();
+        }
+
+        synchronized void enqueueAll(List<E> events) {
+            queue.addAll(events);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        // Deliver one batch, then hand the executor back before delivering the next
+        private void drain() {
+            List<E> batch;
+            synchronized (this) {
+                if (closed || queue.isEmpty()) {
+                    queue.clear();
+                    scheduled = false;
+                    return;
+                }
+                batch = new ArrayList<>(Math.min(queue.size(), MAX_BATCH));
+                while (batch.size() < MAX_BATCH && !queue.isEmpty()) {
+                    batch.add(queue.poll());
+                }
+            }
+            try {
+                subscriber.accept(batch);
+            } catch (RuntimeException e) {
+                failed(e);
+            }
+            synchronized (this) {
+                if (queue.isEmpty() || closed) {
+                    queue.clear();
+                    scheduled = false;
+                } else {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            asyncSubscribers.remove(this);
+        }
+    }
+}
@@ -1,19 +1,36 @@
 import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 public class Feedback implements Serializable {
+    private final String feedbackId;
     private final String studentName;
     private final String lecturerName;
     private String content;
     private int rating;
+    private final LocalDateTime submittedAt;
+    private transient FeedbackManager owner; // Keeps the lecturer's aggregates in step with edits
 
     public Feedback(String studentName, String lecturerName, String content, int rating) {
+        this(UUID.randomUUID().toString(), studentName, lecturerName, content, rating, LocalDateTime.now());
+    }
+
+    // Constructor for feedback restored from disk
+    Feedback(String feedbackId, String studentName, String lecturerName, String content, int rating,
+             LocalDateTime submittedAt) {
+        this.feedbackId = feedbackId;
         this.studentName = studentName;
         this.lecturerName = lecturerName;
         this.content = content;
         this.rating = rating;
+        this.submittedAt = submittedAt;
     }
 
     // Getters
+    public String getFeedbackId() {
+        return feedbackId;
+    }
+
     public String getStudentName() {
         return studentName;
     }
@@ -30,12 +47,30 @@ public class Feedback implements Serializable {
         return rating;
     }
 
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
     // Setters
     public void setContent(String content) {
         this.content = content;
+        if (owner != null) {
+            owner.contentChanged(this);
+        }
     }
 
     public void setRating(int rating) {
+        if (owner != null) {
+            FeedbackManager.checkRating(rating);
+        }
+        int oldRating = this.rating;
         this.rating = rating;
+        if (owner != null) {
+            owner.ratingChanged(this, oldRating);
+        }
+    }
+
+    void setOwner(FeedbackManager owner) {
+        this.owner = owner;
     }
 }
\ No newline at end of file
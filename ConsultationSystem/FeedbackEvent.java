@@ -0,0 +1,29 @@
+// A change to the stored feedback, published on FeedbackManager.getEventBus()
+public final class FeedbackEvent {
+    public enum Type {
+        SUBMITTED,
+        UPDATED, // content or rating edited
+        RELOADED // everything was replaced; getFeedback() is null
+    }
+
+    private final Type type;
+    private final Feedback feedback;
+
+    public FeedbackEvent(Type type, Feedback feedback) {
+        this.type = type;
+        this.feedback = feedback;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Feedback getFeedback() {
+        return feedback;
+    }
+
+    @Override
+    public String toString() {
+        return type + (feedback == null ? "" : " " + feedback.getFeedbackId());
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Stores feedback and keeps per-lecturer rating aggregates up to date as feedback
+// is submitted or edited, so rating reports never rescan every record.
+public class FeedbackManager {
+    private final Map<String, Feedback> byId = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Feedback>> byLecturer = new ConcurrentHashMap<>();
+    private final Map<String, LecturerRating> ratings = new ConcurrentHashMap<>();
+    private volatile Journal journal; // Optional write-ahead journal for mutations
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>(); // Notified after mutations
+    private final EventBus<FeedbackEvent> events = new EventBus<>("feedback"); // What changed, in order
+
+    // Attach a journal; subsequent submissions and edits are appended to it
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Register a callback run after every submission or edit
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Typed change events; restoring persisted feedback publishes none
+    public EventBus<FeedbackEvent> getEventBus() {
+        return events;
+    }
+
+    // Submit new feedback; ratings must be between 1 and 5
+    public void submitFeedback(Feedback feedback) {
+        if (!insert(feedback)) {
+            return;
+        }
+        Journal current = journal;
+        if (current != null) {
+            current.logFeedbackSubmitted(feedback);
+        }
+        events.publish(new FeedbackEvent(FeedbackEvent.Type.SUBMITTED, feedback));
+        changed();
+    }
+
+    // Add persisted feedback without journaling
+    public void restoreFeedback(Feedback feedback) {
+        insert(feedback);
+    }
+
+    // Drop all feedback (not journaled), e.g. before a replica reloads its state
+    public void clearFeedback() {
+        byId.clear();
+        byLecturer.clear();
+        ratings.clear();
+        events.publish(new FeedbackEvent(FeedbackEvent.Type.RELOADED, null));
+        changed();
+    }
+
+    public Feedback findById(String feedbackId) {
+        return byId.get(feedbackId);
+    }
+
+    public List<Feedback> getFeedbackForLecturer(String lecturerName) {
+        Queue<Feedback> feedback = byLecturer.get(lecturerName);
+        return feedback == null ? new ArrayList<>() : new ArrayList<>(feedback);
+    }
+
+    public List<Feedback> getAllFeedback() {
+        List<Feedback> all = new ArrayList<>(byId.values());
+        all.sort(Comparator.comparing(Feedback::getSubmittedAt));
+        return all;
+    }
+
+    // Aggregates for one lecturer; never null
+    public LecturerRating getRating(String lecturerName) {
+        LecturerRating rating = ratings.get(lecturerName);
+        return rating == null ? new LecturerRating(lecturerName) : rating;
+    }
+
+    // Aggregates for every lecturer with feedback, best average first
+    public List<LecturerRating> getAllRatings() {
+        List<LecturerRating> all = new ArrayList<>(ratings.values());
+        all.sort(Comparator.comparingDouble(LecturerRating::getAverage).reversed());
+        return all;
+    }
+
+    // Called by Feedback.setRating after the new rating is stored
+    void ratingChanged(Feedback feedback, int oldRating) {
+        LecturerRating rating = ratings.get(feedback.getLecturerName());
+        synchronized (rating) {
+            rating.remove(oldRating, feedback.getSubmittedAt());
+            rating.add(feedback.getRating(), feedback.getSubmittedAt());
+        }
+        updated(feedback);
+    }
+
+    // Called by Feedback.setContent after the new content is stored
+    void contentChanged(Feedback feedback) {
+        updated(feedback);
+    }
+
+    private void updated(Feedback feedback) {
+        Journal current = journal;
+        if (current != null) {
+            current.logFeedbackUpdated(feedback, feedback.getContent(), feedback.getRating());
+        }
+        events.publish(new FeedbackEvent(FeedbackEvent.Type.UPDATED, feedback));
+        changed();
+    }
+
+    private boolean insert(Feedback feedback) {
+        checkRating(feedback.getRating());
+        if (byId.putIfAbsent(feedback.getFeedbackId(), feedback) != null) {
+            return false;
+        }
+        byLecturer.computeIfAbsent(feedback.getLecturerName(), l -> new ConcurrentLinkedQueue<>()).add(feedback);
+        ratings.computeIfAbsent(feedback.getLecturerName(), LecturerRating::new)
+                .add(feedback.getRating(), feedback.getSubmittedAt());
+        feedback.setOwner(this);
+        return true;
+    }
+
+    static void checkRating(int rating) {
+        if (rating < LecturerRating.MIN_RATING || rating > LecturerRating.MAX_RATING) {
+            throw new IllegalArgumentException("Rating must be between "
+                    + LecturerRating.MIN_RATING + " and " + LecturerRating.MAX_RATING);
+        }
+    }
+
+    private void changed() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+}
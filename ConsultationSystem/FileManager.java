@@ -1,46 +1,300 @@
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
 public class FileManager {
-    private static final String USER_FILE = "users.dat";
-    private static final String APPOINTMENT_FILE = "appointments.dat";
+    // 数据目录：默认为当前目录，可用 -Dpcs.dataDir 指定（基准测试用临时目录）
+    private static final String DATA_DIR = System.getProperty("pcs.dataDir", ".");
+    private static final String USER_FILE = dataFile("users.dat");
+    private static final String APPOINTMENT_FILE = dataFile("appointments.dat");
+    private static final String RESCHEDULE_FILE = dataFile("reschedules.dat");
+    private static final String FEEDBACK_FILE = dataFile("feedback.dat");
+    private static final String JOURNAL_FILE = dataFile("journal.log");
+    private static final String ARCHIVE_DIR = dataFile("archive");
+    private static final String REMINDER_LOG = dataFile("reminders.log");
+    private static final String SEARCH_INDEX = dataFile("search.idx");
+    // 日志模式：默认开启，-Dpcs.journal=false 恢复为每次全量保存
+    public static final boolean JOURNAL_ENABLED = !"false".equals(System.getProperty("pcs.journal"));
+    // 日志记录数超过该阈值时在保存时压缩为快照
+    public static final int COMPACT_THRESHOLD = Integer.getInteger("pcs.journal.compactThreshold", 10_000);
 
     // 保存用户数据
     public static void saveUsers(List<User> users) throws IOException {
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                new FileOutputStream(USER_FILE))) {
-            out.writeObject(users);
+        PersistenceEvent event = PersistenceEvent.begin("save", USER_FILE);
+        File temp = new File(USER_FILE + ".tmp");
+        try (SnapshotWriter out = new SnapshotWriter(new FileOutputStream(temp), SnapshotWriter.KIND_USERS)) {
+            for (User user : users) {
+                out.writeUser(user);
+            }
         }
+        replace(temp, USER_FILE);
+        event.finish(users.size());
     }
 
-    // 加载用户数据
-    @SuppressWarnings("unchecked")
+    // 加载用户数据（旧版 Java 序列化文件会被自动迁移）
     public static List<User> loadUsers() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream in = new ObjectInputStream(
-                new FileInputStream(USER_FILE))) {
-            return (List<User>) in.readObject();
+        if (isLegacyFile(USER_FILE)) {
+            List<User> users = readLegacy(USER_FILE);
+            saveUsers(users);
+            return users;
+        }
+        List<User> users = new ArrayList<>();
+        PersistenceEvent event = PersistenceEvent.begin("load", USER_FILE);
+        try (SnapshotReader in = new SnapshotReader(new FileInputStream(USER_FILE))) {
+            for (User user = in.readUser(); user != null; user = in.readUser()) {
+                users.add(user);
+            }
         } catch (FileNotFoundException e) {
             return new ArrayList<>();
         }
+        event.finish(users.size());
+        return users;
     }
 
-    // 保存预约数据
+    // 保存预约数据（ID 序号取列表中最大 ID + 1）
     public static void saveAppointments(List<Appointment> appointments) throws IOException {
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                new FileOutputStream(APPOINTMENT_FILE))) {
-            out.writeObject(appointments);
+        long nextId = 1;
+        for (Appointment appointment : appointments) {
+            nextId = Math.max(nextId, appointment.getId() + 1);
         }
+        saveAppointments(appointments, nextId);
     }
 
-    // 加载预约数据
-    @SuppressWarnings("unchecked")
+    // 保存预约数据及 ID 序号（传入 appointmentManager.getNextId()，已删除预约的 ID 也不会被重用）
+    public static void saveAppointments(List<Appointment> appointments, long nextId) throws IOException {
+        PersistenceEvent event = PersistenceEvent.begin("save", APPOINTMENT_FILE);
+        File temp = new File(APPOINTMENT_FILE + ".tmp");
+        try (SnapshotWriter out = new SnapshotWriter(new FileOutputStream(temp), SnapshotWriter.KIND_APPOINTMENTS)) {
+            for (Appointment appointment : appointments) {
+                out.writeAppointment(appointment);
+            }
+            out.setSequence(nextId);
+        }
+        replace(temp, APPOINTMENT_FILE);
+        event.finish(appointments.size());
+    }
+
+    // 加载预约数据（旧版 Java 序列化文件会被自动迁移）
     public static List<Appointment> loadAppointments() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream in = new ObjectInputStream(
-                new FileInputStream(APPOINTMENT_FILE))) {
-            return (List<Appointment>) in.readObject();
+        return readAppointments(new long[1]);
+    }
+
+    // 加载预约数据到 appointmentManager，并恢复 ID 序号
+    public static void loadAppointments(AppointmentManager appointmentManager)
+            throws IOException, ClassNotFoundException {
+        long[] sequence = new long[1];
+        appointmentManager.setAppointments(readAppointments(sequence));
+        appointmentManager.advanceNextId(sequence[0]);
+    }
+
+    private static List<Appointment> readAppointments(long[] sequence) throws IOException, ClassNotFoundException {
+        if (isLegacyFile(APPOINTMENT_FILE)) {
+            List<Appointment> appointments = readLegacy(APPOINTMENT_FILE);
+            // 旧文件没有 ID，按顺序分配
+            for (int i = 0; i < appointments.size(); i++) {
+                appointments.get(i).setId(i + 1);
+            }
+            saveAppointments(appointments);
+            sequence[0] = appointments.size() + 1;
+            return appointments;
+        }
+        List<Appointment> appointments = new ArrayList<>();
+        PersistenceEvent event = PersistenceEvent.begin("load", APPOINTMENT_FILE);
+        try (SnapshotReader in = new SnapshotReader(new FileInputStream(APPOINTMENT_FILE))) {
+            for (Appointment appointment = in.readAppointment(); appointment != null; appointment = in.readAppointment()) {
+                appointments.add(appointment);
+            }
+            sequence[0] = in.getSequence();
         } catch (FileNotFoundException e) {
             return new ArrayList<>();
         }
+        event.finish(appointments.size());
+        return appointments;
+    }
+
+    // 保存改期申请
+    public static void saveReschedulingRequests(List<ReschedulingRequest> requests) throws IOException {
+        PersistenceEvent event = PersistenceEvent.begin("save", RESCHEDULE_FILE);
+        File temp = new File(RESCHEDULE_FILE + ".tmp");
+        try (SnapshotWriter out = new SnapshotWriter(new FileOutputStream(temp), SnapshotWriter.KIND_RESCHEDULES)) {
+            for (ReschedulingRequest request : requests) {
+                out.writeReschedulingRequest(request);
+            }
+        }
+        replace(temp, RESCHEDULE_FILE);
+        event.finish(requests.size());
+    }
+
+    // 加载改期申请（原预约必须已加载到 appointmentManager 中）
+    public static List<ReschedulingRequest> loadReschedulingRequests(AppointmentManager appointmentManager) throws IOException {
+        List<ReschedulingRequest> requests = new ArrayList<>();
+        PersistenceEvent event = PersistenceEvent.begin("load", RESCHEDULE_FILE);
+        try (SnapshotReader in = new SnapshotReader(new FileInputStream(RESCHEDULE_FILE))) {
+            for (ReschedulingRequest request = in.readReschedulingRequest(appointmentManager); request != null;
+                 request = in.readReschedulingRequest(appointmentManager)) {
+                requests.add(request);
+            }
+        } catch (FileNotFoundException e) {
+            return new ArrayList<>();
+        }
+        event.finish(requests.size());
+        return requests;
+    }
+
+    // 保存反馈数据
+    public static void saveFeedback(List<Feedback> feedback) throws IOException {
+        PersistenceEvent event = PersistenceEvent.begin("save", FEEDBACK_FILE);
+        File temp = new File(FEEDBACK_FILE + ".tmp");
+        try (SnapshotWriter out = new SnapshotWriter(new FileOutputStream(temp), SnapshotWriter.KIND_FEEDBACK)) {
+            for (Feedback item : feedback) {
+                out.writeFeedback(item);
+            }
+        }
+        replace(temp, FEEDBACK_FILE);
+        event.finish(feedback.size());
+    }
+
+    // 加载反馈数据
+    public static List<Feedback> loadFeedback() throws IOException {
+        List<Feedback> feedback = new ArrayList<>();
+        PersistenceEvent event = PersistenceEvent.begin("load", FEEDBACK_FILE);
+        try (SnapshotReader in = new SnapshotReader(new FileInputStream(FEEDBACK_FILE))) {
+            for (Feedback item = in.readFeedback(); item != null; item = in.readFeedback()) {
+                feedback.add(item);
+            }
+        } catch (FileNotFoundException e) {
+            return new ArrayList<>();
+        }
+        event.finish(feedback.size());
+        return feedback;
+    }
+
+    // 一次性迁移：把旧版 Java 序列化的 .dat 文件转换为二进制快照格式，返回转换的文件数
+    public static int migrateLegacyFiles() throws IOException, ClassNotFoundException {
+        int migrated = 0;
+        if (isLegacyFile(USER_FILE)) {
+            loadUsers();
+            migrated++;
+        }
+        if (isLegacyFile(APPOINTMENT_FILE)) {
+            loadAppointments();
+            migrated++;
+        }
+        return migrated;
+    }
+
+    // 旧文件以 Java 序列化魔数 0xACED 开头
+    private static boolean isLegacyFile(String fileName) throws IOException {
+        try (InputStream in = new FileInputStream(fileName)) {
+            return in.read() == 0xAC && in.read() == 0xED;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readLegacy(String fileName) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(fileName)))) {
+            return (List<T>) in.readObject();
+        }
+    }
+
+    // 打开历史预约归档（按月分段的冷数据），-Dpcs.archive.hotMonths=-1 时不启用
+    public static AppointmentArchive openArchive() throws IOException {
+        return new AppointmentArchive(new File(ARCHIVE_DIR));
+    }
+
+    // 写入一个归档分段：一个月的预约，快照格式
+    static void saveSegment(File file, List<Appointment> appointments) throws IOException {
+        PersistenceEvent event = PersistenceEvent.begin("seal", file.getPath(), "archive.seal");
+        File temp = new File(file.getPath() + ".tmp");
+        try (SnapshotWriter out = new SnapshotWriter(new FileOutputStream(temp), SnapshotWriter.KIND_APPOINTMENTS)) {
+            for (Appointment appointment : appointments) {
+                out.writeAppointment(appointment);
+            }
+        }
+        replace(temp, file.getPath());
+        event.finish(appointments.size());
+    }
+
+    // 读取一个归档分段
+    static List<Appointment> loadSegment(File file) throws IOException {
+        List<Appointment> appointments = new ArrayList<>();
+        PersistenceEvent event = PersistenceEvent.begin("load", file.getPath(), "archive.load");
+        try (SnapshotReader in = new SnapshotReader(new FileInputStream(file))) {
+            for (Appointment appointment = in.readAppointment(); appointment != null; appointment = in.readAppointment()) {
+                appointments.add(appointment);
+            }
+        }
+        event.finish(appointments.size());
+        return appointments;
+    }
+
+    // 打开提醒日志（追加写），作为默认的提醒发送渠道
+    public static FileReminderSink openReminderLog() throws IOException {
+        return new FileReminderSink(REMINDER_LOG);
+    }
+
+    // 保存预约全文索引
+    public static void saveSearchIndex(TextIndex index) throws IOException {
+        PersistenceEvent event = PersistenceEvent.begin("save", SEARCH_INDEX, "search.save");
+        File temp = new File(SEARCH_INDEX + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            index.writeTo(out);
+        }
+        replace(temp, SEARCH_INDEX);
+        event.finish(index.size());
+    }
+
+    // 加载预约全文索引；文件不存在或已损坏时返回 null，由调用方重建
+    public static TextIndex loadSearchIndex() {
+        PersistenceEvent event = PersistenceEvent.begin("load", SEARCH_INDEX, "search.load");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(SEARCH_INDEX)))) {
+            TextIndex index = TextIndex.readFrom(in);
+            event.finish(index.size());
+            return index;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Search index unreadable, rebuilding: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 打开日志文件（追加写）
+    public static Journal openJournal() {
+        return new Journal(JOURNAL_FILE);
+    }
+
+    // 压缩：写入完整快照后清空日志。持有日志锁期间取快照，
+    // 保证不会有已写入日志、但未进入快照的修改被清掉
+    public static void compact(Journal journal, UserManager userManager, AppointmentManager appointmentManager,
+                               RescheduleManager rescheduleManager, FeedbackManager feedbackManager)
+            throws IOException {
+        synchronized (journal) {
+            saveUsers(userManager.getAllUsers());
+            saveAppointments(appointmentManager.getAllAppointments(), appointmentManager.getNextId());
+            saveReschedulingRequests(rescheduleManager.getAllRequests());
+            saveFeedback(feedbackManager.getAllFeedback());
+            journal.reset();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Migrated " + migrateLegacyFiles() + " legacy data file(s).");
+    }
+
+    private static String dataFile(String name) {
+        return new File(DATA_DIR, name).getPath();
+    }
+
+    // 用临时文件原子替换目标文件，避免写到一半时崩溃损坏快照
+    static void replace(File temp, String target) throws IOException {
+        Files.move(temp.toPath(), Paths.get(target),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 }
\ No newline at end of file
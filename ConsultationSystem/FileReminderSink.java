@@ -0,0 +1,28 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+// Appends one line per delivered reminder to a text file; stands in for a real
+// notification channel and makes reminder timing easy to check
+public class FileReminderSink implements ReminderSink {
+    private final Writer out;
+
+    public FileReminderSink(String fileName) throws IOException {
+        this.out = new OutputStreamWriter(new FileOutputStream(fileName, true), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void deliver(Reminder reminder) throws IOException {
+        out.write(LocalDateTime.now().withNano(0) + " to " + reminder.getAppointment().getStudentName() + ", "
+                + reminder.getAppointment().getLecturerName() + ": " + reminder + System.lineSeparator());
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
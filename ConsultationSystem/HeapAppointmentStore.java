@@ -0,0 +1,135 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+// Default store: the Appointment objects themselves, in an ID map and two TimelineIndexes
+public class HeapAppointmentStore implements AppointmentStore {
+    private final Map<Long, Appointment> byId = new ConcurrentHashMap<>();
+    private final TimelineIndex byStudent = new TimelineIndex();
+    private final TimelineIndex byLecturer = new TimelineIndex();
+
+    @Override
+    public Appointment get(long id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public Appointment putIfAbsent(Appointment appointment) {
+        Appointment existing = byId.putIfAbsent(appointment.getId(), appointment);
+        if (existing != null) {
+            return existing;
+        }
+        byStudent.add(appointment.getStudentName(), appointment);
+        byLecturer.add(appointment.getLecturerName(), appointment);
+        return null;
+    }
+
+    @Override
+    public boolean remove(Appointment appointment) {
+        if (!byId.remove(appointment.getId(), appointment)) {
+            return false;
+        }
+        byStudent.remove(appointment.getStudentName(), appointment.getAppointmentTime(), appointment);
+        byLecturer.remove(appointment.getLecturerName(), appointment.getAppointmentTime(), appointment);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Appointment appointment) {
+        return byId.get(appointment.getId()) == appointment;
+    }
+
+    @Override
+    public void move(Appointment appointment, LocalDateTime newTime) {
+        LocalDateTime oldTime = appointment.getAppointmentTime();
+        byStudent.remove(appointment.getStudentName(), oldTime, appointment);
+        byLecturer.remove(appointment.getLecturerName(), oldTime, appointment);
+        appointment.setAppointmentTime(newTime);
+        byStudent.add(appointment.getStudentName(), appointment);
+        byLecturer.add(appointment.getLecturerName(), appointment);
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public void clear() {
+        byId.clear();
+        byStudent.clear();
+        byLecturer.clear();
+    }
+
+    @Override
+    public List<Appointment> allByTime() {
+        List<Appointment> snapshot = new ArrayList<>(byId.values());
+        snapshot.sort(Comparator.comparing(Appointment::getAppointmentTime));
+        return snapshot;
+    }
+
+    @Override
+    public List<Appointment> unordered() {
+        return new ArrayList<>(byId.values());
+    }
+
+    // Filter before sorting, so only the matches are ordered
+    @Override
+    public List<Appointment> select(Predicate<Appointment> filter) {
+        List<Appointment> result = new ArrayList<>();
+        for (Appointment appointment : byId.values()) {
+            if (filter.test(appointment)) {
+                result.add(appointment);
+            }
+        }
+        result.sort(Comparator.comparing(Appointment::getAppointmentTime));
+        return result;
+    }
+
+    // Lock order is always lecturer stripe, then student stripe
+    @Override
+    public void lock(Appointment appointment) {
+        byLecturer.lock(appointment.getLecturerName());
+        byStudent.lock(appointment.getStudentName());
+    }
+
+    @Override
+    public void unlock(Appointment appointment) {
+        byStudent.unlock(appointment.getStudentName());
+        byLecturer.unlock(appointment.getLecturerName());
+    }
+
+    @Override
+    public Appointment findOverlap(Participant participant, String name, LocalDateTime start, LocalDateTime end,
+                                   Appointment exclude) {
+        return index(participant).findOverlap(name, start, end, exclude);
+    }
+
+    @Override
+    public List<Appointment> all(Participant participant, String name) {
+        return index(participant).all(name);
+    }
+
+    @Override
+    public List<Appointment> range(Participant participant, String name, LocalDateTime from, LocalDateTime to) {
+        return index(participant).range(name, from, to);
+    }
+
+    @Override
+    public List<Appointment> at(Participant participant, String name, LocalDateTime time) {
+        return index(participant).at(name, time);
+    }
+
+    @Override
+    public List<SchedulingConflict> findAllOverlaps(Participant participant) {
+        return index(participant).findAllOverlaps(participant.role());
+    }
+
+    private TimelineIndex index(Participant participant) {
+        return participant == Participant.STUDENT ? byStudent : byLecturer;
+    }
+}
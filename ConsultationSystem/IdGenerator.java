@@ -0,0 +1,27 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monotonic long IDs: one atomic increment per ID, starting at 1 (0 means "no ID yet").
+// The next value is persisted with the snapshot and every restored ID pushes it forward,
+// so IDs of deleted records are never handed out again after a restart.
+public class IdGenerator {
+    private final AtomicLong next = new AtomicLong(1);
+
+    public long nextId() {
+        return next.getAndIncrement();
+    }
+
+    // Make sure an ID that already exists is never generated
+    public void observe(long id) {
+        advanceTo(id + 1);
+    }
+
+    // Value the next call to nextId() will return
+    public long peek() {
+        return next.get();
+    }
+
+    // Raise the next value, e.g. to a high-water mark read from disk; never lowers it
+    public void advanceTo(long nextId) {
+        next.accumulateAndGet(nextId, Math::max);
+    }
+}
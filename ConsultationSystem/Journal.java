@@ -0,0 +1,454 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log of user and appointment mutations.
+// The file starts with a format marker, then each record is
+// [int length][int CRC-32 of the record][byte type][payload]. Replay stops at the first
+// record that is torn (crash mid-write), fails its checksum or does not decode, and
+// truncates the file there before appending again. Journals written before checksums
+// are converted on first use.
+// A listener sees every record as it is appended, which is what replication ships.
+public class Journal implements Closeable {
+    private static final int MAGIC = 0x50434A32; // "PCJ2"; older files start with a record length
+    // Write plus flush of one record to the file; inside a batch only the write
+    private static final Metrics.Timer APPEND_TIMER = Metrics.timer("journal.append");
+    private static final LongAdder APPENDED_BYTES = Metrics.counter("journal.appended.bytes");
+    private static final LongAdder APPEND_FAILURES = Metrics.counter("journal.failed");
+    // A record is a handful of writeUTF fields, each under 64 KB
+    static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    static final byte ADD_USER = 1;
+    static final byte ADD_APPOINTMENT = 2;
+    static final byte CONFIRM = 3;
+    static final byte CANCEL = 4;
+    static final byte RESCHEDULE = 5;
+    static final byte REQUEST_SUBMITTED = 6;
+    static final byte REQUEST_DECIDED = 7;
+    static final byte FEEDBACK_SUBMITTED = 8;
+    static final byte FEEDBACK_UPDATED = 9;
+    static final byte REMOVE_USER = 10;
+    static final byte UPDATE_USER = 11;
+
+    // Receives each record ([type][payload], without the length) under the journal lock
+    public interface Listener {
+        void recordAppended(byte[] record);
+    }
+
+    private final File file; // null for an in-memory journal that only feeds its listener
+    private volatile Listener listener;
+    private DataOutputStream out;
+    private int records;
+    // Threads inside batch(); their appends skip the flush
+    private final ThreadLocal<Boolean> batching = ThreadLocal.withInitial(() -> false);
+
+    public Journal(String fileName) {
+        this.file = fileName == null ? null : new File(fileName);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // The records that rebuild the current state from empty: what a new replica starts from
+    public static List<byte[]> snapshotRecords(UserManager userManager, AppointmentManager appointmentManager,
+                                               RescheduleManager rescheduleManager, FeedbackManager feedbackManager) {
+        List<byte[]> records = new ArrayList<>();
+        Journal capture = new Journal(null);
+        capture.setListener(records::add);
+        for (User user : userManager.getAllUsers()) {
+            capture.logUserAdded(user);
+        }
+        for (Appointment appointment : appointmentManager.getAllAppointments()) {
+            capture.logAppointmentAdded(appointment);
+        }
+        for (ReschedulingRequest request : rescheduleManager.getAllRequests()) {
+            capture.logRequestSubmitted(request);
+            if (request.getStatus() != ReschedulingRequest.RequestStatus.PENDING) {
+                capture.logRequestDecided(request);
+            }
+        }
+        for (Feedback feedback : feedbackManager.getAllFeedback()) {
+            capture.logFeedbackSubmitted(feedback);
+        }
+        return records;
+    }
+
+    // Number of records appended since the last compaction
+    public synchronized int size() {
+        return records;
+    }
+
+    public void logUserAdded(User user) {
+        append(ADD_USER, user.getUsername(), user.getPassword(), user.getRole());
+    }
+
+    public void logUserRemoved(String username) {
+        append(REMOVE_USER, username);
+    }
+
+    public void logUserUpdated(User user) {
+        append(UPDATE_USER, user.getUsername(), user.getPassword());
+    }
+
+    public void logAppointmentAdded(Appointment appointment) {
+        append(ADD_APPOINTMENT, appointment.getStudentName(), appointment.getLecturerName(),
+                appointment.getAppointmentTime().toString(), appointment.getDescription(),
+                appointment.getStatus(), String.valueOf(appointment.isConfirmed()),
+                String.valueOf(appointment.getDurationMinutes()), String.valueOf(appointment.getId()));
+    }
+
+    // Records about an existing appointment end with its ID, which replay matches on
+    public void logConfirmed(Appointment appointment) {
+        append(CONFIRM, appointment.getStudentName(), appointment.getLecturerName(),
+                appointment.getAppointmentTime().toString(), String.valueOf(appointment.getId()));
+    }
+
+    public void logCancelled(Appointment appointment) {
+        append(CANCEL, appointment.getStudentName(), appointment.getLecturerName(),
+                appointment.getAppointmentTime().toString(), String.valueOf(appointment.getId()));
+    }
+
+    public void logRescheduled(Appointment appointment, LocalDateTime oldTime) {
+        append(RESCHEDULE, appointment.getStudentName(), appointment.getLecturerName(),
+                oldTime.toString(), appointment.getAppointmentTime().toString(), String.valueOf(appointment.getId()));
+    }
+
+    public void logRequestSubmitted(ReschedulingRequest request) {
+        Appointment appointment = request.getOriginalAppointment();
+        append(REQUEST_SUBMITTED, request.getRequestId(), appointment.getStudentName(),
+                appointment.getLecturerName(), appointment.getAppointmentTime().toString(),
+                request.getProposedTime().toString(), request.getRequesterName(),
+                request.getRequestReason(), request.getRequestDate().toString(),
+                String.valueOf(appointment.getId()));
+    }
+
+    public void logRequestDecided(ReschedulingRequest request) {
+        append(REQUEST_DECIDED, request.getRequestId(), request.getStatus().name());
+    }
+
+    public void logFeedbackSubmitted(Feedback feedback) {
+        append(FEEDBACK_SUBMITTED, feedback.getFeedbackId(), feedback.getStudentName(), feedback.getLecturerName(),
+                feedback.getContent(), String.valueOf(feedback.getRating()), feedback.getSubmittedAt().toString());
+    }
+
+    public void logFeedbackUpdated(Feedback feedback, String content, int rating) {
+        append(FEEDBACK_UPDATED, feedback.getFeedbackId(), content, String.valueOf(rating));
+    }
+
+    // Run a group of mutations whose records are written with a single flush. The journal
+    // lock is not held in between: managers append while holding their own locks, so
+    // taking it first here would invert that order. Other writers may interleave.
+    public void batch(Runnable mutations) {
+        if (batching.get()) {
+            mutations.run();
+            return;
+        }
+        batching.set(true);
+        try {
+            mutations.run();
+        } finally {
+            batching.set(false);
+            synchronized (this) {
+                try {
+                    if (out != null) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing journal: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private synchronized void append(byte type, String... fields) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+            DataOutputStream record = new DataOutputStream(buffer);
+            record.writeByte(type);
+            for (String field : fields) {
+                record.writeUTF(field);
+            }
+            appendRecord(buffer.toByteArray());
+        } catch (IOException e) {
+            APPEND_FAILURES.increment();
+            System.err.println("Error writing journal: " + e.getMessage());
+        }
+    }
+
+    // Append an already encoded record, e.g. one shipped from a replication primary
+    public synchronized void appendRecord(byte[] record) throws IOException {
+        if (file != null) {
+            long start = Metrics.Timer.start();
+            DataOutputStream stream = stream();
+            stream.writeInt(record.length);
+            stream.writeInt(checksum(record));
+            stream.write(record);
+            if (!batching.get()) {
+                stream.flush();
+            }
+            APPEND_TIMER.stop(start);
+            APPENDED_BYTES.add(record.length);
+        }
+        records++;
+        Listener current = listener;
+        if (current != null) {
+            current.recordAppended(record);
+        }
+    }
+
+    private DataOutputStream stream() throws IOException {
+        if (out == null) {
+            upgradeLegacyFile();
+            boolean empty = file.length() == 0;
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            if (empty) {
+                out.writeInt(MAGIC);
+            }
+        }
+        return out;
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    // The next record, or null at the end of the valid data: end of file, a torn or
+    // impossible length, or a checksum mismatch
+    private static byte[] readRecord(DataInputStream in, boolean checksummed) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            int crc = checksummed ? in.readInt() : 0;
+            byte[] record = new byte[length];
+            in.readFully(record);
+            return !checksummed || crc == checksum(record) ? record : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    // Rewrite a journal from before checksums in the current format, keeping its valid records
+    private void upgradeLegacyFile() throws IOException {
+        if (file.length() == 0) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (file.length() >= 4 && in.readInt() == MAGIC) {
+                return;
+            }
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataOutputStream converted = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            converted.writeInt(MAGIC);
+            byte[] record;
+            while ((record = readRecord(in, false)) != null) {
+                converted.writeInt(record.length);
+                converted.writeInt(checksum(record));
+                converted.write(record);
+            }
+        }
+        FileManager.replace(temp, file.getPath());
+    }
+
+    // Re-apply journaled mutations on top of a loaded snapshot. Replay is idempotent:
+    // appointments are matched by ID, an ADD whose ID exists is skipped and a reschedule
+    // to where the appointment already is does nothing, so records whose effects are
+    // already in the snapshot (a crash between writing it and truncating the journal)
+    // change nothing.
+    public synchronized int replay(UserManager userManager, AppointmentManager appointmentManager,
+                                   RescheduleManager rescheduleManager, FeedbackManager feedbackManager)
+            throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        close();
+        upgradeLegacyFile();
+        int applied = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (file.length() >= 4) {
+                in.readInt(); // format marker, checked by upgradeLegacyFile
+                validLength = 4;
+            }
+            byte[] record;
+            while ((record = readRecord(in, true)) != null) {
+                try {
+                    apply(new DataInputStream(new ByteArrayInputStream(record)),
+                            userManager, appointmentManager, rescheduleManager, feedbackManager);
+                } catch (IOException | IllegalArgumentException | DateTimeException e) {
+                    System.err.println("Journal record " + (applied + 1) + " is unreadable; dropping it and the rest: "
+                            + e);
+                    break;
+                }
+                validLength += 8 + record.length;
+                applied++;
+            }
+        } catch (FileNotFoundException e) {
+            return 0;
+        }
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        records = applied;
+        return applied;
+    }
+
+    // Apply one record to the managers; the same idempotent rules as replay, so records
+    // that overlap a replication snapshot are harmless
+    public static void applyRecord(byte[] record, UserManager userManager, AppointmentManager appointmentManager,
+                                   RescheduleManager rescheduleManager, FeedbackManager feedbackManager)
+            throws IOException {
+        apply(new DataInputStream(new ByteArrayInputStream(record)),
+                userManager, appointmentManager, rescheduleManager, feedbackManager);
+    }
+
+    private static void apply(DataInputStream in, UserManager userManager, AppointmentManager appointmentManager,
+                              RescheduleManager rescheduleManager, FeedbackManager feedbackManager) throws IOException {
+        byte type = in.readByte();
+        if (type == FEEDBACK_SUBMITTED) {
+            feedbackManager.restoreFeedback(new Feedback(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                    Integer.parseInt(in.readUTF()), LocalDateTime.parse(in.readUTF())));
+            return;
+        }
+        if (type == FEEDBACK_UPDATED) {
+            Feedback feedback = feedbackManager.findById(in.readUTF());
+            String content = in.readUTF();
+            int rating = Integer.parseInt(in.readUTF());
+            if (feedback != null) {
+                feedback.setContent(content);
+                feedback.setRating(rating);
+            }
+            return;
+        }
+        if (type == ADD_USER) {
+            userManager.addUser(new User(in.readUTF(), in.readUTF(), in.readUTF()));
+            return;
+        }
+        if (type == REMOVE_USER) {
+            userManager.removeUser(in.readUTF());
+            return;
+        }
+        if (type == UPDATE_USER) {
+            userManager.updateUser(in.readUTF(), in.readUTF());
+            return;
+        }
+        if (type == REQUEST_DECIDED) {
+            ReschedulingRequest request = rescheduleManager.findById(in.readUTF());
+            if (request != null) {
+                rescheduleManager.restoreDecision(request, ReschedulingRequest.RequestStatus.valueOf(in.readUTF()));
+            }
+            return;
+        }
+        String requestId = type == REQUEST_SUBMITTED ? in.readUTF() : null;
+        String student = in.readUTF();
+        String lecturer = in.readUTF();
+        LocalDateTime time = LocalDateTime.parse(in.readUTF());
+        switch (type) {
+            case ADD_APPOINTMENT -> {
+                String description = in.readUTF();
+                String status = in.readUTF();
+                boolean confirmed = Boolean.parseBoolean(in.readUTF());
+                // Records written before durations existed end here
+                int duration = in.available() > 0 ? Integer.parseInt(in.readUTF()) : Appointment.DEFAULT_DURATION_MINUTES;
+                // ...and before IDs existed here
+                long id = in.available() > 0 ? Long.parseLong(in.readUTF()) : 0;
+                boolean exists = id != 0 ? appointmentManager.findById(id) != null
+                        : appointmentManager.findAppointment(student, lecturer, time) != null;
+                if (!exists) {
+                    Appointment appointment = new Appointment(student, lecturer, time, description, duration);
+                    appointment.setStatus(status);
+                    appointment.setConfirmed(confirmed);
+                    appointment.setId(id);
+                    appointmentManager.restoreAppointment(appointment);
+                }
+            }
+            case CONFIRM -> {
+                Appointment existing = locate(in, appointmentManager, student, lecturer, time);
+                if (existing != null) {
+                    appointmentManager.confirmAppointment(existing);
+                }
+            }
+            case CANCEL -> {
+                Appointment existing = locate(in, appointmentManager, student, lecturer, time);
+                if (existing != null) {
+                    appointmentManager.removeAppointment(existing);
+                }
+            }
+            case RESCHEDULE -> {
+                LocalDateTime newTime = LocalDateTime.parse(in.readUTF());
+                Appointment existing = locate(in, appointmentManager, student, lecturer, time);
+                if (existing != null && !existing.getAppointmentTime().equals(newTime)) {
+                    try {
+                        appointmentManager.rescheduleAppointment(existing, newTime);
+                    } catch (SchedulingConflictException e) {
+                        System.err.println("Skipping journaled reschedule: " + e.getMessage());
+                    }
+                }
+            }
+            case REQUEST_SUBMITTED -> {
+                LocalDateTime proposedTime = LocalDateTime.parse(in.readUTF());
+                String requester = in.readUTF();
+                String reason = in.readUTF();
+                LocalDateTime requestDate = LocalDateTime.parse(in.readUTF());
+                Appointment existing = locate(in, appointmentManager, student, lecturer, time);
+                if (existing != null) {
+                    rescheduleManager.restoreRequest(new ReschedulingRequest(requestId, existing, proposedTime,
+                            ReschedulingRequest.RequestStatus.PENDING, requester, reason, requestDate));
+                }
+            }
+            default -> throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    // The in-memory appointment a record is about. Current records end with its ID;
+    // older ones only name the student, lecturer and time it had when written.
+    private static Appointment locate(DataInputStream in, AppointmentManager appointmentManager, String student,
+                                      String lecturer, LocalDateTime time) throws IOException {
+        if (in.available() > 0) {
+            return appointmentManager.findHotById(Long.parseLong(in.readUTF()));
+        }
+        return appointmentManager.findAppointment(student, lecturer, time);
+    }
+
+    // Discard all records; called once their effects are in a snapshot
+    public synchronized void reset() throws IOException {
+        close();
+        if (file != null) {
+            new FileOutputStream(file).close();
+        }
+        records = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+}
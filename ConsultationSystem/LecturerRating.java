@@ -0,0 +1,84 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Running rating aggregates for one lecturer: count, sum, a 1-5 histogram and
+// weekly buckets for the trend. Every submission or edit updates them in O(1).
+public class LecturerRating {
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
+    private final String lecturerName;
+    private long count;
+    private long sum;
+    private final long[] histogram = new long[MAX_RATING + 1];
+    // Monday of the week -> {count, sum}
+    private final Map<LocalDate, long[]> weekly = new HashMap<>();
+
+    public LecturerRating(String lecturerName) {
+        this.lecturerName = lecturerName;
+    }
+
+    synchronized void add(int rating, LocalDateTime submittedAt) {
+        apply(rating, submittedAt, 1);
+    }
+
+    synchronized void remove(int rating, LocalDateTime submittedAt) {
+        apply(rating, submittedAt, -1);
+    }
+
+    private void apply(int rating, LocalDateTime submittedAt, int delta) {
+        count += delta;
+        sum += (long) rating * delta;
+        histogram[rating] += delta;
+        long[] bucket = weekly.computeIfAbsent(weekOf(submittedAt), w -> new long[2]);
+        bucket[0] += delta;
+        bucket[1] += (long) rating * delta;
+    }
+
+    public String getLecturerName() {
+        return lecturerName;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSum() {
+        return sum;
+    }
+
+    public synchronized double getAverage() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    // Number of ratings for each value 1-5 (index 0 unused)
+    public synchronized long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    // Average rating per week, oldest week first
+    public synchronized TreeMap<LocalDate, Double> getWeeklyTrend() {
+        TreeMap<LocalDate, Double> trend = new TreeMap<>();
+        for (Map.Entry<LocalDate, long[]> entry : weekly.entrySet()) {
+            long[] bucket = entry.getValue();
+            if (bucket[0] > 0) {
+                trend.put(entry.getKey(), (double) bucket[1] / bucket[0]);
+            }
+        }
+        return trend;
+    }
+
+    static LocalDate weekOf(LocalDateTime time) {
+        return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %.2f average from %d ratings", lecturerName, getAverage(), count);
+    }
+}
@@ -8,20 +8,39 @@ public class Main {
     private final static Scanner scanner = new Scanner(System.in);
     private final static AppointmentManager appointmentManager = new AppointmentManager();
     private final static UserManager userManager = UserManager.getInstance();
+    private final static RescheduleManager rescheduleManager = new RescheduleManager(appointmentManager);
+    private final static FeedbackManager feedbackManager = new FeedbackManager();
+    private static Journal journal;
 
     public static void main(String[] args) {
         loadData();
         showMenu();
         saveData();
+        Metrics.dumpToConfiguredFile();
     }
 
     private static void loadData() {
+        long start = Metrics.Timer.start();
         try {
             List<User> savedUsers = FileManager.loadUsers();
             for (User user : savedUsers) {
                 userManager.addUser(user);
             }
-            appointmentManager.setAppointments(FileManager.loadAppointments());
+            FileManager.loadAppointments(appointmentManager);
+            for (ReschedulingRequest request : FileManager.loadReschedulingRequests(appointmentManager)) {
+                rescheduleManager.restoreRequest(request);
+            }
+            for (Feedback feedback : FileManager.loadFeedback()) {
+                feedbackManager.restoreFeedback(feedback);
+            }
+            if (FileManager.JOURNAL_ENABLED) {
+                journal = FileManager.openJournal();
+                journal.replay(userManager, appointmentManager, rescheduleManager, feedbackManager);
+                userManager.setJournal(journal);
+                appointmentManager.setJournal(journal);
+                rescheduleManager.setJournal(journal);
+                feedbackManager.setJournal(journal);
+            }
         } catch (IOException e) {
             System.out.println("Error loading data: File I/O error - " + e.getMessage());
         } catch (ClassNotFoundException e) {
@@ -30,13 +49,22 @@ public class Main {
             System.out.println("Error loading data: Security error - " + e.getMessage());
         } catch (Exception e) {
             System.out.println("No previous data found, starting fresh.");
+        } finally {
+            Metrics.recordPhase("data.load", start, Metrics.LOAD_WARN_MS);
         }
     }
 
     private static void saveData() {
+    long start = Metrics.Timer.start();
     try {
-        FileManager.saveUsers(userManager.getAllUsers());
-        FileManager.saveAppointments(appointmentManager.getAllAppointments());
+        if (journal != null) {
+            FileManager.compact(journal, userManager, appointmentManager, rescheduleManager, feedbackManager);
+        } else {
+            FileManager.saveUsers(userManager.getAllUsers());
+            FileManager.saveAppointments(appointmentManager.getAllAppointments(), appointmentManager.getNextId());
+            FileManager.saveReschedulingRequests(rescheduleManager.getAllRequests());
+            FileManager.saveFeedback(feedbackManager.getAllFeedback());
+        }
         System.out.println("Data saved successfully.");
     } catch (IOException e) {
         System.out.println("Error saving data: File I/O error - " + e.getMessage());
@@ -44,6 +72,8 @@ public class Main {
         System.out.println("Error saving data: Security error - " + e.getMessage());
     } catch (Exception e) {
         System.out.println("Error saving data: Unexpected error - " + e.getMessage());
+    } finally {
+        Metrics.recordPhase("data.save", start, Metrics.SAVE_WARN_MS);
     }
     }
 
@@ -122,25 +152,22 @@ public class Main {
             System.out.println("No appointments found.");
             return;
         }
-        for (int i = 0; i < appointments.size(); i++) {
-            System.out.println(i + ": " + appointments.get(i));
+        for (Appointment appointment : appointments) {
+            System.out.println(appointment.getId() + ": " + appointment);
         }
     }
 
     private static void confirmAppointment() {
         viewAppointments();
         try {
-            System.out.print("Enter appointment index to confirm: ");
-            int index = scanner.nextInt();
+            System.out.print("Enter appointment ID to confirm: ");
+            long id = scanner.nextLong();
             scanner.nextLine(); // 消费换行符
 
-            List<Appointment> appointments = appointmentManager.getAllAppointments();
-            if (index >= 0 && index < appointments.size()) {
-                Appointment appointment = appointments.get(index);
-                appointment.setStatus("Confirmed");
+            if (appointmentManager.confirmById(id)) {
                 System.out.println("Appointment confirmed.");
             } else {
-                System.out.println("Invalid appointment index.");
+                System.out.println("Invalid appointment ID.");
             }
         } catch (Exception e) {
             System.out.println("Invalid input. Please enter a valid number.");
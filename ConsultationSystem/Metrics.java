@@ -0,0 +1,210 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide counters and latency timers. Recording is lock-free (LongAdder plus a
+// log-linear histogram of atomic buckets), so instrumented hot paths pay a few
+// uncontended increments per call.
+//
+// A snapshot can be dumped on demand with GET /api/metrics in server mode or with
+// Ctrl+Shift+M in the desktop client, and is written at shutdown to -Dpcs.metrics.file
+// when that is set.
+public final class Metrics {
+    // Startup load / full save slower than this prints a warning (milliseconds)
+    public static final long LOAD_WARN_MS = Long.getLong("pcs.metrics.loadWarnMs", 5_000);
+    public static final long SAVE_WARN_MS = Long.getLong("pcs.metrics.saveWarnMs", 2_000);
+
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    // Records a phase against its timer and warns once it crosses the threshold
+    public static void recordPhase(String name, long startNanos, long warnMillis) {
+        long nanos = timer(name).stop(startNanos);
+        if (nanos > warnMillis * 1_000_000L) {
+            counter(name + ".slow").increment();
+            System.err.printf("[metrics] %s took %d ms (threshold %d ms)%n", name, nanos / 1_000_000L, warnMillis);
+        }
+    }
+
+    // name -> {count, meanMs, p50Ms, p99Ms, maxMs} for timers, name -> value for counters
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> timerValues = new LinkedHashMap<>();
+        for (Timer timer : new TreeMap<>(timers).values()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", timer.getCount());
+            values.put("meanMs", millis(timer.getMeanNanos()));
+            values.put("p50Ms", millis(timer.percentile(0.50)));
+            values.put("p99Ms", millis(timer.percentile(0.99)));
+            values.put("maxMs", millis(timer.getMaxNanos()));
+            timerValues.put(timer.getName(), values);
+        }
+        Map<String, Object> counterValues = new LinkedHashMap<>();
+        new TreeMap<>(counters).forEach((name, value) -> counterValues.put(name, value.sum()));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("timers", timerValues);
+        snapshot.put("counters", counterValues);
+        return snapshot;
+    }
+
+    public static void dump(PrintStream out) {
+        PrintWriter writer = new PrintWriter(out);
+        dump(writer);
+        writer.flush();
+    }
+
+    public static void dumpTo(String fileName) throws IOException {
+        try (Writer file = new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8);
+             PrintWriter writer = new PrintWriter(file)) {
+            dump(writer);
+        }
+    }
+
+    // Writes a snapshot to -Dpcs.metrics.file when it is set; called at shutdown
+    public static void dumpToConfiguredFile() {
+        String fileName = System.getProperty("pcs.metrics.file");
+        if (fileName == null) {
+            return;
+        }
+        try {
+            dumpTo(fileName);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    private static void dump(PrintWriter out) {
+        out.println("# Metrics snapshot " + LocalDateTime.now());
+        out.printf("%-32s %10s %10s %10s %10s %10s%n", "timer", "count", "mean ms", "p50 ms", "p99 ms", "max ms");
+        for (Timer timer : new TreeMap<>(timers).values()) {
+            out.printf("%-32s %10d %10.3f %10.3f %10.3f %10.3f%n", timer.getName(), timer.getCount(),
+                    millis(timer.getMeanNanos()), millis(timer.percentile(0.50)),
+                    millis(timer.percentile(0.99)), millis(timer.getMaxNanos()));
+        }
+        out.printf("%-32s %10s%n", "counter", "value");
+        new TreeMap<>(counters).forEach((name, value) -> out.printf("%-32s %10d%n", name, value.sum()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // Latency histogram with 8 linear sub-buckets per power of two, i.e. about 12% resolution
+    public static final class Timer {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public static long start() {
+            return System.nanoTime();
+        }
+
+        // Records the time since start and returns it
+        public long stop(long startNanos) {
+            long nanos = System.nanoTime() - startNanos;
+            record(nanos);
+            return nanos;
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets.incrementAndGet(bucketOf(nanos));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMeanNanos() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / n;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        // Upper bound of the bucket holding the q-th quantile, capped at the observed max
+        public long percentile(double q) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BITS);
+            return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Appointments sharded by lecturer over independent stores (-Dpcs.partitions, default one
+// per core; each of kind -Dpcs.partitionStore, heap or columnar), so writers for different
+// lecturers never touch the same index or lock. A lecturer's queries go to one shard; a
+// student's visit every shard. Whole-store queries (everything by time, filters, conflict
+// sweeps) run on every shard at once on the common ForkJoinPool and merge the time-ordered
+// results pairwise.
+//
+// Check-then-modify sequences are serialized here, by lecturer and then by student, not
+// with the shards' own locks: a student's overlap check reads other shards, and holding
+// one shard's lock while waiting for another's could deadlock. Each shard call still
+// takes that shard's locks for its own duration.
+public class PartitionedAppointmentStore implements AppointmentStore {
+    public static final int PARTITIONS =
+            Integer.getInteger("pcs.partitions", Runtime.getRuntime().availableProcessors());
+    // Below this many appointments, fanning out costs more than it saves
+    private static final int PARALLEL_THRESHOLD = Integer.getInteger("pcs.partitions.parallelThreshold", 10_000);
+    private static final int LOCK_STRIPES = 64;
+    private static final Comparator<Appointment> BY_TIME = Comparator.comparing(Appointment::getAppointmentTime);
+
+    private final AppointmentStore[] shards;
+    private final ReentrantLock[] lecturerLocks = stripes();
+    private final ReentrantLock[] studentLocks = stripes();
+
+    public PartitionedAppointmentStore(int partitions, String shardKind) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("pcs.partitions must be at least 1");
+        }
+        if (shardKind.equals("partitioned")) {
+            throw new IllegalArgumentException("Partitions cannot themselves be partitioned");
+        }
+        shards = new AppointmentStore[partitions];
+        for (int i = 0; i < partitions; i++) {
+            shards[i] = AppointmentStore.create(shardKind);
+        }
+    }
+
+    public int getPartitionCount() {
+        return shards.length;
+    }
+
+    // One shard, for tests checking where appointments land
+    AppointmentStore partition(int index) {
+        return shards[index];
+    }
+
+    @Override
+    public Appointment get(long id) {
+        for (AppointmentStore shard : shards) {
+            Appointment appointment = shard.get(id);
+            if (appointment != null) {
+                return appointment;
+            }
+        }
+        return null;
+    }
+
+    // IDs come from the manager's counter; the other shards are only checked for restored
+    // data carrying a duplicate ID, which is loaded on a single thread
+    @Override
+    public Appointment putIfAbsent(Appointment appointment) {
+        AppointmentStore home = shardFor(appointment.getLecturerName());
+        for (AppointmentStore shard : shards) {
+            if (shard != home) {
+                Appointment existing = shard.get(appointment.getId());
+                if (existing != null) {
+                    return existing;
+                }
+            }
+        }
+        return home.putIfAbsent(appointment);
+    }
+
+    @Override
+    public boolean remove(Appointment appointment) {
+        return shardFor(appointment.getLecturerName()).remove(appointment);
+    }
+
+    @Override
+    public boolean contains(Appointment appointment) {
+        return shardFor(appointment.getLecturerName()).contains(appointment);
+    }
+
+    @Override
+    public void move(Appointment appointment, LocalDateTime newTime) {
+        shardFor(appointment.getLecturerName()).move(appointment, newTime);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (AppointmentStore shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (AppointmentStore shard : shards) {
+            shard.clear();
+        }
+    }
+
+    @Override
+    public List<Appointment> allByTime() {
+        return gather(AppointmentStore::allByTime);
+    }
+
+    @Override
+    public List<Appointment> select(Predicate<Appointment> filter) {
+        return gather(shard -> shard.select(filter));
+    }
+
+    @Override
+    public List<Appointment> unordered() {
+        List<Appointment> result = new ArrayList<>(size());
+        for (AppointmentStore shard : shards) {
+            result.addAll(shard.unordered());
+        }
+        return result;
+    }
+
+    // Lock order is always lecturer stripe, then student stripe
+    @Override
+    public void lock(Appointment appointment) {
+        stripe(lecturerLocks, appointment.getLecturerName()).lock();
+        stripe(studentLocks, appointment.getStudentName()).lock();
+    }
+
+    @Override
+    public void unlock(Appointment appointment) {
+        stripe(studentLocks, appointment.getStudentName()).unlock();
+        stripe(lecturerLocks, appointment.getLecturerName()).unlock();
+    }
+
+    @Override
+    public Appointment findOverlap(Participant participant, String name, LocalDateTime start, LocalDateTime end,
+                                   Appointment exclude) {
+        if (participant == Participant.LECTURER) {
+            return shardFor(name).findOverlap(participant, name, start, end, exclude);
+        }
+        for (AppointmentStore shard : shards) {
+            Appointment clash = shard.findOverlap(participant, name, start, end, exclude);
+            if (clash != null) {
+                return clash;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Appointment> all(Participant participant, String name) {
+        return perUser(participant, name, shard -> shard.all(participant, name));
+    }
+
+    @Override
+    public List<Appointment> range(Participant participant, String name, LocalDateTime from, LocalDateTime to) {
+        return perUser(participant, name, shard -> shard.range(participant, name, from, to));
+    }
+
+    @Override
+    public List<Appointment> at(Participant participant, String name, LocalDateTime time) {
+        return perUser(participant, name, shard -> shard.at(participant, name, time));
+    }
+
+    // A lecturer's timeline lies within one shard. A student's spans them, so every
+    // appointment is swept grouped by student, as TimelineIndex does per key.
+    @Override
+    public List<SchedulingConflict> findAllOverlaps(Participant participant) {
+        if (participant == Participant.LECTURER) {
+            return shards(shard -> shard.findAllOverlaps(participant).stream())
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        Map<String, List<Appointment>> timelines = new LinkedHashMap<>();
+        for (Appointment appointment : allByTime()) {
+            timelines.computeIfAbsent(appointment.getStudentName(), key -> new ArrayList<>()).add(appointment);
+        }
+        List<SchedulingConflict> conflicts = new ArrayList<>();
+        for (Map.Entry<String, List<Appointment>> timeline : timelines.entrySet()) {
+            Appointment latest = null;
+            for (Appointment appointment : timeline.getValue()) {
+                if (latest != null && appointment.getAppointmentTime().isBefore(latest.getEndTime())) {
+                    conflicts.add(new SchedulingConflict(participant.role(), timeline.getKey(), latest, appointment));
+                }
+                if (latest == null || appointment.getEndTime().isAfter(latest.getEndTime())) {
+                    latest = appointment;
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private AppointmentStore shardFor(String lecturerName) {
+        return shards[Math.floorMod(spread(lecturerName), shards.length)];
+    }
+
+    private List<Appointment> perUser(Participant participant, String name,
+                                      Function<AppointmentStore, List<Appointment>> query) {
+        if (participant == Participant.LECTURER) {
+            return query.apply(shardFor(name));
+        }
+        List<Appointment> result = new ArrayList<>();
+        for (AppointmentStore shard : shards) {
+            result.addAll(query.apply(shard));
+        }
+        // Concatenated sorted runs; the sort merges them
+        result.sort(BY_TIME);
+        return result;
+    }
+
+    // Run a time-ordered query on every shard and merge the results; a parallel ordered
+    // reduce merges neighbouring shards' results as a tree on the ForkJoinPool
+    private List<Appointment> gather(Function<AppointmentStore, List<Appointment>> query) {
+        return shards(shard -> Stream.of(query.apply(shard)))
+                .reduce(PartitionedAppointmentStore::merge)
+                .orElseGet(ArrayList::new);
+    }
+
+    private <T> Stream<T> shards(Function<AppointmentStore, Stream<T>> perShard) {
+        Stream<AppointmentStore> stream = Arrays.stream(shards);
+        if (shards.length > 1 && size() >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        return stream.flatMap(perShard);
+    }
+
+    // Each head's time is read once: on columnar views it is decoded on every call
+    private static List<Appointment> merge(List<Appointment> left, List<Appointment> right) {
+        List<Appointment> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        LocalDateTime leftTime = i < left.size() ? left.get(i).getAppointmentTime() : null;
+        LocalDateTime rightTime = j < right.size() ? right.get(j).getAppointmentTime() : null;
+        while (leftTime != null && rightTime != null) {
+            // Ties keep the left (lower-numbered) shard first, so results are stable
+            if (rightTime.isBefore(leftTime)) {
+                merged.add(right.get(j++));
+                rightTime = j < right.size() ? right.get(j).getAppointmentTime() : null;
+            } else {
+                merged.add(left.get(i++));
+                leftTime = i < left.size() ? left.get(i).getAppointmentTime() : null;
+            }
+        }
+        merged.addAll(left.subList(i, left.size()));
+        merged.addAll(right.subList(j, right.size()));
+        return merged;
+    }
+
+    private static ReentrantLock stripe(ReentrantLock[] locks, String key) {
+        return locks[spread(key) & (LOCK_STRIPES - 1)];
+    }
+
+    private static int spread(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static ReentrantLock[] stripes() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
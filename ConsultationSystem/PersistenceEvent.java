@@ -0,0 +1,66 @@
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event for one snapshot file save or load. Disabled unless a
+// recording is running, e.g.
+//   java -XX:StartFlightRecording=filename=pcs.jfr,settings=profile PsychologyConsultationSystem
+// Only slow operations can be kept with: jfr configure consultation.Persistence#threshold=100ms
+@Name("consultation.Persistence")
+@Label("Persistence")
+@Category({"Consultation System", "Persistence"})
+@Description("Snapshot file save or load")
+@StackTrace(false)
+public class PersistenceEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Records")
+    int records;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    // Not recorded by JFR; used for the Metrics timer
+    private transient long startNanos;
+    private transient String timerName;
+
+    // Starts timing an operation; finish() records it
+    static PersistenceEvent begin(String operation, String file) {
+        return begin(operation, file, "file." + operation + "." + new File(file).getName());
+    }
+
+    // Same, with an explicit timer name for families of files (e.g. archive segments)
+    static PersistenceEvent begin(String operation, String file, String timerName) {
+        PersistenceEvent event = new PersistenceEvent();
+        event.timerName = timerName;
+        event.operation = operation;
+        event.file = file;
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    // Ends the event, commits it if recording and feeds the same numbers into Metrics
+    void finish(int records) {
+        end();
+        long length = new File(file).length();
+        Metrics.timer(timerName).stop(startNanos);
+        Metrics.counter("file." + operation + ".bytes").add(length);
+        Metrics.counter("file." + operation + ".records").add(records);
+        if (shouldCommit()) {
+            this.records = records;
+            this.bytes = length;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// Debounced background autosave. Managers call markDirty() after each mutation; once
+// no mutation has arrived for the quiet period (or the data has been dirty for the
+// maximum delay, so constant activity still gets saved) the save action runs on a
+// dedicated thread. Saves never overlap, and mutations made during a save schedule
+// another one. A save action returns false when it could not write the data; the data
+// then stays dirty and the save is retried after another quiet period.
+//
+//   -Dpcs.autosave.quietMs   quiet period before saving (default 2000)
+//   -Dpcs.autosave.maxDelayMs longest a change waits to be saved (default 30000)
+public class PersistenceService {
+    public static final long QUIET_MS = Long.getLong("pcs.autosave.quietMs", 2_000);
+    public static final long MAX_DELAY_MS = Long.getLong("pcs.autosave.maxDelayMs", 30_000);
+
+    private final BooleanSupplier saveAction;
+    private final long quietNanos;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService executor;
+
+    // Mutation counter; everything up to savedVersion is on disk
+    private final AtomicLong version = new AtomicLong();
+    private volatile long savedVersion;
+    private volatile long lastChangeNanos;
+    private long firstDirtyNanos; // guarded by this
+    private Future<?> pending; // guarded by this
+
+    public PersistenceService(BooleanSupplier saveAction) {
+        this(saveAction, QUIET_MS, MAX_DELAY_MS);
+    }
+
+    public PersistenceService(BooleanSupplier saveAction, long quietMillis, long maxDelayMillis) {
+        this.saveAction = saveAction;
+        this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pcs-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Attach to every manager so each mutation marks the data dirty
+    public void watch(UserManager userManager, AppointmentManager appointmentManager,
+                      RescheduleManager rescheduleManager, FeedbackManager feedbackManager) {
+        userManager.addChangeListener(this::markDirty);
+        appointmentManager.addChangeListener(this::markDirty);
+        rescheduleManager.addChangeListener(this::markDirty);
+        feedbackManager.addChangeListener(this::markDirty);
+    }
+
+    public boolean isDirty() {
+        return version.get() != savedVersion;
+    }
+
+    // Cheap enough for every mutation: one increment, and a schedule only when idle
+    public void markDirty() {
+        version.incrementAndGet();
+        lastChangeNanos = System.nanoTime();
+        synchronized (this) {
+            if (pending == null && !executor.isShutdown()) {
+                firstDirtyNanos = lastChangeNanos;
+                pending = executor.schedule(this::onTimer, quietNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Save as soon as possible without waiting for the quiet period (e.g. at logout)
+    public void saveSoon() {
+        synchronized (this) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            pending = executor.submit(this::saveIfDirty);
+        }
+    }
+
+    // Run any outstanding save on the autosave thread and wait for it to finish
+    public void flush() throws InterruptedException {
+        Future<?> done;
+        synchronized (this) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            pending = null;
+            done = executor.submit(this::saveIfDirty);
+        }
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            System.err.println("Error saving data: " + e.getCause());
+        }
+    }
+
+    // Flush, then stop the autosave thread; later mutations are no longer saved by it
+    public void close() throws InterruptedException {
+        flush();
+        synchronized (this) {
+            executor.shutdown();
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void onTimer() {
+        long now = System.nanoTime();
+        long quietLeft = lastChangeNanos + quietNanos - now;
+        long firstDirty;
+        synchronized (this) {
+            firstDirty = firstDirtyNanos;
+        }
+        if (quietLeft > 0 && now - firstDirty < maxDelayNanos) {
+            // Still busy: wait for the rest of the quiet period, capped by the max delay
+            long wait = Math.min(quietLeft, firstDirty + maxDelayNanos - now);
+            synchronized (this) {
+                pending = executor.schedule(this::onTimer, wait, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        saveIfDirty();
+    }
+
+    private void saveIfDirty() {
+        synchronized (this) {
+            pending = null;
+        }
+        long target = version.get();
+        if (target == savedVersion) {
+            return;
+        }
+        try {
+            if (saveAction.getAsBoolean()) {
+                savedVersion = target;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+        }
+        // Anything that changed while saving, or a failed save, gets a fresh debounce
+        if (isDirty()) {
+            synchronized (this) {
+                if (pending == null && !executor.isShutdown()) {
+                    firstDirtyNanos = System.nanoTime();
+                    pending = executor.schedule(this::onTimer, quietNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+}
@@ -1,28 +1,306 @@
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.stream.Stream;
 import javax.swing.*;
 
 public class PsychologyConsultationSystem {
     private final static UserManager userManager = UserManager.getInstance();
     private static final AppointmentManager appointmentManager = new AppointmentManager();
+    private static final RescheduleManager rescheduleManager = new RescheduleManager(appointmentManager);
+    private static final FeedbackManager feedbackManager = new FeedbackManager();
+    private static final AvailabilityEngine availabilityEngine = new AvailabilityEngine(appointmentManager);
+    private static final AnalyticsEngine analyticsEngine = new AnalyticsEngine(appointmentManager, availabilityEngine);
+    private static Journal journal;
+    private static ReminderService reminderService; // null when reminders are disabled
+    private static volatile SearchService searchService; // null when search is disabled or on a standby
+    private static ReplicationPrimary replicationPrimary; // null unless pcs.replication.port is set
+    private static volatile ReplicationFollower replicationFollower; // non-null while running as a standby
+    private static final Object replicationLock = new Object();
+    private static ConsultationServer server;
+    // 后台自动保存：修改后静默一段时间再在独立线程上写快照
+    private static final PersistenceService persistenceService =
+            new PersistenceService(PsychologyConsultationSystem::saveAllData);
 
     public static void main(String[] args) {
         loadData();
-        SwingUtilities.invokeLater(() -> new LoginPage().setVisible(true));
+        if (args.length > 0 && (args[0].equals("--import") || args[0].equals("--export"))) {
+            System.exit(runBulk(args));
+        }
+        if (args.length > 0 && args[0].equals("--report")) {
+            System.exit(runReport(args));
+        }
+        persistenceService.watch(userManager, appointmentManager, rescheduleManager, feedbackManager);
+        if (args.length > 1 && args[0].equals("--follow")) {
+            startStandby(args[1], args.length > 2 ? Integer.parseInt(args[2]) : 8080);
+        } else if (args.length > 0 && args[0].equals("--server")) {
+            startReminders();
+            startSearch();
+            analyticsEngine.start();
+            startReplication();
+            startServer(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+        } else {
+            startReminders();
+            startSearch();
+            analyticsEngine.start();
+            startReplication();
+            installMetricsShortcut();
+            SwingUtilities.invokeLater(() -> new LoginPage().setVisible(true));
+        }
 
-        // 添加窗口关闭时的保存操作
+        // 添加窗口关闭时的保存操作：等待后台保存完成并写出未保存的修改
+        // The autosave only compacts a long journal, so the hook compacts whatever is
+        // left in it; an idle system with an empty journal is not rewritten.
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            saveAllData();
+            ReplicationFollower follower = replicationFollower;
+            if (follower != null) {
+                try {
+                    follower.promote();
+                } catch (IOException e) {
+                    System.err.println("Error stopping replication: " + e.getMessage());
+                }
+            }
+            try {
+                persistenceService.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (journal != null && journal.size() > 0) {
+                compactAllData();
+            }
+            if (reminderService != null) {
+                reminderService.close();
+            }
+            if (searchService != null) {
+                searchService.close();
+            }
+            Metrics.dumpToConfiguredFile();
         }));
     }
 
+    // Ctrl+Shift+M in any window prints the metrics to standard output; the desktop
+    // client has no GET /api/metrics
+    private static void installMetricsShortcut() {
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e -> {
+            if (e.getID() == KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_M
+                    && e.isControlDown() && e.isShiftDown()) {
+                Metrics.dump(System.out);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    // Reminders ahead of upcoming appointments, written to reminders.log in the data directory
+    private static void startReminders() {
+        if (!ReminderService.ENABLED) {
+            return;
+        }
+        try {
+            reminderService = new ReminderService(appointmentManager, FileManager.openReminderLog());
+            reminderService.start();
+        } catch (IOException e) {
+            System.err.println("Error starting reminders: " + e.getMessage());
+        }
+    }
+
+    // Keyword search, starting from the index saved with the last snapshot if there is one.
+    // A standby applies records without change events, so it only starts this once promoted.
+    private static void startSearch() {
+        if (!SearchService.ENABLED) {
+            return;
+        }
+        searchService = new SearchService(appointmentManager, feedbackManager, FileManager.loadSearchIndex());
+        searchService.start();
+    }
+
+    // Ship the journal to warm standbys when -Dpcs.replication.port is set
+    private static void startReplication() {
+        Integer port = Integer.getInteger("pcs.replication.port");
+        if (port == null) {
+            return;
+        }
+        if (journal == null) {
+            System.err.println("Replication needs journal mode; not starting it.");
+            return;
+        }
+        String host = System.getProperty("pcs.replication.host", "127.0.0.1");
+        ReplicationPrimary primary = new ReplicationPrimary(journal, userManager, appointmentManager,
+                rescheduleManager, feedbackManager);
+        try {
+            primary.start(host, port);
+            replicationPrimary = primary;
+            System.out.println("Shipping journal to standbys on " + host + ":" + primary.getPort());
+        } catch (IOException e) {
+            System.err.println("Error starting replication: " + e.getMessage());
+        }
+    }
+
+    // --follow host:port [httpPort]: apply another instance's journal and serve the API
+    // read-only until promoted through POST /api/replication/promote
+    private static void startStandby(String primary, int port) {
+        int colon = primary.lastIndexOf(':');
+        if (colon < 0) {
+            System.err.println("Usage: --follow host:port [httpPort]");
+            System.exit(2);
+        }
+        // The follower journals what it applies itself
+        attachJournal(null);
+        replicationFollower = new ReplicationFollower(primary.substring(0, colon),
+                Integer.parseInt(primary.substring(colon + 1)), journal, userManager, appointmentManager,
+                rescheduleManager, feedbackManager, PsychologyConsultationSystem::compactAllData);
+        replicationFollower.start();
+        startServer(port);
+    }
+
+    // Take over from a failed primary: stop following, journal local changes again, accept
+    // writes, and ship to standbys of our own if a replication port is configured
+    private static void promote() {
+        synchronized (replicationLock) {
+            ReplicationFollower follower = replicationFollower;
+            if (follower == null) {
+                throw new IllegalStateException("Already promoted");
+            }
+            try {
+                follower.promote();
+            } catch (IOException e) {
+                System.err.println("Error stopping replication: " + e.getMessage());
+            }
+            replicationFollower = null;
+            attachJournal(journal);
+            startReplication();
+            startReminders();
+            startSearch();
+            analyticsEngine.start();
+            server.setSearch(searchService);
+            server.setAnalytics(analyticsEngine);
+            server.setReplication(replicationPrimary != null ? replicationPrimary::status : null, null);
+            server.setReadOnly(null);
+            System.out.println("Promoted to primary.");
+        }
+    }
+
+    private static void attachJournal(Journal target) {
+        userManager.setJournal(target);
+        appointmentManager.setJournal(target);
+        rescheduleManager.setJournal(target);
+        feedbackManager.setJournal(target);
+    }
+
+    // Headless mode: serve the JSON API instead of opening the Swing UI
+    private static void startServer(int port) {
+        String host = System.getProperty("pcs.server.host", "127.0.0.1");
+        server = new ConsultationServer(userManager, appointmentManager, rescheduleManager);
+        server.setSearch(searchService);
+        ReplicationFollower follower = replicationFollower;
+        if (follower == null) {
+            server.setAnalytics(analyticsEngine);
+        }
+        if (follower != null) {
+            server.setReadOnly("Read-only standby; writes go to the primary");
+            server.setReplication(follower::status, PsychologyConsultationSystem::promote);
+        } else if (replicationPrimary != null) {
+            server.setReplication(replicationPrimary::status, null);
+        }
+        try {
+            server.start(host, port);
+            System.out.println("Consultation API listening on http://" + host + ":" + server.getPort() + "/api/");
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // --import|--export users|appointments|reschedules <file.csv|file.jsonl>
+    private static int runBulk(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: " + args[0] + " users|appointments|reschedules <file.csv|file.jsonl>");
+            return 2;
+        }
+        String kind = args[1];
+        String fileName = args[2];
+        try {
+            if (args[0].equals("--export")) {
+                int count;
+                switch (kind) {
+                    case "users":
+                        count = BulkExporter.exportUsers(userManager.getAllUsers(), fileName);
+                        break;
+                    case "appointments":
+                        count = BulkExporter.exportAppointments(appointmentManager.getAppointmentHistory(), fileName);
+                        break;
+                    case "reschedules":
+                        count = BulkExporter.exportReschedules(rescheduleManager.getAllRequests(), fileName);
+                        break;
+                    default:
+                        System.err.println("Unknown data set: " + kind);
+                        return 2;
+                }
+                System.out.println("Exported " + count + " " + kind + " to " + fileName);
+                return 0;
+            }
+
+            BulkImporter importer = new BulkImporter(userManager, appointmentManager, rescheduleManager);
+            BulkImporter.Report report;
+            switch (kind) {
+                case "users":
+                    report = importer.importUsers(fileName);
+                    break;
+                case "appointments":
+                    report = importer.importAppointments(fileName);
+                    break;
+                case "reschedules":
+                    report = importer.importReschedules(fileName);
+                    break;
+                default:
+                    System.err.println("Unknown data set: " + kind);
+                    return 2;
+            }
+            System.out.println(report);
+            // Imports are not journaled, so persist them with a full snapshot
+            if (report.getImported() > 0 && !compactAllData()) {
+                return 1;
+            }
+            return report.getFailed() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Error during " + args[0].substring(2) + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // --report lecturers|weeks|demand <file.csv|file.jsonl> [fromDate [toDate]]
+    private static int runReport(String[] args) {
+        if (args.length < 3 || args.length > 5) {
+            System.err.println("Usage: --report lecturers|weeks|demand <file.csv|file.jsonl> [from [to]]"
+                    + " (dates as yyyy-MM-dd, to exclusive)");
+            return 2;
+        }
+        try {
+            LocalDate from = args.length > 3 ? LocalDate.parse(args[3]) : null;
+            LocalDate to = args.length > 4 ? LocalDate.parse(args[4]) : null;
+            long start = System.nanoTime();
+            int rows = analyticsEngine.export(args[1], from, to, args[2]);
+            System.out.println("Wrote " + rows + " " + args[1] + " rows to " + args[2] + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return 0;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Error writing report: " + e.getMessage());
+            return 1;
+        }
+    }
+
     private static void loadData() {
+        long start = Metrics.Timer.start();
         // 加载用户数据
         try {
             List<User> savedUsers = FileManager.loadUsers();
@@ -34,15 +312,59 @@ public class PsychologyConsultationSystem {
             preloadUsers();
         }
 
+        // 打开历史归档：只读取清单，旧月份的预约按需加载
+        if (AppointmentArchive.ENABLED) {
+            try {
+                appointmentManager.setArchive(FileManager.openArchive());
+            } catch (IOException e) {
+                System.err.println("Error opening appointment archive: " + e.getMessage());
+            }
+        }
+
         // 加载预约数据
         try {
-            List<Appointment> savedAppointments = FileManager.loadAppointments();
-            for (Appointment appointment : savedAppointments) {
-                appointmentManager.addAppointment(appointment);
-            }
+            FileManager.loadAppointments(appointmentManager);
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("No saved appointments found.");
         }
+
+        // 加载改期申请
+        try {
+            for (ReschedulingRequest request : FileManager.loadReschedulingRequests(appointmentManager)) {
+                rescheduleManager.restoreRequest(request);
+            }
+        } catch (IOException e) {
+            System.out.println("No saved rescheduling requests found.");
+        }
+
+        // 加载反馈数据
+        try {
+            for (Feedback feedback : FileManager.loadFeedback()) {
+                feedbackManager.restoreFeedback(feedback);
+            }
+        } catch (IOException e) {
+            System.out.println("No saved feedback found.");
+        }
+
+        // 重放上次快照之后的日志，并让后续修改追加到日志
+        if (FileManager.JOURNAL_ENABLED) {
+            journal = FileManager.openJournal();
+            try {
+                int replayed = journal.replay(userManager, appointmentManager, rescheduleManager, feedbackManager);
+                if (replayed > 0) {
+                    System.out.println("Replayed " + replayed + " journal records.");
+                }
+            } catch (IOException e) {
+                System.err.println("Error replaying journal: " + e.getMessage());
+            }
+            attachJournal(journal);
+        }
+
+        // 上次运行以来已移出热窗口的预约立即归档
+        if (appointmentManager.hasArchivableAppointments(LocalDate.now())) {
+            compactAllData();
+        }
+        Metrics.recordPhase("data.load", start, Metrics.LOAD_WARN_MS);
     }
 
     private static void preloadUsers() {
@@ -65,13 +387,78 @@ public class PsychologyConsultationSystem {
         return appointmentManager;
     }
 
-    public static void saveAllData() {
+    public static RescheduleManager getRescheduleManager() {
+        return rescheduleManager;
+    }
+
+    public static FeedbackManager getFeedbackManager() {
+        return feedbackManager;
+    }
+
+    public static AvailabilityEngine getAvailabilityEngine() {
+        return availabilityEngine;
+    }
+
+    public static PersistenceService getPersistenceService() {
+        return persistenceService;
+    }
+
+    // Changes are already durable in the journal, so only compact once it has grown.
+    // Returns false if the data could not be written.
+    public static boolean saveAllData() {
+        if (journal != null && journal.size() < FileManager.COMPACT_THRESHOLD) {
+            return true;
+        }
+        return compactAllData();
+    }
+
+    // Archive months that left the hot window, then write a full snapshot and, in
+    // journal mode, truncate the journal. Returns false if the snapshot was not written.
+    public static synchronized boolean compactAllData() {
+        long start = Metrics.Timer.start();
+        try {
+            int archived = appointmentManager.archivePast(LocalDate.now());
+            if (archived > 0) {
+                System.out.println("Archived " + archived + " past appointments.");
+            }
+        } catch (IOException e) {
+            System.err.println("Error archiving appointments: " + e.getMessage());
+        }
+        saveSearchIndex();
         try {
+            if (journal != null) {
+                FileManager.compact(journal, userManager, appointmentManager, rescheduleManager, feedbackManager);
+                System.out.println("Data saved successfully.");
+                return true;
+            }
             FileManager.saveUsers(userManager.getAllUsers());
-            FileManager.saveAppointments(appointmentManager.getAllAppointments());
+            FileManager.saveAppointments(appointmentManager.getAllAppointments(), appointmentManager.getNextId());
+            FileManager.saveReschedulingRequests(rescheduleManager.getAllRequests());
+            FileManager.saveFeedback(feedbackManager.getAllFeedback());
             System.out.println("Data saved successfully.");
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        } finally {
+            Metrics.recordPhase("data.save", start, Metrics.SAVE_WARN_MS);
+        }
+    }
+
+    // Written after archiving so it covers the newly archived months; waits for pending
+    // changes to be indexed first. Anything it still misses is reconciled on the next start.
+    private static void saveSearchIndex() {
+        SearchService search = searchService;
+        if (search == null) {
+            return;
+        }
+        try {
+            search.awaitIndexed(5_000);
+            FileManager.saveSearchIndex(search.getAppointmentIndex());
+        } catch (IOException e) {
+            System.err.println("Error saving search index: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -152,22 +539,28 @@ static class StudentDashboard extends JFrame {
         userManager = PsychologyConsultationSystem.getUserManager();
 
         // Create main panel with buttons
-        JPanel buttonPanel = new JPanel(new GridLayout(4, 1, 10, 10));
+        JPanel buttonPanel = new JPanel(new GridLayout(6, 1, 10, 10));
         buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         JButton createAppointmentBtn = new JButton("Create Appointment");
         JButton viewAppointmentsBtn = new JButton("View Appointments");
         JButton cancelAppointmentBtn = new JButton("Cancel Appointment");
+        JButton rescheduleAppointmentBtn = new JButton("Request Reschedule");
+        JButton feedbackBtn = new JButton("Give Feedback");
         JButton logoutBtn = new JButton("Logout");
 
         createAppointmentBtn.addActionListener(e -> createAppointment());
         viewAppointmentsBtn.addActionListener(e-> viewAppointments());
         cancelAppointmentBtn.addActionListener(e -> cancelAppointment());
+        rescheduleAppointmentBtn.addActionListener(e -> requestReschedule());
+        feedbackBtn.addActionListener(e -> giveFeedback());
         logoutBtn.addActionListener(e -> logout());
 
         buttonPanel.add(createAppointmentBtn);
         buttonPanel.add(viewAppointmentsBtn);
         buttonPanel.add(cancelAppointmentBtn);
+        buttonPanel.add(rescheduleAppointmentBtn);
+        buttonPanel.add(feedbackBtn);
         buttonPanel.add(logoutBtn);
 
         add(new JLabel("Welcome, " + currentUsername + "!", SwingConstants.CENTER), BorderLayout.NORTH);
@@ -197,13 +590,33 @@ static class StudentDashboard extends JFrame {
 
             if (lecturerName == null) return;
 
-            String dateTime = JOptionPane.showInputDialog(this,
-                    "Enter appointment date (YYYY-MM-DD HH:mm):",
+            // Offer the lecturer's next free slots, or let the student type a time
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+            String otherTime = "Other time...";
+            String[] slotChoices = Stream.concat(
+                    PsychologyConsultationSystem.getAvailabilityEngine()
+                            .nextFreeSlots(lecturerName, LocalDateTime.now(), 10, Appointment.DEFAULT_DURATION_MINUTES)
+                            .stream()
+                            .map(formatter::format),
+                    Stream.of(otherTime))
+                    .toArray(String[]::new);
+            String dateTime = (String) JOptionPane.showInputDialog(this,
+                    "Select a free slot:",
                     "Create Appointment",
-                    JOptionPane.QUESTION_MESSAGE);
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    slotChoices,
+                    slotChoices[0]);
             if (dateTime == null) return;
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+            if (dateTime.equals(otherTime)) {
+                dateTime = JOptionPane.showInputDialog(this,
+                        "Enter appointment date (YYYY-MM-DD HH:mm):",
+                        "Create Appointment",
+                        JOptionPane.QUESTION_MESSAGE);
+                if (dateTime == null) return;
+            }
+
             LocalDateTime appointmentTime = LocalDateTime.parse(dateTime, formatter);
 
             String description = JOptionPane.showInputDialog(this,
@@ -233,69 +646,126 @@ static class StudentDashboard extends JFrame {
             }
     }
 
+    // Table model over this student's appointments (indexed query, rendered lazily)
+    private AppointmentTableModel studentAppointments() {
+        return new AppointmentTableModel(() -> appointmentManager.getAppointmentsForStudent(currentUsername),
+                a -> a.getStudentName().equals(currentUsername), false);
+    }
+
     private void viewAppointments() {
-        List<Appointment> userAppointments = appointmentManager.getAllAppointments().stream()
-                .filter(a -> a.getStudentName().equals(currentUsername))
-                .toList();
+        AppointmentTableModel model = studentAppointments();
 
-        if (userAppointments.isEmpty()) {
+        if (model.getTotalCount() == 0) {
             JOptionPane.showMessageDialog(this, "You have no appointments.");
             return;
         }
 
-        StringBuilder sb = new StringBuilder("Your Appointments:\n\n");
-        for (int i = 0; i < userAppointments.size(); i++) {
-            sb.append(i).append(". ").append(userAppointments.get(i).toString()).append("\n");
+        AppointmentTableDialog.showAppointments(this, "Your Appointments", model, appointmentManager);
+    }
+
+    private void cancelAppointment() {
+        AppointmentTableModel model = studentAppointments();
+
+        if (model.getTotalCount() == 0) {
+            JOptionPane.showMessageDialog(this, "You have no appointments to cancel.");
+            return;
         }
 
-        JTextArea textArea = new JTextArea(sb.toString());
-        textArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setPreferredSize(new Dimension(400, 300));
+        Appointment selected = AppointmentTableDialog.chooseAppointment(this, "Cancel Appointment", model,
+                appointmentManager, "Cancel Appointment");
 
-        JOptionPane.showMessageDialog(this, scrollPane, "Your Appointments", JOptionPane.INFORMATION_MESSAGE);
+        if (selected != null && appointmentManager.cancelById(selected.getId())) {
+            JOptionPane.showMessageDialog(this, "Appointment cancelled successfully!");
+        }
     }
 
-    private void cancelAppointment() {
-        List<Appointment> userAppointments = appointmentManager.getAllAppointments().stream()
-                .filter(a -> a.getStudentName().equals(currentUsername))
-                .toList();
+    private void requestReschedule() {
+        AppointmentTableModel model = studentAppointments();
 
-        if (userAppointments.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "You have no appointments to cancel.");
+        if (model.getTotalCount() == 0) {
+            JOptionPane.showMessageDialog(this, "You have no appointments to reschedule.");
             return;
         }
 
-        String[] appointmentStrings = userAppointments.stream()
-                .map(Appointment::toString)
-                .toArray(String[]::new);
+        Appointment selected = AppointmentTableDialog.chooseAppointment(this, "Request Reschedule", model,
+                appointmentManager, "Reschedule...");
+        if (selected == null) return;
 
-        String selected = (String) JOptionPane.showInputDialog(this,
-                "Select appointment to cancel:",
-                "Cancel Appointment",
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                appointmentStrings,
-                appointmentStrings[0]);
-
-        if (selected != null) {
-            int index = -1;
-            for (int i = 0; i < appointmentStrings.length; i++) {
-                if (appointmentStrings[i].equals(selected)) {
-                    index = i;
-                    break;
-                }
-            }
+        String dateTime = JOptionPane.showInputDialog(this,
+                "Enter proposed date (YYYY-MM-DD HH:mm):",
+                "Request Reschedule",
+                JOptionPane.QUESTION_MESSAGE);
+        if (dateTime == null) return;
+
+        String reason = JOptionPane.showInputDialog(this,
+                "Enter reason for rescheduling:",
+                "Request Reschedule",
+                JOptionPane.QUESTION_MESSAGE);
+        if (reason == null) return;
 
-            if (index != -1) {
-                appointmentManager.getAllAppointments().remove(userAppointments.get(index));
-                JOptionPane.showMessageDialog(this, "Appointment cancelled successfully!");
+        try {
+            LocalDateTime proposedTime = LocalDateTime.parse(dateTime, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+            ReschedulingRequest request = new ReschedulingRequest(selected, proposedTime,
+                    currentUsername, reason);
+            if (!request.isValidReschedulingRequest()) {
+                JOptionPane.showMessageDialog(this,
+                        "The proposed time must be in the future and differ from the current time.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            PsychologyConsultationSystem.getRescheduleManager().submitRequest(request);
+            JOptionPane.showMessageDialog(this, "Rescheduling request submitted!");
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Invalid date format. Please use YYYY-MM-DD HH:mm format.",
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void giveFeedback() {
+        List<User> lecturers = userManager.getUsersByRole("lecturer");
+        if (lecturers.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No lecturers available.");
+            return;
         }
+
+        String[] lecturerNames = lecturers.stream()
+                .map(User::getUsername)
+                .toArray(String[]::new);
+        String lecturerName = (String) JOptionPane.showInputDialog(this,
+                "Select Lecturer:",
+                "Give Feedback",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                lecturerNames,
+                lecturerNames[0]);
+        if (lecturerName == null) return;
+
+        Integer[] ratings = {5, 4, 3, 2, 1};
+        Integer rating = (Integer) JOptionPane.showInputDialog(this,
+                "Rating (1-5):",
+                "Give Feedback",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                ratings,
+                ratings[0]);
+        if (rating == null) return;
+
+        String content = JOptionPane.showInputDialog(this,
+                "Comments:",
+                "Give Feedback",
+                JOptionPane.QUESTION_MESSAGE);
+        if (content == null) return;
+
+        PsychologyConsultationSystem.getFeedbackManager()
+                .submitFeedback(new Feedback(currentUsername, lecturerName, content, rating));
+        JOptionPane.showMessageDialog(this, "Thank you for your feedback!");
     }
 
     private void logout() {
-        PsychologyConsultationSystem.saveAllData();
+        PsychologyConsultationSystem.getPersistenceService().saveSoon();
         dispose();
         new LoginPage().setVisible(true);
     }
@@ -316,19 +786,25 @@ static class LecturerDashboard extends JFrame {
         appointmentManager = PsychologyConsultationSystem.getAppointmentManager();
 
         // Create main panel with buttons
-        JPanel buttonPanel = new JPanel(new GridLayout(3, 1, 10, 10));
+        JPanel buttonPanel = new JPanel(new GridLayout(5, 1, 10, 10));
         buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         JButton viewAppointmentsBtn = new JButton("View Appointments");
         JButton confirmAppointmentBtn = new JButton("Confirm Appointment");
+        JButton reviewReschedulesBtn = new JButton("Review Reschedule Requests");
+        JButton viewRatingsBtn = new JButton("View Ratings");
         JButton logoutBtn = new JButton("Logout");
 
         viewAppointmentsBtn.addActionListener(e -> viewAppointments());
         confirmAppointmentBtn.addActionListener(e -> confirmAppointment());
+        reviewReschedulesBtn.addActionListener(e -> reviewReschedules());
+        viewRatingsBtn.addActionListener(e -> viewRatings());
         logoutBtn.addActionListener(e -> logout());
 
         buttonPanel.add(viewAppointmentsBtn);
         buttonPanel.add(confirmAppointmentBtn);
+        buttonPanel.add(reviewReschedulesBtn);
+        buttonPanel.add(viewRatingsBtn);
         buttonPanel.add(logoutBtn);
 
         add(new JLabel("Welcome, " + currentUsername + "!", SwingConstants.CENTER), BorderLayout.NORTH);
@@ -336,18 +812,53 @@ static class LecturerDashboard extends JFrame {
     }
 
     private void viewAppointments() {
-        List<Appointment> lecturerAppointments = appointmentManager.getAllAppointments().stream()
-                .filter(a -> a.getLecturerName().equals(currentUsername))
-                .toList();
+        AppointmentTableModel model = new AppointmentTableModel(
+                () -> appointmentManager.getAppointmentsForLecturer(currentUsername),
+                a -> a.getLecturerName().equals(currentUsername), true);
 
-        if (lecturerAppointments.isEmpty()) {
+        if (model.getTotalCount() == 0) {
             JOptionPane.showMessageDialog(this, "You have no appointments.");
             return;
         }
 
-        StringBuilder sb = new StringBuilder("Your Appointments:\n\n");
-        for (int i = 0; i < lecturerAppointments.size(); i++) {
-            sb.append(i).append(". ").append(lecturerAppointments.get(i).toString()).append("\n");
+        AppointmentTableDialog.showAppointments(this, "Your Appointments", model, appointmentManager);
+    }
+
+    private void confirmAppointment() {
+        // Only unconfirmed appointments; confirmed ones drop out as the table refreshes
+        AppointmentTableModel model = new AppointmentTableModel(
+                () -> appointmentManager.getAppointmentsForLecturer(currentUsername),
+                a -> a.getLecturerName().equals(currentUsername) && !a.isConfirmed(), true,
+                AppointmentTableModel.DEFAULT_PAGE_SIZE);
+
+        if (model.getTotalCount() == 0) {
+            JOptionPane.showMessageDialog(this, "No appointments to confirm.");
+            return;
+        }
+
+        Appointment selected = AppointmentTableDialog.chooseAppointment(this, "Confirm Appointment", model,
+                appointmentManager, "Confirm Appointment");
+
+        if (selected != null && appointmentManager.confirmById(selected.getId())) {
+            JOptionPane.showMessageDialog(this, "Appointment confirmed successfully!");
+        }
+    }
+
+    private void reviewReschedules() {
+        RescheduleManager rescheduleManager = PsychologyConsultationSystem.getRescheduleManager();
+        List<ReschedulingRequest> pending = rescheduleManager.getPendingForLecturer(currentUsername);
+
+        if (pending.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No pending rescheduling requests.");
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("Pending Requests (oldest first):\n\n");
+        for (ReschedulingRequest request : pending) {
+            Appointment appointment = request.getOriginalAppointment();
+            sb.append(appointment.getStudentName()).append(": ")
+                    .append(appointment.getAppointmentTime()).append(" -> ")
+                    .append(request.getProposedTime()).append(" (").append(request.getRequestReason()).append(")\n");
         }
 
         JTextArea textArea = new JTextArea(sb.toString());
@@ -355,50 +866,47 @@ static class LecturerDashboard extends JFrame {
         JScrollPane scrollPane = new JScrollPane(textArea);
         scrollPane.setPreferredSize(new Dimension(400, 300));
 
-        JOptionPane.showMessageDialog(this, scrollPane, "Your Appointments", JOptionPane.INFORMATION_MESSAGE);
+        String[] options = {"Approve All", "Reject All", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, scrollPane, "Rescheduling Requests",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[2]);
+        if (choice == 0) {
+            RescheduleManager.BatchResult result = rescheduleManager.approveAllPending(currentUsername);
+            JOptionPane.showMessageDialog(this, "Requests processed: " + result
+                    + (result.getRejected().isEmpty() ? "" : "\n(invalid or conflicting requests were rejected)"));
+        } else if (choice == 1) {
+            RescheduleManager.BatchResult result = rescheduleManager.rejectAllPending(currentUsername);
+            JOptionPane.showMessageDialog(this, "Requests processed: " + result);
+        }
     }
 
-    private void confirmAppointment() {
-        List<Appointment> lecturerAppointments = appointmentManager.getAllAppointments().stream()
-                .filter(a -> a.getLecturerName().equals(currentUsername) && !a.isConfirmed())
-                .toList();
+    private void viewRatings() {
+        LecturerRating rating = PsychologyConsultationSystem.getFeedbackManager().getRating(currentUsername);
 
-        if (lecturerAppointments.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No appointments to confirm.");
+        if (rating.getCount() == 0) {
+            JOptionPane.showMessageDialog(this, "You have no ratings yet.");
             return;
         }
 
-        String[] appointmentStrings = lecturerAppointments.stream()
-                .map(Appointment::toString)
-                .toArray(String[]::new);
+        StringBuilder sb = new StringBuilder(String.format("Average: %.2f from %d ratings\n\n",
+                rating.getAverage(), rating.getCount()));
+        long[] histogram = rating.getHistogram();
+        for (int stars = LecturerRating.MAX_RATING; stars >= LecturerRating.MIN_RATING; stars--) {
+            sb.append(stars).append(" stars: ").append(histogram[stars]).append("\n");
+        }
+        sb.append("\nWeekly trend:\n");
+        rating.getWeeklyTrend().forEach((week, average) ->
+                sb.append(week).append(": ").append(String.format("%.2f", average)).append("\n"));
 
-        String selected = (String) JOptionPane.showInputDialog(this,
-                "Select appointment to confirm:",
-                "Confirm Appointment",
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                appointmentStrings,
-                appointmentStrings[0]);
-
-        if (selected != null) {
-            int index = -1;
-            for (int i = 0; i < appointmentStrings.length; i++) {
-                if (appointmentStrings[i].equals(selected)) {
-                    index = i;
-                    break;
-                }
-            }
+        JTextArea textArea = new JTextArea(sb.toString());
+        textArea.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(400, 300));
 
-            if (index != -1) {
-                Appointment appointment = lecturerAppointments.get(index);
-                appointment.setConfirmed(true);  // 假设Appointment类中有setConfirmed方法
-                JOptionPane.showMessageDialog(this, "Appointment confirmed successfully!");
-            }
-        }
+        JOptionPane.showMessageDialog(this, scrollPane, "Your Ratings", JOptionPane.INFORMATION_MESSAGE);
     }
 
         private void logout() {
-            PsychologyConsultationSystem.saveAllData();
+            PsychologyConsultationSystem.getPersistenceService().saveSoon();
             dispose();
             new LoginPage().setVisible(true);
         }
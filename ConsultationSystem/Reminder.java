@@ -0,0 +1,35 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// A reminder that an appointment starts in getLeadTime(); sent to both participants
+public final class Reminder {
+    private final Appointment appointment;
+    private final Duration leadTime;
+    private final LocalDateTime dueTime;
+
+    public Reminder(Appointment appointment, Duration leadTime, LocalDateTime dueTime) {
+        this.appointment = appointment;
+        this.leadTime = leadTime;
+        this.dueTime = dueTime;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public Duration getLeadTime() {
+        return leadTime;
+    }
+
+    // When the reminder was scheduled to go out
+    public LocalDateTime getDueTime() {
+        return dueTime;
+    }
+
+    @Override
+    public String toString() {
+        return "Appointment " + appointment.getId() + " at " + appointment.getAppointmentTime() + " ("
+                + appointment.getStudentName() + " with " + appointment.getLecturerName() + ") starts in "
+                + ReminderService.formatLeadTime(leadTime);
+    }
+}
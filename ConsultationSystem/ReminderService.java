@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sends reminders ahead of upcoming appointments. Each appointment has at most one
+// pending entry in a TimingWheel, for its next lead time; when that fires the entry
+// for the following lead time is scheduled. Bookings, cancellations and reschedules
+// arrive as AppointmentEvents and cost O(1) each, and one thread advances the wheel.
+//
+//   -Dpcs.reminders=false      disable reminders
+//   -Dpcs.reminders.leadTimes  how long before an appointment to remind (default 24h,1h)
+//   -Dpcs.reminders.tickMs     wheel resolution (default 1000)
+public class ReminderService implements AutoCloseable {
+    public static final boolean ENABLED = !"false".equals(System.getProperty("pcs.reminders"));
+    public static final List<Duration> LEAD_TIMES =
+            parseLeadTimes(System.getProperty("pcs.reminders.leadTimes", "24h,1h"));
+    public static final long TICK_MS = Long.getLong("pcs.reminders.tickMs", 1_000);
+
+    private static final LongAdder SCHEDULED = Metrics.counter("reminders.scheduled");
+    private static final LongAdder CANCELLED = Metrics.counter("reminders.cancelled");
+    private static final LongAdder DELIVERED = Metrics.counter("reminders.delivered");
+    private static final LongAdder FAILED = Metrics.counter("reminders.failed");
+    // How late reminders go out relative to their due time
+    private static final Metrics.Timer LAG_TIMER = Metrics.timer("reminders.lag");
+
+    private final AppointmentManager appointmentManager;
+    private final ReminderSink sink;
+    private final List<Duration> leadTimes; // longest first
+    private final Clock clock;
+    private final ZoneId zone;
+    private final TimingWheel<Pending> wheel;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>(); // by appointment ID
+    private final ScheduledExecutorService executor;
+    private EventBus.Subscription subscription;
+
+    public ReminderService(AppointmentManager appointmentManager, ReminderSink sink) {
+        this(appointmentManager, sink, LEAD_TIMES, TICK_MS, Clock.systemDefaultZone());
+    }
+
+    public ReminderService(AppointmentManager appointmentManager, ReminderSink sink, List<Duration> leadTimes,
+                           long tickMillis, Clock clock) {
+        this.appointmentManager = appointmentManager;
+        this.sink = sink;
+        this.leadTimes = new ArrayList<>(leadTimes);
+        this.leadTimes.sort(Comparator.reverseOrder());
+        this.clock = clock;
+        this.zone = clock.getZone();
+        this.wheel = new TimingWheel<>(tickMillis, clock.millis());
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pcs-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Follow appointment changes, schedule the existing appointments and start the clock
+    public synchronized void start() {
+        subscription = appointmentManager.getEventBus().subscribe(this::onEvent);
+        scheduleAll();
+        long tick = wheel.getTickMillis();
+        executor.scheduleAtFixedRate(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    // Appointments with a reminder still to come
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Advance the wheel to the clock and deliver whatever came due; normally run by the
+    // reminder thread, public so a test clock can be stepped by hand
+    public void tick() {
+        for (Pending due : wheel.advanceTo(clock.millis())) {
+            fire(due);
+        }
+    }
+
+    // Stop the reminder thread, then close the sink once no delivery is in progress
+    @Override
+    public synchronized void close() {
+        if (subscription != null) {
+            subscription.close();
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            System.err.println("Error closing reminder sink: " + e.getMessage());
+        }
+    }
+
+    private void onEvent(AppointmentEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case RESCHEDULED:
+                schedule(event.getAppointment());
+                break;
+            case CANCELLED:
+            case ARCHIVED:
+                cancel(event.getAppointment());
+                break;
+            case RELOADED:
+                for (Long id : pending.keySet()) {
+                    discard(pending.remove(id));
+                }
+                scheduleAll();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void scheduleAll() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (Appointment appointment : appointmentManager.getAllAppointments()) {
+            if (appointment.getAppointmentTime().isAfter(now)) {
+                schedule(appointment);
+            }
+        }
+    }
+
+    // Replace whatever is pending for this appointment with its next reminder
+    private void schedule(Appointment appointment) {
+        pending.compute(appointment.getId(), (id, old) -> {
+            discard(old);
+            return next(appointment, appointment.getAppointmentTime(), 0);
+        });
+    }
+
+    private void cancel(Appointment appointment) {
+        discard(pending.remove(appointment.getId()));
+    }
+
+    private void discard(Pending entry) {
+        if (entry == null) {
+            return;
+        }
+        entry.discarded = true;
+        if (entry.timeout.cancel()) {
+            CANCELLED.increment();
+        }
+    }
+
+    private void fire(Pending due) {
+        if (due.discarded) {
+            return; // cancelled or rescheduled after it expired
+        }
+        Reminder reminder = new Reminder(due.appointment, leadTimes.get(due.lead),
+                due.appointmentTime.minus(leadTimes.get(due.lead)));
+        LAG_TIMER.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, clock.millis() - due.dueMillis)));
+        try {
+            sink.deliver(reminder);
+            DELIVERED.increment();
+        } catch (IOException | RuntimeException e) {
+            FAILED.increment();
+            System.err.println("Error delivering reminder: " + e);
+        }
+        pending.computeIfPresent(due.appointment.getId(), (id, current) ->
+                current != due ? current : next(due.appointment, due.appointmentTime, due.lead + 1));
+    }
+
+    // Schedule the first lead time from index on that is still ahead; null if none is
+    private Pending next(Appointment appointment, LocalDateTime time, int fromLead) {
+        long now = clock.millis();
+        for (int lead = fromLead; lead < leadTimes.size(); lead++) {
+            long dueMillis = time.minus(leadTimes.get(lead)).atZone(zone).toInstant().toEpochMilli();
+            if (dueMillis > now) {
+                Pending entry = new Pending(appointment, time, lead, dueMillis);
+                entry.timeout = wheel.schedule(dueMillis, entry);
+                SCHEDULED.increment();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // "24h,1h,30m,2d" -> durations
+    static List<Duration> parseLeadTimes(String spec) {
+        List<Duration> result = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String s = part.trim().toLowerCase(Locale.ROOT);
+            if (s.isEmpty()) {
+                continue;
+            }
+            long amount = Long.parseLong(s.substring(0, s.length() - 1));
+            switch (s.charAt(s.length() - 1)) {
+                case 'd':
+                    result.add(Duration.ofDays(amount));
+                    break;
+                case 'h':
+                    result.add(Duration.ofHours(amount));
+                    break;
+                case 'm':
+                    result.add(Duration.ofMinutes(amount));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Lead time must end in d, h or m: " + part);
+            }
+        }
+        return result;
+    }
+
+    static String formatLeadTime(Duration lead) {
+        if (lead.toMinutes() % 60 == 0) {
+            return lead.toHours() + "h";
+        }
+        return lead.toMinutes() + "m";
+    }
+
+    private static final class Pending {
+        final Appointment appointment;
+        final LocalDateTime appointmentTime;
+        final int lead; // index into leadTimes
+        final long dueMillis;
+        TimingWheel.Timeout<Pending> timeout;
+        volatile boolean discarded;
+
+        Pending(Appointment appointment, LocalDateTime appointmentTime, int lead, long dueMillis) {
+            this.appointment = appointment;
+            this.appointmentTime = appointmentTime;
+            this.lead = lead;
+            this.dueMillis = dueMillis;
+        }
+    }
+}
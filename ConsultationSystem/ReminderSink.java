@@ -0,0 +1,13 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+// Where ReminderService sends due reminders (e-mail, push, a log file, ...). Called on
+// the single reminder thread, so implementations should not block for long.
+// ReminderService closes its sink when it is closed.
+public interface ReminderSink extends Closeable {
+    void deliver(Reminder reminder) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,226 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Warm standby side of log-shipping replication. Applies the primary's journal records
+// to the local managers in LSN order and appends them to the local journal, so the
+// standby's own files stay current and it can take over after promote(). The managers'
+// own journals must be detached while following, or every record would be written twice.
+//
+// A checksum failure, a gap in the LSNs or a lost connection ends the session; the
+// follower reconnects and either resumes after its last applied LSN or, if the primary
+// cannot serve that any more, takes a fresh snapshot.
+public class ReplicationFollower implements Closeable {
+    private static final long RETRY_MS = 1_000;
+    private static final long ACK_EVERY = 1_000;
+
+    private static final Metrics.Timer LAG = Metrics.timer("replication.lag");
+    private static final LongAdder APPLIED = Metrics.counter("replication.applied");
+    private static final LongAdder RESYNCS = Metrics.counter("replication.resyncs");
+
+    private final String host;
+    private final int port;
+    private final Journal journal; // null without journal mode
+    private final UserManager userManager;
+    private final AppointmentManager appointmentManager;
+    private final RescheduleManager rescheduleManager;
+    private final FeedbackManager feedbackManager;
+    private final Runnable afterSnapshot;
+
+    private volatile long epoch;
+    private volatile boolean haveEpoch;
+    private volatile long appliedLsn;
+    private volatile long primaryLsn;
+    private volatile long lagMillis;
+    private volatile long lastContactMillis;
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private volatile Socket socket;
+    private Thread thread;
+    private String lastError; // follower thread only
+
+    // afterSnapshot runs once a full resync has been applied, e.g. to write a local snapshot
+    public ReplicationFollower(String host, int port, Journal journal, UserManager userManager,
+                               AppointmentManager appointmentManager, RescheduleManager rescheduleManager,
+                               FeedbackManager feedbackManager, Runnable afterSnapshot) {
+        this.host = host;
+        this.port = port;
+        this.journal = journal;
+        this.userManager = userManager;
+        this.appointmentManager = appointmentManager;
+        this.rescheduleManager = rescheduleManager;
+        this.feedbackManager = feedbackManager;
+        this.afterSnapshot = afterSnapshot;
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "pcs-replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stop following so this process can take writes. Records already received are applied;
+    // anything the primary had not shipped yet is lost, as with any asynchronous standby.
+    public void promote() throws IOException {
+        close();
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", "follower");
+        status.put("primary", host + ":" + port);
+        status.put("connected", connected);
+        status.put("appliedLsn", appliedLsn);
+        status.put("primaryLsn", primaryLsn);
+        status.put("lagRecords", Math.max(0, primaryLsn - appliedLsn));
+        status.put("lagMillis", lagMillis);
+        status.put("lastContactMillisAgo", lastContactMillis == 0 ? -1 : System.currentTimeMillis() - lastContactMillis);
+        return status;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                follow();
+            } catch (IOException e) {
+                // Log each distinct failure once rather than every retry
+                String message = e.getMessage() != null ? e.getMessage() : "connection closed";
+                if (!closed && !message.equals(lastError)) {
+                    System.err.println("Replication from " + host + ":" + port + " interrupted: " + message);
+                    lastError = message;
+                }
+            } finally {
+                connected = false;
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(RETRY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void follow() throws IOException {
+        try (Socket s = new Socket()) {
+            socket = s;
+            if (closed) {
+                return;
+            }
+            s.connect(new InetSocketAddress(host, port), 5_000);
+            s.setTcpNoDelay(true);
+            // Heartbeats arrive every second; silence this long means the primary is gone
+            s.setSoTimeout(10_000);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            ReplicationFrame.write(out, ReplicationFrame.HELLO, appliedLsn, System.currentTimeMillis(),
+                    haveEpoch ? ReplicationFrame.longPayload(epoch) : new byte[0]);
+            out.flush();
+
+            ReplicationFrame welcome = ReplicationFrame.read(in);
+            if (welcome.kind != ReplicationFrame.WELCOME) {
+                throw new IOException("Expected WELCOME from primary");
+            }
+            connected = true;
+            lastError = null;
+            primaryLsn = welcome.lsn;
+            long welcomeEpoch = welcome.payloadLong();
+            boolean inSnapshot = false;
+            long unacked = 0;
+            while (!closed) {
+                ReplicationFrame frame = ReplicationFrame.read(in);
+                long now = System.currentTimeMillis();
+                lastContactMillis = now;
+                switch (frame.kind) {
+                    case ReplicationFrame.SNAPSHOT -> {
+                        inSnapshot = true;
+                        RESYNCS.increment();
+                        haveEpoch = false;
+                        clearState();
+                    }
+                    case ReplicationFrame.RECORD -> {
+                        if (inSnapshot) {
+                            apply(frame.payload);
+                        } else {
+                            if (frame.lsn != appliedLsn + 1) {
+                                throw new IOException("Replication gap: expected LSN " + (appliedLsn + 1)
+                                        + " but got " + frame.lsn);
+                            }
+                            apply(frame.payload);
+                            if (journal != null) {
+                                journal.appendRecord(frame.payload);
+                            }
+                            appliedLsn = frame.lsn;
+                            primaryLsn = Math.max(primaryLsn, frame.lsn);
+                            lagMillis = Math.max(0, now - frame.millis);
+                            LAG.record(lagMillis * 1_000_000);
+                            APPLIED.increment();
+                            unacked++;
+                        }
+                    }
+                    case ReplicationFrame.SNAPSHOT_END -> {
+                        inSnapshot = false;
+                        appliedLsn = frame.lsn;
+                        epoch = welcomeEpoch;
+                        haveEpoch = true;
+                        if (afterSnapshot != null) {
+                            afterSnapshot.run();
+                        }
+                        unacked++;
+                    }
+                    case ReplicationFrame.HEARTBEAT -> {
+                        primaryLsn = frame.lsn;
+                        if (appliedLsn >= primaryLsn) {
+                            lagMillis = 0;
+                        }
+                        unacked++;
+                    }
+                    default -> throw new IOException("Unexpected replication frame " + frame.kind);
+                }
+                // Acknowledge once caught up with what has arrived, or periodically under load
+                if (unacked > 0 && !inSnapshot && (in.available() == 0 || unacked >= ACK_EVERY)) {
+                    ReplicationFrame.write(out, ReplicationFrame.ACK, appliedLsn, now, new byte[0]);
+                    out.flush();
+                    unacked = 0;
+                }
+            }
+        } finally {
+            socket = null;
+        }
+    }
+
+    private void apply(byte[] record) throws IOException {
+        Journal.applyRecord(record, userManager, appointmentManager, rescheduleManager, feedbackManager);
+    }
+
+    private void clearState() {
+        rescheduleManager.clearRequests();
+        feedbackManager.clearFeedback();
+        appointmentManager.setAppointments(List.of());
+        userManager.clearUsers();
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+// Wire format shared by ReplicationPrimary and ReplicationFollower. Every frame is
+// [byte kind][long lsn][long millis][int length][payload][int crc32], the checksum
+// covering everything before it. A frame that fails the check drops the connection,
+// and the follower reconnects and resumes from its last applied LSN.
+final class ReplicationFrame {
+    static final byte HELLO = 1;        // follower: lsn = last applied, payload = primary epoch it follows (or empty)
+    static final byte WELCOME = 2;      // primary: lsn = its last LSN, payload = its epoch
+    static final byte SNAPSHOT = 3;     // primary: full resync follows; the follower clears its state
+    static final byte RECORD = 4;       // one journal record; lsn 0 while inside a snapshot
+    static final byte SNAPSHOT_END = 5; // lsn = the position the snapshot corresponds to
+    static final byte HEARTBEAT = 6;    // primary, when idle: lsn = its last LSN
+    static final byte ACK = 7;          // follower: lsn = last applied
+
+    private static final int HEADER = 1 + 8 + 8 + 4;
+    private static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+    final byte kind;
+    final long lsn;
+    final long millis; // primary clock when the record was appended (or the frame sent)
+    final byte[] payload;
+
+    private ReplicationFrame(byte kind, long lsn, long millis, byte[] payload) {
+        this.kind = kind;
+        this.lsn = lsn;
+        this.millis = millis;
+        this.payload = payload;
+    }
+
+    // Callers flush; a burst of records goes out in one write
+    static void write(DataOutputStream out, byte kind, long lsn, long millis, byte[] payload) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.put(kind).putLong(lsn).putLong(millis).putInt(payload.length);
+        CRC32 crc = new CRC32();
+        crc.update(header.array());
+        crc.update(payload);
+        out.write(header.array());
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+
+    static ReplicationFrame read(DataInputStream in) throws IOException {
+        byte[] header = new byte[HEADER];
+        in.readFully(header);
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        byte kind = buffer.get();
+        long lsn = buffer.getLong();
+        long millis = buffer.getLong();
+        int length = buffer.getInt();
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IOException("Corrupt replication frame (length " + length + ")");
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        crc.update(payload);
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new IOException("Replication frame checksum mismatch at LSN " + lsn);
+        }
+        return new ReplicationFrame(kind, lsn, millis, payload);
+    }
+
+    static byte[] longPayload(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+
+    long payloadLong() {
+        return ByteBuffer.wrap(payload).getLong();
+    }
+}
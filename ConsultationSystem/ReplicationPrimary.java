@@ -0,0 +1,254 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Primary side of log-shipping replication. Every journal record is numbered with a
+// log sequence number (LSN) as it is appended and streamed, in order and checksummed
+// (see ReplicationFrame), to each connected follower.
+//
+// A follower that reconnects within the last pcs.replication.backlog records (default
+// 100000) of the same primary run resumes where it left off; any other follower is
+// sent the current state as a stream of records first, then the live log. The snapshot
+// is built while live records queue up, so some of those are already in it. The follower
+// still ends up in the primary's state because replay finds what a record changes by ID
+// (appointment, request or feedback ID, or username) and skips effects that are already
+// there: an add whose ID exists, a reschedule to the time the appointment already has, a
+// change to an appointment that is gone. See Journal.apply.
+public class ReplicationPrimary implements Closeable {
+    public static final int BACKLOG = Integer.getInteger("pcs.replication.backlog", 100_000);
+    private static final long HEARTBEAT_MS = 1_000;
+
+    private static final LongAdder SHIPPED = Metrics.counter("replication.shipped");
+    private static final LongAdder SHIPPED_BYTES = Metrics.counter("replication.shipped.bytes");
+    private static final LongAdder SNAPSHOTS = Metrics.counter("replication.snapshots");
+
+    private final Journal journal;
+    private final UserManager userManager;
+    private final AppointmentManager appointmentManager;
+    private final RescheduleManager rescheduleManager;
+    private final FeedbackManager feedbackManager;
+    // Identifies this primary run; LSNs restart from 1 with each one
+    private final long epoch = new SecureRandom().nextLong();
+    private final ArrayDeque<Entry> backlog = new ArrayDeque<>(); // guarded by journal
+    private volatile long lastLsn; // written under the journal lock
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    public ReplicationPrimary(Journal journal, UserManager userManager, AppointmentManager appointmentManager,
+                              RescheduleManager rescheduleManager, FeedbackManager feedbackManager) {
+        this.journal = journal;
+        this.userManager = userManager;
+        this.appointmentManager = appointmentManager;
+        this.rescheduleManager = rescheduleManager;
+        this.feedbackManager = feedbackManager;
+    }
+
+    public void start(String host, int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(host, port));
+        journal.setListener(this::recordAppended);
+        Thread acceptor = new Thread(this::acceptLoop, "pcs-replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Role, position and each follower's acknowledged position, for /api/replication
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", "primary");
+        status.put("epoch", Long.toHexString(epoch));
+        status.put("lsn", lastLsn);
+        List<Object> followers = new ArrayList<>();
+        for (Session session : sessions) {
+            Map<String, Object> follower = new LinkedHashMap<>();
+            follower.put("address", String.valueOf(session.socket.getRemoteSocketAddress()));
+            follower.put("ackedLsn", session.ackedLsn);
+            follower.put("lagRecords", Math.max(0, lastLsn - session.ackedLsn));
+            followers.add(follower);
+        }
+        status.put("followers", followers);
+        return status;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        journal.setListener(null);
+        serverSocket.close();
+        for (Session session : sessions) {
+            session.close();
+        }
+    }
+
+    // Called by the journal, under its lock, so LSNs follow journal order
+    private void recordAppended(byte[] record) {
+        Entry entry = new Entry(lastLsn + 1, System.currentTimeMillis(), record);
+        lastLsn = entry.lsn;
+        backlog.add(entry);
+        if (backlog.size() > BACKLOG) {
+            backlog.poll();
+        }
+        for (Session session : sessions) {
+            if (!session.queue.offer(entry)) {
+                // Too far behind to buffer; it will reconnect and catch up from the backlog or a snapshot
+                session.close();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                Session session = new Session(socket);
+                Thread thread = new Thread(session::run, "pcs-replication-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Replication accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long lsn;
+        final long millis;
+        final byte[] record;
+
+        Entry(long lsn, long millis, byte[] record) {
+            this.lsn = lsn;
+            this.millis = millis;
+            this.record = record;
+        }
+    }
+
+    // One follower connection: this thread sends, a second one reads acknowledgements
+    private final class Session {
+        final Socket socket;
+        final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>(BACKLOG);
+        volatile long ackedLsn;
+
+        Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        void run() {
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout((int) (10 * HEARTBEAT_MS));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+                ReplicationFrame hello = ReplicationFrame.read(in);
+                if (hello.kind != ReplicationFrame.HELLO) {
+                    throw new IOException("Expected HELLO from follower");
+                }
+                boolean resume;
+                long startLsn;
+                synchronized (journal) {
+                    resume = hello.payload.length == 8 && hello.payloadLong() == epoch && hello.lsn <= lastLsn
+                            && (hello.lsn == lastLsn || (!backlog.isEmpty() && backlog.peek().lsn <= hello.lsn + 1));
+                    startLsn = resume ? hello.lsn : lastLsn;
+                    if (resume) {
+                        for (Entry entry : backlog) {
+                            if (entry.lsn > hello.lsn) {
+                                queue.add(entry);
+                            }
+                        }
+                    }
+                    ackedLsn = startLsn;
+                    sessions.add(this);
+                }
+                socket.setSoTimeout(0);
+                Thread reader = new Thread(() -> readAcks(in), Thread.currentThread().getName() + "-acks");
+                reader.setDaemon(true);
+                reader.start();
+
+                ReplicationFrame.write(out, ReplicationFrame.WELCOME, lastLsn, System.currentTimeMillis(),
+                        ReplicationFrame.longPayload(epoch));
+                if (!resume) {
+                    sendSnapshot(out, startLsn);
+                }
+                out.flush();
+                byte[] empty = new byte[0];
+                while (!closed && !socket.isClosed()) {
+                    Entry entry = queue.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+                    if (entry == null) {
+                        ReplicationFrame.write(out, ReplicationFrame.HEARTBEAT, lastLsn, System.currentTimeMillis(), empty);
+                    }
+                    while (entry != null) {
+                        ReplicationFrame.write(out, ReplicationFrame.RECORD, entry.lsn, entry.millis, entry.record);
+                        SHIPPED.increment();
+                        SHIPPED_BYTES.add(entry.record.length);
+                        entry = queue.poll();
+                    }
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                if (!closed && !socket.isClosed()) {
+                    System.err.println("Replication to " + socket.getRemoteSocketAddress() + " stopped: " + e.getMessage());
+                }
+            } finally {
+                close();
+            }
+        }
+
+        // Current state as records, built outside the journal lock; live records queue up meanwhile
+        private void sendSnapshot(DataOutputStream out, long startLsn) throws IOException {
+            SNAPSHOTS.increment();
+            long now = System.currentTimeMillis();
+            ReplicationFrame.write(out, ReplicationFrame.SNAPSHOT, startLsn, now, new byte[0]);
+            for (byte[] record : Journal.snapshotRecords(userManager, appointmentManager, rescheduleManager,
+                    feedbackManager)) {
+                ReplicationFrame.write(out, ReplicationFrame.RECORD, 0, now, record);
+                SHIPPED_BYTES.add(record.length);
+            }
+            ReplicationFrame.write(out, ReplicationFrame.SNAPSHOT_END, startLsn, now, new byte[0]);
+        }
+
+        private void readAcks(DataInputStream in) {
+            try {
+                while (true) {
+                    ReplicationFrame frame = ReplicationFrame.read(in);
+                    if (frame.kind == ReplicationFrame.ACK) {
+                        ackedLsn = frame.lsn;
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            sessions.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+}
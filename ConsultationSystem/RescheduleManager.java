@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Stores rescheduling requests, indexed by request ID, by original appointment and by
+// lecturer, with each lecturer's pending requests queued in requestDate order. Requests
+// are dropped once their appointment is cancelled or archived: they can no longer be
+// approved, and snapshots only keep requests whose appointment is still there.
+public class RescheduleManager {
+    private static final Comparator<ReschedulingRequest> BY_REQUEST_DATE =
+            Comparator.comparing(ReschedulingRequest::getRequestDate)
+                    .thenComparing(ReschedulingRequest::getRequestId);
+
+    private final AppointmentManager appointmentManager;
+    private final Map<String, ReschedulingRequest> byId = new ConcurrentHashMap<>();
+    private final Map<Appointment, List<ReschedulingRequest>> byAppointment = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<ReschedulingRequest>> pendingByLecturer = new ConcurrentHashMap<>();
+    private volatile Journal journal; // Optional write-ahead journal for mutations
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>(); // Notified after mutations
+
+    // Outcome of a batch decision
+    public static class BatchResult {
+        private final List<ReschedulingRequest> approved = new ArrayList<>();
+        private final List<ReschedulingRequest> rejected = new ArrayList<>();
+
+        public List<ReschedulingRequest> getApproved() {
+            return approved;
+        }
+
+        public List<ReschedulingRequest> getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return approved.size() + " approved, " + rejected.size() + " rejected";
+        }
+    }
+
+    public RescheduleManager(AppointmentManager appointmentManager) {
+        this.appointmentManager = appointmentManager;
+        appointmentManager.getEventBus().subscribe(this::onAppointmentEvent);
+    }
+
+    // Attach a journal; subsequent submissions and decisions are appended to it
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Register a callback run after every submission or batch decision
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Submit a new request; ignored if its appointment was cancelled in the meantime
+    public void submitRequest(ReschedulingRequest request) {
+        restoreRequest(request);
+        Appointment appointment = request.getOriginalAppointment();
+        if (appointmentManager.findHotById(appointment.getId()) == null) {
+            forget(appointment);
+            return;
+        }
+        Journal current = journal;
+        if (current != null) {
+            current.logRequestSubmitted(request);
+        }
+        changed();
+    }
+
+    // Bulk insert for imports; not journaled, so callers persist the result with a
+    // snapshot. Returns the requests skipped because their ID already exists.
+    public List<ReschedulingRequest> addRequests(List<ReschedulingRequest> batch) {
+        List<ReschedulingRequest> skipped = new ArrayList<>();
+        for (ReschedulingRequest request : batch) {
+            if (byId.containsKey(request.getRequestId())) {
+                skipped.add(request);
+            } else {
+                restoreRequest(request);
+            }
+        }
+        if (skipped.size() < batch.size()) {
+            changed();
+        }
+        return skipped;
+    }
+
+    // Add a persisted request without journaling
+    public void restoreRequest(ReschedulingRequest request) {
+        if (byId.putIfAbsent(request.getRequestId(), request) != null) {
+            return;
+        }
+        byAppointment.computeIfAbsent(request.getOriginalAppointment(), a -> new CopyOnWriteArrayList<>())
+                .add(request);
+        if (request.getStatus() == ReschedulingRequest.RequestStatus.PENDING) {
+            pendingByLecturer.computeIfAbsent(lecturerOf(request), l -> new ConcurrentSkipListSet<>(BY_REQUEST_DATE))
+                    .add(request);
+        }
+    }
+
+    // Drop every request (not journaled), e.g. before a replica reloads its state
+    public void clearRequests() {
+        byId.clear();
+        byAppointment.clear();
+        pendingByLecturer.clear();
+        changed();
+    }
+
+    public ReschedulingRequest findById(String requestId) {
+        return byId.get(requestId);
+    }
+
+    public List<ReschedulingRequest> getRequestsForAppointment(Appointment appointment) {
+        List<ReschedulingRequest> requests = byAppointment.get(appointment);
+        return requests == null ? new ArrayList<>() : new ArrayList<>(requests);
+    }
+
+    // A lecturer's pending requests, oldest first
+    public List<ReschedulingRequest> getPendingForLecturer(String lecturerName) {
+        NavigableSet<ReschedulingRequest> pending = pendingByLecturer.get(lecturerName);
+        return pending == null ? new ArrayList<>() : new ArrayList<>(pending);
+    }
+
+    public List<ReschedulingRequest> getAllRequests() {
+        List<ReschedulingRequest> all = new ArrayList<>(byId.values());
+        all.sort(BY_REQUEST_DATE);
+        return all;
+    }
+
+    // Approve the given requests. Requests that fail isValidReschedulingRequest or would
+    // double-book someone are rejected instead. All changes are written in one journal flush.
+    public BatchResult approve(Collection<String> requestIds) {
+        return decide(requestIds, true);
+    }
+
+    public BatchResult reject(Collection<String> requestIds) {
+        return decide(requestIds, false);
+    }
+
+    // Approve every pending request of a lecturer, oldest first
+    public BatchResult approveAllPending(String lecturerName) {
+        return approve(getPendingForLecturer(lecturerName).stream()
+                .map(ReschedulingRequest::getRequestId)
+                .toList());
+    }
+
+    public BatchResult rejectAllPending(String lecturerName) {
+        return reject(getPendingForLecturer(lecturerName).stream()
+                .map(ReschedulingRequest::getRequestId)
+                .toList());
+    }
+
+    private BatchResult decide(Collection<String> requestIds, boolean approve) {
+        BatchResult result = new BatchResult();
+        Runnable decisions = () -> {
+            for (String requestId : requestIds) {
+                ReschedulingRequest request = byId.get(requestId);
+                if (request == null || !dequeue(request)) {
+                    continue;
+                }
+                boolean approved = false;
+                if (approve) {
+                    try {
+                        approved = appointmentManager.approveReschedulingRequest(request);
+                    } catch (SchedulingConflictException e) {
+                        request.reject();
+                    }
+                } else {
+                    request.reject();
+                }
+                (approved ? result.approved : result.rejected).add(request);
+                Journal current = journal;
+                if (current != null) {
+                    current.logRequestDecided(request);
+                }
+            }
+        };
+        Journal current = journal;
+        if (current != null) {
+            current.batch(decisions);
+        } else {
+            decisions.run();
+        }
+        changed();
+        return result;
+    }
+
+    // Apply a journaled decision during replay
+    void restoreDecision(ReschedulingRequest request, ReschedulingRequest.RequestStatus status) {
+        if (dequeue(request)) {
+            if (status == ReschedulingRequest.RequestStatus.APPROVED) {
+                request.approve();
+            } else {
+                request.reject();
+            }
+        }
+    }
+
+    private void onAppointmentEvent(AppointmentEvent event) {
+        if (event.getType() == AppointmentEvent.Type.CANCELLED || event.getType() == AppointmentEvent.Type.ARCHIVED) {
+            forget(event.getAppointment());
+        }
+    }
+
+    // Drop every request for an appointment that has left memory
+    private void forget(Appointment appointment) {
+        List<ReschedulingRequest> requests = byAppointment.remove(appointment);
+        if (requests == null) {
+            return;
+        }
+        for (ReschedulingRequest request : requests) {
+            byId.remove(request.getRequestId());
+            dequeue(request);
+        }
+    }
+
+    // Remove a request from its lecturer's pending queue; false if it was not pending
+    private boolean dequeue(ReschedulingRequest request) {
+        NavigableSet<ReschedulingRequest> pending = pendingByLecturer.get(lecturerOf(request));
+        return pending != null && pending.remove(request);
+    }
+
+    private static String lecturerOf(ReschedulingRequest request) {
+        return request.getOriginalAppointment().getLecturerName();
+    }
+
+    private void changed() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+}
@@ -29,6 +29,23 @@ public class ReschedulingRequest implements Serializable {
         this.requestDate = LocalDateTime.now();
     }
 
+    // Constructor for requests restored from disk
+    ReschedulingRequest(String requestId,
+                        Appointment originalAppointment,
+                        LocalDateTime proposedTime,
+                        RequestStatus status,
+                        String requesterName,
+                        String requestReason,
+                        LocalDateTime requestDate) {
+        this.requestId = requestId;
+        this.originalAppointment = originalAppointment;
+        this.proposedTime = proposedTime;
+        this.status = status;
+        this.requesterName = requesterName;
+        this.requestReason = requestReason;
+        this.requestDate = requestDate;
+    }
+
     // Getters
     public String getRequestId() {
         return requestId;
@@ -0,0 +1,49 @@
+// A pair of overlapping appointments for the same lecturer or student, or (on import)
+// an appointment whose ID is already taken
+public class SchedulingConflict {
+    private final String role;
+    private final String name;
+    private final Appointment existing;
+    private final Appointment conflicting;
+
+    public SchedulingConflict(String role, String name, Appointment existing, Appointment conflicting) {
+        this.role = role;
+        this.name = name;
+        this.existing = existing;
+        this.conflicting = conflicting;
+    }
+
+    // An imported appointment carrying the ID of one that already exists
+    public static SchedulingConflict duplicateId(Appointment existing, Appointment conflicting) {
+        return new SchedulingConflict("id", String.valueOf(conflicting.getId()), existing, conflicting);
+    }
+
+    // "lecturer", "student" or "id"
+    public String getRole() {
+        return role;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Appointment getExisting() {
+        return existing;
+    }
+
+    public Appointment getConflicting() {
+        return conflicting;
+    }
+
+    @Override
+    public String toString() {
+        if (role.equals("id")) {
+            return String.format("id %s is already taken by %s with %s at %s",
+                    name, existing.getStudentName(), existing.getLecturerName(), existing.getAppointmentTime());
+        }
+        return String.format("%s %s already has an appointment %s-%s overlapping %s-%s",
+                role, name,
+                existing.getAppointmentTime(), existing.getEndTime().toLocalTime(),
+                conflicting.getAppointmentTime(), conflicting.getEndTime().toLocalTime());
+    }
+}
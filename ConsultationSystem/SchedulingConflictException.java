@@ -0,0 +1,13 @@
+// Thrown when a booking or reschedule would overlap an existing appointment
+public class SchedulingConflictException extends IllegalArgumentException {
+    private final SchedulingConflict conflict;
+
+    public SchedulingConflictException(SchedulingConflict conflict) {
+        super(conflict.toString());
+        this.conflict = conflict;
+    }
+
+    public SchedulingConflict getConflict() {
+        return conflict;
+    }
+}
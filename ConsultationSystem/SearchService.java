@@ -0,0 +1,199 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keyword search over appointment descriptions and feedback, backed by two TextIndexes
+// kept current from the managers' change events on one background thread, so bookings
+// never wait for indexing and results trail writes by moments.
+//
+// The appointment index also covers archived months and is saved beside the data files
+// whenever they are compacted. On start it is reconciled with what the snapshot and
+// journal restored (replayed records publish no events), or built from the full
+// history if there is no saved index. Feedback is all in memory, so its index is
+// rebuilt on start.
+//
+//   -Dpcs.search=false  disable search
+public class SearchService implements AutoCloseable {
+    public static final boolean ENABLED = !"false".equals(System.getProperty("pcs.search"));
+
+    private static final Metrics.Timer QUERY_TIMER = Metrics.timer("search.query");
+
+    private final AppointmentManager appointmentManager;
+    private final FeedbackManager feedbackManager;
+    private final TextIndex appointments;
+    private final TextIndex feedback = new TextIndex();
+    private final boolean rebuild;
+    // Feedback IDs are strings; the index keys them by number
+    private final Map<String, Long> feedbackKeys = new ConcurrentHashMap<>();
+    private final Map<Long, String> feedbackIds = new ConcurrentHashMap<>();
+    private final AtomicLong nextFeedbackKey = new AtomicLong(1);
+    private final ExecutorService executor;
+    private final List<EventBus.Subscription> subscriptions = new ArrayList<>();
+
+    // saved is the index loaded from disk, or null to build one from the full history
+    public SearchService(AppointmentManager appointmentManager, FeedbackManager feedbackManager, TextIndex saved) {
+        this.appointmentManager = appointmentManager;
+        this.feedbackManager = feedbackManager;
+        this.appointments = saved != null ? saved : new TextIndex();
+        this.rebuild = saved == null;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "pcs-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Follow changes and catch up with the current data in the background, all on one
+    // thread. Events from before the catch-up are harmless: it re-reads everything anyway.
+    public synchronized void start() {
+        subscriptions.add(appointmentManager.getEventBus().subscribeAsync(executor, this::onAppointmentEvents));
+        subscriptions.add(feedbackManager.getEventBus().subscribeAsync(executor, this::onFeedbackEvents));
+        executor.execute(() -> {
+            long start = Metrics.Timer.start();
+            if (rebuild) {
+                for (Appointment appointment : appointmentManager.getAppointmentHistory()) {
+                    index(appointment);
+                }
+            }
+            reconcileAppointments();
+            reconcileFeedback();
+            Metrics.recordPhase("search.catchUp", start, Metrics.LOAD_WARN_MS);
+        });
+    }
+
+    // The index written out with the data files
+    public TextIndex getAppointmentIndex() {
+        return appointments;
+    }
+
+    // Matching appointments, newest booking first, at most limit of them
+    public List<Appointment> searchAppointments(String query, String lecturer, LocalDateTime from, LocalDateTime to,
+                                                int limit) {
+        long start = Metrics.Timer.start();
+        try {
+            long[] keys = appointments.search(query, lecturer, from, to);
+            List<Appointment> result = new ArrayList<>();
+            for (int i = keys.length - 1; i >= 0 && result.size() < limit; i--) {
+                Appointment appointment = appointmentManager.findById(keys[i]);
+                if (appointment != null) {
+                    result.add(appointment);
+                }
+            }
+            return result;
+        } finally {
+            QUERY_TIMER.stop(start);
+        }
+    }
+
+    // Matching feedback, most recently indexed first, at most limit of them
+    public List<Feedback> searchFeedback(String query, String lecturer, LocalDateTime from, LocalDateTime to,
+                                         int limit) {
+        long start = Metrics.Timer.start();
+        try {
+            long[] keys = feedback.search(query, lecturer, from, to);
+            List<Feedback> result = new ArrayList<>();
+            for (int i = keys.length - 1; i >= 0 && result.size() < limit; i--) {
+                String id = feedbackIds.get(keys[i]);
+                Feedback item = id == null ? null : feedbackManager.findById(id);
+                if (item != null) {
+                    result.add(item);
+                }
+            }
+            return result;
+        } finally {
+            QUERY_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (EventBus.Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        executor.shutdownNow();
+    }
+
+    // Wait until everything queued so far has been indexed (for tests and shutdown)
+    public void awaitIndexed(long timeoutMillis) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void onAppointmentEvents(List<AppointmentEvent> events) {
+        for (AppointmentEvent event : events) {
+            switch (event.getType()) {
+                case CREATED:
+                    index(event.getAppointment());
+                    break;
+                case CANCELLED:
+                    appointments.remove(event.getAppointment().getId());
+                    break;
+                case RESCHEDULED:
+                    appointments.move(event.getAppointment().getId(), event.getAppointment().getAppointmentTime());
+                    break;
+                case RELOADED:
+                    reconcileAppointments();
+                    break;
+                default:
+                    // Confirmations don't change the text; archived appointments stay searchable
+                    break;
+            }
+        }
+    }
+
+    private void onFeedbackEvents(List<FeedbackEvent> events) {
+        for (FeedbackEvent event : events) {
+            if (event.getType() == FeedbackEvent.Type.RELOADED) {
+                reconcileFeedback();
+            } else {
+                index(event.getFeedback());
+            }
+        }
+    }
+
+    private void index(Appointment appointment) {
+        appointments.add(appointment.getId(), appointment.getDescription(), appointment.getLecturerName(),
+                appointment.getAppointmentTime());
+    }
+
+    private void index(Feedback item) {
+        long key = feedbackKeys.computeIfAbsent(item.getFeedbackId(), id -> {
+            long assigned = nextFeedbackKey.getAndIncrement();
+            feedbackIds.put(assigned, id);
+            return assigned;
+        });
+        feedback.add(key, item.getContent(), item.getLecturerName(), item.getSubmittedAt());
+    }
+
+    // Index every in-memory appointment (unchanged ones only refresh their time) and drop
+    // documents for appointments that are gone, keeping the archived months'
+    private void reconcileAppointments() {
+        Set<Long> hot = new HashSet<>();
+        for (Appointment appointment : appointmentManager.getAllAppointments()) {
+            index(appointment);
+            hot.add(appointment.getId());
+        }
+        AppointmentArchive archive = appointmentManager.getArchive();
+        LocalDateTime boundary = archive == null ? null : archive.getBoundary();
+        appointments.removeIf((key, time) -> !hot.contains(key) && (boundary == null || !time.isBefore(boundary)));
+    }
+
+    private void reconcileFeedback() {
+        Set<Long> live = new HashSet<>();
+        for (Feedback item : feedbackManager.getAllFeedback()) {
+            index(item);
+            live.add(feedbackKeys.get(item.getFeedbackId()));
+        }
+        feedback.removeIf((key, time) -> !live.contains(key));
+    }
+}
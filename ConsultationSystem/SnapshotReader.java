@@ -0,0 +1,217 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming reader for files written by SnapshotWriter. Files from older schema
+// versions are read by checking getVersion() before decoding newer fields.
+public class SnapshotReader implements Closeable {
+    private final InputStream in;
+    private final int version;
+    private final int kind;
+    private final List<String> dictionary = new ArrayList<>();
+    private byte[] record = new byte[256];
+    private int position;
+    private int limit;
+    private int count;
+    private long sequence;
+    private boolean finished;
+
+    public SnapshotReader(InputStream in) throws IOException {
+        this.in = new BufferedInputStream(in, 64 * 1024);
+        int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        if (magic != SnapshotWriter.MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        this.version = (readByte() << 8) | readByte();
+        if (version > SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        this.kind = readByte();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    // Returns the next user, or null at the end of the file
+    public User readUser() throws IOException {
+        expectKind(SnapshotWriter.KIND_USERS);
+        if (!nextRecord()) {
+            return null;
+        }
+        return new User(getString(), getString(), getString());
+    }
+
+    // Returns the next appointment, or null at the end of the file
+    public Appointment readAppointment() throws IOException {
+        expectKind(SnapshotWriter.KIND_APPOINTMENTS);
+        if (!nextRecord()) {
+            return null;
+        }
+        String student = getString();
+        String lecturer = getString();
+        long epochMinute = getVarLong();
+        String description = getString();
+        String status = getString();
+        long flags = getVarLong();
+        int duration = version >= 2 ? (int) getVarLong() : Appointment.DEFAULT_DURATION_MINUTES;
+        Appointment appointment = new Appointment(student, lecturer,
+                SnapshotWriter.fromEpochMinute(epochMinute), description, duration);
+        appointment.setStatus(status);
+        appointment.setConfirmed((flags & SnapshotWriter.FLAG_CONFIRMED) != 0);
+        if (version >= 3) {
+            appointment.setId(getVarLong());
+        }
+        return appointment;
+    }
+
+    // Returns the next request whose appointment still exists, or null at the end of the file
+    public ReschedulingRequest readReschedulingRequest(AppointmentManager appointmentManager) throws IOException {
+        expectKind(SnapshotWriter.KIND_RESCHEDULES);
+        while (nextRecord()) {
+            String requestId = getString();
+            String student = getString();
+            String lecturer = getString();
+            long appointmentMinute = getVarLong();
+            long proposedMinute = getVarLong();
+            ReschedulingRequest.RequestStatus status = ReschedulingRequest.RequestStatus.values()[(int) getVarLong()];
+            String requester = getString();
+            String reason = getString();
+            long requestSecond = getVarLong();
+            Appointment appointment = version >= 3
+                    ? appointmentManager.findById(getVarLong())
+                    : appointmentManager.findAppointment(student, lecturer,
+                            SnapshotWriter.fromEpochMinute(appointmentMinute));
+            if (appointment != null) {
+                return new ReschedulingRequest(requestId, appointment, SnapshotWriter.fromEpochMinute(proposedMinute),
+                        status, requester, reason, LocalDateTime.ofEpochSecond(requestSecond, 0, ZoneOffset.UTC));
+            }
+        }
+        return null;
+    }
+
+    // Returns the next feedback, or null at the end of the file
+    public Feedback readFeedback() throws IOException {
+        expectKind(SnapshotWriter.KIND_FEEDBACK);
+        if (!nextRecord()) {
+            return null;
+        }
+        return new Feedback(getString(), getString(), getString(), getString(), (int) getVarLong(),
+                SnapshotWriter.fromEpochMinute(getVarLong()));
+    }
+
+    public int getRecordCount() {
+        return count;
+    }
+
+    // Sequence from the trailer (0 before version 3); valid once all records are read
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expectKind(int expected) throws IOException {
+        if (kind != expected) {
+            throw new IOException("Snapshot holds kind " + kind + ", expected " + expected);
+        }
+    }
+
+    private boolean nextRecord() throws IOException {
+        if (finished) {
+            return false;
+        }
+        int length = (int) readRawVarLong();
+        if (length == 0) {
+            finished = true;
+            long expected = readRawVarLong();
+            if (expected != count) {
+                throw new IOException("Snapshot truncated: expected " + expected + " records, read " + count);
+            }
+            if (version >= 3) {
+                sequence = readRawVarLong();
+            }
+            return false;
+        }
+        if (length > record.length) {
+            record = new byte[Math.max(length, record.length * 2)];
+        }
+        int read = in.readNBytes(record, 0, length);
+        if (read < length) {
+            throw new EOFException("Snapshot truncated inside a record");
+        }
+        position = 0;
+        limit = length;
+        count++;
+        return true;
+    }
+
+    private String getString() throws IOException {
+        long code = getVarLong();
+        if (code == SnapshotWriter.STRING_NULL) {
+            return null;
+        }
+        if (code >= SnapshotWriter.STRING_REF) {
+            return dictionary.get((int) (code - SnapshotWriter.STRING_REF));
+        }
+        int length = (int) getVarLong();
+        if (position + length > limit) {
+            throw new IOException("Corrupt string in snapshot record");
+        }
+        String value = new String(record, position, length, StandardCharsets.UTF_8);
+        position += length;
+        if (code == SnapshotWriter.STRING_NEW) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+
+    private long getVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IOException("Corrupt varint in snapshot record");
+            }
+            byte b = record[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long in snapshot record");
+    }
+
+    private long readRawVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long in snapshot");
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Snapshot truncated");
+        }
+        return b;
+    }
+}
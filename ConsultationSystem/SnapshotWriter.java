@@ -0,0 +1,194 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Streaming writer for the binary snapshot format.
+//
+// Layout: magic "PCSS", u16 schema version, u8 kind, then records each prefixed by
+// a varint length, a zero length as end marker and a varint record count.
+// Version 2 appends the appointment duration in minutes.
+// Version 3 appends the appointment ID to appointment and request records, and a
+// varint sequence (next ID to hand out) after the record count.
+// Strings go through a per-file dictionary so repeated student/lecturer names and
+// statuses are written once; times are stored as epoch minutes.
+public class SnapshotWriter implements Closeable {
+    static final int MAGIC = 0x50435353; // "PCSS"
+    static final int VERSION = 3;
+    static final int KIND_USERS = 1;
+    static final int KIND_APPOINTMENTS = 2;
+    static final int KIND_RESCHEDULES = 3;
+    static final int KIND_FEEDBACK = 4;
+
+    // String codes: 0 = null, 1 = new dictionary entry, 2 = literal, n >= 3 = entry n - 3
+    static final int STRING_NULL = 0;
+    static final int STRING_NEW = 1;
+    static final int STRING_LITERAL = 2;
+    static final int STRING_REF = 3;
+
+    static final int FLAG_CONFIRMED = 1;
+
+    private final OutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private byte[] record = new byte[256];
+    private int length;
+    private int count;
+    private long sequence;
+    private long bytesWritten;
+
+    public SnapshotWriter(OutputStream out, int kind) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        writeRaw(new byte[] {
+                (byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC,
+                (byte) (VERSION >>> 8), (byte) VERSION, (byte) kind });
+    }
+
+    public void writeUser(User user) throws IOException {
+        length = 0;
+        putString(user.getUsername(), false);
+        putString(user.getPassword(), false);
+        putString(user.getRole(), true);
+        endRecord();
+    }
+
+    public void writeAppointment(Appointment appointment) throws IOException {
+        length = 0;
+        putString(appointment.getStudentName(), true);
+        putString(appointment.getLecturerName(), true);
+        putVarLong(toEpochMinute(appointment.getAppointmentTime()));
+        putString(appointment.getDescription(), false);
+        putString(appointment.getStatus(), true);
+        putVarLong(appointment.isConfirmed() ? FLAG_CONFIRMED : 0);
+        putVarLong(appointment.getDurationMinutes());
+        putVarLong(appointment.getId());
+        endRecord();
+    }
+
+    // Requests refer to their appointment by ID, and by student, lecturer and current
+    // time for readers of older files
+    public void writeReschedulingRequest(ReschedulingRequest request) throws IOException {
+        Appointment appointment = request.getOriginalAppointment();
+        length = 0;
+        putString(request.getRequestId(), false);
+        putString(appointment.getStudentName(), true);
+        putString(appointment.getLecturerName(), true);
+        putVarLong(toEpochMinute(appointment.getAppointmentTime()));
+        putVarLong(toEpochMinute(request.getProposedTime()));
+        putVarLong(request.getStatus().ordinal());
+        putString(request.getRequesterName(), true);
+        putString(request.getRequestReason(), false);
+        putVarLong(request.getRequestDate().toEpochSecond(ZoneOffset.UTC));
+        putVarLong(appointment.getId());
+        endRecord();
+    }
+
+    public void writeFeedback(Feedback feedback) throws IOException {
+        length = 0;
+        putString(feedback.getFeedbackId(), false);
+        putString(feedback.getStudentName(), true);
+        putString(feedback.getLecturerName(), true);
+        putString(feedback.getContent(), false);
+        putVarLong(feedback.getRating());
+        putVarLong(toEpochMinute(feedback.getSubmittedAt()));
+        endRecord();
+    }
+
+    public int getRecordCount() {
+        return count;
+    }
+
+    // ID high-water mark stored in the trailer, e.g. AppointmentManager.getNextId()
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeRawVarLong(0);
+        writeRawVarLong(count);
+        writeRawVarLong(sequence);
+        out.close();
+    }
+
+    static long toEpochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private void endRecord() throws IOException {
+        writeRawVarLong(length);
+        writeRaw(record, length);
+        count++;
+    }
+
+    private void putString(String value, boolean intern) {
+        if (value == null) {
+            putVarLong(STRING_NULL);
+            return;
+        }
+        if (intern) {
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                putVarLong(STRING_REF + index);
+                return;
+            }
+            dictionary.put(value, dictionary.size());
+            putVarLong(STRING_NEW);
+        } else {
+            putVarLong(STRING_LITERAL);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarLong(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, record, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void putVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            record[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        record[length++] = (byte) value;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > record.length) {
+            record = Arrays.copyOf(record, Math.max(record.length * 2, length + extra));
+        }
+    }
+
+    private void writeRawVarLong(long value) throws IOException {
+        byte[] bytes = new byte[10];
+        int len = 0;
+        while ((value & ~0x7FL) != 0) {
+            bytes[len++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[len++] = (byte) value;
+        writeRaw(bytes, len);
+    }
+
+    private void writeRaw(byte[] bytes) throws IOException {
+        writeRaw(bytes, bytes.length);
+    }
+
+    private void writeRaw(byte[] bytes, int len) throws IOException {
+        out.write(bytes, 0, len);
+        bytesWritten += len;
+    }
+}
@@ -0,0 +1,768 @@
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives mixed read/write traffic from many concurrent clients (virtual threads when the
+// runtime has them) and checks the results for lost updates and double bookings.
+//
+// Every student client is the only writer of its own appointments, so it knows exactly
+// what it should see: any view that differs is a stale read, and any difference left at
+// the end is a lost update. Lecturer clients confirm their pending appointments, and the
+// final audit checks those are still confirmed and that no lecturer or student timeline
+// overlaps. Users, bookings and slots come from WorkloadGenerator.
+//
+//   java StressHarness                    in-process, against the managers directly
+//   java StressHarness server             through a ConsultationServer started on a free port
+//   java StressHarness http://host:port   against a running server holding only generated
+//                                         users (import the CSV from WorkloadGenerator first;
+//                                         with over 200 clients, start it with a higher
+//                                         -Dsun.net.httpserver.maxIdleConnections)
+//
+//   -Dpcs.load.clients           student clients (default 200)
+//   -Dpcs.load.lecturerClients   lecturer clients (default 10)
+//   -Dpcs.load.seconds           run time (default 30)
+//   -Dpcs.load.mix               operation weights (default view=50,book=20,cancel=12,reschedule=8,request=5,feedback=5)
+//   -Dpcs.load.seedAppointments  appointments booked before the run, not for http:// (default 10000)
+//   -Dpcs.load.thinkMs           pause between a client's operations (default 0)
+//
+// Over HTTP reschedules are requests only and feedback isn't offered, so their shares go
+// to request and view. Exits with 1 if any invariant was violated.
+public class StressHarness {
+    public static final int CLIENTS = Integer.getInteger("pcs.load.clients", 200);
+    public static final int LECTURER_CLIENTS = Integer.getInteger("pcs.load.lecturerClients", 10);
+    public static final int SECONDS = Integer.getInteger("pcs.load.seconds", 30);
+    public static final String MIX =
+            System.getProperty("pcs.load.mix", "view=50,book=20,cancel=12,reschedule=8,request=5,feedback=5");
+    public static final int SEED_APPOINTMENTS = Integer.getInteger("pcs.load.seedAppointments", 10_000);
+    public static final long THINK_MS = Long.getLong("pcs.load.thinkMs", 0);
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    public enum Op {
+        VIEW, BOOK, CANCEL, RESCHEDULE, REQUEST, FEEDBACK, CONFIRM;
+
+        // What a client does instead when the target doesn't offer this operation
+        Op fallback() {
+            return this == RESCHEDULE ? REQUEST : VIEW;
+        }
+    }
+
+    // Outcomes of a write, mirroring the HTTP statuses
+    static final int OK = 200;
+    static final int NOT_FOUND = 404;
+    static final int CONFLICT = 409;
+
+    // An appointment as the target reports it
+    static final class Booking {
+        final long id;
+        final LocalDateTime time;
+        final int durationMinutes;
+        final boolean confirmed;
+
+        Booking(long id, LocalDateTime time, int durationMinutes, boolean confirmed) {
+            this.id = id;
+            this.time = time;
+            this.durationMinutes = durationMinutes;
+            this.confirmed = confirmed;
+        }
+    }
+
+    // What the clients talk to. Sessions are whatever the target hands out at login.
+    interface Target {
+        boolean supports(Op op);
+
+        Object login(String username, String password) throws Exception; // null if refused
+
+        List<Booking> view(Object session) throws Exception;
+
+        long book(Object session, Appointment appointment) throws Exception; // new ID, or -1 on a conflict
+
+        int cancel(Object session, long id) throws Exception;
+
+        int reschedule(Object session, long id, LocalDateTime newTime) throws Exception;
+
+        int requestReschedule(Object session, long id, LocalDateTime proposedTime, String reason) throws Exception;
+
+        int confirm(Object session, long id) throws Exception;
+
+        int feedback(Object session, Feedback feedback) throws Exception;
+    }
+
+    // Calls the managers directly, as the desktop dashboards do
+    static final class InProcessTarget implements Target {
+        private final UserManager userManager;
+        private final AppointmentManager appointmentManager;
+        private final RescheduleManager rescheduleManager;
+        private final FeedbackManager feedbackManager;
+
+        InProcessTarget(UserManager userManager, AppointmentManager appointmentManager,
+                        RescheduleManager rescheduleManager, FeedbackManager feedbackManager) {
+            this.userManager = userManager;
+            this.appointmentManager = appointmentManager;
+            this.rescheduleManager = rescheduleManager;
+            this.feedbackManager = feedbackManager;
+        }
+
+        @Override
+        public boolean supports(Op op) {
+            return true;
+        }
+
+        @Override
+        public Object login(String username, String password) {
+            return userManager.findUser(username, password);
+        }
+
+        @Override
+        public List<Booking> view(Object session) {
+            User user = (User) session;
+            List<Appointment> appointments = user.getRole().equals("student")
+                    ? appointmentManager.getAppointmentsForStudent(user.getUsername())
+                    : appointmentManager.getAppointmentsForLecturer(user.getUsername());
+            List<Booking> bookings = new ArrayList<>(appointments.size());
+            for (Appointment appointment : appointments) {
+                bookings.add(new Booking(appointment.getId(), appointment.getAppointmentTime(),
+                        appointment.getDurationMinutes(), appointment.isConfirmed()));
+            }
+            return bookings;
+        }
+
+        @Override
+        public long book(Object session, Appointment appointment) {
+            try {
+                appointmentManager.addAppointment(appointment);
+                return appointment.getId();
+            } catch (SchedulingConflictException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int cancel(Object session, long id) {
+            return appointmentManager.cancelById(id) ? OK : NOT_FOUND;
+        }
+
+        @Override
+        public int reschedule(Object session, long id, LocalDateTime newTime) {
+            Appointment appointment = appointmentManager.findById(id);
+            if (appointment == null) {
+                return NOT_FOUND;
+            }
+            try {
+                appointmentManager.rescheduleAppointment(appointment, newTime);
+                return OK;
+            } catch (SchedulingConflictException e) {
+                return CONFLICT;
+            }
+        }
+
+        @Override
+        public int requestReschedule(Object session, long id, LocalDateTime proposedTime, String reason) {
+            Appointment appointment = appointmentManager.findById(id);
+            if (appointment == null) {
+                return NOT_FOUND;
+            }
+            ReschedulingRequest request = new ReschedulingRequest(appointment, proposedTime,
+                    ((User) session).getUsername(), reason);
+            if (!request.isValidReschedulingRequest()) {
+                return CONFLICT;
+            }
+            rescheduleManager.submitRequest(request);
+            return OK;
+        }
+
+        @Override
+        public int confirm(Object session, long id) {
+            return appointmentManager.confirmById(id) ? OK : NOT_FOUND;
+        }
+
+        @Override
+        public int feedback(Object session, Feedback feedback) {
+            feedbackManager.submitFeedback(feedback);
+            return OK;
+        }
+    }
+
+    // Calls the JSON API of a ConsultationServer
+    static final class HttpTarget implements Target {
+        private final String baseUrl;
+        private final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        HttpTarget(String baseUrl) {
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        }
+
+        @Override
+        public boolean supports(Op op) {
+            return op != Op.RESCHEDULE && op != Op.FEEDBACK;
+        }
+
+        @Override
+        public Object login(String username, String password) throws Exception {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("username", username);
+            body.put("password", password);
+            HttpResponse<String> response = send("POST", "/api/login", null, body);
+            if (response.statusCode() != OK) {
+                return null;
+            }
+            return Json.parseObject(response.body()).get("token");
+        }
+
+        @Override
+        public List<Booking> view(Object session) throws Exception {
+            HttpResponse<String> response = send("GET", "/api/appointments", session, null);
+            expect(response, OK);
+            List<Booking> bookings = new ArrayList<>();
+            for (Object item : (List<?>) Json.parse(response.body())) {
+                Map<?, ?> json = (Map<?, ?>) item;
+                bookings.add(new Booking((Long) json.get("id"),
+                        LocalDateTime.parse((String) json.get("time"), TIME_FORMAT),
+                        ((Long) json.get("durationMinutes")).intValue(), Boolean.TRUE.equals(json.get("confirmed"))));
+            }
+            return bookings;
+        }
+
+        @Override
+        public long book(Object session, Appointment appointment) throws Exception {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("lecturer", appointment.getLecturerName());
+            body.put("time", TIME_FORMAT.format(appointment.getAppointmentTime()));
+            body.put("description", appointment.getDescription());
+            body.put("durationMinutes", appointment.getDurationMinutes());
+            HttpResponse<String> response = send("POST", "/api/appointments", session, body);
+            if (response.statusCode() == CONFLICT) {
+                return -1;
+            }
+            expect(response, 201);
+            return (Long) Json.parseObject(response.body()).get("id");
+        }
+
+        @Override
+        public int cancel(Object session, long id) throws Exception {
+            return status(send("POST", "/api/appointments/cancel", session, idBody(id)));
+        }
+
+        @Override
+        public int reschedule(Object session, long id, LocalDateTime newTime) {
+            throw new UnsupportedOperationException("The API only takes rescheduling requests");
+        }
+
+        @Override
+        public int requestReschedule(Object session, long id, LocalDateTime proposedTime, String reason)
+                throws Exception {
+            Map<String, Object> body = idBody(id);
+            body.put("proposedTime", TIME_FORMAT.format(proposedTime));
+            body.put("reason", reason);
+            HttpResponse<String> response = send("POST", "/api/appointments/reschedule", session, body);
+            // An invalid proposal is a 400 here and a conflict in-process
+            return response.statusCode() == 400 ? CONFLICT : status(response);
+        }
+
+        @Override
+        public int confirm(Object session, long id) throws Exception {
+            return status(send("POST", "/api/appointments/confirm", session, idBody(id)));
+        }
+
+        @Override
+        public int feedback(Object session, Feedback feedback) {
+            throw new UnsupportedOperationException("The API has no feedback endpoint");
+        }
+
+        private HttpResponse<String> send(String method, String path, Object session, Map<String, Object> body)
+                throws Exception {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30));
+            if (session != null) {
+                request.header("X-Session", (String) session);
+            }
+            if (body == null) {
+                request.GET();
+            } else {
+                request.header("Content-Type", "application/json");
+                request.method(method, HttpRequest.BodyPublishers.ofString(Json.write(body)));
+            }
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static Map<String, Object> idBody(long id) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", id);
+            return body;
+        }
+
+        // 200 and 201 count as OK; 404 and 409 pass through; anything else is an error
+        private static int status(HttpResponse<String> response) {
+            int status = response.statusCode();
+            if (status == 201) {
+                return OK;
+            }
+            if (status != OK && status != NOT_FOUND && status != CONFLICT) {
+                expect(response, OK);
+            }
+            return status;
+        }
+
+        private static void expect(HttpResponse<String> response, int status) {
+            if (response.statusCode() != status) {
+                throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+            }
+        }
+    }
+
+    // Weighted choice of operations, with ones the target lacks folded into their fallbacks
+    static final class Mix {
+        private final Op[] ops;
+        private final int[] cumulative;
+
+        Mix(String spec, Target target) {
+            Map<Op, Integer> weights = new EnumMap<>(Op.class);
+            for (String part : spec.split(",")) {
+                String[] pair = part.trim().split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Bad operation weight: " + part);
+                }
+                Op op = Op.valueOf(pair[0].trim().toUpperCase());
+                if (op == Op.CONFIRM) {
+                    throw new IllegalArgumentException("Confirmations are made by lecturer clients");
+                }
+                if (!target.supports(op)) {
+                    op = op.fallback();
+                }
+                weights.merge(op, Integer.parseInt(pair[1].trim()), Integer::sum);
+            }
+            ops = weights.keySet().toArray(new Op[0]);
+            cumulative = new int[ops.length];
+            int total = 0;
+            for (int i = 0; i < ops.length; i++) {
+                total += weights.get(ops[i]);
+                cumulative[i] = total;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("Operation weights must add up to more than 0");
+            }
+        }
+
+        Op pick(Random random) {
+            int pick = random.nextInt(cumulative[cumulative.length - 1]);
+            int i = 0;
+            while (cumulative[i] <= pick) {
+                i++;
+            }
+            return ops[i];
+        }
+    }
+
+    private final Target target;
+    private final WorkloadGenerator generator;
+    private final Mix mix;
+    private final Map<Op, LongAdder[]> outcomes = new EnumMap<>(Op.class);
+    private final Set<Long> confirmed = ConcurrentHashMap.newKeySet();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder lostUpdates = new LongAdder();
+    private final AtomicInteger reportedErrors = new AtomicInteger();
+
+    public StressHarness(Target target, WorkloadGenerator generator) {
+        this.target = target;
+        this.generator = generator;
+        this.mix = new Mix(MIX, target);
+        for (Op op : Op.values()) {
+            outcomes.put(op, new LongAdder[] {new LongAdder(), new LongAdder(), new LongAdder()});
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "inprocess";
+        WorkloadGenerator generator = new WorkloadGenerator();
+        if (CLIENTS > generator.getStudentCount() || LECTURER_CLIENTS > generator.getLecturerCount()) {
+            System.err.println("More clients than generated users; raise pcs.load.students or pcs.load.lecturers");
+            System.exit(2);
+        }
+        ConsultationServer server = null;
+        Target target;
+        if (mode.startsWith("http://") || mode.startsWith("https://")) {
+            target = new HttpTarget(mode);
+        } else if (mode.equals("inprocess") || mode.equals("server")) {
+            UserManager userManager = UserManager.getInstance();
+            AppointmentManager appointmentManager = new AppointmentManager();
+            RescheduleManager rescheduleManager = new RescheduleManager(appointmentManager);
+            FeedbackManager feedbackManager = new FeedbackManager();
+            long start = Metrics.Timer.start();
+            int booked = generator.populate(userManager, appointmentManager, rescheduleManager, feedbackManager,
+                    SEED_APPOINTMENTS);
+            System.out.printf("Seeded %d users and %d appointments in %d ms%n", userManager.getAllUsers().size(),
+                    booked, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (mode.equals("server")) {
+                // The JDK server closes idle connections beyond its limit (200), which the
+                // clients would see as failed requests
+                System.setProperty("sun.net.httpserver.maxIdleConnections",
+                        String.valueOf(Math.max(200, CLIENTS + LECTURER_CLIENTS)));
+                server = new ConsultationServer(userManager, appointmentManager, rescheduleManager);
+                server.start("127.0.0.1", 0);
+                target = new HttpTarget("http://127.0.0.1:" + server.getPort());
+            } else {
+                target = new InProcessTarget(userManager, appointmentManager, rescheduleManager, feedbackManager);
+            }
+        } else {
+            System.err.println("Usage: StressHarness [inprocess | server | http://host:port]");
+            System.exit(2);
+            return;
+        }
+        int violations;
+        try {
+            violations = new StressHarness(target, generator).run(System.out);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    // Run the clients for the configured time, print the figures and return the number
+    // of invariant violations found
+    public int run(PrintStream out) throws Exception {
+        int clients = CLIENTS + LECTURER_CLIENTS;
+        List<Map<Long, LocalDateTime>> expected = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            expected.add(new HashMap<>());
+        }
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] window = new long[2];
+        ExecutorService executor = ConsultationServer.newRequestExecutor();
+        try {
+            for (int i = 0; i < CLIENTS; i++) {
+                int index = i;
+                executor.execute(() -> runStudent(index, expected.get(index), ready, go, window));
+            }
+            for (int i = 0; i < LECTURER_CLIENTS; i++) {
+                int index = i;
+                executor.execute(() -> runLecturer(index, ready, go, window));
+            }
+            ready.await();
+            window[0] = System.nanoTime();
+            window[1] = window[0] + TimeUnit.SECONDS.toNanos(SECONDS);
+            out.printf("Running %d student and %d lecturer clients for %d s%n", CLIENTS, LECTURER_CLIENTS, SECONDS);
+            go.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(SECONDS + 600L, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - window[0]) / 1e9;
+        report(out, elapsed);
+        return audit(out, expected);
+    }
+
+    private void runStudent(int index, Map<Long, LocalDateTime> owned, CountDownLatch ready, CountDownLatch go,
+                            long[] window) {
+        Random random = generator.random(index);
+        String name = WorkloadGenerator.student(index);
+        Object session;
+        try {
+            session = target.login(name, WorkloadGenerator.passwordFor(name));
+            if (session == null) {
+                throw new IllegalStateException("Login refused for " + name);
+            }
+            for (Booking booking : target.view(session)) {
+                owned.put(booking.id, booking.time);
+            }
+        } catch (Exception e) {
+            error(Op.VIEW, e);
+            return;
+        } finally {
+            ready.countDown();
+        }
+        awaitStart(go);
+        while (System.nanoTime() < window[1]) {
+            Op op = mix.pick(random);
+            if (owned.isEmpty() && op != Op.VIEW && op != Op.FEEDBACK) {
+                op = Op.BOOK;
+            }
+            long start = Metrics.Timer.start();
+            try {
+                int outcome = studentOp(op, session, name, owned, random);
+                record(op, start, outcome);
+            } catch (Exception e) {
+                error(op, e);
+            }
+            think();
+        }
+    }
+
+    private int studentOp(Op op, Object session, String name, Map<Long, LocalDateTime> owned,
+                          Random random) throws Exception {
+        switch (op) {
+            case VIEW: {
+                List<Booking> bookings = target.view(session);
+                if (differences(owned, bookings) > 0) {
+                    staleReads.increment();
+                }
+                return OK;
+            }
+            case BOOK: {
+                Appointment appointment = generator.newAppointment(random, name);
+                long id = target.book(session, appointment);
+                if (id < 0) {
+                    return CONFLICT;
+                }
+                owned.put(id, appointment.getAppointmentTime());
+                return OK;
+            }
+            case FEEDBACK:
+                return target.feedback(session, generator.newFeedback(random, name, generator.randomLecturer(random)));
+            default:
+                break;
+        }
+        long id = pickOwned(owned, random);
+        int outcome;
+        switch (op) {
+            case CANCEL:
+                outcome = target.cancel(session, id);
+                if (outcome == OK) {
+                    owned.remove(id);
+                }
+                break;
+            case RESCHEDULE: {
+                LocalDateTime newTime = generator.randomSlot(random);
+                outcome = target.reschedule(session, id, newTime);
+                if (outcome == OK) {
+                    owned.put(id, newTime);
+                }
+                break;
+            }
+            case REQUEST:
+                outcome = target.requestReschedule(session, id, generator.randomSlot(random), "Clashes with a lecture");
+                break;
+            default:
+                throw new IllegalArgumentException("Not a student operation: " + op);
+        }
+        if (outcome == NOT_FOUND) {
+            // Nobody else touches this student's appointments, so it was lost
+            lostUpdates.increment();
+            owned.remove(id);
+        }
+        return outcome;
+    }
+
+    private void runLecturer(int index, CountDownLatch ready, CountDownLatch go, long[] window) {
+        Random random = generator.random(-2 - index);
+        String name = WorkloadGenerator.lecturer(index);
+        Object session;
+        try {
+            session = target.login(name, WorkloadGenerator.passwordFor(name));
+            if (session == null) {
+                throw new IllegalStateException("Login refused for " + name);
+            }
+        } catch (Exception e) {
+            error(Op.VIEW, e);
+            return;
+        } finally {
+            ready.countDown();
+        }
+        awaitStart(go);
+        while (System.nanoTime() < window[1]) {
+            long start = Metrics.Timer.start();
+            List<Booking> pending = new ArrayList<>();
+            try {
+                for (Booking booking : target.view(session)) {
+                    if (!booking.confirmed) {
+                        pending.add(booking);
+                    }
+                }
+                record(Op.VIEW, start, OK);
+            } catch (Exception e) {
+                error(Op.VIEW, e);
+            }
+            think();
+            if (pending.isEmpty()) {
+                continue;
+            }
+            long id = pending.get(random.nextInt(pending.size())).id;
+            start = Metrics.Timer.start();
+            try {
+                // 404 means the student cancelled in the meantime
+                int outcome = target.confirm(session, id);
+                if (outcome == OK) {
+                    confirmed.add(id);
+                }
+                record(Op.CONFIRM, start, outcome == NOT_FOUND ? CONFLICT : outcome);
+            } catch (Exception e) {
+                error(Op.CONFIRM, e);
+            }
+            think();
+        }
+    }
+
+    // Compare what every client expects with what the target now holds, then sweep every
+    // generated lecturer's and student's timeline for overlaps and lost confirmations
+    private int audit(PrintStream out, List<Map<Long, LocalDateTime>> expected) throws Exception {
+        for (int i = 0; i < CLIENTS; i++) {
+            String name = WorkloadGenerator.student(i);
+            lostUpdates.add(differences(expected.get(i), target.view(target.login(name, WorkloadGenerator.passwordFor(name)))));
+        }
+        long doubleBookings = 0;
+        long unconfirmed = 0;
+        long lecturerRows = 0;
+        long studentRows = 0;
+        for (int i = 0; i < generator.getLecturerCount(); i++) {
+            String name = WorkloadGenerator.lecturer(i);
+            List<Booking> bookings = target.view(target.login(name, WorkloadGenerator.passwordFor(name)));
+            lecturerRows += bookings.size();
+            doubleBookings += overlaps(bookings);
+            for (Booking booking : bookings) {
+                if (confirmed.contains(booking.id) && !booking.confirmed) {
+                    unconfirmed++;
+                }
+            }
+        }
+        for (int i = 0; i < generator.getStudentCount(); i++) {
+            String name = WorkloadGenerator.student(i);
+            List<Booking> bookings = target.view(target.login(name, WorkloadGenerator.passwordFor(name)));
+            studentRows += bookings.size();
+            doubleBookings += overlaps(bookings);
+        }
+        // Both views must list every appointment exactly once
+        long indexMismatch = Math.abs(lecturerRows - studentRows);
+        long errors = 0;
+        for (LongAdder[] counts : outcomes.values()) {
+            errors += counts[2].sum();
+        }
+        out.println();
+        out.printf("%-24s %10d%n", "stale reads", staleReads.sum());
+        out.printf("%-24s %10d%n", "lost updates", lostUpdates.sum());
+        out.printf("%-24s %10d%n", "double bookings", doubleBookings);
+        out.printf("%-24s %10d%n", "lost confirmations", unconfirmed);
+        out.printf("%-24s %10d%n", "index mismatches", indexMismatch);
+        out.printf("%-24s %10d%n", "errors", errors);
+        out.printf("%-24s %10d%n", "appointments", lecturerRows);
+        return (int) Math.min(Integer.MAX_VALUE,
+                staleReads.sum() + lostUpdates.sum() + doubleBookings + unconfirmed + indexMismatch + errors);
+    }
+
+    private void report(PrintStream out, double elapsedSeconds) {
+        out.printf("%-10s %10s %10s %10s %8s %10s %9s %9s %9s %9s%n", "op", "count", "ok", "conflict", "error",
+                "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        long total = 0;
+        for (Op op : Op.values()) {
+            LongAdder[] counts = outcomes.get(op);
+            long count = counts[0].sum() + counts[1].sum() + counts[2].sum();
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            Metrics.Timer timer = Metrics.timer(timerName(op));
+            out.printf("%-10s %10d %10d %10d %8d %10.0f %9.3f %9.3f %9.3f %9.3f%n", op.name().toLowerCase(), count,
+                    counts[0].sum(), counts[1].sum(), counts[2].sum(), count / elapsedSeconds,
+                    millis(timer.percentile(0.50)), millis(timer.percentile(0.99)),
+                    millis(timer.percentile(0.999)), millis(timer.getMaxNanos()));
+        }
+        out.printf("%-10s %10d %43.0f%n", "total", total, total / elapsedSeconds);
+    }
+
+    private void record(Op op, long start, int outcome) {
+        Metrics.timer(timerName(op)).stop(start);
+        outcomes.get(op)[outcome == OK ? 0 : outcome == CONFLICT ? 1 : 2].increment();
+    }
+
+    private void error(Op op, Exception e) {
+        outcomes.get(op)[2].increment();
+        if (reportedErrors.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+            System.err.println(op.name().toLowerCase() + " failed: " + e);
+        }
+    }
+
+    private static String timerName(Op op) {
+        return "load." + op.name().toLowerCase();
+    }
+
+    private static void awaitStart(CountDownLatch go) {
+        try {
+            go.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void think() {
+        if (THINK_MS > 0) {
+            try {
+                Thread.sleep(THINK_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static long pickOwned(Map<Long, LocalDateTime> owned, Random random) {
+        int skip = random.nextInt(owned.size());
+        for (long id : owned.keySet()) {
+            if (skip-- == 0) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("No appointments to pick from");
+    }
+
+    // Appointments missing, extra or at the wrong time
+    private static int differences(Map<Long, LocalDateTime> expected, List<Booking> actual) {
+        int differences = 0;
+        int present = 0;
+        for (Booking booking : actual) {
+            LocalDateTime time = expected.get(booking.id);
+            if (time != null) {
+                present++;
+            }
+            if (!booking.time.equals(time)) {
+                differences++;
+            }
+        }
+        return differences + expected.size() - present;
+    }
+
+    // Bookings that start before an earlier one on the same timeline has ended
+    private static int overlaps(List<Booking> bookings) {
+        List<Booking> sorted = new ArrayList<>(bookings);
+        sorted.sort(Comparator.comparing(booking -> booking.time));
+        int overlaps = 0;
+        LocalDateTime end = null;
+        for (Booking booking : sorted) {
+            if (end != null && booking.time.isBefore(end)) {
+                overlaps++;
+            }
+            LocalDateTime bookingEnd = booking.time.plusMinutes(booking.durationMinutes);
+            if (end == null || bookingEnd.isAfter(end)) {
+                end = bookingEnd;
+            }
+        }
+        return overlaps;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,903 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+
+// Inverted index over short free-text fields (appointment descriptions, feedback).
+// Documents are numbered in the order they are added, which for appointments is the
+// order of their IDs. Each term's posting list holds ascending document numbers with
+// the term's positions in each, so AND and OR merge sorted arrays and a phrase checks
+// adjacent positions. Every document also records a key (e.g. the appointment ID), a
+// lecturer and a time, which searches filter on.
+//
+// Removing or replacing a document only marks its number deleted; the postings are
+// purged when more than half the documents are deleted, and before writing to disk.
+//
+// Query syntax: words are ANDed; OR between terms or groups; "quoted phrases"; and
+// parentheses. Matching ignores case, and each CJK ideograph is a term of its own.
+public class TextIndex {
+    private static final int MAGIC = 0x50435349; // "PCSI"
+    private static final int VERSION = 1;
+    private static final int COMPACT_MIN_DELETED = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final Map<String, Integer> lecturerCodes = new HashMap<>();
+    private final List<String> lecturerNames = new ArrayList<>();
+
+    // Per document number
+    private long[] keys = new long[256];
+    private int[] lecturers = new int[256];
+    private long[] minutes = new long[256]; // epoch minutes
+    private int[] hashes = new int[256]; // of the indexed text, to tell whether it changed
+    private final BitSet deleted = new BitSet();
+    private int documentCount;
+    private int deletedCount;
+    private final KeyTable byKey = new KeyTable(); // key -> live document number
+
+    // Index a document, replacing any earlier text under the same key. Unchanged text
+    // only updates the lecturer and time.
+    public void add(long key, String text, String lecturer, LocalDateTime time) {
+        lock.writeLock().lock();
+        try {
+            String content = text == null ? "" : text;
+            int existing = byKey.get(key);
+            if (existing >= 0 && hashes[existing] == content.hashCode()) {
+                lecturers[existing] = lecturerCode(lecturer);
+                minutes[existing] = epochMinutes(time);
+                return;
+            }
+            if (existing >= 0) {
+                delete(existing);
+                compactIfSparse();
+            }
+            int document = append(key, content.hashCode(), lecturerCode(lecturer), epochMinutes(time));
+            Map<String, int[]> positions = new LinkedHashMap<>();
+            List<String> tokens = tokenize(content);
+            for (int i = 0; i < tokens.size(); i++) {
+                int[] list = positions.get(tokens.get(i));
+                if (list == null) {
+                    positions.put(tokens.get(i), new int[] {1, i});
+                } else {
+                    if (list[0] + 1 == list.length) {
+                        list = Arrays.copyOf(list, list.length * 2);
+                        positions.put(tokens.get(i), list);
+                    }
+                    list[++list[0]] = i;
+                }
+            }
+            for (Map.Entry<String, int[]> entry : positions.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), t -> new Postings()).add(document, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long key) {
+        lock.writeLock().lock();
+        try {
+            int document = byKey.get(key);
+            if (document < 0) {
+                return false;
+            }
+            delete(document);
+            compactIfSparse();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Update a document's time, e.g. after a reschedule
+    public void move(long key, LocalDateTime time) {
+        lock.writeLock().lock();
+        try {
+            int document = byKey.get(key);
+            if (document >= 0) {
+                minutes[document] = epochMinutes(time);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Remove every document the filter selects, given its key and time; returns how many
+    public int removeIf(BiPredicate<Long, LocalDateTime> filter) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (int document = 0; document < documentCount; document++) {
+                if (!deleted.get(document) && filter.test(keys[document], time(minutes[document]))) {
+                    delete(document);
+                    removed++;
+                }
+            }
+            compactIfSparse();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long key) {
+        lock.readLock().lock();
+        try {
+            return byKey.get(key) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Live documents
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keys of the documents matching a query, in ascending order. lecturer, from and to
+    // may be null; the time range is from <= time < to.
+    public long[] search(String query, String lecturer, LocalDateTime from, LocalDateTime to) {
+        Node root = new Parser(query).parse();
+        lock.readLock().lock();
+        try {
+            int lecturerCode = -1;
+            if (lecturer != null) {
+                Integer code = lecturerCodes.get(lecturer);
+                if (code == null) {
+                    return new long[0];
+                }
+                lecturerCode = code;
+            }
+            long fromMinute = from == null ? Long.MIN_VALUE : epochMinutes(from);
+            long toMinute = to == null ? Long.MAX_VALUE : epochMinutes(to);
+            int[] documents = root.evaluate(this, null);
+            long[] result = new long[documents.length];
+            int n = 0;
+            for (int document : documents) {
+                if (!deleted.get(document)
+                        && (lecturerCode < 0 || lecturers[document] == lecturerCode)
+                        && minutes[document] >= fromMinute && minutes[document] < toMinute) {
+                    result[n++] = keys[document];
+                }
+            }
+            result = Arrays.copyOf(result, n);
+            Arrays.sort(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lower-cased runs of letters and digits; each CJK ideograph is a token by itself
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int c = text.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.isIdeographic(c)) {
+                flush(token, tokens);
+                tokens.add(new String(Character.toChars(c)));
+            } else if (Character.isLetterOrDigit(c)) {
+                token.appendCodePoint(Character.toLowerCase(c));
+            } else {
+                flush(token, tokens);
+            }
+        }
+        flush(token, tokens);
+        return tokens;
+    }
+
+    private static void flush(StringBuilder token, List<String> tokens) {
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+            token.setLength(0);
+        }
+    }
+
+    // Drop deleted documents from the postings and renumber the rest, keeping their order
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (deletedCount == 0) {
+                return;
+            }
+            int[] renumbered = new int[documentCount];
+            int live = 0;
+            for (int document = 0; document < documentCount; document++) {
+                if (deleted.get(document)) {
+                    renumbered[document] = -1;
+                } else {
+                    renumbered[document] = live;
+                    keys[live] = keys[document];
+                    lecturers[live] = lecturers[document];
+                    minutes[live] = minutes[document];
+                    hashes[live] = hashes[document];
+                    live++;
+                }
+            }
+            terms.values().removeIf(postings -> postings.renumber(renumbered) == 0);
+            documentCount = live;
+            deletedCount = 0;
+            deleted.clear();
+            byKey.clear();
+            for (int document = 0; document < live; document++) {
+                byKey.put(keys[document], document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Layout: magic, version, lecturer names, documents (key deltas, lecturer code, epoch
+    // minutes, text hash), then each term with its postings as document-number deltas,
+    // each followed by its positions as deltas. Compacts first.
+    public void writeTo(DataOutputStream out) throws IOException {
+        compact();
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeVarLong(out, lecturerNames.size());
+            for (String name : lecturerNames) {
+                out.writeUTF(name);
+            }
+            writeVarLong(out, documentCount);
+            long previousKey = 0;
+            for (int document = 0; document < documentCount; document++) {
+                writeVarLong(out, zigZag(keys[document] - previousKey));
+                previousKey = keys[document];
+                writeVarLong(out, lecturers[document] + 1);
+                writeVarLong(out, zigZag(minutes[document]));
+                out.writeInt(hashes[document]);
+            }
+            writeVarLong(out, terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static TextIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a search index file");
+        }
+        int version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported search index version " + version);
+        }
+        TextIndex index = new TextIndex();
+        int lecturerCount = (int) readVarLong(in);
+        for (int i = 0; i < lecturerCount; i++) {
+            index.lecturerCode(in.readUTF());
+        }
+        int documents = (int) readVarLong(in);
+        long key = 0;
+        for (int document = 0; document < documents; document++) {
+            key += unZigZag(readVarLong(in));
+            int lecturer = (int) readVarLong(in) - 1;
+            long minute = unZigZag(readVarLong(in));
+            index.append(key, in.readInt(), lecturer, minute);
+        }
+        int termCount = (int) readVarLong(in);
+        for (int i = 0; i < termCount; i++) {
+            index.terms.put(in.readUTF(), Postings.readFrom(in));
+        }
+        return index;
+    }
+
+    private int append(long key, int hash, int lecturer, long minute) {
+        if (documentCount == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            lecturers = Arrays.copyOf(lecturers, capacity);
+            minutes = Arrays.copyOf(minutes, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        int document = documentCount++;
+        keys[document] = key;
+        lecturers[document] = lecturer;
+        minutes[document] = minute;
+        hashes[document] = hash;
+        byKey.put(key, document);
+        return document;
+    }
+
+    private void delete(int document) {
+        deleted.set(document);
+        deletedCount++;
+        byKey.remove(keys[document]);
+    }
+
+    private void compactIfSparse() {
+        if (deletedCount >= COMPACT_MIN_DELETED && deletedCount * 2 > documentCount) {
+            compact();
+        }
+    }
+
+    private int lecturerCode(String lecturer) {
+        if (lecturer == null) {
+            return -1;
+        }
+        Integer code = lecturerCodes.get(lecturer);
+        if (code == null) {
+            code = lecturerNames.size();
+            lecturerNames.add(lecturer);
+            lecturerCodes.put(lecturer, code);
+        }
+        return code;
+    }
+
+    private static long epochMinutes(LocalDateTime time) {
+        return time == null ? 0 : time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static LocalDateTime time(long epochMinutes) {
+        return LocalDateTime.ofEpochSecond(epochMinutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static final int[] NONE = new int[0];
+
+    // A term's documents, or those of them also in within (null for no restriction)
+    private int[] documentsOf(String term, int[] within) {
+        Postings postings = terms.get(term);
+        if (postings == null) {
+            return NONE;
+        }
+        if (within == null) {
+            return Arrays.copyOf(postings.documents, postings.size);
+        }
+        return intersect(within, within.length, postings.documents, postings.size);
+    }
+
+    private int frequency(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? 0 : postings.size;
+    }
+
+    // Sorted intersection of the first aSize and bSize entries. Gallops through the longer
+    // list when it is much longer, so a rare term against a common one costs little more
+    // than the rare one.
+    static int[] intersect(int[] a, int aSize, int[] b, int bSize) {
+        if (aSize > bSize) {
+            return intersect(b, bSize, a, aSize);
+        }
+        int[] result = new int[aSize];
+        int n = 0;
+        if (bSize < 8L * aSize) {
+            // Similar sizes: a plain merge beats searching
+            for (int i = 0, j = 0; i < aSize && j < bSize; ) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[n++] = a[i++];
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+        int j = 0;
+        for (int i = 0; i < aSize && j < bSize; i++) {
+            int value = a[i];
+            int step = 1;
+            while (j + step < bSize && b[j + step] < value) {
+                j += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(b, j, Math.min(bSize, j + step + 1), value);
+            if (found >= 0) {
+                result[n++] = value;
+                j = found + 1;
+            } else {
+                j = -found - 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[n++] = a[i++];
+        }
+        while (j < b.length) {
+            result[n++] = b[j++];
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // Documents (of those in within, if not null) containing all the terms, somewhere in a
+    // row. Positions are only checked for documents that have every term.
+    private int[] phrase(List<String> words, int[] within) {
+        Postings[] lists = new Postings[words.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = terms.get(words.get(i));
+            if (lists[i] == null) {
+                return NONE;
+            }
+        }
+        Postings[] bySize = lists.clone();
+        Arrays.sort(bySize, (x, y) -> Integer.compare(x.size, y.size));
+        int[] candidates = within;
+        for (Postings postings : bySize) {
+            candidates = candidates == null
+                    ? Arrays.copyOf(postings.documents, postings.size)
+                    : intersect(candidates, candidates.length, postings.documents, postings.size);
+        }
+        int[] result = new int[candidates.length];
+        int n = 0;
+        for (int document : candidates) {
+            Postings first = lists[0];
+            int at = first.indexOf(document);
+            for (int p = first.starts[at]; p < first.starts[at + 1]; p++) {
+                if (followedBy(lists, document, first.positions[p])) {
+                    result[n++] = document;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static boolean followedBy(Postings[] lists, int document, int start) {
+        for (int i = 1; i < lists.length; i++) {
+            Postings postings = lists[i];
+            int at = postings.indexOf(document);
+            int from = postings.starts[at];
+            int to = postings.starts[at + 1];
+            if (Arrays.binarySearch(postings.positions, from, to, start + i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // One term's documents in ascending order; positions of documents[i] are
+    // positions[starts[i]] up to positions[starts[i + 1]]
+    private static final class Postings {
+        int[] documents = new int[2];
+        int[] starts = new int[3];
+        int[] positions = new int[2];
+        int size;
+
+        // list[0] is the count, followed by the positions
+        void add(int document, int[] list) {
+            int count = list[0];
+            if (size + 1 == documents.length) {
+                documents = Arrays.copyOf(documents, documents.length * 2);
+                starts = Arrays.copyOf(starts, documents.length + 1);
+            }
+            int end = starts[size];
+            if (end + count > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, end + count));
+            }
+            System.arraycopy(list, 1, positions, end, count);
+            documents[size] = document;
+            starts[++size] = end + count;
+        }
+
+        int indexOf(int document) {
+            return Arrays.binarySearch(documents, 0, size, document);
+        }
+
+        // Apply a renumbering in place, dropping documents mapped to -1; returns the new size
+        int renumber(int[] renumbered) {
+            int kept = 0;
+            int end = 0;
+            for (int i = 0; i < size; i++) {
+                int document = renumbered[documents[i]];
+                if (document < 0) {
+                    continue;
+                }
+                int from = starts[i];
+                int count = starts[i + 1] - from;
+                System.arraycopy(positions, from, positions, end, count);
+                documents[kept] = document;
+                starts[kept] = end;
+                end += count;
+                kept++;
+            }
+            starts[kept] = end;
+            size = kept;
+            return kept;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            writeVarLong(out, size);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, documents[i] - previous);
+                previous = documents[i];
+                writeVarLong(out, starts[i + 1] - starts[i]);
+                int previousPosition = 0;
+                for (int p = starts[i]; p < starts[i + 1]; p++) {
+                    writeVarLong(out, positions[p] - previousPosition);
+                    previousPosition = positions[p];
+                }
+            }
+        }
+
+        static Postings readFrom(DataInputStream in) throws IOException {
+            Postings postings = new Postings();
+            int size = (int) readVarLong(in);
+            int document = 0;
+            int[] list = new int[8];
+            for (int i = 0; i < size; i++) {
+                document += (int) readVarLong(in);
+                int count = (int) readVarLong(in);
+                if (count + 1 > list.length) {
+                    list = new int[count + 1];
+                }
+                list[0] = count;
+                int position = 0;
+                for (int p = 1; p <= count; p++) {
+                    position += (int) readVarLong(in);
+                    list[p] = position;
+                }
+                postings.add(document, list);
+            }
+            return postings;
+        }
+    }
+
+    // Long key -> document number, open addressing with backward-shift deletion
+    private static final class KeyTable {
+        private long[] slotKeys = new long[16];
+        private int[] slotValues = new int[16]; // document + 1; 0 marks an empty slot
+        private int size;
+
+        int get(long key) {
+            int mask = slotKeys.length - 1;
+            for (int i = slot(key, mask); slotValues[i] != 0; i = (i + 1) & mask) {
+                if (slotKeys[i] == key) {
+                    return slotValues[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int document) {
+            if ((size + 1) * 4 > slotKeys.length * 3) {
+                resize(slotKeys.length * 2);
+            }
+            int mask = slotKeys.length - 1;
+            int i = slot(key, mask);
+            while (slotValues[i] != 0 && slotKeys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (slotValues[i] == 0) {
+                size++;
+            }
+            slotKeys[i] = key;
+            slotValues[i] = document + 1;
+        }
+
+        void remove(long key) {
+            int mask = slotKeys.length - 1;
+            int i = slot(key, mask);
+            while (slotValues[i] != 0 && slotKeys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (slotValues[i] == 0) {
+                return;
+            }
+            size--;
+            int hole = i;
+            for (int j = (hole + 1) & mask; slotValues[j] != 0; j = (j + 1) & mask) {
+                int home = slot(slotKeys[j], mask);
+                // Move an entry back if the hole lies on its probe path
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    slotKeys[hole] = slotKeys[j];
+                    slotValues[hole] = slotValues[j];
+                    hole = j;
+                }
+            }
+            slotValues[hole] = 0;
+        }
+
+        void clear() {
+            Arrays.fill(slotValues, 0);
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = slotKeys;
+            int[] oldValues = slotValues;
+            slotKeys = new long[capacity];
+            slotValues = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    put(oldKeys[i], oldValues[i] - 1);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    private interface Node {
+        // Matching documents, restricted to within unless it is null
+        int[] evaluate(TextIndex index, int[] within);
+
+        // Upper bound on the number of matches, to evaluate the narrowest part of an AND first
+        int estimate(TextIndex index);
+    }
+
+    private static final class Term implements Node {
+        private final String term;
+
+        Term(String term) {
+            this.term = term;
+        }
+
+        @Override
+        public int[] evaluate(TextIndex index, int[] within) {
+            return index.documentsOf(term, within);
+        }
+
+        @Override
+        public int estimate(TextIndex index) {
+            return index.frequency(term);
+        }
+    }
+
+    private static final class Phrase implements Node {
+        private final List<String> words;
+
+        Phrase(List<String> words) {
+            this.words = words;
+        }
+
+        @Override
+        public int[] evaluate(TextIndex index, int[] within) {
+            return index.phrase(words, within);
+        }
+
+        @Override
+        public int estimate(TextIndex index) {
+            int estimate = Integer.MAX_VALUE;
+            for (String word : words) {
+                estimate = Math.min(estimate, index.frequency(word));
+            }
+            return estimate;
+        }
+    }
+
+    // Each part only looks at what the narrower parts before it matched
+    private static final class And implements Node {
+        private final List<Node> parts;
+
+        And(List<Node> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int[] evaluate(TextIndex index, int[] within) {
+            List<Node> ordered = new ArrayList<>(parts);
+            ordered.sort(Comparator.comparingInt(part -> part.estimate(index)));
+            int[] result = within;
+            for (Node part : ordered) {
+                result = part.evaluate(index, result);
+                if (result.length == 0) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int estimate(TextIndex index) {
+            int estimate = Integer.MAX_VALUE;
+            for (Node part : parts) {
+                estimate = Math.min(estimate, part.estimate(index));
+            }
+            return estimate;
+        }
+    }
+
+    private static final class Or implements Node {
+        private final List<Node> parts;
+
+        Or(List<Node> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int[] evaluate(TextIndex index, int[] within) {
+            int[] result = NONE;
+            for (Node part : parts) {
+                result = union(result, part.evaluate(index, within));
+            }
+            return result;
+        }
+
+        @Override
+        public int estimate(TextIndex index) {
+            long estimate = 0;
+            for (Node part : parts) {
+                estimate += part.estimate(index);
+            }
+            return (int) Math.min(Integer.MAX_VALUE, estimate);
+        }
+    }
+
+    // query := group (OR group)*, group := atom ([AND] atom)*, atom := word | "phrase" | (query)
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private int next;
+
+        Parser(String query) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (c == '"') {
+                    int close = query.indexOf('"', i + 1);
+                    if (close < 0) {
+                        throw new IllegalArgumentException("Unclosed quote in search query");
+                    }
+                    endWord(word);
+                    tokens.add(query.substring(i, close + 1));
+                    i = close;
+                } else if (c == '(' || c == ')') {
+                    endWord(word);
+                    tokens.add(String.valueOf(c));
+                } else if (Character.isWhitespace(c)) {
+                    endWord(word);
+                } else {
+                    word.append(c);
+                }
+            }
+            endWord(word);
+        }
+
+        private void endWord(StringBuilder word) {
+            if (word.length() > 0) {
+                tokens.add(word.toString());
+                word.setLength(0);
+            }
+        }
+
+        Node parse() {
+            Node root = or();
+            if (next < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + tokens.get(next) + "' in search query");
+            }
+            if (root == null) {
+                throw new IllegalArgumentException("Empty search query");
+            }
+            return root;
+        }
+
+        private Node or() {
+            List<Node> parts = new ArrayList<>();
+            parts.add(and());
+            while (next < tokens.size() && tokens.get(next).equals("OR")) {
+                next++;
+                parts.add(and());
+            }
+            if (parts.size() == 1) {
+                return parts.get(0);
+            }
+            if (parts.contains(null)) {
+                throw new IllegalArgumentException("OR needs a term on both sides");
+            }
+            return new Or(parts);
+        }
+
+        private Node and() {
+            List<Node> parts = new ArrayList<>();
+            while (next < tokens.size() && !tokens.get(next).equals("OR") && !tokens.get(next).equals(")")) {
+                if (tokens.get(next).equals("AND")) {
+                    next++;
+                    continue;
+                }
+                Node part = atom();
+                if (part != null) {
+                    parts.add(part);
+                }
+            }
+            if (parts.isEmpty()) {
+                return null;
+            }
+            return parts.size() == 1 ? parts.get(0) : new And(parts);
+        }
+
+        // null for words with no indexable characters
+        private Node atom() {
+            String token = tokens.get(next++);
+            if (token.equals("(")) {
+                Node inner = or();
+                if (next >= tokens.size() || !tokens.get(next).equals(")")) {
+                    throw new IllegalArgumentException("Unclosed parenthesis in search query");
+                }
+                next++;
+                return inner;
+            }
+            String text = token.startsWith("\"") ? token.substring(1, token.length() - 1) : token;
+            List<String> words = tokenize(text);
+            if (words.isEmpty()) {
+                return null;
+            }
+            if (words.size() == 1) {
+                return new Term(words.get(0));
+            }
+            // A quoted phrase, or one word the tokenizer splits (exam-anxiety, 考试焦虑)
+            return new Phrase(words);
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in search index");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
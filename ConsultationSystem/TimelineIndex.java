@@ -0,0 +1,179 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Index of user name -> appointments ordered by appointmentTime.
+// Each user's timeline is guarded by one of a fixed set of striped read/write locks,
+// so writers for different users rarely contend and readers get consistent copies.
+// Because entries are ordered by start time and no appointment is longer than the
+// longest one indexed, overlap checks only look at a bounded window: O(log n + k).
+public class TimelineIndex {
+    private static final int STRIPES = 64;
+
+    private final Map<String, NavigableMap<LocalDateTime, List<Appointment>>> timelines = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[STRIPES];
+    private final AtomicInteger maxDurationMinutes = new AtomicInteger(Appointment.DEFAULT_DURATION_MINUTES);
+
+    public TimelineIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public void add(String key, Appointment appointment) {
+        ReentrantReadWriteLock.WriteLock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            timelines.computeIfAbsent(key, k -> new TreeMap<>())
+                    .computeIfAbsent(appointment.getAppointmentTime(), t -> new ArrayList<>(1))
+                    .add(appointment);
+            maxDurationMinutes.accumulateAndGet(appointment.getDurationMinutes(), Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Hold a user's write lock across a check-then-modify sequence
+    public void lock(String key) {
+        lockFor(key).writeLock().lock();
+    }
+
+    public void unlock(String key) {
+        lockFor(key).writeLock().unlock();
+    }
+
+    // First appointment other than exclude that overlaps [start, end), or null
+    public Appointment findOverlap(String key, LocalDateTime start, LocalDateTime end, Appointment exclude) {
+        ReentrantReadWriteLock.ReadLock lock = lockFor(key).readLock();
+        lock.lock();
+        try {
+            NavigableMap<LocalDateTime, List<Appointment>> timeline = timelines.get(key);
+            if (timeline == null) {
+                return null;
+            }
+            LocalDateTime windowStart = start.minusMinutes(maxDurationMinutes.get());
+            for (List<Appointment> slot : timeline.subMap(windowStart, false, end, false).values()) {
+                for (Appointment appointment : slot) {
+                    if (appointment != exclude && appointment.getEndTime().isAfter(start)) {
+                        return appointment;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sweep every timeline once in start order, reporting each appointment that starts
+    // before the latest end seen so far
+    public List<SchedulingConflict> findAllOverlaps(String role) {
+        List<SchedulingConflict> conflicts = new ArrayList<>();
+        for (String key : timelines.keySet()) {
+            Appointment latest = null;
+            for (Appointment appointment : all(key)) {
+                if (latest != null && appointment.getAppointmentTime().isBefore(latest.getEndTime())) {
+                    conflicts.add(new SchedulingConflict(role, key, latest, appointment));
+                }
+                if (latest == null || appointment.getEndTime().isAfter(latest.getEndTime())) {
+                    latest = appointment;
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    // Remove an appointment that is indexed under the given time
+    public void remove(String key, LocalDateTime time, Appointment appointment) {
+        ReentrantReadWriteLock.WriteLock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            NavigableMap<LocalDateTime, List<Appointment>> timeline = timelines.get(key);
+            if (timeline == null) {
+                return;
+            }
+            List<Appointment> slot = timeline.get(time);
+            if (slot != null && slot.remove(appointment) && slot.isEmpty()) {
+                timeline.remove(time);
+                if (timeline.isEmpty()) {
+                    timelines.remove(key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // All of a user's appointments ordered by time
+    public List<Appointment> all(String key) {
+        ReentrantReadWriteLock.ReadLock lock = lockFor(key).readLock();
+        lock.lock();
+        try {
+            return flatten(timelines.get(key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A user's appointments with from <= time < to, ordered by time
+    public List<Appointment> range(String key, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        ReentrantReadWriteLock.ReadLock lock = lockFor(key).readLock();
+        lock.lock();
+        try {
+            NavigableMap<LocalDateTime, List<Appointment>> timeline = timelines.get(key);
+            return timeline == null ? new ArrayList<>() : flatten(timeline.subMap(from, true, to, false));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A user's appointments at exactly the given time
+    public List<Appointment> at(String key, LocalDateTime time) {
+        ReentrantReadWriteLock.ReadLock lock = lockFor(key).readLock();
+        lock.lock();
+        try {
+            NavigableMap<LocalDateTime, List<Appointment>> timeline = timelines.get(key);
+            List<Appointment> slot = timeline == null ? null : timeline.get(time);
+            return slot == null ? new ArrayList<>() : new ArrayList<>(slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        for (ReentrantReadWriteLock stripe : locks) {
+            stripe.writeLock().lock();
+        }
+        try {
+            timelines.clear();
+        } finally {
+            for (ReentrantReadWriteLock stripe : locks) {
+                stripe.writeLock().unlock();
+            }
+        }
+    }
+
+    private ReentrantReadWriteLock lockFor(String key) {
+        int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static List<Appointment> flatten(NavigableMap<LocalDateTime, List<Appointment>> timeline) {
+        List<Appointment> result = new ArrayList<>();
+        if (timeline != null) {
+            for (List<Appointment> slot : timeline.values()) {
+                result.addAll(slot);
+            }
+        }
+        return result;
+    }
+}
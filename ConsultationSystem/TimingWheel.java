@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Hierarchical timing wheel: LEVELS wheels of SLOTS buckets each, where a bucket on
+// level n covers SLOTS^n ticks. A timeout goes into the coarsest level its distance
+// needs and is moved down ("cascaded") as its time approaches, so scheduling and
+// cancelling are O(1) and advancing one tick touches a single bucket (plus, every
+// SLOTS ticks, one bucket per higher level) no matter how many timeouts are pending.
+//
+// Buckets are intrusive doubly linked lists, so a Timeout unlinks itself without a
+// search. All methods lock the wheel briefly; expired payloads are handed back to
+// the caller of advanceTo, which runs them outside the lock.
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 5; // 64^5 ticks: about 34 years of one-second ticks
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Timeout<T>[][] buckets; // head sentinel per bucket
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.buckets = new Timeout[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout<T> head = new Timeout<>(this, 0, null);
+                head.prev = head;
+                head.next = head;
+                buckets[level][slot] = head;
+            }
+        }
+    }
+
+    // A scheduled payload; cancel() removes it in constant time
+    public static final class Timeout<T> {
+        private final TimingWheel<T> wheel;
+        private final long deadline; // in ticks
+        private final T payload;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private boolean linked;
+
+        private Timeout(TimingWheel<T> wheel, long deadline, T payload) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.payload = payload;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public long getDeadlineMillis() {
+            return deadline * wheel.tickMillis;
+        }
+
+        // False if it had already expired or been cancelled
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (!linked) {
+                    return false;
+                }
+                wheel.unlink(this);
+                wheel.size--;
+                return true;
+            }
+        }
+    }
+
+    // Schedule a payload for a time in epoch millis; times already passed expire on the next tick
+    public synchronized Timeout<T> schedule(long deadlineMillis, T payload) {
+        // Round up, so nothing fires before its time
+        long deadline = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Timeout<T> timeout = new Timeout<>(this, deadline, payload);
+        place(timeout, currentTick + 1); // the current tick's bucket has been processed already
+        size++;
+        return timeout;
+    }
+
+    // Advance to a time in epoch millis and return the payloads that expired, tick by tick
+    public List<T> advanceTo(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long target = nowMillis / tickMillis;
+            while (currentTick < target) {
+                currentTick++;
+                int slot = (int) (currentTick & (SLOTS - 1));
+                if (slot == 0) {
+                    cascade(1);
+                }
+                Timeout<T> head = buckets[0][slot];
+                while (head.next != head) {
+                    Timeout<T> timeout = head.next;
+                    unlink(timeout);
+                    size--;
+                    expired.add(timeout.payload);
+                }
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    // Re-place the bucket of this level that the current tick has reached; the level
+    // above gets its turn whenever this one wraps around
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        if (slot == 0) {
+            cascade(level + 1);
+        }
+        Timeout<T> head = buckets[level][slot];
+        Timeout<T> timeout = head.next;
+        head.next = head;
+        head.prev = head;
+        while (timeout != head) {
+            Timeout<T> next = timeout.next;
+            timeout.linked = false;
+            place(timeout, currentTick); // due now: advanceTo expires the current bucket next
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout<T> timeout, long earliestTick) {
+        long deadline = Math.max(timeout.deadline, earliestTick);
+        long delta = deadline - currentTick;
+        if (delta > MAX_DELTA) {
+            deadline = currentTick + MAX_DELTA; // placed as far out as the wheel reaches; cascades again later
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((deadline >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        Timeout<T> head = buckets[level][slot];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+        timeout.linked = true;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+    }
+}
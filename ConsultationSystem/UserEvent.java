@@ -0,0 +1,29 @@
+// A change to the user accounts, published on UserManager.getEventBus()
+public final class UserEvent {
+    public enum Type {
+        CREATED,
+        UPDATED, // getUser() is the replacement object
+        REMOVED
+    }
+
+    private final Type type;
+    private final User user;
+
+    public UserEvent(Type type, User user) {
+        this.type = type;
+        this.user = user;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + user.getUsername();
+    }
+}
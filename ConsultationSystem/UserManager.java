@@ -1,89 +1,197 @@
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 public class UserManager implements Serializable {
-    private final List<User> users;
-    private static UserManager instance; // 单例模式
+    // 按用户名索引的主表
+    private final ConcurrentHashMap<String, User> usersByName;
+    // 按角色索引的二级表：role -> (username -> user)
+    private final Map<String, Map<String, User>> usersByRole;
+    private transient volatile Journal journal; // 预写日志（可选）
+    private final transient List<Runnable> changeListeners = new CopyOnWriteArrayList<>(); // 数据变化时回调
+    private final transient EventBus<UserEvent> events = new EventBus<>("users"); // 具体的变化事件
+    // 登录耗时与失败次数
+    private static final Metrics.Timer LOGIN_TIMER = Metrics.timer("login");
+    private static final LongAdder LOGIN_FAILURES = Metrics.counter("login.failed");
 
     private UserManager() {
-        users = new ArrayList<>();
+        usersByName = new ConcurrentHashMap<>();
+        usersByRole = new ConcurrentHashMap<>();
+    }
+
+    // 单例模式：由类加载保证线程安全的延迟初始化
+    private static class Holder {
+        private static final UserManager INSTANCE = new UserManager();
     }
 
     // 获取 UserManager 实例
     public static UserManager getInstance() {
-        if (instance == null) {
-            instance = new UserManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
+    }
+
+    // 设置日志，之后用户的新增、修改、删除会追加到日志中
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // 注册数据变化回调（自动保存、界面刷新等）
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
     }
 
-    // 添加用户
+    // 用户新增、修改、删除事件，供需要增量更新的缓存和界面订阅
+    public EventBus<UserEvent> getEventBus() {
+        return events;
+    }
+
+    // 添加用户（同一用户名上的修改由 compute 串行化，角色索引、主表、日志和事件顺序保持一致；
+    // 事件在 compute 内发布，同步订阅者不得再修改同一用户名）
     public void addUser(User user) {
-        if (!userExists(user.getUsername())) {
-            users.add(user);
+        boolean[] added = new boolean[1];
+        usersByName.compute(user.getUsername(), (name, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            indexRole(user);
+            added[0] = true;
+            Journal current = journal;
+            if (current != null) {
+                current.logUserAdded(user);
+            }
+            events.publish(new UserEvent(UserEvent.Type.CREATED, user));
+            return user;
+        });
+        if (added[0]) {
+            changed();
         }
     }
 
+    // 批量导入用户：不写日志，调用方之后需保存快照；返回因用户名已存在而跳过的用户
+    public List<User> addUsers(List<User> batch) {
+        List<User> skipped = new ArrayList<>();
+        List<UserEvent> created = new ArrayList<>();
+        for (User user : batch) {
+            if (usersByName.putIfAbsent(user.getUsername(), user) == null) {
+                indexRole(user);
+                created.add(new UserEvent(UserEvent.Type.CREATED, user));
+            } else {
+                skipped.add(user);
+            }
+        }
+        events.publishAll(created);
+        if (skipped.size() < batch.size()) {
+            changed();
+        }
+        return skipped;
+    }
+
     // 检查用户是否存在
     public boolean userExists(String username) {
-        return users.stream()
-                .anyMatch(u -> u.getUsername().equals(username));
+        return usersByName.containsKey(username);
     }
 
     // 获取所有用户
     public List<User> getAllUsers() {
-        return new ArrayList<>(users); // 返回副本以保护内部数据
+        return new ArrayList<>(usersByName.values()); // 返回副本以保护内部数据
     }
 
     // 用户登录验证
     public User findUser(String username, String password) {
-        return users.stream()
-                .filter(u -> u.getUsername().equals(username) &&
-                           u.getPassword().equals(password))
-                .findFirst()
-                .orElse(null);
+        long start = Metrics.Timer.start();
+        try {
+            User user = usersByName.get(username);
+            if (user != null && user.getPassword().equals(password)) {
+                return user;
+            }
+            LOGIN_FAILURES.increment();
+            return null;
+        } finally {
+            LOGIN_TIMER.stop(start);
+        }
     }
 
     // 根据用户名查找用户
     public User getUserByUsername(String username) {
-        return users.stream()
-                .filter(u -> u.getUsername().equals(username))
-                .findFirst()
-                .orElse(null);
+        return usersByName.get(username);
     }
 
     // 根据角色获取用户列表
     public List<User> getUsersByRole(String role) {
-        List<User> roleUsers = new ArrayList<>();
-        for (User user : users) {
-            if (user.getRole().equals(role)) {
-                roleUsers.add(user);
-            }
+        Map<String, User> roleUsers = usersByRole.get(role);
+        if (roleUsers == null) {
+            return new ArrayList<>();
         }
-        return roleUsers;
+        return new ArrayList<>(roleUsers.values());
     }
 
     // 删除用户
     public boolean removeUser(String username) {
-        return users.removeIf(u -> u.getUsername().equals(username));
+        User[] removed = new User[1];
+        usersByName.computeIfPresent(username, (name, existing) -> {
+            unindexRole(existing);
+            removed[0] = existing;
+            Journal current = journal;
+            if (current != null) {
+                current.logUserRemoved(name);
+            }
+            events.publish(new UserEvent(UserEvent.Type.REMOVED, existing));
+            return null;
+        });
+        if (removed[0] != null) {
+            changed();
+        }
+        return removed[0] != null;
     }
 
     // 更新用户信息
     public boolean updateUser(String username, String newPassword) {
-        User user = getUserByUsername(username);
-        if (user != null) {
-            // 找到用户在列表中的索引
-            int index = users.indexOf(user);
-            // 创建新用户对象并更新到列表中
-            users.set(index, new User(username, newPassword, user.getRole()));
-            return true;
+        User updated = usersByName.computeIfPresent(username, (name, existing) -> {
+            // 创建新用户对象并替换索引中的旧对象
+            User replacement = new User(username, newPassword, existing.getRole());
+            indexRole(replacement);
+            Journal current = journal;
+            if (current != null) {
+                current.logUserUpdated(replacement);
+            }
+            events.publish(new UserEvent(UserEvent.Type.UPDATED, replacement));
+            return replacement;
+        });
+        if (updated != null) {
+            changed();
         }
-        return false;
+        return updated != null;
     }
 
     // 清空所有用户
     public void clearUsers() {
-        users.clear();
+        for (String username : usersByName.keySet()) {
+            removeUser(username);
+        }
+    }
+
+    private void changed() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    private void indexRole(User user) {
+        usersByRole.computeIfAbsent(user.getRole(), r -> new ConcurrentHashMap<>())
+                .put(user.getUsername(), user);
+    }
+
+    private void unindexRole(User user) {
+        Map<String, User> roleUsers = usersByRole.get(user.getRole());
+        if (roleUsers != null) {
+            roleUsers.remove(user.getUsername());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Synthetic users, appointments, rescheduling requests and feedback shaped like a
+// registration week: a few popular lecturers draw most bookings (Zipf), bookings bunch
+// into mid-morning and early-afternoon peaks on weekdays, and descriptions and feedback
+// come from a small set of common concerns. The same settings and seed always give the
+// same users, so a server seeded from the CSVs this writes can be driven by StressHarness.
+//
+//   -Dpcs.load.students     (default 2000)
+//   -Dpcs.load.lecturers    (default 40)
+//   -Dpcs.load.zipf         lecturer popularity skew; 0 is uniform (default 1.1)
+//   -Dpcs.load.horizonDays  how far ahead bookings go, from next Monday (default 28)
+//   -Dpcs.load.requestRate  share of seeded appointments with a rescheduling request (default 0.1)
+//   -Dpcs.load.feedbackRate share of seeded appointments with feedback (default 0.3)
+//   -Dpcs.load.seed         (default 42)
+//
+// java WorkloadGenerator users.csv [appointments.csv count] writes files for --import.
+public class WorkloadGenerator {
+    public static final int STUDENTS = Integer.getInteger("pcs.load.students", 2_000);
+    public static final int LECTURERS = Integer.getInteger("pcs.load.lecturers", 40);
+    public static final double ZIPF = Double.parseDouble(System.getProperty("pcs.load.zipf", "1.1"));
+    public static final int HORIZON_DAYS = Integer.getInteger("pcs.load.horizonDays", 28);
+    public static final double REQUEST_RATE =
+            Double.parseDouble(System.getProperty("pcs.load.requestRate", "0.1"));
+    public static final double FEEDBACK_RATE =
+            Double.parseDouble(System.getProperty("pcs.load.feedbackRate", "0.3"));
+    public static final long SEED = Long.getLong("pcs.load.seed", 42);
+
+    public static final int SLOT_MINUTES = 30;
+    // Relative demand for each starting hour, 9:00 to 16:00
+    private static final int FIRST_HOUR = 9;
+    private static final int[] HOUR_WEIGHTS = {2, 5, 5, 1, 3, 5, 3, 1};
+    private static final String[] CONCERNS = {
+            "exam anxiety", "sleep problems", "stress about deadlines", "homesickness", "low mood",
+            "relationship difficulties", "grief after a bereavement", "panic attacks", "trouble concentrating",
+            "feeling lonely", "career worries", "family conflict", "motivation for thesis work",
+            "adjusting to university", "time management"};
+    private static final String[] OPENINGS = {"Would like to talk about", "Struggling with", "Follow-up on",
+            "First session about", "Referred by tutor for"};
+    private static final String[] FEEDBACK = {"Very helpful session", "Felt listened to",
+            "Good practical advice", "Session felt rushed", "Would like longer appointments",
+            "Helped me plan the next steps", "Not what I expected"};
+    private static final int[] RATING_WEIGHTS = {1, 1, 3, 6, 8}; // ratings 1 to 5
+
+    private final int students;
+    private final int lecturers;
+    private final double[] lecturerCdf;
+    private final int[] hourCdf;
+    private final LocalDate firstDay;
+    private final int horizonDays;
+    private final long seed;
+
+    public WorkloadGenerator() {
+        this(STUDENTS, LECTURERS, ZIPF, HORIZON_DAYS, SEED);
+    }
+
+    public WorkloadGenerator(int students, int lecturers, double zipf, int horizonDays, long seed) {
+        if (students < 1 || lecturers < 1 || horizonDays < 1) {
+            throw new IllegalArgumentException("Students, lecturers and horizon must be positive");
+        }
+        this.students = students;
+        this.lecturers = lecturers;
+        this.horizonDays = horizonDays;
+        this.seed = seed;
+        this.firstDay = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        lecturerCdf = new double[lecturers];
+        double total = 0;
+        for (int i = 0; i < lecturers; i++) {
+            total += 1 / Math.pow(i + 1, zipf);
+            lecturerCdf[i] = total;
+        }
+        for (int i = 0; i < lecturers; i++) {
+            lecturerCdf[i] /= total;
+        }
+        hourCdf = new int[HOUR_WEIGHTS.length];
+        int sum = 0;
+        for (int i = 0; i < HOUR_WEIGHTS.length; i++) {
+            sum += HOUR_WEIGHTS[i];
+            hourCdf[i] = sum;
+        }
+    }
+
+    // A random source for one stream of work (e.g. one virtual user), reproducible per stream
+    public Random random(int stream) {
+        return new Random(seed * 1_000_003L + stream);
+    }
+
+    public int getStudentCount() {
+        return students;
+    }
+
+    public int getLecturerCount() {
+        return lecturers;
+    }
+
+    public static String student(int i) {
+        return String.format("s%05d", i);
+    }
+
+    public static String lecturer(int i) {
+        return String.format("l%03d", i);
+    }
+
+    public static String passwordFor(String username) {
+        return "pw-" + username;
+    }
+
+    public List<User> users() {
+        List<User> users = new ArrayList<>(students + lecturers);
+        for (int i = 0; i < lecturers; i++) {
+            users.add(new User(lecturer(i), passwordFor(lecturer(i)), "lecturer"));
+        }
+        for (int i = 0; i < students; i++) {
+            users.add(new User(student(i), passwordFor(student(i)), "student"));
+        }
+        return users;
+    }
+
+    public String randomStudent(Random random) {
+        return student(random.nextInt(students));
+    }
+
+    // Lecturer 0 is the most popular
+    public String randomLecturer(Random random) {
+        int i = Arrays.binarySearch(lecturerCdf, random.nextDouble());
+        return lecturer(Math.min(lecturers - 1, i < 0 ? -i - 1 : i));
+    }
+
+    // A half-hour slot on a weekday within the horizon, weighted towards the peak hours
+    public LocalDateTime randomSlot(Random random) {
+        LocalDate day;
+        do {
+            day = firstDay.plusDays(random.nextInt(horizonDays));
+        } while (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY);
+        int pick = random.nextInt(hourCdf[hourCdf.length - 1]);
+        int hour = 0;
+        while (hourCdf[hour] <= pick) {
+            hour++;
+        }
+        return day.atTime(FIRST_HOUR + hour, random.nextBoolean() ? 0 : SLOT_MINUTES);
+    }
+
+    public String randomDescription(Random random) {
+        return OPENINGS[random.nextInt(OPENINGS.length)] + " " + CONCERNS[random.nextInt(CONCERNS.length)];
+    }
+
+    public Appointment newAppointment(Random random, String student) {
+        return new Appointment(student, randomLecturer(random), randomSlot(random), randomDescription(random),
+                SLOT_MINUTES);
+    }
+
+    public Feedback newFeedback(Random random, String student, String lecturer) {
+        int pick = random.nextInt(19);
+        int rating = 1;
+        for (int i = 0, seen = 0; i < RATING_WEIGHTS.length; i++) {
+            seen += RATING_WEIGHTS[i];
+            if (pick < seen) {
+                rating = i + 1;
+                break;
+            }
+        }
+        String content = FEEDBACK[random.nextInt(FEEDBACK.length)] + " about " + CONCERNS[random.nextInt(CONCERNS.length)];
+        return new Feedback(student, lecturer, content, rating);
+    }
+
+    // Add the users, then book up to appointments random appointments (clashing picks are
+    // skipped, as a student would pick another slot) with some requests and feedback.
+    // Returns the number booked.
+    public int populate(UserManager userManager, AppointmentManager appointmentManager,
+                        RescheduleManager rescheduleManager, FeedbackManager feedbackManager, int appointments) {
+        userManager.addUsers(users());
+        Random random = random(-1);
+        int booked = 0;
+        for (int attempt = 0; booked < appointments && attempt < appointments * 4; attempt++) {
+            Appointment appointment = newAppointment(random, randomStudent(random));
+            try {
+                appointmentManager.addAppointment(appointment);
+            } catch (SchedulingConflictException e) {
+                continue;
+            }
+            booked++;
+            if (rescheduleManager != null && random.nextDouble() < REQUEST_RATE) {
+                rescheduleManager.submitRequest(new ReschedulingRequest(appointment, randomSlot(random),
+                        appointment.getStudentName(), "Clashes with a lecture"));
+            }
+            if (feedbackManager != null && random.nextDouble() < FEEDBACK_RATE) {
+                feedbackManager.submitFeedback(newFeedback(random, appointment.getStudentName(),
+                        appointment.getLecturerName()));
+            }
+        }
+        return booked;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 3) {
+            System.err.println("Usage: WorkloadGenerator users.csv [appointments.csv count]");
+            System.exit(2);
+        }
+        WorkloadGenerator generator = new WorkloadGenerator();
+        int users = BulkExporter.exportUsers(generator.users(), args[0]);
+        System.out.println("Wrote " + users + " users to " + args[0]);
+        if (args.length == 3) {
+            AppointmentManager appointmentManager = new AppointmentManager();
+            generator.populate(UserManager.getInstance(), appointmentManager, null, null, Integer.parseInt(args[2]));
+            int appointments = BulkExporter.exportAppointments(appointmentManager.getAllAppointments(), args[1]);
+            System.out.println("Wrote " + appointments + " appointments to " + args[1]);
+        }
+    }
+}
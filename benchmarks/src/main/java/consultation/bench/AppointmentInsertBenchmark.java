@@ -0,0 +1,64 @@
+package consultation.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conflict-checked booking into a manager that already holds {@code appointments}
+ * entries. Every iteration starts from a freshly loaded manager and books
+ * {@link #BATCH} new, non-overlapping appointments, so growth within an
+ * iteration is negligible next to the base size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class AppointmentInsertBenchmark {
+
+    static final int BATCH = 1_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    private List<Object> existing;
+    private List<Object> incoming;
+    private Object manager;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        int lecturers = Core.lecturersFor(appointments);
+        int students = Core.studentsFor(appointments);
+        List<Object> all = Core.appointments(appointments + BATCH, lecturers, students);
+        existing = all.subList(0, appointments);
+        incoming = all.subList(appointments, appointments + BATCH);
+    }
+
+    @Setup(Level.Iteration)
+    public void load() {
+        manager = Core.newAppointmentManager();
+        Core.setAppointments(manager, existing);
+    }
+
+    @Benchmark
+    public Object addAppointments() {
+        for (Object appointment : incoming) {
+            Core.addAppointment(manager, appointment);
+        }
+        return manager;
+    }
+}
@@ -0,0 +1,329 @@
+package consultation.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bridge to the application classes, which live in the unnamed package and so
+ * cannot be imported from here (JMH refuses benchmarks in the default package).
+ * Each handle is a static final constant adapted to an Object-typed signature,
+ * so invokeExact call sites are fully inlined by the JIT.
+ */
+final class Core {
+
+    static final Path DATA_DIR;
+
+    static {
+        // FileManager reads pcs.dataDir in its static initialiser, so this must run first
+        try {
+            DATA_DIR = Files.createTempDirectory("pcs-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.setProperty("pcs.dataDir", DATA_DIR.toString());
+        System.setProperty("pcs.journal", "false");
+    }
+
+    static final LocalDateTime BASE_TIME = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private static final Class<?> USER = type("User");
+    private static final Class<?> USER_MANAGER = type("UserManager");
+    private static final Class<?> APPOINTMENT = type("Appointment");
+    private static final Class<?> APPOINTMENT_MANAGER = type("AppointmentManager");
+    private static final Class<?> FILE_MANAGER = type("FileManager");
+
+    private static final MethodHandle NEW_USER = constructor(USER, String.class, String.class, String.class);
+    private static final MethodHandle USER_MANAGER_INSTANCE = findStatic(USER_MANAGER, "getInstance", USER_MANAGER);
+    private static final MethodHandle ADD_USER = findVirtual(USER_MANAGER, "addUser", void.class, USER);
+    private static final MethodHandle CLEAR_USERS = findVirtual(USER_MANAGER, "clearUsers", void.class);
+    private static final MethodHandle FIND_USER = findVirtual(USER_MANAGER, "findUser", USER, String.class, String.class);
+    private static final MethodHandle USERS_BY_ROLE = findVirtual(USER_MANAGER, "getUsersByRole", List.class, String.class);
+
+    private static final MethodHandle NEW_APPOINTMENT =
+            constructor(APPOINTMENT, String.class, String.class, LocalDateTime.class, String.class);
+    private static final MethodHandle STUDENT_NAME = findVirtual(APPOINTMENT, "getStudentName", String.class);
+
+    private static final MethodHandle NEW_APPOINTMENT_MANAGER = constructor(APPOINTMENT_MANAGER);
+    private static final MethodHandle ADD_APPOINTMENT = findVirtual(APPOINTMENT_MANAGER, "addAppointment", void.class, APPOINTMENT);
+    private static final MethodHandle SET_APPOINTMENTS = findVirtual(APPOINTMENT_MANAGER, "setAppointments", void.class, List.class);
+    private static final MethodHandle ALL_APPOINTMENTS = findVirtual(APPOINTMENT_MANAGER, "getAllAppointments", List.class);
+    private static final MethodHandle FOR_STUDENT =
+            findVirtual(APPOINTMENT_MANAGER, "getAppointmentsForStudent", List.class, String.class);
+    private static final MethodHandle FOR_LECTURER =
+            findVirtual(APPOINTMENT_MANAGER, "getAppointmentsForLecturer", List.class, String.class);
+    private static final MethodHandle FOR_LECTURER_BETWEEN = findVirtual(APPOINTMENT_MANAGER,
+            "getAppointmentsForLecturerBetween", List.class, String.class, LocalDateTime.class, LocalDateTime.class);
+    private static final MethodHandle ALL_BETWEEN = findVirtual(APPOINTMENT_MANAGER,
+            "getAppointmentsBetween", List.class, LocalDateTime.class, LocalDateTime.class);
+
+    private static final MethodHandle SAVE_APPOINTMENTS = findStatic(FILE_MANAGER, "saveAppointments", void.class, List.class);
+    private static final MethodHandle LOAD_APPOINTMENTS = findStatic(FILE_MANAGER, "loadAppointments", List.class);
+
+    private Core() {
+    }
+
+    // ---- users ----
+
+    static Object newUser(String username, String password, String role) {
+        try {
+            return (Object) NEW_USER.invokeExact(username, password, role);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object userManager() {
+        try {
+            return (Object) USER_MANAGER_INSTANCE.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void addUser(Object userManager, Object user) {
+        try {
+            ADD_USER.invokeExact(userManager, user);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void clearUsers(Object userManager) {
+        try {
+            CLEAR_USERS.invokeExact(userManager);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object findUser(Object userManager, String username, String password) {
+        try {
+            return (Object) FIND_USER.invokeExact(userManager, username, password);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> usersByRole(Object userManager, String role) {
+        try {
+            return (List<?>) USERS_BY_ROLE.invokeExact(userManager, role);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // ---- appointments ----
+
+    static Object newAppointment(String student, String lecturer, LocalDateTime time, String description) {
+        try {
+            return (Object) NEW_APPOINTMENT.invokeExact(student, lecturer, time, description);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String studentName(Object appointment) {
+        try {
+            return (String) STUDENT_NAME.invokeExact(appointment);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newAppointmentManager() {
+        try {
+            return (Object) NEW_APPOINTMENT_MANAGER.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void addAppointment(Object manager, Object appointment) {
+        try {
+            ADD_APPOINTMENT.invokeExact(manager, appointment);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void setAppointments(Object manager, List<?> appointments) {
+        try {
+            SET_APPOINTMENTS.invokeExact(manager, appointments);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> allAppointments(Object manager) {
+        try {
+            return (List<?>) ALL_APPOINTMENTS.invokeExact(manager);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> appointmentsForStudent(Object manager, String student) {
+        try {
+            return (List<?>) FOR_STUDENT.invokeExact(manager, student);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> appointmentsForLecturer(Object manager, String lecturer) {
+        try {
+            return (List<?>) FOR_LECTURER.invokeExact(manager, lecturer);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> appointmentsForLecturerBetween(Object manager, String lecturer, LocalDateTime from, LocalDateTime to) {
+        try {
+            return (List<?>) FOR_LECTURER_BETWEEN.invokeExact(manager, lecturer, from, to);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> appointmentsBetween(Object manager, LocalDateTime from, LocalDateTime to) {
+        try {
+            return (List<?>) ALL_BETWEEN.invokeExact(manager, from, to);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // ---- persistence ----
+
+    static void saveAppointments(List<?> appointments) {
+        try {
+            SAVE_APPOINTMENTS.invokeExact(appointments);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> loadAppointments() {
+        try {
+            return (List<?>) LOAD_APPOINTMENTS.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // ---- data generation ----
+
+    static String studentName(int i) {
+        return "student" + i;
+    }
+
+    static String lecturerName(int i) {
+        return "lecturer" + i;
+    }
+
+    /**
+     * Builds {@code count} non-overlapping appointments spread over {@code lecturers}
+     * lecturers and {@code students} students. Appointment i is the (i / lecturers)-th
+     * hourly slot of lecturer i % lecturers, so no participant is ever double booked
+     * as long as students is a multiple of lecturers.
+     */
+    static List<Object> appointments(int count, int lecturers, int students) {
+        List<Object> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(appointment(i, lecturers, students));
+        }
+        return result;
+    }
+
+    static Object appointment(int i, int lecturers, int students) {
+        int lecturer = i % lecturers;
+        int slot = i / lecturers;
+        // Each student stays with one lecturer, so their slots never collide either
+        int student = lecturer + lecturers * (slot % (students / lecturers));
+        return newAppointment(studentName(student), lecturerName(lecturer),
+                BASE_TIME.plusHours(slot), "Benchmark consultation " + i);
+    }
+
+    /** Scales the population with the data set so per-user lists stay realistic. */
+    static int lecturersFor(int appointments) {
+        return Math.max(10, appointments / 1_000);
+    }
+
+    static int studentsFor(int appointments) {
+        return lecturersFor(appointments) * 20;
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findConstructor(owner, MethodType.methodType(void.class, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle findStatic(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle findVirtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return erase(LOOKUP.findVirtual(owner, name, MethodType.methodType(returnType, parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Replaces application types with Object so call sites here can be compiled. */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isApplicationType(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isApplicationType(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isApplicationType(Class<?> type) {
+        return !type.isPrimitive() && type.getPackageName().isEmpty();
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t instanceof IOException) {
+            return new UncheckedIOException((IOException) t);
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,86 @@
+package consultation.bench;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-user filtering behind the student and lecturer dashboards. The
+ * {@code scan} variant is the original approach (copy every appointment, then
+ * filter by name) and serves as the baseline for the indexed queries. Each query
+ * runs against every appointment store ({@code -Dpcs.appointmentStore}); the
+ * partitioned one fans {@code everyoneWeek} out across its shards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DashboardQueryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    @Param({"heap", "columnar", "partitioned"})
+    public String store;
+
+    private Object manager;
+    private int lecturers;
+    private int students;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lecturers = Core.lecturersFor(appointments);
+        students = Core.studentsFor(appointments);
+        System.setProperty("pcs.appointmentStore", store);
+        manager = Core.newAppointmentManager();
+        Core.setAppointments(manager, Core.appointments(appointments, lecturers, students));
+    }
+
+    @Benchmark
+    public List<?> studentDashboardScan() {
+        String student = Core.studentName(ThreadLocalRandom.current().nextInt(students));
+        return Core.allAppointments(manager).stream()
+                .filter(a -> Core.studentName(a).equals(student))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<?> studentDashboardIndexed() {
+        return Core.appointmentsForStudent(manager, Core.studentName(ThreadLocalRandom.current().nextInt(students)));
+    }
+
+    @Benchmark
+    public List<?> lecturerDashboardIndexed() {
+        return Core.appointmentsForLecturer(manager, Core.lecturerName(ThreadLocalRandom.current().nextInt(lecturers)));
+    }
+
+    @Benchmark
+    public List<?> lecturerWeekIndexed() {
+        String lecturer = Core.lecturerName(ThreadLocalRandom.current().nextInt(lecturers));
+        LocalDateTime from = Core.BASE_TIME.plusHours(ThreadLocalRandom.current().nextInt(appointments / lecturers + 1));
+        return Core.appointmentsForLecturerBetween(manager, lecturer, from, from.plusWeeks(1));
+    }
+
+    @Benchmark
+    public List<?> everyoneWeek() {
+        LocalDateTime from = Core.BASE_TIME.plusHours(ThreadLocalRandom.current().nextInt(appointments / lecturers + 1));
+        return Core.appointmentsBetween(manager, from, from.plusWeeks(1));
+    }
+}
@@ -0,0 +1,55 @@
+package consultation.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** FileManager snapshot save and load of {@code appointments} entries (written under a temp pcs.dataDir). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    private List<Object> data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = Core.appointments(appointments, Core.lecturersFor(appointments), Core.studentsFor(appointments));
+        Core.saveAppointments(data);
+    }
+
+    @Benchmark
+    public List<?> save() {
+        Core.saveAppointments(data);
+        return data;
+    }
+
+    @Benchmark
+    public List<?> load() {
+        return Core.loadAppointments();
+    }
+
+    @Benchmark
+    public List<?> roundTrip() {
+        Core.saveAppointments(data);
+        return Core.loadAppointments();
+    }
+}
@@ -0,0 +1,69 @@
+package consultation.bench;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Login lookups and role listings against a UserManager holding {@code users} accounts. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserManagerBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int users;
+
+    private Object userManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userManager = Core.userManager();
+        Core.clearUsers(userManager);
+        // One lecturer for every hundred students, like a real department
+        for (int i = 0; i < users; i++) {
+            boolean lecturer = i % 100 == 0;
+            String name = lecturer ? Core.lecturerName(i) : Core.studentName(i);
+            Core.addUser(userManager, Core.newUser(name, "pw" + i, lecturer ? "lecturer" : "student"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Core.clearUsers(userManager);
+    }
+
+    @Benchmark
+    public Object findUser() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        String name = i % 100 == 0 ? Core.lecturerName(i) : Core.studentName(i);
+        return Core.findUser(userManager, name, "pw" + i);
+    }
+
+    @Benchmark
+    public Object findUserWrongPassword() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        return Core.findUser(userManager, Core.studentName(i), "wrong");
+    }
+
+    @Benchmark
+    public List<?> getLecturers() {
+        return Core.usersByRole(userManager, "lecturer");
+    }
+}
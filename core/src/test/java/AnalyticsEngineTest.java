@@ -0,0 +1,158 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// After any mix of changes, refreshing only the stale cells must give the same reports as
+// aggregating the whole history again. The "full" engine follows the same events (so it
+// counts the same cancellations) but builds everything on its first report.
+class AnalyticsEngineTest {
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2030, 1, 7, 9, 0);
+    private static final LongAdder CELLS_REFRESHED = Metrics.counter("analytics.cellsRefreshed");
+
+    @TempDir
+    Path dir;
+
+    private final AppointmentManager appointments = new AppointmentManager();
+    private final List<AnalyticsEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        engines.forEach(AnalyticsEngine::close);
+    }
+
+    @Test
+    void incrementalRefreshMatchesFullRebuildIncludingArchivedWeeks() throws IOException {
+        appointments.setArchive(new AppointmentArchive(dir.toFile()));
+        List<Appointment> booked = new ArrayList<>();
+        for (int week = 0; week < 20; week++) {
+            for (int lecturer = 0; lecturer < 2; lecturer++) {
+                Appointment appointment = new Appointment("s" + week, "l" + lecturer,
+                        MONDAY.plusWeeks(week).plusDays(lecturer).plusHours(week % 3), "session", 30 + 15 * lecturer);
+                appointment.setConfirmed(week % 2 == 0);
+                appointments.addAppointment(appointment);
+                booked.add(appointment);
+            }
+        }
+        // Imported history keeps cancelled appointments with their status
+        Appointment imported = new Appointment("s-old", "l0", MONDAY.plusDays(2), "session", 30);
+        imported.setStatus("Cancelled");
+        appointments.restoreAppointment(imported);
+        assertTrue(appointments.archivePast(TODAY) > 0);
+
+        AnalyticsEngine incremental = engine();
+        List<List<List<Object>>> before = reports(incremental);
+        AnalyticsEngine full = engine();
+
+        Appointment added = new Appointment("s-new", "l2", MONDAY.plusWeeks(21), "new", 60);
+        appointments.addAppointment(added);
+        appointments.confirmAppointment(added);
+        appointments.confirmAppointment(booked.get(2 * 15 + 1));
+        appointments.removeAppointment(booked.get(2 * 16));
+        appointments.rescheduleAppointment(booked.get(2 * 17 + 1), MONDAY.plusWeeks(22).plusHours(5));
+        appointments.rescheduleAppointment(booked.get(2 * 18), booked.get(2 * 18).getAppointmentTime().plusHours(2));
+
+        List<List<List<Object>>> after = reports(incremental);
+        assertEquals(reports(full), after);
+        assertNotEquals(before, after);
+        // January and February are archived and still reported, the imported cancellation included
+        assertEquals(List.of(List.of("2030-01-07", 2L, 2L, 1L, 1.25, 1.0, 0.3333)),
+                rows(incremental.report("weeks", LocalDate.of(2030, 1, 7), LocalDate.of(2030, 1, 14))));
+        assertEquals(rows(full.report("lecturers", LocalDate.of(2030, 4, 1), null)),
+                rows(incremental.report("lecturers", LocalDate.of(2030, 4, 1), null)));
+    }
+
+    @Test
+    void incrementalRefreshMatchesForkJoinAggregation() {
+        AnalyticsEngine incremental = engine();
+        reports(incremental);
+        AnalyticsEngine full = engine();
+
+        // More appointments than one aggregation task takes, so the full build splits and
+        // merges partial cells of the same lecturer and week
+        List<Appointment> batch = new ArrayList<>();
+        for (int k = 0; k < 9; k++) {
+            for (int week = 0; week < 50; week++) {
+                for (int lecturer = 0; lecturer < 20; lecturer++) {
+                    Appointment appointment = new Appointment("s" + batch.size(), "l" + lecturer,
+                            MONDAY.plusWeeks(week).plusDays(k % 5).plusHours(k / 5), "session", 30 + 15 * (k % 2));
+                    appointment.setConfirmed((lecturer + k) % 3 == 0);
+                    batch.add(appointment);
+                }
+            }
+        }
+        assertEquals(List.of(), appointments.addAppointments(batch));
+        long refreshed = CELLS_REFRESHED.sum();
+
+        List<List<List<Object>>> rebuilt = reports(full);
+        assertEquals(batch.size(), CELLS_REFRESHED.sum() - refreshed);
+        refreshed = CELLS_REFRESHED.sum();
+        assertEquals(rebuilt, reports(incremental));
+        assertEquals(1000, CELLS_REFRESHED.sum() - refreshed);
+    }
+
+    @Test
+    void tooManyStaleCellsRebuildEverything() {
+        for (int i = 0; i < 50; i++) {
+            appointments.addAppointment(new Appointment("s", "l", MONDAY.plusMinutes(30 * i), "session", 30));
+        }
+        AnalyticsEngine incremental = engine();
+        reports(incremental);
+        AnalyticsEngine full = engine();
+
+        List<Appointment> batch = new ArrayList<>();
+        for (int week = 0; week < 101; week++) {
+            for (int lecturer = 0; lecturer < 100; lecturer++) {
+                batch.add(new Appointment("s" + batch.size(), "l" + lecturer, MONDAY.plusWeeks(week).plusHours(1),
+                        "session", 30));
+            }
+        }
+        appointments.addAppointments(batch);
+        Appointment cancelled = batch.get(0);
+        appointments.removeAppointment(cancelled);
+        long refreshed = CELLS_REFRESHED.sum();
+
+        List<List<List<Object>>> after = reports(incremental);
+
+        // One pass over the history rather than one query per stale cell
+        assertEquals(50 + batch.size() - 1, CELLS_REFRESHED.sum() - refreshed);
+        assertEquals(reports(full), after);
+        assertEquals(List.of("l0", 100L, 0L, 1L), rows(incremental.report("lecturers", null, null)).get(1).subList(0, 4));
+    }
+
+    private AnalyticsEngine engine() {
+        AnalyticsEngine engine = new AnalyticsEngine(appointments, new AvailabilityEngine(appointments));
+        engine.start();
+        engines.add(engine);
+        return engine;
+    }
+
+    private static List<List<List<Object>>> reports(AnalyticsEngine engine) {
+        List<List<List<Object>>> reports = new ArrayList<>();
+        for (String report : List.of("lecturers", "weeks", "demand")) {
+            reports.add(rows(engine.report(report, null, null)));
+        }
+        return reports;
+    }
+
+    private static List<List<Object>> rows(List<Object[]> rows) {
+        List<List<Object>> result = new ArrayList<>();
+        for (Object[] row : rows) {
+            result.add(Arrays.asList(row));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,32 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class AppointmentTableModelTest {
+    @Test
+    void wideningTheFilterKeepsTheChosenSortOrder() {
+        LocalDateTime time = LocalDateTime.of(2030, 3, 4, 10, 0);
+        List<Appointment> appointments = List.of(
+                new Appointment("s", "l", time, "c stress", 30),
+                new Appointment("s", "l", time.plusHours(1), "a sleep", 30),
+                new Appointment("s", "l", time.plusHours(2), "b stress", 30));
+        AppointmentTableModel model = new AppointmentTableModel(() -> appointments, a -> true, false);
+        model.sortBy(AppointmentTableModel.DESCRIPTION_COLUMN);
+
+        model.setFilter("stress");
+        assertEquals(List.of("b stress", "c stress"), descriptions(model));
+        model.setFilter("");
+        assertEquals(List.of("a sleep", "b stress", "c stress"), descriptions(model));
+    }
+
+    private static List<Object> descriptions(AppointmentTableModel model) {
+        return IntStream.range(0, model.getRowCount())
+                .mapToObj(row -> model.getAppointmentAt(row).getDescription())
+                .collect(Collectors.toList());
+    }
+}
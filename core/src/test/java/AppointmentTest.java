@@ -0,0 +1,17 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+class AppointmentTest {
+    // Columnar views read every field from their row and leave their own fields unset
+    @Test
+    void storedViewsReportTheirId() {
+        AppointmentManager manager = new AppointmentManager(new ColumnarAppointmentStore());
+        manager.addAppointment(new Appointment("s", "l", LocalDateTime.of(2030, 3, 4, 10, 0), "first session", 30));
+        Appointment view = manager.getAllAppointments().get(0);
+        assertEquals(String.valueOf(view.getId()), view.getAppointmentId());
+        assertEquals("1", view.getAppointmentId());
+    }
+}
@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A bad row is reported against its own line and skipped; the rest of the file still imports
+class BulkImporterTest {
+    private static final String STUDENT = "import-test-student";
+    private static final String LECTURER = "import-test-lecturer";
+    private static final LocalDateTime TEN = LocalDateTime.of(2031, 5, 6, 10, 0);
+
+    @TempDir
+    Path dir;
+
+    private final AppointmentManager appointments = new AppointmentManager();
+    private final BulkImporter importer = new BulkImporter(UserManager.getInstance(), appointments,
+            new RescheduleManager(appointments));
+
+    @BeforeAll
+    static void users() {
+        UserManager.getInstance().addUser(new User(STUDENT, "pw", "student"));
+        UserManager.getInstance().addUser(new User(LECTURER, "pw", "lecturer"));
+    }
+
+    @Test
+    void csvUsersReportEachBadLine() throws IOException {
+        Path file = write("users.csv",
+                "Username,Password,Role",
+                "import-test-a,pw,Student",
+                "import-test-b,pw,admin",
+                "import-test-c,,lecturer",
+                "import-test-d,pw",
+                "\"import-test-e\",\"p,w\",lecturer",
+                "",
+                "import-test-a,other,student",
+                "\"import-test-f,pw,student");
+
+        BulkImporter.Report report = importer.importUsers(file.toString());
+
+        assertEquals(2, report.getImported());
+        assertEquals(5, report.getFailed());
+        assertEquals(List.of(
+                "line 3: role must be 'student' or 'lecturer', got 'admin'",
+                "line 4: missing password",
+                "line 5: expected 3 fields, found 2",
+                "line 9: unterminated quoted field",
+                "line 8: user 'import-test-a' already exists"), report.getErrors());
+        assertEquals("p,w", UserManager.getInstance().getUserByUsername("import-test-e").getPassword());
+        assertEquals("student", UserManager.getInstance().getUserByUsername("import-test-a").getRole());
+    }
+
+    @Test
+    void jsonLinesAppointmentsReportEachBadLine() throws IOException {
+        Path file = write("appointments.jsonl",
+                json(STUDENT, LECTURER, "2031-05-06 10:00", ""),
+                "{\"student\": \"" + STUDENT + "\", \"lecturer\": ",
+                "[1, 2]",
+                json(STUDENT, LECTURER, "2031-05-06 25:00", ""),
+                json(STUDENT, LECTURER, "06/05/2031 11:00", ""),
+                json("nobody", LECTURER, "2031-05-06 11:00", ""),
+                json(LECTURER, STUDENT, "2031-05-06 11:00", ""),
+                json(STUDENT, LECTURER, "2031-05-06 12:00", ", \"durationMinutes\": 0"),
+                json(STUDENT, LECTURER, "2031-05-06 13:00", ", \"confirmed\": \"maybe\""),
+                json(STUDENT, LECTURER, "2031-05-06 14:00", ", \"status\": \"Confirmed\""));
+
+        BulkImporter.Report report = importer.importAppointments(file.toString());
+
+        assertEquals(2, report.getImported());
+        assertEquals(8, report.getFailed());
+        List<String> errors = report.getErrors();
+        assertTrue(errors.get(0).startsWith("line 2: "), errors.get(0));
+        assertEquals("line 3: Expected a JSON object", errors.get(1));
+        assertEquals(List.of(
+                "line 4: time must be yyyy-MM-dd HH:mm, got '2031-05-06 25:00'",
+                "line 5: time must be yyyy-MM-dd HH:mm, got '06/05/2031 11:00'",
+                "line 6: unknown student 'nobody'",
+                "line 7: '" + LECTURER + "' is not a student",
+                "line 8: durationMinutes must be positive",
+                "line 9: confirmed must be true or false, got 'maybe'"), errors.subList(2, errors.size()));
+        Appointment confirmed = appointments.findAppointment(STUDENT, LECTURER, TEN.withHour(14));
+        assertTrue(confirmed.isConfirmed());
+    }
+
+    @Test
+    void takenIdsFailInsteadOfBeingRenumbered() throws IOException {
+        Appointment existing = new Appointment(STUDENT, LECTURER, TEN, "booked", 30);
+        existing.setId(7);
+        appointments.restoreAppointment(existing);
+        Path file = write("appointments.csv",
+                "student,lecturer,time,id",
+                STUDENT + "," + LECTURER + ",2031-05-07 10:00,7",
+                STUDENT + "," + LECTURER + ",2031-05-07 11:00,8",
+                STUDENT + "," + LECTURER + ",2031-05-07 12:00,8",
+                STUDENT + "," + LECTURER + ",2031-05-07 13:00,");
+
+        BulkImporter.Report report = importer.importAppointments(file.toString());
+
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(
+                "line 2: id 7 is already taken by " + STUDENT + " with " + LECTURER + " at 2031-05-06T10:00",
+                "line 4: id 8 is already taken by " + STUDENT + " with " + LECTURER + " at 2031-05-07T11:00"),
+                report.getErrors());
+        assertEquals(TEN, appointments.findById(7).getAppointmentTime());
+        assertEquals(TEN.plusDays(1).withHour(11), appointments.findById(8).getAppointmentTime());
+        assertNull(appointments.findAppointment(STUDENT, LECTURER, TEN.plusDays(1)));
+        assertNotNull(appointments.findAppointment(STUDENT, LECTURER, TEN.plusDays(1).withHour(13)));
+    }
+
+    @Test
+    void conflictingRowsResolveInFileOrder() throws IOException {
+        Path file = write("appointments.csv",
+                "student,lecturer,time,durationMinutes",
+                STUDENT + "," + LECTURER + ",2031-05-08 10:30,30",
+                STUDENT + "," + LECTURER + ",2031-05-08 10:00,45");
+
+        BulkImporter.Report report = importer.importAppointments(file.toString());
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getErrors().size());
+        assertTrue(report.getErrors().get(0).startsWith("line 3: lecturer " + LECTURER), report.getErrors().get(0));
+        assertNotNull(appointments.findAppointment(STUDENT, LECTURER, LocalDateTime.of(2031, 5, 8, 10, 30)));
+    }
+
+    @Test
+    void unsupportedFileTypeIsRejected() throws IOException {
+        Path file = write("users.txt", "username,password,role");
+        assertThrows(IOException.class, () -> importer.importUsers(file.toString()));
+    }
+
+    private static String json(String student, String lecturer, String time, String extra) {
+        return "{\"student\": \"" + student + "\", \"lecturer\": \"" + lecturer + "\", \"time\": \"" + time + "\""
+                + extra + "}";
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+}
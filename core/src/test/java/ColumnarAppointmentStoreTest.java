@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+// Removed rows must not pile up for the life of the store, and views handed out before
+// the space is reclaimed must keep working
+class ColumnarAppointmentStoreTest {
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2030, 3, 4, 9, 0);
+    private static final int COUNT = 10_000;
+
+    @Test
+    void removedRowsAreReclaimedAndOldViewsFollowTheirRows() {
+        ColumnarAppointmentStore store = new ColumnarAppointmentStore();
+        List<Appointment> views = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            Appointment appointment = new Appointment("s" + i, "l" + (i % 10), MONDAY.plusMinutes(30L * i),
+                    "session " + i, 30);
+            appointment.setId(i + 1);
+            store.putIfAbsent(appointment);
+            views.add(appointment);
+        }
+        Map<Appointment, String> byView = new HashMap<>();
+        for (Appointment view : views) {
+            byView.put(view, view.getDescription());
+        }
+
+        // Remove every odd appointment, then most even ones
+        for (int i = 1; i < COUNT; i += 2) {
+            assertTrue(store.remove(views.get(i)));
+        }
+        for (int i = 0; i < COUNT - 100; i += 2) {
+            assertTrue(store.remove(views.get(i)));
+        }
+
+        assertEquals(50, store.size());
+        assertTrue(store.allocatedRows() < COUNT / 2, "tombstones were never reclaimed: " + store.allocatedRows());
+        for (int i = 0; i < COUNT; i++) {
+            Appointment view = views.get(i);
+            // Live or not, every view still reads its own values
+            assertEquals(i + 1, view.getId());
+            assertEquals("s" + i, view.getStudentName());
+            assertEquals("session " + i, view.getDescription());
+            assertEquals(MONDAY.plusMinutes(30L * i), view.getAppointmentTime());
+            boolean live = i >= COUNT - 100 && i % 2 == 0;
+            assertEquals(live, store.contains(view), "contains " + i);
+            if (live) {
+                Appointment fresh = store.get(i + 1);
+                assertEquals(fresh, view);
+                assertEquals(fresh.hashCode(), view.hashCode());
+                assertEquals("session " + i, byView.get(fresh));
+            }
+        }
+
+        // Writes through an old view land in the current generation and its indexes
+        Appointment kept = views.get(COUNT - 2);
+        kept.setStatus("Confirmed");
+        store.move(kept, MONDAY.minusDays(1));
+        Appointment fresh = store.get(COUNT - 1);
+        assertEquals("Confirmed", fresh.getStatus());
+        assertEquals(MONDAY.minusDays(1), fresh.getAppointmentTime());
+        assertEquals(fresh, store.allByTime().get(0));
+        assertNotNull(store.findOverlap(AppointmentStore.Participant.STUDENT, "s" + (COUNT - 2), MONDAY.minusDays(1),
+                MONDAY.minusDays(1).plusMinutes(10), null));
+        assertTrue(store.remove(kept));
+        assertEquals(49, store.size());
+    }
+
+    @Test
+    void clearStartsFromEmptyColumnsAndDetachesViews() {
+        ColumnarAppointmentStore store = new ColumnarAppointmentStore();
+        Appointment appointment = new Appointment("s", "l", MONDAY, "first session", 30);
+        appointment.setId(1);
+        store.putIfAbsent(appointment);
+
+        store.clear();
+
+        assertEquals(0, store.allocatedRows());
+        assertEquals(0, store.size());
+        assertFalse(store.contains(appointment));
+        assertEquals("first session", appointment.getDescription());
+        assertEquals(MONDAY, appointment.getAppointmentTime());
+
+        Appointment reloaded = new Appointment("s", "l", MONDAY, "first session", 30);
+        reloaded.setId(1);
+        store.putIfAbsent(reloaded);
+        assertEquals(1, store.allocatedRows());
+        assertTrue(store.contains(reloaded));
+        assertFalse(reloaded.equals(appointment));
+    }
+}
@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConsultationServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final UserManager users = UserManager.getInstance();
+    private ConsultationServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        users.addUser(new User("server-student", "pw", "student"));
+        users.addUser(new User("server-lecturer", "pw", "lecturer"));
+        AppointmentManager appointments = new AppointmentManager();
+        server = new ConsultationServer(users, appointments, new RescheduleManager(appointments));
+        server.start("127.0.0.1", 0);
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+        users.removeUser("server-student");
+        users.removeUser("server-lecturer");
+    }
+
+    @Test
+    void logoutEndsTheSession() throws Exception {
+        String token = login("server-student");
+        assertEquals(200, send("GET", "/api/appointments", token, null).statusCode());
+        assertEquals(200, send("POST", "/api/logout", token, "{}").statusCode());
+        assertEquals(401, send("GET", "/api/appointments", token, null).statusCode());
+        assertEquals(401, send("POST", "/api/logout", token, "{}").statusCode());
+    }
+
+    @Test
+    void nonNumericDurationIsABadRequest() throws Exception {
+        String token = login("server-student");
+        for (String duration : new String[] {"\"thirty\"", "30.5", "0", "99999999999"}) {
+            HttpResponse<String> response = send("POST", "/api/appointments", token,
+                    "{\"lecturer\": \"server-lecturer\", \"time\": \"2030-03-04 10:00\", \"description\": \"d\", "
+                            + "\"durationMinutes\": " + duration + "}");
+            assertEquals(400, response.statusCode(), duration + ": " + response.body());
+        }
+    }
+
+    private String login(String username) throws Exception {
+        HttpResponse<String> response = send("POST", "/api/login", null,
+                "{\"username\": \"" + username + "\", \"password\": \"pw\"}");
+        assertEquals(200, response.statusCode());
+        return (String) Json.parseObject(response.body()).get("token");
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("X-Session", token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
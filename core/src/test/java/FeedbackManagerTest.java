@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Like the other managers, feedback changes are journaled first and then published,
+// and a synchronous subscriber sees the new values
+class FeedbackManagerTest {
+    @Test
+    void changesAreJournaledThenPublishedWithTheNewValues() {
+        FeedbackManager manager = new FeedbackManager();
+        List<String> seen = new ArrayList<>();
+        Journal journal = new Journal(null);
+        journal.setListener(record -> seen.add("journal"));
+        manager.setJournal(journal);
+        manager.getEventBus().subscribe(event -> seen.add(event.getType() + " " + event.getFeedback().getRating()
+                + " " + manager.getRating("l").getAverage()));
+
+        Feedback feedback = new Feedback("s", "l", "Very helpful session", 4);
+        manager.submitFeedback(feedback);
+        feedback.setRating(2);
+        feedback.setContent("Helpful, but rushed");
+
+        assertEquals(List.of("journal", "SUBMITTED 4 4.0", "journal", "UPDATED 2 2.0", "journal", "UPDATED 2 2.0"),
+                seen);
+    }
+
+    @Test
+    void invalidRatingChangesNothing() {
+        FeedbackManager manager = new FeedbackManager();
+        Feedback feedback = new Feedback("s", "l", "Very helpful session", 4);
+        manager.submitFeedback(feedback);
+
+        assertThrows(IllegalArgumentException.class, () -> feedback.setRating(9));
+        assertEquals(4, feedback.getRating());
+        assertEquals(4.0, manager.getRating("l").getAverage());
+    }
+}
@@ -0,0 +1,243 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Replaying the journal over a snapshot that already holds some of its effects must
+// leave the state unchanged, e.g. after a crash between writing a snapshot and
+// truncating the journal, or when a standby's snapshot overlaps the live log.
+class JournalReplayTest {
+    private static final LocalDateTime BOOKED = LocalDateTime.of(2030, 3, 4, 10, 0);
+    private static final LocalDateTime MOVED = LocalDateTime.of(2030, 3, 4, 14, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayOverSnapshotWithMovedAppointmentAddsNothing() throws Exception {
+        File file = dir.resolve("journal.log").toFile();
+        AppointmentManager primary = journaled(file);
+        Appointment appointment = new Appointment("s", "l", BOOKED, "first session", 30);
+        primary.addAppointment(appointment);
+        primary.rescheduleAppointment(appointment, MOVED);
+
+        // The snapshot already has the appointment at its new time, but the journal was never reset
+        AppointmentManager restored = new AppointmentManager();
+        restored.restoreAppointment(copy(appointment));
+        replay(file, restored);
+
+        assertSingle(restored, appointment.getId(), MOVED);
+    }
+
+    @Test
+    void replayFromEmptyRebuildsState() throws Exception {
+        File file = dir.resolve("journal.log").toFile();
+        AppointmentManager primary = journaled(file);
+        Appointment moved = new Appointment("s", "l", BOOKED, "first session", 30);
+        primary.addAppointment(moved);
+        primary.rescheduleAppointment(moved, MOVED);
+        Appointment cancelled = new Appointment("t", "l", BOOKED, "second session", 30);
+        primary.addAppointment(cancelled);
+        primary.confirmAppointment(cancelled);
+        primary.removeAppointment(cancelled);
+
+        AppointmentManager restored = new AppointmentManager();
+        replay(file, restored);
+        assertSingle(restored, moved.getId(), MOVED);
+
+        // A second pass over the same records changes nothing
+        replay(file, restored);
+        assertSingle(restored, moved.getId(), MOVED);
+    }
+
+    @Test
+    void replayKeepsConfirmationOfMovedAppointment() throws Exception {
+        File file = dir.resolve("journal.log").toFile();
+        AppointmentManager primary = journaled(file);
+        Appointment appointment = new Appointment("s", "l", BOOKED, "first session", 30);
+        primary.addAppointment(appointment);
+        primary.rescheduleAppointment(appointment, MOVED);
+        primary.confirmAppointment(appointment);
+
+        AppointmentManager restored = new AppointmentManager();
+        restored.restoreAppointment(copy(appointment));
+        replay(file, restored);
+
+        assertSingle(restored, appointment.getId(), MOVED);
+        assertEquals(true, restored.findById(appointment.getId()).isConfirmed());
+    }
+
+    @Test
+    void replayRestoresUserRemovalsAndPasswordChanges() throws Exception {
+        File file = dir.resolve("journal.log").toFile();
+        UserManager users = UserManager.getInstance();
+        try (Journal journal = new Journal(file.getPath())) {
+            users.setJournal(journal);
+            users.addUser(new User("replay-kept", "old", "student"));
+            users.updateUser("replay-kept", "new");
+            users.addUser(new User("replay-removed", "pw", "student"));
+            users.removeUser("replay-removed");
+        } finally {
+            users.setJournal(null);
+        }
+
+        // Back to what an older snapshot held
+        users.removeUser("replay-kept");
+        users.addUser(new User("replay-kept", "old", "student"));
+        users.addUser(new User("replay-removed", "pw", "student"));
+        replay(file, new AppointmentManager());
+
+        assertEquals("new", users.getUserByUsername("replay-kept").getPassword());
+        assertNull(users.getUserByUsername("replay-removed"));
+        users.removeUser("replay-kept");
+    }
+
+    @Test
+    void corruptTailIsDroppedAndTruncated() throws Exception {
+        // A flipped byte, an impossible length, a zero length and a torn record
+        byte[][] tails = {null, {0x7f, 0, 0, 0}, {0, 0, 0, 0, 1, 2, 3, 4}, {0, 0, 0, 40, 1, 2, 3}};
+        for (byte[] tail : tails) {
+            File file = dir.resolve("journal-" + (tail == null ? "crc" : tail.length) + ".log").toFile();
+            AppointmentManager primary = journaled(file);
+            primary.addAppointment(new Appointment("s", "l", BOOKED, "kept", 30));
+            long validLength = file.length();
+            primary.addAppointment(new Appointment("s", "l", MOVED, "damaged", 30));
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (tail == null) {
+                    raf.seek(raf.length() - 1);
+                    int last = raf.read();
+                    raf.seek(raf.length() - 1);
+                    raf.write(last ^ 0xff);
+                } else {
+                    raf.setLength(validLength);
+                    raf.seek(validLength);
+                    raf.write(tail);
+                }
+            }
+
+            AppointmentManager restored = new AppointmentManager();
+            replay(file, restored);
+            assertEquals(1, restored.getAllAppointments().size());
+            assertEquals("kept", restored.getAllAppointments().get(0).getDescription());
+            assertEquals(validLength, file.length());
+        }
+    }
+
+    @Test
+    void journalWithoutChecksumsIsConverted() throws Exception {
+        List<byte[]> records = new ArrayList<>();
+        Journal capture = new Journal(null);
+        capture.setListener(records::add);
+        Appointment appointment = new Appointment("s", "l", BOOKED, "legacy", 30);
+        appointment.setId(7);
+        capture.logAppointmentAdded(appointment);
+        capture.logConfirmed(appointment);
+        File file = dir.resolve("journal.log").toFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            for (byte[] record : records) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+            out.writeInt(1000); // torn tail
+        }
+
+        AppointmentManager restored = new AppointmentManager();
+        replay(file, restored);
+        assertSingle(restored, 7, BOOKED);
+        assertEquals(true, restored.findById(7).isConfirmed());
+
+        // Now in the current format: appending and replaying again keeps everything
+        try (Journal journal = new Journal(file.getPath())) {
+            restored.setJournal(journal);
+            restored.rescheduleAppointment(restored.findById(7), MOVED);
+        }
+        AppointmentManager again = new AppointmentManager();
+        replay(file, again);
+        assertSingle(again, 7, MOVED);
+    }
+
+    // Columnar stores (also as shards) hand out a new view per lookup, so this also checks
+    // that both threads serialize on the same lock
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "columnar", "partitioned-heap", "partitioned-columnar"})
+    void cancellationRacingBookingIsLoggedAfterIt(String storeKind) throws Exception {
+        File file = dir.resolve("journal.log").toFile();
+        AppointmentManager primary = new AppointmentManager(store(storeKind));
+        primary.setJournal(new Journal(file.getPath()));
+        int count = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> cancels = executor.submit(() -> {
+                // IDs are handed out in order, so cancel each one as soon as it is visible
+                for (long id = 1; id <= count; id++) {
+                    while (!primary.cancelById(id)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            executor.submit(() -> {
+                for (int i = 0; i < count; i++) {
+                    primary.addAppointment(new Appointment("s", "l", BOOKED.plusMinutes(30L * i), "race", 30));
+                }
+            }).get();
+            cancels.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        AppointmentManager restored = new AppointmentManager();
+        replay(file, restored);
+        assertEquals(0, restored.getAllAppointments().size(), "cancelled appointments back after replay");
+    }
+
+    private static AppointmentManager journaled(File file) {
+        AppointmentManager manager = new AppointmentManager();
+        manager.setJournal(new Journal(file.getPath()));
+        return manager;
+    }
+
+    private static AppointmentStore store(String kind) {
+        if (kind.startsWith("partitioned-")) {
+            return new PartitionedAppointmentStore(4, kind.substring("partitioned-".length()));
+        }
+        return AppointmentStore.create(kind);
+    }
+
+    private static Appointment copy(Appointment appointment) {
+        Appointment copy = new Appointment(appointment.getStudentName(), appointment.getLecturerName(),
+                appointment.getAppointmentTime(), appointment.getDescription(), appointment.getDurationMinutes());
+        copy.setId(appointment.getId());
+        copy.setStatus(appointment.getStatus());
+        copy.setConfirmed(appointment.isConfirmed());
+        return copy;
+    }
+
+    private static void replay(File file, AppointmentManager appointmentManager) throws Exception {
+        try (Journal journal = new Journal(file.getPath())) {
+            journal.replay(UserManager.getInstance(), appointmentManager, new RescheduleManager(appointmentManager),
+                    new FeedbackManager());
+        }
+    }
+
+    private static void assertSingle(AppointmentManager manager, long id, LocalDateTime time) {
+        List<Appointment> all = manager.getAllAppointments();
+        assertEquals(1, all.size(), "appointments after replay");
+        assertEquals(id, all.get(0).getId());
+        assertEquals(time, all.get(0).getAppointmentTime());
+    }
+}
@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PartitionedAppointmentStoreTest {
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2030, 3, 4, 9, 0);
+    private static final int PARTITIONS = 4;
+
+    private long nextId = 1;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "columnar"})
+    void eachLecturerLivesInOneShard(String shardKind) {
+        PartitionedAppointmentStore store = new PartitionedAppointmentStore(PARTITIONS, shardKind);
+        for (int l = 0; l < 20; l++) {
+            for (int s = 0; s < 5; s++) {
+                put(store, "s" + s, "l" + l, MONDAY.plusHours(s));
+            }
+        }
+
+        int usedShards = 0;
+        for (int p = 0; p < PARTITIONS; p++) {
+            usedShards += store.partition(p).size() > 0 ? 1 : 0;
+        }
+        assertTrue(usedShards > 1, "all lecturers landed in one shard");
+        for (int l = 0; l < 20; l++) {
+            String lecturer = "l" + l;
+            int holding = 0;
+            for (int p = 0; p < PARTITIONS; p++) {
+                int count = store.partition(p).all(AppointmentStore.Participant.LECTURER, lecturer).size();
+                if (count > 0) {
+                    assertEquals(5, count);
+                    holding++;
+                }
+            }
+            assertEquals(1, holding, lecturer + " is split over shards");
+            assertEquals(5, store.all(AppointmentStore.Participant.LECTURER, lecturer).size());
+        }
+        // A student's appointments are gathered from every shard, in time order
+        List<Appointment> student = store.all(AppointmentStore.Participant.STUDENT, "s3");
+        assertEquals(20, student.size());
+        assertOrdered(student);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "columnar"})
+    void studentOverlapsAreFoundAcrossShards(String shardKind) {
+        PartitionedAppointmentStore store = new PartitionedAppointmentStore(PARTITIONS, shardKind);
+        String[] lecturers = lecturersInDifferentShards(store);
+        Appointment first = put(store, "s", lecturers[0], MONDAY);
+        put(store, "t", lecturers[1], MONDAY);
+
+        // The student's clash is in another shard than the lecturer being booked
+        Appointment clash = store.findOverlap(AppointmentStore.Participant.STUDENT, "s", MONDAY.plusMinutes(15),
+                MONDAY.plusMinutes(45), null);
+        assertNotNull(clash);
+        assertEquals(first.getId(), clash.getId());
+        assertNull(store.findOverlap(AppointmentStore.Participant.LECTURER, lecturers[1], MONDAY.plusMinutes(30),
+                MONDAY.plusMinutes(60), null));
+
+        Appointment second = put(store, "s", lecturers[1], MONDAY.plusMinutes(15));
+        List<SchedulingConflict> students = store.findAllOverlaps(AppointmentStore.Participant.STUDENT);
+        assertEquals(1, students.size());
+        assertEquals("s", students.get(0).getName());
+        assertEquals(first.getId(), students.get(0).getExisting().getId());
+        assertEquals(second.getId(), students.get(0).getConflicting().getId());
+        // lecturers[1] now has t and s at overlapping times, found within its own shard
+        List<SchedulingConflict> lecturerConflicts = store.findAllOverlaps(AppointmentStore.Participant.LECTURER);
+        assertEquals(1, lecturerConflicts.size());
+        assertEquals(lecturers[1], lecturerConflicts.get(0).getName());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "columnar"})
+    void mergedResultsAreInTimeOrderWithTiesInShardOrder(String shardKind) {
+        PartitionedAppointmentStore store = new PartitionedAppointmentStore(PARTITIONS, shardKind);
+        // Enough to take the parallel path; many equal times across shards
+        for (int i = 0; i < 12_000; i++) {
+            put(store, "s" + i, "l" + (i % 37), MONDAY.plusMinutes(30L * ((i * 7919L) % 500)));
+        }
+
+        List<Appointment> all = store.allByTime();
+        assertEquals(12_000, all.size());
+        assertOrdered(all);
+        List<Long> expected = new ArrayList<>();
+        for (Appointment appointment : byTimeThenShard(store)) {
+            expected.add(appointment.getId());
+        }
+        assertEquals(expected, ids(all));
+
+        List<Appointment> morning = store.select(a -> a.getAppointmentTime().getHour() < 12);
+        assertEquals(ids(all.stream().filter(a -> a.getAppointmentTime().getHour() < 12)
+                .collect(Collectors.toList())), ids(morning));
+    }
+
+    private Appointment put(AppointmentStore store, String student, String lecturer, LocalDateTime time) {
+        Appointment appointment = new Appointment(student, lecturer, time, "d", 30);
+        appointment.setId(nextId++);
+        assertNull(store.putIfAbsent(appointment));
+        return appointment;
+    }
+
+    private static String[] lecturersInDifferentShards(PartitionedAppointmentStore probe) {
+        // Find two lecturers whose appointments land in different shards of a scratch store
+        PartitionedAppointmentStore scratch = new PartitionedAppointmentStore(probe.getPartitionCount(), "heap");
+        List<String> found = new ArrayList<>();
+        List<Integer> shards = new ArrayList<>();
+        for (int l = 0; found.size() < 2; l++) {
+            Appointment appointment = new Appointment("x", "lecturer" + l, MONDAY, "d", 30);
+            appointment.setId(l + 1);
+            scratch.putIfAbsent(appointment);
+            for (int p = 0; p < scratch.getPartitionCount(); p++) {
+                if (scratch.partition(p).contains(appointment) && !shards.contains(p)) {
+                    shards.add(p);
+                    found.add("lecturer" + l);
+                }
+            }
+        }
+        return found.toArray(new String[0]);
+    }
+
+    // Stable sort of the shards' own results, concatenated in shard order
+    private static List<Appointment> byTimeThenShard(PartitionedAppointmentStore store) {
+        List<Appointment> result = new ArrayList<>();
+        for (int p = 0; p < store.getPartitionCount(); p++) {
+            result.addAll(store.partition(p).allByTime());
+        }
+        result.sort(Comparator.comparing(Appointment::getAppointmentTime));
+        return result;
+    }
+
+    private static void assertOrdered(List<Appointment> appointments) {
+        for (int i = 1; i < appointments.size(); i++) {
+            assertTrue(!appointments.get(i).getAppointmentTime().isBefore(appointments.get(i - 1).getAppointmentTime()),
+                    "out of time order at " + i);
+        }
+    }
+
+    private static List<Long> ids(List<Appointment> appointments) {
+        return appointments.stream().map(Appointment::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,31 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class PersistenceServiceTest {
+    @Test
+    void failedSaveKeepsDataDirtyAndIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch saved = new CountDownLatch(1);
+        PersistenceService service = new PersistenceService(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                return false;
+            }
+            saved.countDown();
+            return true;
+        }, 10, 1_000);
+
+        service.markDirty();
+        service.flush();
+        assertTrue(service.isDirty(), "a failed save must not count as saved");
+
+        assertTrue(saved.await(5, TimeUnit.SECONDS), "failed save was not retried");
+        service.close();
+        assertFalse(service.isDirty());
+    }
+}
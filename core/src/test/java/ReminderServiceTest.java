@@ -0,0 +1,26 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class ReminderServiceTest {
+    @Test
+    void closingTheServiceClosesItsSink() {
+        AtomicBoolean closed = new AtomicBoolean();
+        ReminderSink sink = new ReminderSink() {
+            @Override
+            public void deliver(Reminder reminder) {
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        ReminderService service = new ReminderService(new AppointmentManager(), sink);
+        service.start();
+        service.close();
+        assertTrue(closed.get());
+    }
+}
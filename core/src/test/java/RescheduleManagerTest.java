@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// A request must not outlive its appointment: once the appointment is cancelled the
+// request can neither stay queued nor be approved back into the store.
+class RescheduleManagerTest {
+    private static final LocalDateTime BOOKED = LocalDateTime.of(2030, 3, 4, 10, 0);
+    private static final LocalDateTime PROPOSED = LocalDateTime.of(2030, 3, 4, 14, 0);
+
+    @Test
+    void cancellingDropsPendingRequests() {
+        AppointmentManager appointments = new AppointmentManager();
+        RescheduleManager requests = new RescheduleManager(appointments);
+        Appointment appointment = new Appointment("s", "l", BOOKED, "first session", 30);
+        appointments.addAppointment(appointment);
+        ReschedulingRequest request = new ReschedulingRequest(appointment, PROPOSED, "s", "Clashes with a lecture");
+        requests.submitRequest(request);
+        assertEquals(1, requests.getPendingForLecturer("l").size());
+
+        appointments.removeAppointment(appointment);
+
+        assertTrue(requests.getPendingForLecturer("l").isEmpty());
+        assertTrue(requests.getAllRequests().isEmpty());
+        assertNull(requests.findById(request.getRequestId()));
+        assertTrue(requests.approveAllPending("l").getApproved().isEmpty());
+        assertTrue(appointments.getAllAppointments().isEmpty());
+    }
+
+    @Test
+    void approvingRequestOfCancelledAppointmentRejectsIt() {
+        AppointmentManager appointments = new AppointmentManager();
+        Appointment appointment = new Appointment("s", "l", BOOKED, "first session", 30);
+        appointments.addAppointment(appointment);
+        ReschedulingRequest request = new ReschedulingRequest(appointment, PROPOSED, "s", "Clashes with a lecture");
+        appointments.removeAppointment(appointment);
+
+        assertFalse(appointments.approveReschedulingRequest(request));
+        assertEquals(ReschedulingRequest.RequestStatus.REJECTED, request.getStatus());
+        assertTrue(appointments.getAllAppointments().isEmpty());
+
+        // The slot it would have moved to is still free
+        Appointment other = new Appointment("t", "l", PROPOSED, "second session", 30);
+        appointments.addAppointment(other);
+        List<Appointment> all = appointments.getAllAppointments();
+        assertEquals(1, all.size());
+        assertEquals(PROPOSED, all.get(0).getAppointmentTime());
+    }
+
+    @Test
+    void requestSubmittedAfterCancellationIsIgnored() {
+        AppointmentManager appointments = new AppointmentManager();
+        RescheduleManager requests = new RescheduleManager(appointments);
+        Appointment appointment = new Appointment("s", "l", BOOKED, "first session", 30);
+        appointments.addAppointment(appointment);
+        appointments.removeAppointment(appointment);
+
+        requests.submitRequest(new ReschedulingRequest(appointment, PROPOSED, "s", "Clashes with a lecture"));
+
+        assertTrue(requests.getPendingForLecturer("l").isEmpty());
+        assertTrue(requests.getAllRequests().isEmpty());
+    }
+}
@@ -0,0 +1,196 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class TextIndexTest {
+    private static final LocalDateTime JAN_10 = LocalDateTime.of(2030, 1, 10, 10, 0);
+    private static final LocalDateTime JAN_11 = LocalDateTime.of(2030, 1, 11, 10, 0);
+    private static final LocalDateTime FEB_1 = LocalDateTime.of(2030, 2, 1, 10, 0);
+    private static final LocalDateTime FEB_2 = LocalDateTime.of(2030, 2, 2, 10, 0);
+    private static final LocalDateTime MAR_1 = LocalDateTime.of(2030, 3, 1, 10, 0);
+
+    private TextIndex index;
+
+    @BeforeEach
+    void documents() {
+        index = new TextIndex();
+        index.add(1, "Exam anxiety and sleep problems", "alice", JAN_10);
+        index.add(2, "Sleep schedule before the exam", "bob", JAN_11);
+        index.add(3, "Career planning session", "alice", FEB_1);
+        index.add(4, "考试焦虑，睡眠不好", "bob", FEB_2);
+        index.add(5, "Anxiety about exam results", "alice", MAR_1);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "exam anxiety                         | 1 5",
+            "EXAM AND Sleep                       | 1 2",
+            "career OR 睡眠                        | 3 4",
+            "\"exam anxiety\"                     | 1",
+            "exam-anxiety                         | 1",
+            "\"anxiety exam\"                     | ''",
+            "(career OR sleep) exam               | 1 2",
+            "anxiety (results OR problems)        | 1 5",
+            "career OR sleep schedule OR results  | 2 3 5",
+            "((exam))                             | 1 2 5",
+            "考试                                  | 4",
+            "焦                                    | 4",
+            "考焦                                  | ''",
+            "missing                              | ''",
+    })
+    void queries(String query, String expected) {
+        assertArrayEquals(keys(expected), index.search(query, null, null, null));
+    }
+
+    @Test
+    void tokenizerSplitsIdeographsAndLowerCases() {
+        assertEquals(List.of("考", "试", "焦", "虑", "ok", "cbt2"), TextIndex.tokenize("考试焦虑 OK, CBT2!"));
+    }
+
+    @Test
+    void replacingTextReindexesTheDocument() {
+        index.add(1, "Career change", "alice", JAN_10);
+
+        assertEquals(5, index.size());
+        assertArrayEquals(new long[] {5}, index.search("exam anxiety", null, null, null));
+        assertArrayEquals(new long[] {1, 3}, index.search("career", null, null, null));
+    }
+
+    @Test
+    void unchangedTextOnlyUpdatesLecturerAndTime() {
+        index.add(3, "Career planning session", "bob", MAR_1);
+
+        assertArrayEquals(new long[0], index.search("career", "alice", null, null));
+        assertArrayEquals(new long[] {3}, index.search("career", "bob", MAR_1, null));
+    }
+
+    @Test
+    void lecturerAndDateFilters() {
+        assertArrayEquals(new long[] {1, 5}, index.search("exam", "alice", null, null));
+        assertArrayEquals(new long[0], index.search("exam", "carol", null, null));
+        // from is inclusive, to exclusive
+        assertArrayEquals(new long[] {2}, index.search("exam", null, JAN_11, MAR_1));
+        assertArrayEquals(new long[] {1, 2}, index.search("exam", null, null, FEB_1));
+        assertArrayEquals(new long[] {5}, index.search("exam", "alice", FEB_1, null));
+
+        index.move(5, FEB_2);
+        assertArrayEquals(new long[] {2, 5}, index.search("exam", null, JAN_11, MAR_1));
+    }
+
+    @Test
+    void removedDocumentsStopMatching() {
+        assertTrue(index.remove(2));
+        assertFalse(index.remove(2));
+        assertFalse(index.contains(2));
+        assertEquals(4, index.size());
+        assertArrayEquals(new long[] {1}, index.search("sleep", null, null, null));
+
+        assertEquals(1, index.removeIf((key, time) -> time.isBefore(FEB_1)));
+        assertArrayEquals(new long[] {5}, index.search("exam OR sleep", null, null, null));
+    }
+
+    @Test
+    void compactionDropsTermsOfDeletedDocumentsAndKeepsMatches() {
+        int terms = index.termCount();
+        index.remove(3);
+        assertEquals(terms, index.termCount());
+
+        index.compact();
+
+        assertEquals(terms - 3, index.termCount()); // career, planning, session
+        assertEquals(4, index.size());
+        assertArrayEquals(new long[] {1, 5}, index.search("exam anxiety", null, null, null));
+        assertArrayEquals(new long[] {1}, index.search("\"exam anxiety\"", "alice", null, FEB_1));
+        index.add(3, "Career planning again", "alice", FEB_1);
+        assertArrayEquals(new long[] {3}, index.search("career", null, null, null));
+    }
+
+    @Test
+    void removingMostDocumentsCompactsAutomatically() {
+        for (long key = 100; key < 3100; key++) {
+            index.add(key, "bulk note " + key, "carol", MAR_1);
+        }
+        int terms = index.termCount();
+
+        index.removeIf((key, time) -> key >= 100 && key < 2600);
+
+        assertTrue(index.termCount() < terms - 2000, "terms " + index.termCount());
+        assertEquals(505, index.size());
+        long[] bulk = index.search("bulk note", "carol", null, null);
+        assertEquals(500, bulk.length);
+        assertEquals(2600, bulk[0]);
+        assertEquals(3099, bulk[499]);
+        assertArrayEquals(new long[] {1, 5}, index.search("exam anxiety", null, null, null));
+    }
+
+    @Test
+    void writeAndReadRoundTrip() throws IOException {
+        index.remove(2);
+        index.add(3, "Career planning and exam anxiety", "alice", FEB_1);
+        index.move(4, MAR_1);
+        index.add(6, null, null, MAR_1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        TextIndex read = TextIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(index.size(), read.size());
+        assertEquals(index.termCount(), read.termCount());
+        assertTrue(read.contains(6));
+        assertFalse(read.contains(2));
+        for (String query : List.of("exam anxiety", "\"exam anxiety\"", "sleep OR career", "睡眠", "(planning OR results) exam")) {
+            assertArrayEquals(index.search(query, null, null, null), read.search(query, null, null, null), query);
+            assertArrayEquals(index.search(query, "alice", FEB_1, null), read.search(query, "alice", FEB_1, null), query);
+            assertArrayEquals(index.search(query, "bob", MAR_1, null), read.search(query, "bob", MAR_1, null), query);
+        }
+        // Replacing text still works on the read copy
+        read.add(3, "Career planning", "alice", FEB_1);
+        assertArrayEquals(new long[] {1, 5}, read.search("exam anxiety", null, null, null));
+    }
+
+    @Test
+    void readRejectsOtherFiles() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+        IOException e = assertThrows(IOException.class,
+                () -> TextIndex.readFrom(new DataInputStream(new ByteArrayInputStream(garbage))));
+        assertEquals("Not a search index file", e.getMessage());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "''                  | Empty search query",
+            "'  !! '             | Empty search query",
+            "()                  | Empty search query",
+            "\"exam anxiety      | Unclosed quote in search query",
+            "(exam OR sleep      | Unclosed parenthesis in search query",
+            "exam)               | Unexpected ')' in search query",
+            "exam OR             | OR needs a term on both sides",
+            "OR exam             | OR needs a term on both sides",
+    })
+    void parserErrors(String query, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> index.search(query, null, null, null));
+        assertEquals(message, e.getMessage());
+    }
+
+    private static long[] keys(String list) {
+        return list.isBlank() ? new long[0]
+                : Arrays.stream(list.trim().split(" ")).mapToLong(Long::parseLong).toArray();
+    }
+}
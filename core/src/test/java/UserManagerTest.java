@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+// Changes to one username race from several threads; each journal record must be followed
+// by its event before the next change starts, so subscribers see the journal's order
+class UserManagerTest {
+    private static final String NAME = "user-manager-test";
+
+    @Test
+    void eventsFollowTheJournalOrderUnderContention() throws Exception {
+        UserManager manager = UserManager.getInstance();
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        Journal journal = new Journal(null);
+        journal.setListener(record -> seen.add("journal"));
+        manager.setJournal(journal);
+        EventBus.Subscription subscription = manager.getEventBus().subscribe(event -> {
+            if (event.getUser().getUsername().equals(NAME)) {
+                seen.add(event.getType().name());
+            }
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    manager.addUser(new User(NAME, "p" + i, "Student"));
+                }
+            }));
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    manager.updateUser(NAME, "u" + i);
+                }
+            }));
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    manager.removeUser(NAME);
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+            subscription.close();
+            manager.setJournal(null);
+            manager.removeUser(NAME);
+        }
+
+        String last = null;
+        for (int i = 0; i < seen.size(); i += 2) {
+            assertEquals("journal", seen.get(i), "at " + i);
+            String type = seen.get(i + 1);
+            if (last == null || last.equals("REMOVED")) {
+                assertEquals("CREATED", type, "at " + i);
+            } else {
+                assertNotEquals("CREATED", type, "at " + i);
+            }
+            last = type;
+        }
+    }
+}